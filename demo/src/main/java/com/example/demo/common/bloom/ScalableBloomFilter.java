@@ -0,0 +1,159 @@
+package com.example.demo.common.bloom;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe scalable Bloom filter for strings (Almeida et al., "Scalable Bloom Filters").
+ * When the newest slice reaches its capacity a new slice with twice the capacity and half
+ * the error rate is added, so the overall false-positive rate stays below the target
+ * however many elements are inserted.
+ * <p>
+ * {@link #mightContain(String)} never returns {@code false} for an inserted element;
+ * elements cannot be removed.
+ */
+public class ScalableBloomFilter {
+
+    private static final double ERROR_TIGHTENING_RATIO = 0.5;
+    private static final int GROWTH_FACTOR = 2;
+
+    private final List<Slice> slices = new CopyOnWriteArrayList<>();
+    private final AtomicLong size = new AtomicLong();
+
+    public ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+        if (initialCapacity <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Capacity must be positive and false-positive rate in (0, 1)");
+        }
+        slices.add(new Slice(initialCapacity, falsePositiveRate * (1 - ERROR_TIGHTENING_RATIO)));
+    }
+
+    public void put(String value) {
+        long[] hashes = hash(value);
+        for (Slice slice : slices) {
+            if (slice.mightContain(hashes)) {
+                return;
+            }
+        }
+        current().put(hashes);
+        size.incrementAndGet();
+    }
+
+    public boolean mightContain(String value) {
+        long[] hashes = hash(value);
+        for (Slice slice : slices) {
+            if (slice.mightContain(hashes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Approximate number of distinct elements inserted.
+     */
+    public long size() {
+        return size.get();
+    }
+
+    public long bitSize() {
+        return slices.stream().mapToLong(slice -> slice.bitCount).sum();
+    }
+
+    /**
+     * Current false-positive probability, estimated from how full each slice's bit array is.
+     */
+    public double expectedFalsePositiveRate() {
+        double allNegative = 1;
+        for (Slice slice : slices) {
+            allNegative *= 1 - slice.expectedFalsePositiveRate();
+        }
+        return 1 - allNegative;
+    }
+
+    private Slice current() {
+        Slice last = slices.get(slices.size() - 1);
+        if (last.count.get() < last.capacity) {
+            return last;
+        }
+        synchronized (slices) {
+            last = slices.get(slices.size() - 1);
+            if (last.count.get() >= last.capacity) {
+                last = new Slice(last.capacity * GROWTH_FACTOR, last.falsePositiveRate * ERROR_TIGHTENING_RATIO);
+                slices.add(last);
+            }
+            return last;
+        }
+    }
+
+    /**
+     * Two independent 64-bit hashes (FNV-1a over UTF-8, then two different finalizers);
+     * slice probes are derived from them by double hashing.
+     */
+    private static long[] hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        return new long[] {mix(h), mix(h ^ 0x9e3779b97f4a7c15L) | 1};
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Slice {
+        private final long capacity;
+        private final double falsePositiveRate;
+        private final long bitCount;
+        private final int hashCount;
+        private final AtomicLongArray bits;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong setBits = new AtomicLong();
+
+        private Slice(long capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            // m = -n ln p / (ln 2)^2, k = (m / n) ln 2
+            long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            int words = (int) Math.min(Integer.MAX_VALUE - 8, (optimalBits + 63) / 64);
+            this.bitCount = words * 64L;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+            this.bits = new AtomicLongArray(words);
+        }
+
+        private void put(long[] hashes) {
+            for (int i = 0; i < hashCount; i++) {
+                long index = Math.floorMod(hashes[0] + i * hashes[1], bitCount);
+                long mask = 1L << index;
+                long previous = bits.getAndAccumulate((int) (index >>> 6), mask, (word, bit) -> word | bit);
+                if ((previous & mask) == 0) {
+                    setBits.incrementAndGet();
+                }
+            }
+            count.incrementAndGet();
+        }
+
+        private boolean mightContain(long[] hashes) {
+            for (int i = 0; i < hashCount; i++) {
+                long index = Math.floorMod(hashes[0] + i * hashes[1], bitCount);
+                if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private double expectedFalsePositiveRate() {
+            return Math.pow((double) setBits.get() / bitCount, hashCount);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.demo.common.bulkhead;
+
+import java.util.function.Supplier;
+
+/**
+ * The bulkhead (request group) the current thread works for; {@code null} for work of no group,
+ * such as scheduled jobs. {@link BulkheadDataSource} hands out connections from that group's
+ * pool. Work handed to another thread keeps its group only when wrapped with {@link #wrap}.
+ */
+public final class BulkheadContext {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private BulkheadContext() {
+    }
+
+    public static <T> T bind(String bulkhead, Supplier<T> work) {
+        String previous = set(bulkhead);
+        try {
+            return work.get();
+        } finally {
+            set(previous);
+        }
+    }
+
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return the bulkhead bound before
+     */
+    static String set(String bulkhead) {
+        String previous = CURRENT.get();
+        if (bulkhead == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(bulkhead);
+        }
+        return previous;
+    }
+
+    /**
+     * {@code work} bound to the caller's bulkhead, to run on another thread.
+     */
+    public static <T> Supplier<T> wrap(Supplier<T> work) {
+        String bulkhead = CURRENT.get();
+        return bulkhead == null ? work : () -> bind(bulkhead, work);
+    }
+
+    public static Runnable wrap(Runnable work) {
+        String bulkhead = CURRENT.get();
+        return bulkhead == null ? work : () -> bind(bulkhead, () -> {
+            work.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.demo.common.bulkhead;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Several pools to one database: the pool of the current {@link BulkheadContext bulkhead}, or
+ * the main pool for work of no bulkhead and of bulkheads without a pool of their own. A burst
+ * in one group then waits for, and times out on, its own connections only.
+ */
+public class BulkheadDataSource extends AbstractDataSource implements Closeable {
+
+    private final HikariDataSource main;
+    private final Map<String, HikariDataSource> pools;
+
+    public BulkheadDataSource(HikariDataSource main, Map<String, HikariDataSource> pools) {
+        this.main = main;
+        this.pools = new LinkedHashMap<>(pools);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return currentPool().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return currentPool().getConnection(username, password);
+    }
+
+    /**
+     * The pool the current thread's connections come from.
+     */
+    public HikariDataSource currentPool() {
+        String bulkhead = BulkheadContext.current();
+        HikariDataSource pool = bulkhead != null ? pools.get(bulkhead) : null;
+        return pool != null ? pool : main;
+    }
+
+    @Override
+    public void close() {
+        pools.values().forEach(HikariDataSource::close);
+        main.close();
+    }
+}
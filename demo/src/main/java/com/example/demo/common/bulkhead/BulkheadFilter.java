@@ -0,0 +1,109 @@
+package com.example.demo.common.bulkhead;
+
+import com.example.demo.common.dto.ApiResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+
+/**
+ * Admits a request only while its bulkhead has a free slot, otherwise answers 503 with
+ * Retry-After, and binds the bulkhead for the request's database work. Runs before Spring
+ * Security, so rejected requests cost next to nothing. A slot is held until the response is
+ * complete, including the asynchronous part of a request.
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 10)
+public class BulkheadFilter extends OncePerRequestFilter {
+
+    private final Bulkheads bulkheads;
+    private final ObjectMapper objectMapper;
+
+    public BulkheadFilter(Bulkheads bulkheads, ObjectMapper objectMapper) {
+        this.bulkheads = bulkheads;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !bulkheads.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+
+        Bulkheads.Bulkhead bulkhead = bulkheads.match(UrlPathHelper.defaultInstance.getPathWithinApplication(request));
+        if (bulkhead == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        try {
+            if (!bulkhead.tryEnter()) {
+                reject(response);
+                return;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            reject(response);
+            return;
+        }
+        boolean async = false;
+        String previous = BulkheadContext.set(bulkhead.getName());
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new Release(bulkhead));
+                async = true;
+            }
+        } finally {
+            BulkheadContext.set(previous);
+            if (!async) {
+                bulkhead.leave();
+            }
+        }
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(bulkheads.getRetryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ApiResponse(false, "Server is busy, please retry later"));
+    }
+
+    // Chỉ onComplete luôn được gọi đúng một lần, kể cả sau lỗi hoặc timeout
+    private record Release(Bulkheads.Bulkhead bulkhead) implements AsyncListener {
+        @Override
+        public void onComplete(AsyncEvent event) {
+            bulkhead.leave();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
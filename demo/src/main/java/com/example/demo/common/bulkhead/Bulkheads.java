@@ -0,0 +1,131 @@
+package com.example.demo.common.bulkhead;
+
+import com.example.demo.config.BulkheadConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The request groups of {@code app.bulkheads} (e.g. authentication and user CRUD), each with
+ * its own limit on concurrent requests and, on every database, its own connection pool, so a
+ * surge in one group cannot take the threads or connections the others need.
+ */
+@Component
+public class Bulkheads {
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private final BulkheadConfig config;
+    private final List<Bulkhead> bulkheads = new ArrayList<>();
+
+    public Bulkheads(BulkheadConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        if (config.isEnabled()) {
+            config.getGroups().forEach((name, group) -> bulkheads.add(new Bulkhead(name, group, meterRegistry)));
+        }
+    }
+
+    public boolean isEnabled() {
+        return !bulkheads.isEmpty();
+    }
+
+    /**
+     * @param path request path within the application
+     * @return the first bulkhead with a matching pattern, {@code null} when none matches
+     */
+    public Bulkhead match(String path) {
+        for (Bulkhead bulkhead : bulkheads) {
+            for (String pattern : bulkhead.group.getPaths()) {
+                if (PATH_MATCHER.match(pattern, path)) {
+                    return bulkhead;
+                }
+            }
+        }
+        return null;
+    }
+
+    public long getRetryAfterSeconds() {
+        return config.getRetryAfterSeconds();
+    }
+
+    /**
+     * Adds a pool per bulkhead to the database of {@code main}; the new pools copy its settings
+     * except size and connection timeout.
+     *
+     * @return {@code main} itself when no bulkhead has a pool of its own
+     */
+    public DataSource pools(HikariDataSource main) {
+        Map<String, HikariDataSource> pools = new LinkedHashMap<>();
+        for (Bulkhead bulkhead : bulkheads) {
+            BulkheadConfig.Group group = bulkhead.group;
+            if (group.getMaximumPoolSize() <= 0) {
+                continue;
+            }
+            HikariDataSource pool = new HikariDataSource();
+            main.copyStateTo(pool);
+            pool.setPoolName((main.getPoolName() != null ? main.getPoolName() : "HikariPool") + "-" + bulkhead.name);
+            pool.setMaximumPoolSize(group.getMaximumPoolSize());
+            pool.setMinimumIdle(Math.min(main.getMinimumIdle(), group.getMaximumPoolSize()));
+            if (group.getConnectionTimeout() != null) {
+                pool.setConnectionTimeout(group.getConnectionTimeout().toMillis());
+            }
+            pools.put(bulkhead.name, pool);
+        }
+        return pools.isEmpty() ? main : new BulkheadDataSource(main, pools);
+    }
+
+    public static final class Bulkhead {
+        private final String name;
+        private final BulkheadConfig.Group group;
+        private final Semaphore permits;
+        private final Counter rejected;
+
+        private Bulkhead(String name, BulkheadConfig.Group group, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.group = group;
+            this.permits = new Semaphore(group.getMaxConcurrentRequests());
+            Gauge.builder("bulkhead.requests.active", permits, p -> group.getMaxConcurrentRequests() - p.availablePermits())
+                    .description("Requests of the bulkhead being handled")
+                    .tag("bulkhead", name)
+                    .register(meterRegistry);
+            this.rejected = Counter.builder("bulkhead.requests.rejected")
+                    .description("Requests of the bulkhead rejected with 503 because it was full")
+                    .tag("bulkhead", name)
+                    .register(meterRegistry);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Takes a slot, waiting up to the group's {@code max-wait}; every successful call must be
+         * followed by {@link #leave()}.
+         *
+         * @return {@code false} if the bulkhead stayed full
+         */
+        public boolean tryEnter() throws InterruptedException {
+            long waitMillis = group.getMaxWait().toMillis();
+            boolean entered = waitMillis > 0 ? permits.tryAcquire(waitMillis, TimeUnit.MILLISECONDS) : permits.tryAcquire();
+            if (!entered) {
+                rejected.increment();
+            }
+            return entered;
+        }
+
+        public void leave() {
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.demo.common.cache;
+
+import com.example.demo.common.cache.config.EntityCacheConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Caffeine (W-TinyLFU eviction) implementation of {@link EntityCache}. Loads go through
+ * {@code Cache.get(key, loader)}, so an eviction that races with a load waits for it and
+ * then removes the possibly stale result.
+ * <p>
+ * Entities are kept as {@link EntitySnapshots snapshots} of their attribute values and every
+ * hit builds a new entity from one, so callers can modify what they get.
+ */
+public class CaffeineEntityCache<T, ID extends Serializable> implements EntityCache<T, ID> {
+
+    private final String name;
+    private final EntityCacheConfig.Spec spec;
+    private final MeterRegistry meterRegistry;
+    private final EntitySnapshots<T> snapshots;
+    private final Cache<ID, Optional<Object[]>> byId;
+    private final Map<String, Cache<Object, Optional<ID>>> byNaturalKey = new ConcurrentHashMap<>();
+
+    public CaffeineEntityCache(String name, EntityCacheConfig.Spec spec, MeterRegistry meterRegistry,
+                               EntitySnapshots<T> snapshots) {
+        this.name = name;
+        this.spec = spec;
+        this.meterRegistry = meterRegistry;
+        this.snapshots = snapshots;
+        this.byId = newCache("entity." + name);
+    }
+
+    @Override
+    public Optional<T> get(ID id, Function<? super ID, Optional<T>> loader) {
+        return byId.get(id, key -> loader.apply(key).map(snapshots::snapshot))
+                .map(snapshots::restore);
+    }
+
+    @Override
+    public Optional<ID> getId(String naturalKey, Object value, Function<Object, Optional<ID>> loader) {
+        return naturalKeyCache(naturalKey).get(value, loader);
+    }
+
+    @Override
+    public void evict(ID id) {
+        byId.invalidate(id);
+    }
+
+    @Override
+    public void evictNaturalKey(String naturalKey, Object value) {
+        if (value != null) {
+            naturalKeyCache(naturalKey).invalidate(value);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        byId.invalidateAll();
+        byNaturalKey.values().forEach(Cache::invalidateAll);
+    }
+
+    private Cache<Object, Optional<ID>> naturalKeyCache(String naturalKey) {
+        return byNaturalKey.computeIfAbsent(naturalKey, key -> newCache("entity." + name + "." + key));
+    }
+
+    private <K, V> Cache<K, Optional<V>> newCache(String cacheName) {
+        Cache<K, Optional<V>> cache = Caffeine.newBuilder()
+                .maximumSize(spec.getMaximumSize())
+                .expireAfter(new Expiry<K, Optional<V>>() {
+                    @Override
+                    public long expireAfterCreate(K key, Optional<V> value, long currentTime) {
+                        return (value.isPresent() ? spec.getTtl() : spec.getNegativeTtl()).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(K key, Optional<V> value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(K key, Optional<V> value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, cacheName);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.demo.common.cache;
+
+import java.io.Serializable;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Read-through cache for one entity type: entities by id, plus natural keys (e.g. username)
+ * mapped to ids. Both cache "not found" as well. Callers always get their own copy of a
+ * cached entity, so modifying it does not affect other readers.
+ */
+public interface EntityCache<T, ID extends Serializable> {
+
+    Optional<T> get(ID id, Function<? super ID, Optional<T>> loader);
+
+    Optional<ID> getId(String naturalKey, Object value, Function<Object, Optional<ID>> loader);
+
+    void evict(ID id);
+
+    void evictNaturalKey(String naturalKey, Object value);
+
+    void invalidateAll();
+}
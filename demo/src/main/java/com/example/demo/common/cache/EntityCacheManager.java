@@ -0,0 +1,77 @@
+package com.example.demo.common.cache;
+
+import com.example.demo.common.cache.config.EntityCacheConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates the {@link EntityCache} of each entity type from {@code app.entity-cache} and
+ * keeps them by entity name, so invalidations received from other nodes can be applied.
+ */
+@Component
+public class EntityCacheManager {
+
+    private final EntityCacheConfig config;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Registration<?>> caches = new ConcurrentHashMap<>();
+
+    public EntityCacheManager(EntityCacheConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public static String entityName(Class<?> entityClass) {
+        return entityClass.getSimpleName().toLowerCase(Locale.ROOT);
+    }
+
+    public <T, ID extends Serializable> EntityCache<T, ID> createCache(Class<T> entityClass, Class<ID> idType,
+                                                                      EntitySnapshots<T> snapshots) {
+        String name = entityName(entityClass);
+        EntityCache<T, ID> cache = config.isEnabled()
+                ? new CaffeineEntityCache<>(name, config.specFor(name), meterRegistry, snapshots)
+                : new NoOpEntityCache<>();
+        caches.put(name, new Registration<>(cache, idType));
+        return cache;
+    }
+
+    /**
+     * Evicts an id given in its string form, e.g. from a notification payload.
+     */
+    public void evict(String entityName, String id) {
+        Registration<?> registration = caches.get(entityName);
+        if (registration != null) {
+            registration.evict(id);
+        }
+    }
+
+    public void evictNaturalKey(String entityName, String naturalKey, Object value) {
+        Registration<?> registration = caches.get(entityName);
+        if (registration != null) {
+            registration.cache().evictNaturalKey(naturalKey, value);
+        }
+    }
+
+    public void invalidateAll(String entityName) {
+        Registration<?> registration = caches.get(entityName);
+        if (registration != null) {
+            registration.cache().invalidateAll();
+        }
+    }
+
+    public void invalidateAll() {
+        caches.values().forEach(registration -> registration.cache().invalidateAll());
+    }
+
+    private record Registration<ID extends Serializable>(EntityCache<?, ID> cache, Class<ID> idType) {
+
+        private void evict(String id) {
+            cache.evict(DefaultConversionService.getSharedInstance().convert(id, idType));
+        }
+    }
+}
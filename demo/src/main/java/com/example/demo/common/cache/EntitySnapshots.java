@@ -0,0 +1,13 @@
+package com.example.demo.common.cache;
+
+/**
+ * Converts entities to and from the form a {@link CaffeineEntityCache} keeps: an array of
+ * attribute values that is never handed out. The values must be immutable (strings, numbers,
+ * {@code java.time} types), so building a new entity from them on every hit is a plain copy.
+ */
+public interface EntitySnapshots<T> {
+
+    Object[] snapshot(T entity);
+
+    T restore(Object[] values);
+}
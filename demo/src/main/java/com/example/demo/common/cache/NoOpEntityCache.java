@@ -0,0 +1,33 @@
+package com.example.demo.common.cache;
+
+import java.io.Serializable;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Used when {@code app.entity-cache.enabled=false}: every lookup goes to the loader.
+ */
+public class NoOpEntityCache<T, ID extends Serializable> implements EntityCache<T, ID> {
+
+    @Override
+    public Optional<T> get(ID id, Function<? super ID, Optional<T>> loader) {
+        return loader.apply(id);
+    }
+
+    @Override
+    public Optional<ID> getId(String naturalKey, Object value, Function<Object, Optional<ID>> loader) {
+        return loader.apply(value);
+    }
+
+    @Override
+    public void evict(ID id) {
+    }
+
+    @Override
+    public void evictNaturalKey(String naturalKey, Object value) {
+    }
+
+    @Override
+    public void invalidateAll() {
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.demo.common.cache.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.entity-cache")
+public class EntityCacheConfig {
+    private boolean enabled = true;
+    /** Applies to every entity without its own entry under {@code entities}. */
+    private Spec defaults = new Spec();
+    /** Per-entity overrides, keyed by the lower-case entity name, e.g. "user". */
+    private Map<String, Spec> entities = new HashMap<>();
+    private Invalidation invalidation = new Invalidation();
+
+    public Spec specFor(String entityName) {
+        Spec spec = entities.get(entityName);
+        if (spec == null) {
+            return defaults;
+        }
+        Spec merged = new Spec();
+        merged.setMaximumSize(spec.getMaximumSize() != null ? spec.getMaximumSize() : defaults.getMaximumSize());
+        merged.setTtl(spec.getTtl() != null ? spec.getTtl() : defaults.getTtl());
+        merged.setNegativeTtl(spec.getNegativeTtl() != null ? spec.getNegativeTtl() : defaults.getNegativeTtl());
+        return merged;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Spec getDefaults() {
+        return defaults;
+    }
+
+    public void setDefaults(Spec defaults) {
+        this.defaults = defaults;
+    }
+
+    public Map<String, Spec> getEntities() {
+        return entities;
+    }
+
+    public void setEntities(Map<String, Spec> entities) {
+        this.entities = entities;
+    }
+
+    public Invalidation getInvalidation() {
+        return invalidation;
+    }
+
+    public void setInvalidation(Invalidation invalidation) {
+        this.invalidation = invalidation;
+    }
+
+    /**
+     * Cross-node invalidation over PostgreSQL LISTEN/NOTIFY.
+     */
+    public static class Invalidation {
+        private boolean enabled = true;
+        private String channel = "entity_invalidation";
+        /** How long the listener waits for notifications per poll. */
+        private Duration pollTimeout = Duration.ofSeconds(10);
+        /** Delay before reconnecting after the listener connection is lost. */
+        private Duration reconnectDelay = Duration.ofSeconds(5);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getChannel() {
+            return channel;
+        }
+
+        public void setChannel(String channel) {
+            this.channel = channel;
+        }
+
+        public Duration getPollTimeout() {
+            return pollTimeout;
+        }
+
+        public void setPollTimeout(Duration pollTimeout) {
+            this.pollTimeout = pollTimeout;
+        }
+
+        public Duration getReconnectDelay() {
+            return reconnectDelay;
+        }
+
+        public void setReconnectDelay(Duration reconnectDelay) {
+            this.reconnectDelay = reconnectDelay;
+        }
+    }
+
+    public static class Spec {
+        /** Maximum entries per cache (the id cache and each natural-key cache). */
+        private Long maximumSize = 10_000L;
+        /** Lifetime of a cached entity. */
+        private Duration ttl = Duration.ofMinutes(10);
+        /** Lifetime of a cached "not found" result. */
+        private Duration negativeTtl = Duration.ofSeconds(30);
+
+        public Long getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(Long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public Duration getNegativeTtl() {
+            return negativeTtl;
+        }
+
+        public void setNegativeTtl(Duration negativeTtl) {
+            this.negativeTtl = negativeTtl;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.demo.common.cache.invalidation;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Payload of one invalidation notification: either a list of changed entities
+ * (id plus natural-key values) or, with {@code all}, every cached entry of the type.
+ */
+@JsonInclude(JsonInclude.Include.NON_DEFAULT)
+public class EntityInvalidation {
+
+    private String origin;
+    private String entity;
+    private boolean all;
+    private List<Change> changes = new ArrayList<>();
+
+    public EntityInvalidation() {
+    }
+
+    public EntityInvalidation(String origin, String entity, boolean all, List<Change> changes) {
+        this.origin = origin;
+        this.entity = entity;
+        this.all = all;
+        this.changes = changes;
+    }
+
+    // Getters and Setters
+    public String getOrigin() {
+        return origin;
+    }
+
+    public void setOrigin(String origin) {
+        this.origin = origin;
+    }
+
+    public String getEntity() {
+        return entity;
+    }
+
+    public void setEntity(String entity) {
+        this.entity = entity;
+    }
+
+    public boolean isAll() {
+        return all;
+    }
+
+    public void setAll(boolean all) {
+        this.all = all;
+    }
+
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(List<Change> changes) {
+        this.changes = changes;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public static class Change {
+        private String id;
+        private Map<String, String> keys;
+
+        public Change() {
+        }
+
+        public Change(String id, Map<String, String> keys) {
+            this.id = id;
+            this.keys = keys;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public Map<String, String> getKeys() {
+            return keys;
+        }
+
+        public void setKeys(Map<String, String> keys) {
+            this.keys = keys;
+        }
+    }
+}
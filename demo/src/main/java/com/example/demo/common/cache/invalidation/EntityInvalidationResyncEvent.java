@@ -0,0 +1,9 @@
+package com.example.demo.common.cache.invalidation;
+
+/**
+ * Published after the listener connected or reconnected and cleared the local caches:
+ * notifications sent before it was listening are lost, so derived in-memory state must be
+ * rebuilt.
+ */
+public record EntityInvalidationResyncEvent() {
+}
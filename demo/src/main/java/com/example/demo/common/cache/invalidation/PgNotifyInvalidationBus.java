@@ -0,0 +1,383 @@
+package com.example.demo.common.cache.invalidation;
+
+import com.example.demo.common.cache.EntityCacheManager;
+import com.example.demo.common.cache.config.EntityCacheConfig;
+import com.example.demo.common.sharding.Shards;
+import com.example.demo.config.ShardingConfig;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Propagates entity cache invalidations to the other application nodes over PostgreSQL
+ * LISTEN/NOTIFY, so a write on one node does not leave stale entries in the others' caches.
+ * <p>
+ * Inside a transaction, changes are collected and sent with {@code pg_notify} on the same
+ * connection just before commit: PostgreSQL delivers the notifications only if, and when,
+ * the transaction commits, in commit order. A dedicated connection per node LISTENs on the
+ * channel; each time it (re)connects every local cache is cleared and an
+ * {@link EntityInvalidationResyncEvent} is published, since notifications sent before it was
+ * listening are gone: on first connect those are the writes made while this node was starting
+ * up. With sharding a transaction notifies on the shard it wrote to, so there is one listening
+ * connection per shard.
+ * <p>
+ * The listening connections are opened with {@link DriverManager}, outside the Hikari pools:
+ * LISTEN is session state that a pool would reset or retire (max-lifetime), and a connection
+ * held forever would permanently take a pool slot. They still count against the server's
+ * {@code max_connections} (one per node and shard); they show up in {@code pg_stat_activity}
+ * as {@value #APPLICATION_NAME} and in the {@code entity.invalidation.listen.connections} gauge.
+ * <p>
+ * Natural-key values travel as strings, which matches the (string) natural keys in use.
+ */
+@Component
+public class PgNotifyInvalidationBus implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(PgNotifyInvalidationBus.class);
+
+    /** NOTIFY payloads must be shorter than 8000 bytes. */
+    private static final int MAX_PAYLOAD_BYTES = 7000;
+    /** Above this many changes per entity and transaction, the whole cache is invalidated instead. */
+    private static final int MAX_CHANGES = 2000;
+    private static final String APPLICATION_NAME = "entity-invalidation-listener";
+
+    private final String origin = UUID.randomUUID().toString();
+    private final EntityCacheConfig.Invalidation config;
+    private final EntityCacheManager cacheManager;
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Counter sent;
+    private final Counter received;
+    private final Counter resyncs;
+
+    private volatile boolean running;
+    private final Set<String> listening = ConcurrentHashMap.newKeySet();
+    private final Map<String, Connection> listenConnections = new ConcurrentHashMap<>();
+    private final List<Thread> listeners = new ArrayList<>();
+
+    public PgNotifyInvalidationBus(EntityCacheConfig config, EntityCacheManager cacheManager,
+                                   DataSourceProperties dataSourceProperties, ShardingConfig shardingConfig,
+                                   JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                                   ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry) {
+        this.config = config.getInvalidation();
+        this.cacheManager = cacheManager;
+        endpoints.add(new Endpoint(Shards.HOME, dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword()));
+        if (shardingConfig.isEnabled()) {
+            for (ShardingConfig.Shard shard : shardingConfig.getShards()) {
+                endpoints.add(new Endpoint(shard.getName(), shard.getUrl(),
+                        StringUtils.hasText(shard.getUsername()) ? shard.getUsername() : dataSourceProperties.determineUsername(),
+                        shard.getPassword() != null ? shard.getPassword() : dataSourceProperties.determinePassword()));
+            }
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+
+        this.sent = Counter.builder("entity.invalidation.notifications")
+                .description("Cache invalidation notifications by direction")
+                .tag("direction", "sent")
+                .register(meterRegistry);
+        this.received = Counter.builder("entity.invalidation.notifications")
+                .description("Cache invalidation notifications by direction")
+                .tag("direction", "received")
+                .register(meterRegistry);
+        this.resyncs = Counter.builder("entity.invalidation.resyncs")
+                .description("Local caches cleared after the invalidation listener (re)connected")
+                .register(meterRegistry);
+        Gauge.builder("entity.invalidation.listening", this, bus -> bus.listening.size() == bus.endpoints.size() ? 1 : 0)
+                .description("Whether the invalidation listener connections are up")
+                .register(meterRegistry);
+        Gauge.builder("entity.invalidation.listen.connections", listenConnections, Map::size)
+                .description("Open LISTEN connections, held outside the connection pools")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Announces that an entity changed; {@code naturalKeys} are the values whose lookups must be
+     * evicted. {@code id} may be {@code null} when only natural-key lookups are affected.
+     */
+    public void publish(String entityName, Object id, Map<String, ?> naturalKeys) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        Map<String, String> keys = new LinkedHashMap<>();
+        naturalKeys.forEach((key, value) -> {
+            if (value != null) {
+                keys.put(key, value.toString());
+            }
+        });
+        EntityInvalidation.Change change = new EntityInvalidation.Change(id == null ? null : id.toString(), keys);
+        Pending pending = pending();
+        if (pending != null) {
+            pending.add(entityName, change);
+        } else {
+            send(entityName, false, List.of(change));
+        }
+    }
+
+    public void publishInvalidateAll(String entityName) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        Pending pending = pending();
+        if (pending != null) {
+            pending.invalidateAll(entityName);
+        } else {
+            send(entityName, true, List.of());
+        }
+    }
+
+    /**
+     * Changes of the current transaction, created and bound on first use; {@code null} outside
+     * a transaction.
+     */
+    private Pending pending() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new Pending();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    sendPending((Pending) TransactionSynchronizationManager.getResource(PgNotifyInvalidationBus.this));
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PgNotifyInvalidationBus.this);
+                }
+            });
+        }
+        return pending;
+    }
+
+    private void sendPending(Pending pending) {
+        pending.all.forEach(entityName -> send(entityName, true, List.of()));
+        pending.changes.forEach((entityName, changes) -> send(entityName, false, changes));
+        pending.all.clear();
+        pending.changes.clear();
+    }
+
+    /**
+     * Sends the changes in as few notifications as the payload limit allows. Inside a
+     * transaction this runs on its connection, so delivery waits for the commit.
+     */
+    private void send(String entityName, boolean all, List<EntityInvalidation.Change> changes) {
+        String payload = serialize(new EntityInvalidation(origin, entityName, all, changes));
+        boolean tooLarge = payload.getBytes(StandardCharsets.UTF_8).length > MAX_PAYLOAD_BYTES;
+        if (tooLarge && changes.size() > 1) {
+            int half = changes.size() / 2;
+            send(entityName, false, changes.subList(0, half));
+            send(entityName, false, changes.subList(half, changes.size()));
+            return;
+        }
+        if (tooLarge) {
+            // Một thay đổi có khóa quá dài: xóa toàn bộ cache của entity này
+            payload = serialize(new EntityInvalidation(origin, entityName, true, List.of()));
+        }
+        jdbcTemplate.queryForObject("select pg_notify(?, ?)", Object.class, config.getChannel(), payload);
+        sent.increment();
+    }
+
+    private String serialize(EntityInvalidation invalidation) {
+        try {
+            return objectMapper.writeValueAsString(invalidation);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Cannot serialize cache invalidation", ex);
+        }
+    }
+
+    private void listen(Endpoint endpoint) {
+        boolean reconnect = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(endpoint.url(), endpoint.properties())) {
+                listenConnections.put(endpoint.name(), connection);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN \"" + config.getChannel().replace("\"", "\"\"") + "\"");
+                }
+                listening.add(endpoint.name());
+                log.info("Listening for entity cache invalidations on channel '{}' of {}", config.getChannel(),
+                        endpoint.name());
+                resync(reconnect);
+                reconnect = true;
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                int timeout = (int) config.getPollTimeout().toMillis();
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(timeout);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            receive(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException ex) {
+                if (!running) {
+                    break;
+                }
+                log.warn("Entity cache invalidation listener disconnected, reconnecting in {}",
+                        config.getReconnectDelay(), ex);
+                sleep(config.getReconnectDelay().toMillis());
+            } finally {
+                listening.remove(endpoint.name());
+                listenConnections.remove(endpoint.name());
+            }
+        }
+    }
+
+    private void receive(String payload) {
+        EntityInvalidation invalidation;
+        try {
+            invalidation = objectMapper.readValue(payload, EntityInvalidation.class);
+        } catch (JsonProcessingException ex) {
+            log.warn("Ignoring malformed cache invalidation: {}", payload);
+            return;
+        }
+        if (origin.equals(invalidation.getOrigin())) {
+            return;
+        }
+        received.increment();
+        String entityName = invalidation.getEntity();
+        if (invalidation.isAll()) {
+            cacheManager.invalidateAll(entityName);
+        } else {
+            for (EntityInvalidation.Change change : invalidation.getChanges()) {
+                if (change.getId() != null) {
+                    cacheManager.evict(entityName, change.getId());
+                }
+                if (change.getKeys() != null) {
+                    change.getKeys().forEach((key, value) -> cacheManager.evictNaturalKey(entityName, key, value));
+                }
+            }
+        }
+        try {
+            eventPublisher.publishEvent(new RemoteEntityInvalidationEvent(invalidation));
+        } catch (RuntimeException ex) {
+            log.error("Handling remote cache invalidation failed", ex);
+        }
+    }
+
+    private void resync(boolean reconnect) {
+        log.info("Invalidation listener {}, clearing local entity caches", reconnect ? "reconnected" : "connected");
+        resyncs.increment();
+        cacheManager.invalidateAll();
+        try {
+            eventPublisher.publishEvent(new EntityInvalidationResyncEvent());
+        } catch (RuntimeException ex) {
+            log.error("Handling cache resync failed", ex);
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!config.isEnabled() || running) {
+            return;
+        }
+        running = true;
+        for (Endpoint endpoint : endpoints) {
+            Thread listener = new Thread(() -> listen(endpoint), endpoints.size() == 1
+                    ? "entity-invalidation-listener" : "entity-invalidation-listener-" + endpoint.name());
+            listener.setDaemon(true);
+            listener.start();
+            listeners.add(listener);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        for (Connection connection : listenConnections.values()) {
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+                // Đang tắt, bỏ qua
+            }
+        }
+        listeners.forEach(Thread::interrupt);
+        listeners.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private record Endpoint(String name, String url, String username, String password) {
+
+        private Properties properties() {
+            Properties properties = new Properties();
+            if (username != null) {
+                properties.setProperty("user", username);
+            }
+            if (password != null) {
+                properties.setProperty("password", password);
+            }
+            properties.setProperty("ApplicationName", APPLICATION_NAME);
+            return properties;
+        }
+    }
+
+    private static final class Pending {
+        private final Set<String> all = new LinkedHashSet<>();
+        private final Map<String, List<EntityInvalidation.Change>> changes = new LinkedHashMap<>();
+
+        private void add(String entityName, EntityInvalidation.Change change) {
+            if (all.contains(entityName)) {
+                return;
+            }
+            List<EntityInvalidation.Change> entityChanges = changes.computeIfAbsent(entityName, ignored -> new ArrayList<>());
+            entityChanges.add(change);
+            if (entityChanges.size() > MAX_CHANGES) {
+                invalidateAll(entityName);
+            }
+        }
+
+        private void invalidateAll(String entityName) {
+            all.add(entityName);
+            changes.remove(entityName);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.demo.common.cache.invalidation;
+
+/**
+ * Published locally after an invalidation from another node has been applied to the
+ * entity caches, for other in-memory structures that track the same entities.
+ */
+public record RemoteEntityInvalidationEvent(EntityInvalidation invalidation) {
+}
@@ -0,0 +1,63 @@
+package com.example.demo.common.codec;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+
+/**
+ * Binary response formats offered to internal clients besides JSON, which stays the default.
+ */
+public final class BinaryMediaTypes {
+
+    public static final String APPLICATION_CBOR_VALUE = MediaType.APPLICATION_CBOR_VALUE;
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final String APPLICATION_PROTOBUF_VALUE = "application/x-protobuf";
+
+    public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+    public static final MediaType APPLICATION_PROTOBUF = MediaType.parseMediaType(APPLICATION_PROTOBUF_VALUE);
+
+    private static final List<MediaType> BINARY = List.of(MediaType.APPLICATION_CBOR, APPLICATION_SMILE, APPLICATION_PROTOBUF);
+
+    private BinaryMediaTypes() {
+    }
+
+    /**
+     * Whether JSON is what the client prefers, i.e. no binary format ranks above it in
+     * {@code accept}. Lets handlers keep JSON-only fast paths (pre-serialized bytes) for JSON
+     * clients.
+     */
+    public static boolean prefersJson(String accept) {
+        return MediaType.APPLICATION_JSON.equals(preferred(accept));
+    }
+
+    /**
+     * The format a response to {@code accept} is written in: JSON, unless a binary format
+     * ranks above it.
+     */
+    public static MediaType preferred(String accept) {
+        if (!StringUtils.hasText(accept)) {
+            return MediaType.APPLICATION_JSON;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException ex) {
+            return MediaType.APPLICATION_JSON;
+        }
+        MimeTypeUtils.sortBySpecificity(accepted);
+        for (MediaType mediaType : accepted) {
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return MediaType.APPLICATION_JSON;
+            }
+            for (MediaType binary : BINARY) {
+                if (mediaType.isCompatibleWith(binary)) {
+                    return binary;
+                }
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.demo.common.codec;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.protobuf.schema.NativeProtobufSchema;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchema;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchemaLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads and writes Protobuf with Jackson, using the messages of a {@code .proto} file as
+ * schemas: a class is supported when the file declares a message named like it
+ * ({@code UserResponse} for {@code UserResponse}). Other types, collections included, are
+ * left to the other converters. Properties missing from a message are not written.
+ */
+public class JacksonProtobufHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    private final ObjectMapper objectMapper;
+    private final NativeProtobufSchema nativeSchema;
+    private final Map<Class<?>, ProtobufSchema> schemas = new ConcurrentHashMap<>();
+
+    /**
+     * @param objectMapper a mapper built on a {@code ProtobufFactory}
+     */
+    public JacksonProtobufHttpMessageConverter(ObjectMapper objectMapper, Resource protoFile) {
+        super(BinaryMediaTypes.APPLICATION_PROTOBUF);
+        this.objectMapper = objectMapper;
+        this.objectMapper.enable(JsonGenerator.Feature.IGNORE_UNKNOWN);
+        try (InputStream in = protoFile.getInputStream()) {
+            this.nativeSchema = ProtobufSchemaLoader.std.loadNative(in, false);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot load Protobuf schema " + protoFile, ex);
+        }
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return schema(clazz) != null;
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        try {
+            return objectMapper.readerFor(clazz).with(schema(clazz)).readValue(inputMessage.getBody());
+        } catch (IOException ex) {
+            throw new HttpMessageNotReadableException("Invalid Protobuf message: " + ex.getMessage(), ex, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object value, HttpOutputMessage outputMessage) throws IOException {
+        objectMapper.writer(schema(value.getClass())).writeValue(outputMessage.getBody(), value);
+    }
+
+    private ProtobufSchema schema(Class<?> clazz) {
+        ProtobufSchema schema = schemas.get(clazz);
+        if (schema == null && nativeSchema.hasMessageType(clazz.getSimpleName())) {
+            schema = schemas.computeIfAbsent(clazz, type -> nativeSchema.forType(type.getSimpleName()));
+        }
+        return schema;
+    }
+}
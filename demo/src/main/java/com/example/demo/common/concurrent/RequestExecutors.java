@@ -0,0 +1,22 @@
+package com.example.demo.common.concurrent;
+
+import com.example.demo.common.bulkhead.BulkheadContext;
+import com.example.demo.common.query.QueryStats;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutor;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Executors for the asynchronous part of a request. Tasks run with the submitting request's
+ * user (read-your-writes routing), bulkhead (connection pool) and SQL statement counters.
+ */
+public final class RequestExecutors {
+
+    private RequestExecutors() {
+    }
+
+    public static Executor propagating(Executor target) {
+        return new DelegatingSecurityContextExecutor(
+                task -> target.execute(QueryStats.wrap(BulkheadContext.wrap(task))));
+    }
+}
@@ -1,16 +1,31 @@
 package com.example.demo.common.controller;
 
+import com.example.demo.common.codec.BinaryMediaTypes;
 import com.example.demo.common.entity.BaseEntity;
 import com.example.demo.common.service.BaseService;
 import com.example.demo.common.dto.ApiResponse;
-import org.springframework.data.domain.Page;
+import com.example.demo.common.etag.ETags;
+import com.example.demo.common.pagination.KeysetCursor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * Generic base controller that provides standard CRUD operations.
@@ -21,25 +36,192 @@ import java.util.List;
  */
 public abstract class BaseController<T extends BaseEntity<ID>, ID extends Serializable, S extends BaseService<T, ID>> {
 
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+
     protected final S service;
+    private ObjectMapper objectMapper;
 
     protected BaseController(S service) {
         this.service = service;
     }
 
+    @Autowired
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Maps an entity to the representation exposed by the streaming endpoints.
+     * Subclasses override this to return their response DTO instead of the entity.
+     */
+    protected Object convertToResponse(T entity) {
+        return entity;
+    }
+
+    /**
+     * Lists active entities. Inactive (soft deleted) rows are only returned when
+     * {@code includeInactive=true} is passed explicitly, e.g. by admin or restore screens.
+     * <p>
+     * Read endpoints accept {@code fields=id,username}: only those columns are selected and
+     * returned. Without it every readable field is returned.
+     * <p>
+     * Listings carry an ETag derived from the table's change watermark, the query and the
+     * response format, and answer {@code If-None-Match} with 304 without running the query;
+     * single entities carry one derived from id and version.
+     */
     @GetMapping
-    public ResponseEntity<List<T>> getAll() {
-        return ResponseEntity.ok(service.findAllActive());
+    public ResponseEntity<?> getAll(@RequestParam(defaultValue = "false") boolean includeInactive,
+                                    @RequestParam(required = false) String fields,
+                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                    @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        List<String> selected = selectedFields(fields);
+        return listing(ifNoneMatch, accept, () -> {
+            if (selected != null) {
+                return service.findAll(selected, includeInactive);
+            }
+            return includeInactive ? service.findAll() : service.findAllActive();
+        }, includeInactive, selected);
     }
 
     @GetMapping("/page")
-    public ResponseEntity<Page<T>> getPage(Pageable pageable) {
-        return ResponseEntity.ok(service.findAll(pageable));
+    public ResponseEntity<?> getPage(Pageable pageable,
+                                     @RequestParam(defaultValue = "false") boolean includeInactive,
+                                     @RequestParam(required = false) String fields,
+                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                     @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        List<String> selected = selectedFields(fields);
+        return listing(ifNoneMatch, accept, () -> {
+            if (selected != null) {
+                return service.findAll(pageable, selected, includeInactive);
+            }
+            return includeInactive ? service.findAll(pageable) : service.findAllActive(pageable);
+        }, pageKey(pageable), includeInactive, selected);
+    }
+
+    /**
+     * Paged listing filtered in the database, e.g. {@code ?filter=createdAt>2024-01-01;lastName==Nguyen
+     * &sort=createdAt,desc}. Filters and sorts are limited to whitelisted, indexed attributes.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> search(@RequestParam(required = false) String filter,
+                                    Pageable pageable,
+                                    @RequestParam(defaultValue = "false") boolean includeInactive,
+                                    @RequestParam(required = false) String fields,
+                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                    @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        List<String> selected = selectedFields(fields);
+        return listing(ifNoneMatch, accept, () -> {
+            if (selected != null) {
+                return service.search(filter, pageable, selected, includeInactive);
+            }
+            return service.search(filter, pageable, includeInactive).map(this::convertToResponse);
+        }, StringUtils.hasText(filter) ? filter.trim() : null, pageKey(pageable), includeInactive, selected);
+    }
+
+    /**
+     * Keyset (cursor) listing of active entities; prefer this over {@code /page} for deep paging.
+     */
+    @GetMapping("/cursor")
+    public ResponseEntity<?> getCursorPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "ID") KeysetCursor.Key orderBy,
+            @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        List<String> selected = selectedFields(fields);
+        return listing(ifNoneMatch, accept, () -> {
+            if (selected != null) {
+                return service.findActiveByCursor(cursor, size, orderBy, direction, selected);
+            }
+            return service.findActiveByCursor(cursor, size, orderBy, direction);
+        }, cursor, Math.max(1, Math.min(size, BaseService.MAX_CURSOR_PAGE_SIZE)), orderBy, direction, selected);
+    }
+
+    /**
+     * Streams every active entity as newline-delimited JSON. Rows are read through a
+     * server-side cursor and written as they arrive, so memory stays flat regardless of table size.
+     */
+    @GetMapping(value = "/export", produces = NDJSON_VALUE)
+    public void export(HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        ObjectWriter writer = objectMapper.writer();
+        OutputStream out = new BufferedOutputStream(response.getOutputStream(), 64 * 1024);
+        try {
+            service.streamAllActive(entity -> {
+                try {
+                    out.write(writer.writeValueAsBytes(convertToResponse(entity)));
+                    out.write('\n');
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        out.flush();
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<T> getById(@PathVariable ID id) { 
-        return ResponseEntity.ok(service.getByIdActive(id)); 
+    public ResponseEntity<?> getById(@PathVariable ID id, @RequestParam(required = false) String fields,
+                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        T entity = service.getByIdActive(id);
+        return conditional(ETags.forVersion(id, entity.getVersion()), ifNoneMatch,
+                () -> fields != null ? service.toMap(entity, service.resolveFields(fields)) : entity);
+    }
+
+    /**
+     * Runs {@code body} unless the client already holds the current version of the listing.
+     * The watermark is read first, so the ETag can only be older than the data, never newer.
+     * Both reads share one read-only transaction, so they come from the same replica.
+     * <p>
+     * The ETag also covers the format negotiated from {@code accept} and {@code query}, the
+     * endpoint's normalized query values, since every page, filter and format of a table
+     * shares its watermark. Responses carry {@code Vary: Accept}.
+     */
+    protected ResponseEntity<?> listing(String ifNoneMatch, String accept, Supplier<?> body, Object... query) {
+        HttpHeaders vary = new HttpHeaders();
+        vary.setVary(List.of(HttpHeaders.ACCEPT));
+        MediaType mediaType = BinaryMediaTypes.preferred(accept);
+        return service.readConsistently(() -> conditional(
+                ETags.forListing(service.changeWatermark(), mediaType, query), ifNoneMatch, vary, body));
+    }
+
+    /**
+     * The resolved {@code fields} parameter, or {@code null} for full entities: an empty
+     * {@code fields} still selects the map representation.
+     */
+    protected List<String> selectedFields(String fields) {
+        return fields != null ? service.resolveFields(fields) : null;
+    }
+
+    /**
+     * Normalized form of {@code pageable} for {@link #listing}.
+     */
+    protected static String pageKey(Pageable pageable) {
+        return pageable.isPaged()
+                ? pageable.getPageNumber() + ":" + pageable.getPageSize() + ":" + pageable.getSort()
+                : "unpaged:" + pageable.getSort();
+    }
+
+    /**
+     * 304 when {@code ifNoneMatch} matches {@code etag}; otherwise 200 with the body and the ETag.
+     */
+    protected ResponseEntity<?> conditional(String etag, String ifNoneMatch, Supplier<?> body) {
+        return conditional(etag, ifNoneMatch, new HttpHeaders(), body);
+    }
+
+    /**
+     * Same as {@link #conditional(String, String, Supplier)}, also sending {@code headers}
+     * (e.g. {@code Vary}) with the 200 and the 304.
+     */
+    protected ResponseEntity<?> conditional(String etag, String ifNoneMatch, HttpHeaders headers, Supplier<?> body) {
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).eTag(etag).build();
+        }
+        return ResponseEntity.ok().headers(headers).eTag(etag).body(body.get());
     }
 
     @PostMapping
@@ -69,4 +251,34 @@ public abstract class BaseController<T extends BaseEntity<ID>, ID extends Serial
         service.deleteById(id);
         return ResponseEntity.ok(new ApiResponse(true, "Entity permanently deleted successfully"));
     }
+
+    /**
+     * Soft deletes the given ids. With sharding the ids are handled in one transaction per shard, so the operation is
+     * not atomic across shards.
+     */
+    @PostMapping("/bulk/deactivate")
+    public ResponseEntity<ApiResponse> bulkSoftDelete(@RequestBody List<ID> ids) {
+        int affected = service.softDeleteAll(ids);
+        return ResponseEntity.ok(new ApiResponse(true, affected + " entities soft deleted successfully"));
+    }
+
+    /**
+     * Restores the given ids. With sharding the ids are handled in one transaction per shard, so the operation is
+     * not atomic across shards.
+     */
+    @PostMapping("/bulk/activate")
+    public ResponseEntity<ApiResponse> bulkRestore(@RequestBody List<ID> ids) {
+        int affected = service.restoreAll(ids);
+        return ResponseEntity.ok(new ApiResponse(true, affected + " entities restored successfully"));
+    }
+
+    /**
+     * Hard deletes the given ids. With sharding the ids are handled in one transaction per shard, so the operation is
+     * not atomic across shards.
+     */
+    @PostMapping("/bulk/permanent-delete")
+    public ResponseEntity<ApiResponse> bulkPermanentDelete(@RequestBody List<ID> ids) {
+        int affected = service.deleteAllById(ids);
+        return ResponseEntity.ok(new ApiResponse(true, affected + " entities permanently deleted successfully"));
+    }
 }
\ No newline at end of file
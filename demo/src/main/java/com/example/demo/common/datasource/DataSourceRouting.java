@@ -0,0 +1,35 @@
+package com.example.demo.common.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Lets code that must see the latest committed data (cache loads, rebuilds of in-memory
+ * indexes kept in step with local writes) read from the primary even inside read-only
+ * transactions. Only connections obtained inside the scope are affected; a transaction that
+ * already holds a connection keeps it.
+ */
+public final class DataSourceRouting {
+
+    private static final ThreadLocal<Integer> PRIMARY_SCOPES = ThreadLocal.withInitial(() -> 0);
+
+    private DataSourceRouting() {
+    }
+
+    public static <T> T onPrimary(Supplier<T> work) {
+        PRIMARY_SCOPES.set(PRIMARY_SCOPES.get() + 1);
+        try {
+            return work.get();
+        } finally {
+            int depth = PRIMARY_SCOPES.get() - 1;
+            if (depth == 0) {
+                PRIMARY_SCOPES.remove();
+            } else {
+                PRIMARY_SCOPES.set(depth);
+            }
+        }
+    }
+
+    public static boolean isPrimaryRequired() {
+        return PRIMARY_SCOPES.get() > 0;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.demo.common.datasource;
+
+import com.example.demo.common.bulkhead.BulkheadDataSource;
+import com.example.demo.config.ReadReplicaConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The replica pools reads can be sent to, with their health. A replica is taken out of
+ * rotation when a health check or a connection attempt fails, and put back by the next
+ * successful health check, every {@code app.read-replicas.health-check-interval}.
+ */
+public class ReadReplicas implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadReplicas.class);
+
+    private final List<Replica> replicas;
+    private final ReadReplicaConfig.Balance balance;
+    private final int queryTimeoutSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReadReplicas(List<Replica> replicas, ReadReplicaConfig config, MeterRegistry meterRegistry) {
+        this.replicas = List.copyOf(replicas);
+        this.balance = config.getBalance();
+        this.queryTimeoutSeconds = (int) Math.max(1, config.getHealthCheckTimeout().toSeconds());
+        for (Replica replica : this.replicas) {
+            Gauge.builder("datasource.replica.healthy", replica, r -> r.healthy ? 1 : 0)
+                    .description("Whether the read replica is in rotation")
+                    .tag("replica", replica.name)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * @return a healthy replica, or {@code null} when none is
+     */
+    public Replica select() {
+        int size = replicas.size();
+        if (balance == ReadReplicaConfig.Balance.LEAST_LOADED) {
+            Replica best = null;
+            for (Replica replica : replicas) {
+                if (replica.healthy && (best == null || replica.activeConnections() < best.activeConnections())) {
+                    best = replica;
+                }
+            }
+            return best;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(1, size));
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    public void markDown(Replica replica, Exception cause) {
+        if (replica.healthy) {
+            replica.healthy = false;
+            log.warn("Read replica '{}' taken out of rotation, reads fall back to the primary: {}",
+                    replica.name, cause.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.read-replicas.health-check-interval:PT5S}")
+    public void checkHealth() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.setQueryTimeout(queryTimeoutSeconds);
+                statement.execute("select 1");
+                if (!replica.healthy) {
+                    replica.healthy = true;
+                    log.info("Read replica '{}' is healthy again and back in rotation", replica.name);
+                }
+            } catch (SQLException ex) {
+                markDown(replica, ex);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof Closeable pool) {
+                pool.close();
+            }
+        }
+    }
+
+    public static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        // Lạc quan lúc khởi động: lần kiểm tra đầu tiên sẽ loại replica hỏng
+        private volatile boolean healthy = true;
+
+        public Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public DataSource getDataSource() {
+            return dataSource;
+        }
+
+        private int activeConnections() {
+            DataSource current = dataSource instanceof BulkheadDataSource bulkheads ? bulkheads.currentPool() : dataSource;
+            HikariPoolMXBean pool = current instanceof HikariDataSource hikari ? hikari.getHikariPoolMXBean() : null;
+            return pool == null ? 0 : pool.getActiveConnections();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.demo.common.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Sends connections of read-only transactions to a {@link ReadReplicas read replica} and
+ * everything else to the primary.
+ * <p>
+ * Reads stay on the primary when the client wrote recently ({@link ReadYourWritesTracker}),
+ * inside {@link DataSourceRouting#onPrimary}, and when no replica is healthy or the chosen one
+ * cannot hand out a connection. Must be wrapped in a {@link LazyConnectionDataSourceProxy}:
+ * the transaction manager asks for a connection before the transaction is marked read-only,
+ * the proxy defers the real request to the first statement.
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource primary;
+    private final ReadReplicas replicas;
+    private final ReadYourWritesTracker readYourWrites;
+    private final Counter primaryConnections;
+    private final Counter replicaConnections;
+    private final Counter fallbacks;
+
+    public ReadWriteRoutingDataSource(DataSource primary, ReadReplicas replicas, ReadYourWritesTracker readYourWrites,
+                                      MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.readYourWrites = readYourWrites;
+        this.primaryConnections = Counter.builder("datasource.routing.connections")
+                .description("Connections handed out by target")
+                .tag("target", "primary")
+                .register(meterRegistry);
+        this.replicaConnections = Counter.builder("datasource.routing.connections")
+                .description("Connections handed out by target")
+                .tag("target", "replica")
+                .register(meterRegistry);
+        this.fallbacks = Counter.builder("datasource.routing.fallbacks")
+                .description("Read-only connections served by the primary because no replica was available")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(target -> target.getConnection(username, password));
+    }
+
+    private Connection route(Connector connector) throws SQLException {
+        String client = ReadYourWritesTracker.currentClient();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            trackWrite(client);
+            return primary(connector);
+        }
+        if (DataSourceRouting.isPrimaryRequired() || readYourWrites.isPinned(client)) {
+            return primary(connector);
+        }
+        ReadReplicas.Replica replica = replicas.select();
+        if (replica != null) {
+            try {
+                Connection connection = connector.connect(replica.getDataSource());
+                replicaConnections.increment();
+                return connection;
+            } catch (SQLException ex) {
+                replicas.markDown(replica, ex);
+            }
+        }
+        fallbacks.increment();
+        return primary(connector);
+    }
+
+    private Connection primary(Connector connector) throws SQLException {
+        primaryConnections.increment();
+        return connector.connect(primary);
+    }
+
+    /**
+     * Pins the client to the primary once its read-write transaction commits.
+     */
+    private void trackWrite(String client) {
+        if (client == null || !TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.hasResource(readYourWrites)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(readYourWrites, client);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                readYourWrites.recordWrite(client);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(readYourWrites);
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface Connector {
+        Connection connect(DataSource target) throws SQLException;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.demo.common.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+
+/**
+ * Clients whose writes committed within the last {@code window}; their reads go to the
+ * primary so they see those writes despite replication lag. A client is the authenticated
+ * user, or the remote address for anonymous requests. Kept per node.
+ */
+public class ReadYourWritesTracker {
+
+    private final boolean enabled;
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReadYourWritesTracker(Duration window) {
+        this.enabled = !window.isZero() && !window.isNegative();
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(enabled ? window : Duration.ofMillis(1))
+                .maximumSize(100_000)
+                .build();
+    }
+
+    /**
+     * @return {@code null} when the current thread serves no identifiable client
+     */
+    public static String currentClient() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getName();
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servlet) {
+            return "address:" + servlet.getRequest().getRemoteAddr();
+        }
+        return null;
+    }
+
+    public void recordWrite(String client) {
+        if (enabled && client != null) {
+            recentWriters.put(client, Boolean.TRUE);
+        }
+    }
+
+    public boolean isPinned(String client) {
+        return enabled && client != null && recentWriters.getIfPresent(client) != null;
+    }
+}
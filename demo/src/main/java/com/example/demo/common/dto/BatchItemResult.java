@@ -0,0 +1,70 @@
+package com.example.demo.common.dto;
+
+/**
+ * Outcome of one item in a batch request, reported by its position in the request body.
+ */
+public class BatchItemResult {
+
+    public enum Status {
+        CREATED,
+        CONFLICT,
+        INVALID
+    }
+
+    private int index;
+    private Status status;
+    private Object id;
+    private String message;
+
+    public BatchItemResult(int index, Status status, Object id, String message) {
+        this.index = index;
+        this.status = status;
+        this.id = id;
+        this.message = message;
+    }
+
+    public static BatchItemResult created(int index, Object id) {
+        return new BatchItemResult(index, Status.CREATED, id, null);
+    }
+
+    public static BatchItemResult conflict(int index, String message) {
+        return new BatchItemResult(index, Status.CONFLICT, null, message);
+    }
+
+    public static BatchItemResult invalid(int index, String message) {
+        return new BatchItemResult(index, Status.INVALID, null, message);
+    }
+
+    // Getters and setters
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Object getId() {
+        return id;
+    }
+
+    public void setId(Object id) {
+        this.id = id;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.demo.common.dto;
+
+import java.util.List;
+
+/**
+ * Per-item report for batch endpoints, with totals per status.
+ */
+public class BatchResponse {
+    private int created;
+    private int conflicts;
+    private int invalid;
+    private List<BatchItemResult> results;
+
+    public BatchResponse(List<BatchItemResult> results) {
+        this.results = results;
+        for (BatchItemResult result : results) {
+            switch (result.getStatus()) {
+                case CREATED -> created++;
+                case CONFLICT -> conflicts++;
+                case INVALID -> invalid++;
+            }
+        }
+    }
+
+    // Getters and setters
+    public int getCreated() {
+        return created;
+    }
+
+    public void setCreated(int created) {
+        this.created = created;
+    }
+
+    public int getConflicts() {
+        return conflicts;
+    }
+
+    public void setConflicts(int conflicts) {
+        this.conflicts = conflicts;
+    }
+
+    public int getInvalid() {
+        return invalid;
+    }
+
+    public void setInvalid(int invalid) {
+        this.invalid = invalid;
+    }
+
+    public List<BatchItemResult> getResults() {
+        return results;
+    }
+
+    public void setResults(List<BatchItemResult> results) {
+        this.results = results;
+    }
+}
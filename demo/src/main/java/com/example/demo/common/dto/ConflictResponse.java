@@ -0,0 +1,23 @@
+package com.example.demo.common.dto;
+
+/**
+ * 409 response for a unique-constraint violation, naming the conflicting field
+ * (e.g. "username" or "email") so clients can highlight it.
+ */
+public class ConflictResponse extends ApiResponse {
+    private String field;
+
+    public ConflictResponse(String field, String message) {
+        super(false, message);
+        this.field = field;
+    }
+
+    // Getters and setters
+    public String getField() {
+        return field;
+    }
+
+    public void setField(String field) {
+        this.field = field;
+    }
+}
@@ -1,7 +1,7 @@
 package com.example.demo.common.entity;
 
+import com.example.demo.common.sharding.AssignableSequenceGenerator;
 import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.MappedSuperclass;
 import java.io.Serializable;
@@ -9,12 +9,17 @@ import java.time.LocalDateTime;
 import jakarta.persistence.Column;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Version;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.GenericGenerator;
 
 @MappedSuperclass
 public abstract class BaseEntity<ID extends Serializable> implements Serializable {
 
+    // Sequence (one "<table>_seq" per entity, pooled by 50) instead of IDENTITY so Hibernate can batch INSERTs
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "table-sequence")
+    @GenericGenerator(name = "table-sequence", type = AssignableSequenceGenerator.class)
     private ID id;
 
     @Column(name = "created_at", nullable = false, updatable = false)
@@ -26,6 +31,12 @@ public abstract class BaseEntity<ID extends Serializable> implements Serializabl
     @Column(name = "active", nullable = false)
     private Boolean active = true;
 
+    // Tăng mỗi lần ghi (kể cả UPDATE hàng loạt), dùng cho ETag và khóa lạc quan
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -59,4 +70,8 @@ public abstract class BaseEntity<ID extends Serializable> implements Serializabl
     public void setActive(Boolean active) {
         this.active = active;
     }
+
+    public Long getVersion() {
+        return version;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,100 @@
+package com.example.demo.common.etag;
+
+import com.example.demo.common.sharding.Shards;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Table-level change counters shared by every node: one PostgreSQL sequence per entity
+ * ({@code <entity>_change_seq}), advanced once by each transaction that writes the table and
+ * read back to build ETags of list endpoints.
+ * <p>
+ * The counter moves after commit, never before: a reader that sees the new value also sees
+ * the new rows. Readers take the watermark before running their query, so at worst a
+ * listing read just after a commit carries the previous watermark and is re-sent once more.
+ * Sequences are non-transactional and lock-free, so concurrent writers do not contend.
+ * <p>
+ * Each advance is a {@code setval}, which is WAL-logged immediately: {@code nextval} logs
+ * values in batches, so a read replica would report a watermark ahead of its data.
+ * <p>
+ * With sharding the sequences live on the home database, whichever shard was written.
+ */
+@Component
+public class ChangeWatermarks {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate primaryTransaction;
+    private final Set<String> createdSequences = ConcurrentHashMap.newKeySet();
+
+    public ChangeWatermarks(Shards shards, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = shards.home();
+        // Giao dịch ghi riêng: tạo sequence được cả khi người gọi đang ở giao dịch chỉ đọc (replica)
+        this.primaryTransaction = new TransactionTemplate(transactionManager);
+        this.primaryTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public long current(String entityName) {
+        // Sequence mới tạo chưa được gọi nextval: last_value vẫn là 1
+        Long value = jdbcTemplate.queryForObject(
+                "select case when is_called then last_value else 0 end from " + sequence(entityName), Long.class);
+        return value == null ? 0 : value;
+    }
+
+    /**
+     * Advances the watermark once the current transaction commits (now, outside a transaction).
+     * Several calls in one transaction advance it once.
+     */
+    public void advance(String entityName) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            next(entityName);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<String> pending = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<String> names = new LinkedHashSet<>();
+            pending = names;
+            TransactionSynchronizationManager.bindResource(this, names);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    names.forEach(ChangeWatermarks.this::next);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ChangeWatermarks.this);
+                }
+            });
+        }
+        pending.add(entityName);
+    }
+
+    private void next(String entityName) {
+        String sequence = sequence(entityName);
+        jdbcTemplate.queryForObject("select setval(?::regclass, nextval(?::regclass))", Long.class, sequence, sequence);
+    }
+
+    /**
+     * Creates the sequence on first use, so every entity gets one without a schema change.
+     */
+    private String sequence(String entityName) {
+        // Tên entity là tên lớp viết thường, an toàn để ghép vào SQL
+        String sequence = entityName + "_change_seq";
+        if (!createdSequences.contains(sequence)) {
+            primaryTransaction.executeWithoutResult(
+                    status -> jdbcTemplate.execute("create sequence if not exists " + sequence));
+            createdSequences.add(sequence);
+        }
+        return sequence;
+    }
+}
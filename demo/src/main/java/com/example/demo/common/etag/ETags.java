@@ -0,0 +1,122 @@
+package com.example.demo.common.etag;
+
+import com.example.demo.common.exception.PreconditionFailedException;
+import org.springframework.http.MediaType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Strong ETag values, {@code If-None-Match} matching and {@code If-Match} parsing.
+ */
+public final class ETags {
+
+    /** Content coding whose representations get their own ETag, see {@link #forVersion(Object, Long, String)}. */
+    public static final String GZIP = "gzip";
+
+    private ETags() {
+    }
+
+    /**
+     * ETag of one entity: changes whenever its {@code @Version} does.
+     */
+    public static String forVersion(Object id, Long version) {
+        return "\"" + id + "-" + (version == null ? 0 : version) + "\"";
+    }
+
+    /**
+     * ETag of one entity sent with a content coding: a strong ETag names one exact byte
+     * sequence, so the gzip representation must not share the tag of the identity one.
+     */
+    public static String forVersion(Object id, Long version, String coding) {
+        return "\"" + id + "-" + (version == null ? 0 : version) + "-" + coding + "\"";
+    }
+
+    /**
+     * ETag of a listing: changes whenever any row of the table does, and differs between
+     * media types and between queries (page, filter, fields, ...), which all share the tag's
+     * watermark. {@code query} holds the normalized query values in a fixed order per endpoint.
+     */
+    public static String forListing(long watermark, MediaType mediaType, Object... query) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+        digest.update(mediaType.toString().getBytes(StandardCharsets.UTF_8));
+        for (Object value : query) {
+            // Đánh dấu null và độ dài để hai query khác nhau không ghép thành cùng chuỗi byte
+            if (value == null) {
+                digest.update((byte) 0);
+                continue;
+            }
+            byte[] bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+            digest.update((byte) 1);
+            digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+            digest.update(bytes);
+        }
+        byte[] hash = Arrays.copyOf(digest.digest(), 12);
+        return "\"w" + watermark + "-" + Base64.getUrlEncoder().withoutPadding().encodeToString(hash) + "\"";
+    }
+
+    /**
+     * Whether an {@code If-None-Match} header value ({@code *}, or a comma-separated list of
+     * possibly weak tags) matches {@code etag}. Uses the weak comparison required for
+     * {@code If-None-Match}.
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        String expected = opaque(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || opaque(tag).equals(expected)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Version named by an {@code If-Match} header for entity {@code id}, for a conditional write.
+     * A tag of the gzip representation names the same version as the identity one.
+     *
+     * @return {@code null} when the header is absent or {@code *} (no version check)
+     * @throws PreconditionFailedException when no strong tag of this entity is listed
+     */
+    public static Long expectedVersion(String ifMatch, Object id) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return null;
+        }
+        String prefix = "\"" + id + "-";
+        for (String candidate : ifMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return null;
+            }
+            // If-Match dùng so sánh mạnh: bỏ qua tag yếu (W/)
+            if (tag.startsWith(prefix) && tag.endsWith("\"") && tag.length() > prefix.length() + 1) {
+                String version = tag.substring(prefix.length(), tag.length() - 1);
+                if (version.endsWith("-" + GZIP)) {
+                    version = version.substring(0, version.length() - GZIP.length() - 1);
+                }
+                try {
+                    return Long.valueOf(version);
+                } catch (NumberFormatException ignored) {
+                    // Không phải tag do ứng dụng cấp
+                }
+            }
+        }
+        throw new PreconditionFailedException("If-Match does not name a version of this resource", null);
+    }
+
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.demo.common.exception;
+
+import org.springframework.dao.DataIntegrityViolationException;
+
+/**
+ * A unique value that is enforced by the application rather than by a UNIQUE constraint,
+ * e.g. a natural key across shards. Answered like a unique violation (409 naming the field).
+ */
+public class DuplicateValueException extends DataIntegrityViolationException {
+
+    private final String field;
+
+    public DuplicateValueException(String field, Object value) {
+        super("Duplicate " + field + " '" + value + "'");
+        this.field = field;
+    }
+
+    public String getField() {
+        return field;
+    }
+}
@@ -1,9 +1,15 @@
 package com.example.demo.common.exception;
 
 import com.example.demo.common.dto.ApiResponse;
+import com.example.demo.common.dto.ConflictResponse;
+import org.hibernate.exception.ConstraintViolationException;
+import org.postgresql.util.PSQLException;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -12,10 +18,15 @@ import org.springframework.web.context.request.WebRequest;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
+    private static final String UNIQUE_VIOLATION = "23505";
+    private static final Pattern UNIQUE_KEY_DETAIL = Pattern.compile("Key \\(([^)]+)\\)=");
+
     @ExceptionHandler(ResourceNotFoundException.class)
     public ResponseEntity<ApiResponse> handleResourceNotFoundException(
             ResourceNotFoundException ex, WebRequest request) {
@@ -23,11 +34,67 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(apiResponse, HttpStatus.NOT_FOUND);
     }
 
-    @ExceptionHandler(DataIntegrityViolationException.class)
+    @ExceptionHandler(BadRequestException.class)
+    public ResponseEntity<ApiResponse> handleBadRequestException(
+            BadRequestException ex, WebRequest request) {
+        ApiResponse apiResponse = new ApiResponse(false, ex.getMessage());
+        return new ResponseEntity<>(apiResponse, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<ApiResponse> handleServiceUnavailableException(
+            ServiceUnavailableException ex, WebRequest request) {
+        ApiResponse apiResponse = new ApiResponse(false, ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(apiResponse);
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<ApiResponse> handlePreconditionFailedException(
+            PreconditionFailedException ex, WebRequest request) {
+        ApiResponse apiResponse = new ApiResponse(false, ex.getMessage());
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.PRECONDITION_FAILED);
+        if (ex.getCurrentETag() != null) {
+            response.eTag(ex.getCurrentETag());
+        }
+        return response.body(apiResponse);
+    }
+
+    @ExceptionHandler(PreconditionRequiredException.class)
+    public ResponseEntity<ApiResponse> handlePreconditionRequiredException(
+            PreconditionRequiredException ex, WebRequest request) {
+        ApiResponse apiResponse = new ApiResponse(false, ex.getMessage());
+        return new ResponseEntity<>(apiResponse, HttpStatus.PRECONDITION_REQUIRED);
+    }
+
+    // Không có body: client không nhận được định dạng nào mà server có thể ghi
+    @ExceptionHandler(HttpMediaTypeNotAcceptableException.class)
+    public ResponseEntity<Void> handleHttpMediaTypeNotAcceptableException(
+            HttpMediaTypeNotAcceptableException ex, WebRequest request) {
+        return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).build();
+    }
+
+    @ExceptionHandler(AuthenticationException.class)
+    public ResponseEntity<ApiResponse> handleAuthenticationException(
+            AuthenticationException ex, WebRequest request) {
+        ApiResponse apiResponse = new ApiResponse(false, ex.getMessage());
+        return new ResponseEntity<>(apiResponse, HttpStatus.UNAUTHORIZED);
+    }
+
+    /**
+     * Unique-constraint violations are expected (e.g. two concurrent signups with the same
+     * username) and are reported as a 409 naming the field; other integrity errors do not
+     * expose database details. Hibernate's own exception reaches here from native statements
+     * run outside a repository, e.g. the single-statement PATCH.
+     */
+    @ExceptionHandler({DataIntegrityViolationException.class, ConstraintViolationException.class})
     public ResponseEntity<ApiResponse> handleDataIntegrityViolationException(
-            DataIntegrityViolationException ex, WebRequest request) {
-        ApiResponse apiResponse = new ApiResponse(false, 
-                "Database error: " + ex.getMostSpecificCause().getMessage());
+            RuntimeException ex, WebRequest request) {
+        String field = ex instanceof DuplicateValueException duplicate ? duplicate.getField() : uniqueViolationField(ex);
+        ApiResponse apiResponse = field != null
+                ? new ConflictResponse(field, field + " already exists")
+                : new ApiResponse(false, "Request conflicts with existing data");
         return new ResponseEntity<>(apiResponse, HttpStatus.CONFLICT);
     }
 
@@ -43,6 +110,35 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
     }
 
+    /**
+     * Returns the camelCase field of the column behind a PostgreSQL unique violation (SQLSTATE
+     * 23505), taken from the server's "Key (column)=(value) already exists." detail.
+     */
+    private static String uniqueViolationField(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PSQLException psql && UNIQUE_VIOLATION.equals(psql.getSQLState())
+                    && psql.getServerErrorMessage() != null && psql.getServerErrorMessage().getDetail() != null) {
+                Matcher matcher = UNIQUE_KEY_DETAIL.matcher(psql.getServerErrorMessage().getDetail());
+                return matcher.find() ? toCamelCase(matcher.group(1)) : null;
+            }
+        }
+        return null;
+    }
+
+    private static String toCamelCase(String column) {
+        StringBuilder field = new StringBuilder();
+        boolean upper = false;
+        for (char c : column.trim().toCharArray()) {
+            if (c == '_') {
+                upper = true;
+            } else {
+                field.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
+        }
+        return field.toString();
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiResponse> handleGlobalException(
             Exception ex, WebRequest request) {
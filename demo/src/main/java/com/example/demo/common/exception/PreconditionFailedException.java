@@ -0,0 +1,23 @@
+package com.example.demo.common.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a conditional write ({@code If-Match}) targets a version that is no longer
+ * current. Carries the current ETag, if known, so the client can re-read and retry.
+ */
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class PreconditionFailedException extends RuntimeException {
+
+    private final String currentETag;
+
+    public PreconditionFailedException(String message, String currentETag) {
+        super(message);
+        this.currentETag = currentETag;
+    }
+
+    public String getCurrentETag() {
+        return currentETag;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.demo.common.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a write that must be conditional arrives without {@code If-Match}, so it
+ * cannot silently overwrite a change the client has not seen (RFC 6585, 428).
+ */
+@ResponseStatus(HttpStatus.PRECONDITION_REQUIRED)
+public class PreconditionRequiredException extends RuntimeException {
+
+    public PreconditionRequiredException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.demo.common.filter;
+
+import com.example.demo.common.exception.BadRequestException;
+import com.example.demo.common.filter.config.QueryFilterConfig;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.convert.ConversionException;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns a {@link FilterParser filter expression} into a {@link Specification}, so filtering
+ * runs in the database.
+ * <p>
+ * Only whitelisted attributes may be filtered or sorted on, and only if some index of the
+ * table starts with the attribute's column; otherwise the request is rejected (or, with
+ * {@code app.query-filter.unindexed=warn}, logged), so a client cannot trigger a full table
+ * scan. Partial indexes count as indexes, since listings are restricted to active rows.
+ * Index metadata is read from the database once per table.
+ */
+@Component
+public class FilterCompiler {
+
+    private static final Logger log = LoggerFactory.getLogger(FilterCompiler.class);
+
+    private final QueryFilterConfig config;
+    private final EntityManagerFactory entityManagerFactory;
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, Set<String>> indexedColumns = new ConcurrentHashMap<>();
+    private final Set<String> warnedColumns = ConcurrentHashMap.newKeySet();
+
+    public FilterCompiler(QueryFilterConfig config, EntityManagerFactory entityManagerFactory,
+                          JdbcTemplate jdbcTemplate) {
+        this.config = config;
+        this.entityManagerFactory = entityManagerFactory;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @param allowedFields attributes clients may filter on
+     * @return {@code null} when {@code filter} is blank
+     */
+    public <T> Specification<T> compile(Class<T> entityClass, String filter, Collection<String> allowedFields) {
+        List<FilterCondition> conditions = FilterParser.parse(filter, config.getMaxConditions());
+        if (conditions.isEmpty()) {
+            return null;
+        }
+        Specification<T> spec = null;
+        for (FilterCondition condition : conditions) {
+            checkField(entityClass, condition.field(), allowedFields, "filter");
+            if (condition.values().size() > config.getMaxInValues()) {
+                throw new BadRequestException("=in= accepts at most " + config.getMaxInValues() + " values");
+            }
+            Class<?> javaType = javaType(entityClass, condition.field());
+            List<Object> values = new ArrayList<>();
+            for (String value : condition.values()) {
+                values.add(convert(condition.field(), value, javaType));
+            }
+            Specification<T> term = toSpecification(condition, values);
+            spec = spec == null ? Specification.where(term) : spec.and(term);
+        }
+        return spec;
+    }
+
+    /**
+     * Applies the same whitelist and index rules to the sort properties of a request.
+     */
+    public void checkSort(Class<?> entityClass, Sort sort, Collection<String> allowedFields) {
+        for (Sort.Order order : sort) {
+            checkField(entityClass, order.getProperty(), allowedFields, "sort");
+        }
+    }
+
+    private void checkField(Class<?> entityClass, String field, Collection<String> allowedFields, String usage) {
+        if (!allowedFields.contains(field)) {
+            throw new BadRequestException("Cannot " + usage + " on '" + field + "', expected any of " + allowedFields);
+        }
+        AbstractEntityPersister persister = persister(entityClass);
+        String table = persister.getTableName();
+        String column = persister.getPropertyColumnNames(field)[0];
+        if (indexedColumns(table).contains(column.toLowerCase(Locale.ROOT))) {
+            return;
+        }
+        if (config.getUnindexed() == QueryFilterConfig.UnindexedPolicy.REJECT) {
+            throw new BadRequestException("Cannot " + usage + " on '" + field + "': the column is not indexed");
+        }
+        if (warnedColumns.add(table + "." + column)) {
+            log.warn("Query uses unindexed column {}.{} ({}); it may scan the whole table", table, column, usage);
+        }
+    }
+
+    private Class<?> javaType(Class<?> entityClass, String field) {
+        AbstractEntityPersister persister = persister(entityClass);
+        // Id khai báo generic trong BaseEntity<ID>: lấy kiểu thực từ Hibernate
+        if (field.equals(persister.getIdentifierPropertyName())) {
+            return persister.getIdentifierType().getReturnedClass();
+        }
+        return entityManagerFactory.getMetamodel().entity(entityClass).getAttribute(field).getJavaType();
+    }
+
+    private AbstractEntityPersister persister(Class<?> entityClass) {
+        return (AbstractEntityPersister) entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getMappingMetamodel().getEntityDescriptor(entityClass);
+    }
+
+    /**
+     * Leading columns of every index on {@code table}; only those can drive an index scan.
+     */
+    private Set<String> indexedColumns(String table) {
+        return indexedColumns.computeIfAbsent(table, name -> {
+            try {
+                return jdbcTemplate.execute((ConnectionCallback<Set<String>>) connection -> {
+                    DatabaseMetaData metaData = connection.getMetaData();
+                    Set<String> columns = new HashSet<>();
+                    try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), null, name, false, true)) {
+                        while (rs.next()) {
+                            String column = rs.getString("COLUMN_NAME");
+                            if (rs.getShort("ORDINAL_POSITION") == 1 && column != null) {
+                                columns.add(column.toLowerCase(Locale.ROOT));
+                            }
+                        }
+                    }
+                    return Set.copyOf(columns);
+                });
+            } catch (DataAccessException ex) {
+                throw new IllegalStateException("Cannot read index metadata of table " + name, ex);
+            }
+        });
+    }
+
+    private static Object convert(String field, String value, Class<?> javaType) {
+        try {
+            if (javaType == LocalDateTime.class) {
+                // Chấp nhận cả ngày (2024-01-01) lẫn ngày giờ ISO
+                return value.length() == 10 ? LocalDate.parse(value).atStartOfDay() : LocalDateTime.parse(value);
+            }
+            if (javaType == LocalDate.class) {
+                return LocalDate.parse(value);
+            }
+            return DefaultConversionService.getSharedInstance().convert(value, javaType);
+        } catch (ConversionException | DateTimeParseException | IllegalArgumentException ex) {
+            throw new BadRequestException("Invalid value '" + value + "' for '" + field + "'");
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> Specification<T> toSpecification(FilterCondition condition, List<Object> values) {
+        FilterCondition.Operator operator = condition.operator();
+        boolean ordered = operator != FilterCondition.Operator.EQUAL && operator != FilterCondition.Operator.NOT_EQUAL
+                && operator != FilterCondition.Operator.IN;
+        if (ordered && !(values.get(0) instanceof Comparable)) {
+            throw new BadRequestException("Operator " + operator.getSymbol() + " is not supported on '"
+                    + condition.field() + "'");
+        }
+        return (root, query, cb) -> {
+            Path<Object> path = root.get(condition.field());
+            Expression comparable = path;
+            Comparable value = ordered ? (Comparable) values.get(0) : null;
+            return switch (operator) {
+                case EQUAL -> cb.equal(path, values.get(0));
+                case NOT_EQUAL -> cb.notEqual(path, values.get(0));
+                case GREATER_THAN -> cb.greaterThan(comparable, value);
+                case GREATER_THAN_OR_EQUAL -> cb.greaterThanOrEqualTo(comparable, value);
+                case LESS_THAN -> cb.lessThan(comparable, value);
+                case LESS_THAN_OR_EQUAL -> cb.lessThanOrEqualTo(comparable, value);
+                case IN -> in(cb, path, values);
+            };
+        };
+    }
+
+    private static Predicate in(CriteriaBuilder cb, Path<Object> path, List<Object> values) {
+        CriteriaBuilder.In<Object> in = cb.in(path);
+        values.forEach(in::value);
+        return in;
+    }
+}
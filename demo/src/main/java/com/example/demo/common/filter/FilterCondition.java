@@ -0,0 +1,29 @@
+package com.example.demo.common.filter;
+
+import java.util.List;
+
+/**
+ * One {@code field op value} term of a filter expression, values still unparsed.
+ */
+public record FilterCondition(String field, Operator operator, List<String> values) {
+
+    public enum Operator {
+        EQUAL("=="),
+        NOT_EQUAL("!="),
+        GREATER_THAN_OR_EQUAL(">="),
+        LESS_THAN_OR_EQUAL("<="),
+        GREATER_THAN(">"),
+        LESS_THAN("<"),
+        IN("=in=");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        public String getSymbol() {
+            return symbol;
+        }
+    }
+}
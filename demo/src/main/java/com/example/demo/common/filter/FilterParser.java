@@ -0,0 +1,74 @@
+package com.example.demo.common.filter;
+
+import com.example.demo.common.exception.BadRequestException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses the {@code filter} request parameter: terms joined by {@code ;} (all must match),
+ * each {@code field op value} with {@code op} one of {@code == != > >= < <=}, or
+ * {@code field=in=(a,b,c)}. Example: {@code createdAt>2024-01-01;lastName==Nguyen}.
+ * <p>
+ * Values are taken literally up to the next {@code ;}; there is no quoting.
+ */
+public final class FilterParser {
+
+    private FilterParser() {
+    }
+
+    public static List<FilterCondition> parse(String filter, int maxConditions) {
+        List<FilterCondition> conditions = new ArrayList<>();
+        if (filter == null || filter.isBlank()) {
+            return conditions;
+        }
+        for (String term : filter.split(";")) {
+            if (term.isBlank()) {
+                continue;
+            }
+            conditions.add(parseTerm(term.trim()));
+            if (conditions.size() > maxConditions) {
+                throw new BadRequestException("filter has more than " + maxConditions + " conditions");
+            }
+        }
+        return conditions;
+    }
+
+    private static FilterCondition parseTerm(String term) {
+        int position = -1;
+        FilterCondition.Operator operator = null;
+        // Toán tử dài hơn được thử trước: ">=" trước ">"
+        for (FilterCondition.Operator candidate : FilterCondition.Operator.values()) {
+            int index = term.indexOf(candidate.getSymbol());
+            if (index > 0 && (position < 0 || index < position
+                    || index == position && candidate.getSymbol().length() > operator.getSymbol().length())) {
+                position = index;
+                operator = candidate;
+            }
+        }
+        if (operator == null) {
+            throw new BadRequestException("Invalid filter term '" + term + "', expected field, operator and value");
+        }
+        String field = term.substring(0, position).trim();
+        String value = term.substring(position + operator.getSymbol().length()).trim();
+        if (value.isEmpty()) {
+            throw new BadRequestException("Missing value in filter term '" + term + "'");
+        }
+        if (operator != FilterCondition.Operator.IN) {
+            return new FilterCondition(field, operator, List.of(value));
+        }
+        if (!value.startsWith("(") || !value.endsWith(")")) {
+            throw new BadRequestException("=in= expects a list such as (a,b) in filter term '" + term + "'");
+        }
+        List<String> values = new ArrayList<>();
+        for (String item : value.substring(1, value.length() - 1).split(",")) {
+            if (!item.isBlank()) {
+                values.add(item.trim());
+            }
+        }
+        if (values.isEmpty()) {
+            throw new BadRequestException("Empty list in filter term '" + term + "'");
+        }
+        return new FilterCondition(field, operator, List.copyOf(values));
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.demo.common.filter.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.query-filter")
+public class QueryFilterConfig {
+    /** What to do with a filter or sort on a column that no index starts with. */
+    private UnindexedPolicy unindexed = UnindexedPolicy.REJECT;
+    private int maxConditions = 10;
+    /** Maximum number of values in one {@code =in=} list. */
+    private int maxInValues = 100;
+
+    public enum UnindexedPolicy {
+        /** Respond 400. */
+        REJECT,
+        /** Run the query and log a warning once per column. */
+        WARN
+    }
+
+    public UnindexedPolicy getUnindexed() {
+        return unindexed;
+    }
+
+    public void setUnindexed(UnindexedPolicy unindexed) {
+        this.unindexed = unindexed;
+    }
+
+    public int getMaxConditions() {
+        return maxConditions;
+    }
+
+    public void setMaxConditions(int maxConditions) {
+        this.maxConditions = maxConditions;
+    }
+
+    public int getMaxInValues() {
+        return maxInValues;
+    }
+
+    public void setMaxInValues(int maxInValues) {
+        this.maxInValues = maxInValues;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.demo.common.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Response body made of JSON fragments that are already serialized, written as-is by
+ * {@link PreSerializedJsonHttpMessageConverter}: {@code head}, the fragments separated by
+ * commas, then {@code tail}.
+ */
+public final class PreSerializedJson {
+
+    private static final byte[] EMPTY = new byte[0];
+    private static final byte[] COMMA = {','};
+    private static final byte[] ARRAY_START = {'['};
+    private static final byte[] ARRAY_END = {']'};
+
+    private final byte[] head;
+    private final List<byte[]> fragments;
+    private final byte[] tail;
+
+    private PreSerializedJson(byte[] head, List<byte[]> fragments, byte[] tail) {
+        this.head = head;
+        this.fragments = fragments;
+        this.tail = tail;
+    }
+
+    /** A single JSON value (or an encoded form of it, e.g. gzip). */
+    public static PreSerializedJson of(byte[] value) {
+        return new PreSerializedJson(EMPTY, List.of(value), EMPTY);
+    }
+
+    /** A JSON array of the given values. */
+    public static PreSerializedJson array(List<byte[]> values) {
+        return new PreSerializedJson(ARRAY_START, values, ARRAY_END);
+    }
+
+    /**
+     * An object whose first property, {@code arrayProperty}, is an array of {@code values};
+     * {@code rest} is the JSON object holding the other properties.
+     */
+    public static PreSerializedJson object(String arrayProperty, List<byte[]> values, byte[] rest) {
+        byte[] head = ("{\"" + arrayProperty + "\":[").getBytes(StandardCharsets.UTF_8);
+        byte[] tail;
+        if (rest.length <= 2) {
+            tail = "]}".getBytes(StandardCharsets.UTF_8);
+        } else {
+            // "{...}" của các thuộc tính còn lại: bỏ dấu "{" và nối sau mảng
+            tail = new byte[rest.length + 1];
+            tail[0] = ']';
+            tail[1] = ',';
+            System.arraycopy(rest, 1, tail, 2, rest.length - 1);
+        }
+        return new PreSerializedJson(head, values, tail);
+    }
+
+    public long length() {
+        long length = head.length + tail.length + Math.max(0, fragments.size() - 1);
+        for (byte[] fragment : fragments) {
+            length += fragment.length;
+        }
+        return length;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(head);
+        for (int i = 0; i < fragments.size(); i++) {
+            if (i > 0) {
+                out.write(COMMA);
+            }
+            out.write(fragments.get(i));
+        }
+        out.write(tail);
+    }
+}
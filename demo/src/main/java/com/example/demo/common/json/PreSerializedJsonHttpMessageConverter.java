@@ -0,0 +1,47 @@
+package com.example.demo.common.json;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@link PreSerializedJson} body straight into the response stream, with an exact
+ * Content-Length. Registered ahead of the Jackson converter by Spring Boot.
+ */
+@Component
+public class PreSerializedJsonHttpMessageConverter extends AbstractHttpMessageConverter<PreSerializedJson> {
+
+    public PreSerializedJsonHttpMessageConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return PreSerializedJson.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected PreSerializedJson readInternal(Class<? extends PreSerializedJson> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Pre-serialized JSON is write-only", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(PreSerializedJson body, MediaType contentType) {
+        return body.length();
+    }
+
+    @Override
+    protected void writeInternal(PreSerializedJson body, HttpOutputMessage outputMessage) throws IOException {
+        body.writeTo(outputMessage.getBody());
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.demo.common.pagination;
+
+import com.example.demo.common.exception.BadRequestException;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position of the last row returned by a keyset (seek) query.
+ * <p>
+ * Clients only ever see the opaque token produced by {@link #encode()}; it carries the
+ * sort key and direction so that the next page is read with exactly the same ordering.
+ */
+public final class KeysetCursor {
+
+    public enum Key {
+        /** Seek on {@code (id)}. */
+        ID,
+        /** Seek on {@code (created_at, id)}. */
+        CREATED_AT
+    }
+
+    private static final String SEPARATOR = "|";
+
+    private final Key key;
+    private final Sort.Direction direction;
+    private final LocalDateTime createdAt;
+    private final String id;
+
+    public KeysetCursor(Key key, Sort.Direction direction, LocalDateTime createdAt, String id) {
+        this.key = key;
+        this.direction = direction;
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    public String encode() {
+        String raw = key.name() + SEPARATOR + direction.name() + SEPARATOR
+                + (key == Key.CREATED_AT ? createdAt.toString() : "") + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 4);
+            if (parts.length != 4 || parts[3].isEmpty()) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            Key key = Key.valueOf(parts[0]);
+            LocalDateTime createdAt = key == Key.CREATED_AT ? LocalDateTime.parse(parts[2]) : null;
+            return new KeysetCursor(key, Sort.Direction.valueOf(parts[1]), createdAt, parts[3]);
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            throw new BadRequestException("Invalid cursor", ex);
+        }
+    }
+
+    public Key getKey() {
+        return key;
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+}
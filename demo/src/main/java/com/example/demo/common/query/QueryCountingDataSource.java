@@ -0,0 +1,198 @@
+package com.example.demo.common.query;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Hands out connections whose statements report to {@link QueryDiagnostics}: text, bind
+ * parameters (only in sampled requests), execution time and rows. Result-set rows are only
+ * counted inside a {@link QueryStats} scope, so background work pays one timer per statement.
+ * Everything else is passed through to the real JDBC objects.
+ */
+public class QueryCountingDataSource extends DelegatingDataSource {
+
+    private final QueryDiagnostics diagnostics;
+
+    public QueryCountingDataSource(DataSource target, QueryDiagnostics diagnostics) {
+        super(target);
+        this.diagnostics = diagnostics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(obtainTargetDataSource().getConnection()));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(obtainTargetDataSource().getConnection(username, password)));
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(QueryCountingDataSource.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getTargetException();
+        }
+    }
+
+    /**
+     * Handles the {@link Object} methods of a proxy; {@code null} when {@code method} is not one.
+     */
+    private static Object objectMethod(Object proxy, Method method, Object[] args, Object target) {
+        return switch (method.getName()) {
+            case "equals" -> args.length == 1 && method.getParameterTypes()[0] == Object.class ? proxy == args[0] : null;
+            case "hashCode" -> args == null ? System.identityHashCode(proxy) : null;
+            case "toString" -> args == null ? "Counting " + target : null;
+            default -> null;
+        };
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object self = objectMethod(proxy, method, args, target);
+            if (self != null) {
+                return self;
+            }
+            Object result = QueryCountingDataSource.invoke(target, method, args);
+            if (result instanceof Statement statement && method.getReturnType().isInterface()) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+                return proxy(method.getReturnType(), new StatementHandler(statement, sql, (Connection) proxy));
+            }
+            return result;
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final Connection connection;
+        private final String sql;
+        private final QueryStats stats = QueryStats.current();
+        // Chỉ giữ tham số khi request được lấy mẫu
+        private final Map<Integer, Object> parameters = stats != null && stats.isSampled() ? new TreeMap<>() : null;
+        private String batchSql;
+
+        StatementHandler(Statement target, String sql, Connection connection) {
+            this.target = target;
+            this.sql = sql;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object self = objectMethod(proxy, method, args, target);
+            if (self != null) {
+                return self;
+            }
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(proxy, method, args);
+            }
+            if (name.equals("getConnection")) {
+                return connection;
+            }
+            if (parameters != null && name.startsWith("set") && args != null && args.length >= 2
+                    && args[0] instanceof Integer index && method.getDeclaringClass() != Statement.class) {
+                parameters.put(index, args[1]);
+            } else if (parameters != null && name.equals("clearParameters")) {
+                parameters.clear();
+            } else if (name.equals("addBatch") && args != null && args.length == 1 && batchSql == null) {
+                batchSql = (String) args[0];
+            } else if (name.equals("clearBatch")) {
+                batchSql = null;
+            }
+            Object result = QueryCountingDataSource.invoke(target, method, args);
+            return result instanceof ResultSet resultSet ? countRows(resultSet, proxy) : result;
+        }
+
+        private Object execute(Object proxy, Method method, Object[] args) throws Throwable {
+            String statementSql = args != null && args.length > 0 && args[0] instanceof String text ? text
+                    : sql != null ? sql : batchSql;
+            Map<Integer, Object> bound = parameters == null ? null : new TreeMap<>(parameters);
+            long start = System.nanoTime();
+            Object result = null;
+            try {
+                result = QueryCountingDataSource.invoke(target, method, args);
+            } finally {
+                diagnostics.statementExecuted(stats, statementSql, bound, System.nanoTime() - start, updatedRows(result));
+                if (method.getName().startsWith("executeBatch") || method.getName().startsWith("executeLargeBatch")) {
+                    batchSql = null;
+                }
+            }
+            return result instanceof ResultSet resultSet ? countRows(resultSet, proxy) : result;
+        }
+
+        private Object countRows(ResultSet resultSet, Object statement) {
+            return stats == null ? resultSet : proxy(ResultSet.class, new ResultSetHandler(resultSet, stats, statement));
+        }
+    }
+
+    // Số dòng executeUpdate/executeBatch báo về; batch viết lại thành multi-row INSERT báo SUCCESS_NO_INFO (-2)
+    private static long updatedRows(Object result) {
+        long rows = 0;
+        if (result instanceof Integer count) {
+            rows = Math.max(0, count);
+        } else if (result instanceof Long count) {
+            rows = Math.max(0, count);
+        } else if (result instanceof int[] counts) {
+            for (int count : counts) {
+                rows += Math.max(0, count);
+            }
+        } else if (result instanceof long[] counts) {
+            for (long count : counts) {
+                rows += Math.max(0, count);
+            }
+        }
+        return rows;
+    }
+
+    private static class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final QueryStats stats;
+        private final Object statement;
+
+        ResultSetHandler(ResultSet target, QueryStats stats, Object statement) {
+            this.target = target;
+            this.stats = stats;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object self = objectMethod(proxy, method, args, target);
+            if (self != null) {
+                return self;
+            }
+            if (method.getName().equals("getStatement")) {
+                return statement;
+            }
+            Object result = QueryCountingDataSource.invoke(target, method, args);
+            if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                stats.recordRow();
+            }
+            return result;
+        }
+    }
+}
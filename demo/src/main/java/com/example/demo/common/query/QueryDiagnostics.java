@@ -0,0 +1,124 @@
+package com.example.demo.common.query;
+
+import com.example.demo.config.QueryDiagnosticsConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Targeted SQL diagnostics in place of logging every statement: statements, rows and DB time
+ * per request, a warning for requests over budget (too many statements, or one statement
+ * repeated as in an N+1 load) and for slow statements. Per-request summaries are logged at
+ * DEBUG.
+ */
+@Component
+public class QueryDiagnostics {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryDiagnostics.class);
+    private static final int MAX_PARAMETER_LENGTH = 100;
+
+    private final QueryDiagnosticsConfig config;
+    private final long slowQueryNanos;
+    private final DistributionSummary requestStatements;
+    private final Timer requestDbTime;
+    private final Counter overStatementBudget;
+    private final Counter overRepeatBudget;
+    private final Counter slowStatements;
+
+    public QueryDiagnostics(QueryDiagnosticsConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.slowQueryNanos = config.getSlowQueryThreshold().toNanos();
+        this.requestStatements = DistributionSummary.builder("db.request.statements")
+                .description("SQL statements executed per HTTP request")
+                .register(meterRegistry);
+        this.requestDbTime = Timer.builder("db.request.time")
+                .description("Time spent executing SQL statements per HTTP request")
+                .register(meterRegistry);
+        this.overStatementBudget = Counter.builder("db.request.over.budget")
+                .description("Requests over a query budget")
+                .tag("budget", "statements")
+                .register(meterRegistry);
+        this.overRepeatBudget = Counter.builder("db.request.over.budget")
+                .description("Requests over a query budget")
+                .tag("budget", "repeats")
+                .register(meterRegistry);
+        this.slowStatements = Counter.builder("db.statements.slow")
+                .description("SQL statements slower than app.query-diagnostics.slow-query-threshold")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * Opens the scope of one request; {@link #finish} reports it.
+     */
+    QueryStats start() {
+        boolean sampled = ThreadLocalRandom.current().nextDouble() < config.getParameterSampleRate();
+        return new QueryStats(QueryStats.current(), sampled);
+    }
+
+    void finish(QueryStats stats, String request) {
+        int statements = stats.statements();
+        Duration dbTime = stats.dbTime();
+        requestStatements.record(statements);
+        requestDbTime.record(dbTime);
+        Map.Entry<String, Integer> mostRepeated = stats.mostRepeated();
+        boolean tooMany = statements > config.getMaxStatementsPerRequest();
+        boolean repeated = mostRepeated != null && mostRepeated.getValue() > config.getMaxRepeatsPerStatement();
+        if (tooMany) {
+            overStatementBudget.increment();
+        }
+        if (repeated) {
+            overRepeatBudget.increment();
+        }
+        if (tooMany || repeated) {
+            log.warn("{} over query budget: {} statements ({} distinct), {} rows, {} ms in DB; most repeated ({}x): {}",
+                    request, statements, stats.executions().size(), stats.rows(), dbTime.toMillis(),
+                    mostRepeated.getValue(), mostRepeated.getKey());
+        } else if (log.isDebugEnabled() && statements > 0) {
+            log.debug("{}: {} statements, {} rows, {} ms in DB", request, statements, stats.rows(), dbTime.toMillis());
+        }
+    }
+
+    /**
+     * Called by {@link QueryCountingDataSource} after every statement, failed ones included.
+     *
+     * @param stats      scope the statement was created in, {@code null} outside one
+     * @param parameters bind parameters by index, {@code null} when not sampled
+     */
+    void statementExecuted(QueryStats stats, String sql, Map<Integer, Object> parameters, long nanos, long rows) {
+        String text = sql != null ? sql : "<batch>";
+        if (stats != null) {
+            stats.recordStatement(text, nanos, rows);
+        }
+        if (nanos >= slowQueryNanos) {
+            slowStatements.increment();
+            log.warn("Slow statement ({} ms): {}{}", TimeUnit.NANOSECONDS.toMillis(nanos), text,
+                    parameters == null || parameters.isEmpty() ? "" : " " + format(parameters));
+        }
+    }
+
+    private static String format(Map<Integer, Object> parameters) {
+        StringJoiner joined = new StringJoiner(", ", "[", "]");
+        parameters.forEach((index, value) -> {
+            String shown = value instanceof byte[] bytes ? "<" + bytes.length + " bytes>" : String.valueOf(value);
+            if (shown.length() > MAX_PARAMETER_LENGTH) {
+                shown = shown.substring(0, MAX_PARAMETER_LENGTH) + "...";
+            }
+            joined.add(index + "=" + shown);
+        });
+        return joined.toString();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.demo.common.query;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Opens a {@link QueryStats} scope per request and reports it to {@link QueryDiagnostics} once
+ * the response is complete, including the asynchronous part of a request.
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 20)
+public class QueryDiagnosticsFilter extends OncePerRequestFilter {
+
+    private final QueryDiagnostics diagnostics;
+
+    public QueryDiagnosticsFilter(QueryDiagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !diagnostics.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+
+        QueryStats stats = diagnostics.start();
+        String label = request.getMethod() + " " + request.getRequestURI();
+        boolean async = false;
+        QueryStats previous = QueryStats.current();
+        QueryStats.set(stats);
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new Report(stats, label));
+                async = true;
+            }
+        } finally {
+            QueryStats.set(previous);
+            if (!async) {
+                diagnostics.finish(stats, label);
+            }
+        }
+    }
+
+    private class Report implements AsyncListener {
+        private final QueryStats stats;
+        private final String label;
+
+        Report(QueryStats stats, String label) {
+            this.stats = stats;
+            this.label = label;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            diagnostics.finish(stats, label);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.demo.common.query;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Statements executed through {@link QueryCountingDataSource} while a scope is open: one per
+ * HTTP request ({@link QueryDiagnosticsFilter}), or one opened by {@link #measure} in a test.
+ * Scopes nest; a statement counts in every open scope of its thread. Work handed to another
+ * thread keeps counting only when wrapped with {@link #wrap}.
+ * <p>
+ * A JDBC batch counts as one statement; its rows are the sum of its update counts.
+ */
+public final class QueryStats {
+
+    public enum StatementType {
+        SELECT, INSERT, UPDATE, DELETE, OTHER;
+
+        static StatementType of(String sql) {
+            String trimmed = sql.stripLeading();
+            int end = 0;
+            while (end < trimmed.length() && Character.isLetter(trimmed.charAt(end))) {
+                end++;
+            }
+            return switch (trimmed.substring(0, end).toLowerCase(Locale.ROOT)) {
+                case "select", "with" -> SELECT;
+                case "insert" -> INSERT;
+                case "update" -> UPDATE;
+                case "delete" -> DELETE;
+                default -> OTHER;
+            };
+        }
+    }
+
+    private static final ThreadLocal<QueryStats> CURRENT = new ThreadLocal<>();
+
+    private final QueryStats parent;
+    private final boolean sampled;
+    private final Map<String, Integer> executions = new LinkedHashMap<>();
+    private final int[] byType = new int[StatementType.values().length];
+    private int statements;
+    private long rows;
+    private long nanos;
+
+    QueryStats(QueryStats parent, boolean sampled) {
+        this.parent = parent;
+        this.sampled = sampled;
+    }
+
+    /**
+     * Runs {@code work} and returns what it executed, e.g.
+     * {@code assertThat(QueryStats.measure(() -> ...).statements(StatementType.INSERT)).isEqualTo(1)}.
+     */
+    public static QueryStats measure(Runnable work) {
+        QueryStats stats = new QueryStats(CURRENT.get(), false);
+        bind(stats, () -> {
+            work.run();
+            return null;
+        });
+        return stats;
+    }
+
+    public static QueryStats current() {
+        return CURRENT.get();
+    }
+
+    static <T> T bind(QueryStats stats, Supplier<T> work) {
+        QueryStats previous = CURRENT.get();
+        set(stats);
+        try {
+            return work.get();
+        } finally {
+            set(previous);
+        }
+    }
+
+    static void set(QueryStats stats) {
+        if (stats == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(stats);
+        }
+    }
+
+    /**
+     * {@code work} counting into the caller's scopes, to run on another thread.
+     */
+    public static <T> Supplier<T> wrap(Supplier<T> work) {
+        QueryStats stats = CURRENT.get();
+        return stats == null ? work : () -> bind(stats, work);
+    }
+
+    public static Runnable wrap(Runnable work) {
+        QueryStats stats = CURRENT.get();
+        return stats == null ? work : () -> bind(stats, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Whether bind parameters are kept for the slow-query log; sampled per request.
+     */
+    boolean isSampled() {
+        for (QueryStats stats = this; stats != null; stats = stats.parent) {
+            if (stats.sampled) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void recordStatement(String sql, long elapsedNanos, long updatedRows) {
+        StatementType type = StatementType.of(sql);
+        for (QueryStats stats = this; stats != null; stats = stats.parent) {
+            synchronized (stats) {
+                stats.statements++;
+                stats.byType[type.ordinal()]++;
+                stats.executions.merge(sql, 1, Integer::sum);
+                stats.rows += updatedRows;
+                stats.nanos += elapsedNanos;
+            }
+        }
+    }
+
+    void recordRow() {
+        for (QueryStats stats = this; stats != null; stats = stats.parent) {
+            synchronized (stats) {
+                stats.rows++;
+            }
+        }
+    }
+
+    public synchronized int statements() {
+        return statements;
+    }
+
+    public synchronized int statements(StatementType type) {
+        return byType[type.ordinal()];
+    }
+
+    /**
+     * Rows read from result sets plus rows reported changed.
+     */
+    public synchronized long rows() {
+        return rows;
+    }
+
+    /**
+     * Time spent executing statements, not counting reading their results.
+     */
+    public synchronized Duration dbTime() {
+        return Duration.ofNanos(nanos);
+    }
+
+    /**
+     * Statement text to number of executions, in order of first execution.
+     */
+    public synchronized Map<String, Integer> executions() {
+        return new LinkedHashMap<>(executions);
+    }
+
+    /**
+     * The statement executed most often and how often, {@code null} when none was.
+     */
+    public synchronized Map.Entry<String, Integer> mostRepeated() {
+        Map.Entry<String, Integer> most = null;
+        for (Map.Entry<String, Integer> entry : executions.entrySet()) {
+            if (most == null || entry.getValue() > most.getValue()) {
+                most = entry;
+            }
+        }
+        return most == null ? null : Map.entry(most.getKey(), most.getValue());
+    }
+}
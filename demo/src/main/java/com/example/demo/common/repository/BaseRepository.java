@@ -3,34 +3,75 @@ package com.example.demo.common.repository;
 import com.example.demo.common.entity.BaseEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.query.Param;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Base repository for all entities extending {@link BaseEntity}.
+ * <p>
+ * Reads go through {@code BaseService}, which puts the soft-delete filter into the WHERE
+ * clause so inactive rows never leave the database. {@link #findById} and {@link #findAll()}
+ * are redeclared here with the same filter; admin and restore paths that need inactive rows
+ * opt out explicitly through the {@code ...IncludingInactive} methods. Derived queries of
+ * subinterfaces must filter on {@code active} themselves (e.g. {@code ...AndActiveTrue}).
+ */
 @NoRepositoryBean
-public interface BaseRepository<T extends BaseEntity<ID>, ID extends Serializable> 
+public interface BaseRepository<T extends BaseEntity<ID>, ID extends Serializable>
         extends JpaRepository<T, ID>, JpaSpecificationExecutor<T> {
-    default List<T> findAllActive() {
-        return findAll().stream()
-                .filter(BaseEntity::getActive)
-                .toList();
-    }
-    default Optional<T> findByIdAndActive(ID id) {
-        return findById(id)
-                .filter(BaseEntity::getActive);
-    }
-    default void softDelete(ID id) {
-        findById(id).ifPresent(entity -> {
-            entity.setActive(false);
-            save(entity);
-        });
-    }
-    default void restore(ID id) {
-        findById(id).ifPresent(entity -> {
-            entity.setActive(true);
-            save(entity);
-        });
-    }
-}
\ No newline at end of file
+
+    /**
+     * The active row with this id, loaded as a managed entity for writes.
+     */
+    @Override
+    @Query("select e from #{#entityName} e where e.id = :id and e.active = true")
+    Optional<T> findById(@Param("id") ID id);
+
+    @Query("select e from #{#entityName} e where e.id = :id")
+    Optional<T> findByIdIncludingInactive(@Param("id") ID id);
+
+    @Override
+    @Query("select e from #{#entityName} e where e.active = true")
+    List<T> findAll();
+
+    /**
+     * Sets the active flag of one row in a single UPDATE.
+     *
+     * @return the number of rows matched, 0 if the id does not exist
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update #{#entityName} e set e.active = :active, e.updatedAt = local datetime, "
+            + "e.version = e.version + 1 where e.id = :id")
+    int updateActive(@Param("id") ID id, @Param("active") boolean active);
+
+    /**
+     * Bulk variant of {@link #updateActive(Serializable, boolean)}; rows already in the
+     * requested state are left untouched.
+     *
+     * @return the number of rows actually changed
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update #{#entityName} e set e.active = :active, e.updatedAt = local datetime, "
+            + "e.version = e.version + 1 where e.id in :ids and e.active <> :active")
+    int updateActiveByIds(@Param("ids") Collection<ID> ids, @Param("active") boolean active);
+
+    /**
+     * Hard delete in a single statement, without loading the entity first. JPA cascades
+     * and lifecycle callbacks are not applied.
+     *
+     * @return the number of rows deleted, 0 if the id does not exist
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from #{#entityName} e where e.id = :id")
+    int hardDelete(@Param("id") ID id);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from #{#entityName} e where e.id in :ids")
+    int hardDeleteByIds(@Param("ids") Collection<ID> ids);
+}
@@ -3,6 +3,8 @@ package com.example.demo.common.security.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Configuration
 @ConfigurationProperties(prefix = "app.jwt")
 public class JwtConfig {
@@ -10,6 +12,9 @@ public class JwtConfig {
     private long expiration;
     private String header;
     private String cookieName;
+    private long cacheMaxSize = 10_000;
+    private Duration revocationBucket = Duration.ofHours(1);
+    private Duration revocationPurgeInterval = Duration.ofMinutes(10);
 
     public String getSecret() {
         return secret;
@@ -42,4 +47,28 @@ public class JwtConfig {
     public void setCookieName(String cookieName) {
         this.cookieName = cookieName;
     }
+
+    public long getCacheMaxSize() {
+        return cacheMaxSize;
+    }
+
+    public void setCacheMaxSize(long cacheMaxSize) {
+        this.cacheMaxSize = cacheMaxSize;
+    }
+
+    public Duration getRevocationBucket() {
+        return revocationBucket;
+    }
+
+    public void setRevocationBucket(Duration revocationBucket) {
+        this.revocationBucket = revocationBucket;
+    }
+
+    public Duration getRevocationPurgeInterval() {
+        return revocationPurgeInterval;
+    }
+
+    public void setRevocationPurgeInterval(Duration revocationPurgeInterval) {
+        this.revocationPurgeInterval = revocationPurgeInterval;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,227 @@
+package com.example.demo.common.security.crypto;
+
+import com.example.demo.common.concurrent.RequestExecutors;
+import com.example.demo.common.exception.ServiceUnavailableException;
+import com.example.demo.common.security.config.PasswordHashingConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Runs CPU-bound password hashing (BCrypt) on a dedicated, size-limited pool instead of
+ * Tomcat request threads. When the queue is full, work is rejected immediately with
+ * {@link ServiceUnavailableException} (503 + Retry-After) rather than queued without bound.
+ */
+@Service
+public class PasswordHashingService {
+
+    private static final int ENCODE_CHUNK_SIZE = 16;
+    private static final Pattern BCRYPT_PATTERN = Pattern.compile("\\A\\$2([ayb])?\\$(\\d\\d)\\$[./0-9A-Za-z]{53}");
+
+    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingConfig config;
+    private final ThreadPoolExecutor executor;
+    private final Executor securityContextExecutor;
+    private final Counter rejectedCounter;
+    private volatile String unknownUserHash;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder, PasswordHashingConfig config,
+                                  MeterRegistry meterRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        this.config = config;
+        this.executor = new ThreadPoolExecutor(
+                config.getThreads(), config.getThreads(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(config.getQueueCapacity()),
+                new CustomizableThreadFactory("password-hash-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.securityContextExecutor = RequestExecutors.propagating(executor);
+
+        Gauge.builder("password.hash.queue.size", executor, e -> e.getQueue().size())
+                .description("Password hashing tasks waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("password.hash.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Password hashing tasks currently running")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("password.hash.rejected")
+                .description("Password hashing tasks rejected because the queue was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code task} on the hashing pool. Keep the task to the hashing itself: anything else
+     * it does (e.g. a database lookup) holds a hashing worker too.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, securityContextExecutor);
+        } catch (RejectedExecutionException ex) {
+            throw rejected(ex);
+        }
+    }
+
+    public CompletableFuture<String> encodeAsync(CharSequence rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Checks a password on the hashing pool. A {@code null} encoded password (unknown user)
+     * is checked against a dummy hash, so an unknown username takes as long as a wrong password.
+     */
+    public CompletableFuture<Boolean> matchesAsync(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> {
+            boolean matches = passwordEncoder.matches(rawPassword,
+                    encodedPassword != null ? encodedPassword : unknownUserHash());
+            return encodedPassword != null && matches;
+        });
+    }
+
+    private String unknownUserHash() {
+        String hash = unknownUserHash;
+        if (hash == null) {
+            hash = passwordEncoder.encode("unknown-user");
+            unknownUserHash = hash;
+        }
+        return hash;
+    }
+
+    /**
+     * Hashes many passwords in parallel without flooding the queue: one lane per worker thread
+     * at most, and each lane re-queues its next chunk only when the previous one finishes, so
+     * logins keep interleaving with a large batch. The batch is accepted or rejected as a whole
+     * before anything is hashed; once accepted, a lane that finds the queue full carries on
+     * with its next chunk on the same worker instead of failing.
+     *
+     * @return the encoded passwords, in the same order as {@code rawPasswords}
+     * @throws ServiceUnavailableException if the queue has no room for the lanes
+     */
+    public CompletableFuture<List<String>> encodeAllAsync(List<? extends CharSequence> rawPasswords) {
+        int size = rawPasswords.size();
+        String[] encoded = new String[size];
+        int chunks = (size + ENCODE_CHUNK_SIZE - 1) / ENCODE_CHUNK_SIZE;
+        int lanes = Math.max(1, Math.min(config.getThreads(), chunks));
+        if (executor.getQueue().remainingCapacity() < lanes) {
+            throw rejected(null);
+        }
+
+        AtomicBoolean abandoned = new AtomicBoolean();
+        CompletableFuture<?>[] laneFutures = new CompletableFuture<?>[lanes];
+        for (int lane = 0; lane < lanes; lane++) {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            laneFutures[lane] = done;
+            Runnable first = new EncodeLane(rawPasswords, encoded, lane, lanes, chunks, abandoned, done);
+            try {
+                securityContextExecutor.execute(first);
+            } catch (RejectedExecutionException ex) {
+                // Hàng đợi vừa bị lấp giữa lúc kiểm tra và lúc gửi: bỏ cả batch, các lane đã nhận dừng lại
+                abandoned.set(true);
+                throw rejected(ex);
+            }
+        }
+        return CompletableFuture.allOf(laneFutures).thenApply(ignored -> Arrays.asList(encoded));
+    }
+
+    private ServiceUnavailableException rejected(RejectedExecutionException cause) {
+        rejectedCounter.increment();
+        return new ServiceUnavailableException("Server is busy, please retry later",
+                config.getRetryAfterSeconds(), cause);
+    }
+
+    /**
+     * Blocking variant for callers that cannot go async; the hashing itself still runs
+     * on the bounded pool, so concurrent hashing never exceeds the configured thread count.
+     */
+    public String encode(CharSequence rawPassword) {
+        try {
+            return encodeAsync(rawPassword).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    public boolean isEncoded(String password) {
+        return password != null && BCRYPT_PATTERN.matcher(password).matches();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Encodes every {@code lanes}-th chunk of a batch, starting at {@code chunk}.
+     */
+    private final class EncodeLane implements Runnable {
+        private final List<? extends CharSequence> rawPasswords;
+        private final String[] encoded;
+        private final int chunk;
+        private final int lanes;
+        private final int chunks;
+        private final AtomicBoolean abandoned;
+        private final CompletableFuture<Void> done;
+
+        private EncodeLane(List<? extends CharSequence> rawPasswords, String[] encoded, int chunk, int lanes,
+                           int chunks, AtomicBoolean abandoned, CompletableFuture<Void> done) {
+            this.rawPasswords = rawPasswords;
+            this.encoded = encoded;
+            this.chunk = chunk;
+            this.lanes = lanes;
+            this.chunks = chunks;
+            this.abandoned = abandoned;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            for (int current = chunk; current < chunks; current += lanes) {
+                if (abandoned.get()) {
+                    done.cancel(false);
+                    return;
+                }
+                try {
+                    int from = current * ENCODE_CHUNK_SIZE;
+                    int to = Math.min(from + ENCODE_CHUNK_SIZE, rawPasswords.size());
+                    for (int i = from; i < to; i++) {
+                        encoded[i] = passwordEncoder.encode(rawPasswords.get(i));
+                    }
+                } catch (RuntimeException ex) {
+                    done.completeExceptionally(ex);
+                    return;
+                }
+                int next = current + lanes;
+                if (next >= chunks) {
+                    break;
+                }
+                try {
+                    // Xếp lại cuối hàng đợi để các lần đăng nhập chen vào giữa
+                    securityContextExecutor.execute(new EncodeLane(rawPasswords, encoded, next, lanes, chunks,
+                            abandoned, done));
+                    return;
+                } catch (RejectedExecutionException ex) {
+                    // Hàng đợi đầy: làm tiếp trên worker này thay vì bỏ phần đã băm
+                }
+            }
+            done.complete(null);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.demo.common.security.dto;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Result of a successful JWT signature and expiry check. Immutable, so a single instance
+ * can be shared by every request that presents the same token.
+ */
+public class VerifiedToken {
+    private final User principal;
+    private final List<GrantedAuthority> authorities;
+    private final Date issuedAt;
+    private final Date expiresAt;
+    // "jti" tách thành hai long để kiểm tra thu hồi không cần cấp phát; 0/0 nếu token không có jti
+    private final long tokenIdHigh;
+    private final long tokenIdLow;
+
+    public VerifiedToken(User principal, List<GrantedAuthority> authorities, Date issuedAt, Date expiresAt,
+                         UUID tokenId) {
+        this.principal = principal;
+        this.authorities = List.copyOf(authorities);
+        this.issuedAt = issuedAt;
+        this.expiresAt = expiresAt;
+        this.tokenIdHigh = tokenId == null ? 0 : tokenId.getMostSignificantBits();
+        this.tokenIdLow = tokenId == null ? 0 : tokenId.getLeastSignificantBits();
+    }
+
+    public Authentication toAuthentication(String token) {
+        return new UsernamePasswordAuthenticationToken(principal, token, authorities);
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return expiresAt != null && expiresAt.getTime() <= nowMillis;
+    }
+
+    public String getUsername() {
+        return principal.getUsername();
+    }
+
+    public User getPrincipal() {
+        return principal;
+    }
+
+    public List<GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    public Date getIssuedAt() {
+        return issuedAt;
+    }
+
+    public Date getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean hasTokenId() {
+        return tokenIdHigh != 0 || tokenIdLow != 0;
+    }
+
+    public UUID getTokenId() {
+        return hasTokenId() ? new UUID(tokenIdHigh, tokenIdLow) : null;
+    }
+
+    public long getTokenIdHigh() {
+        return tokenIdHigh;
+    }
+
+    public long getTokenIdLow() {
+        return tokenIdLow;
+    }
+}
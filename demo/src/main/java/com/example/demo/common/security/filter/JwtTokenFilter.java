@@ -1,6 +1,8 @@
 package com.example.demo.common.security.filter;
 
 import com.example.demo.common.security.config.JwtConfig;
+import com.example.demo.common.security.dto.VerifiedToken;
+import com.example.demo.common.security.revocation.RevokedTokenIndex;
 import com.example.demo.common.security.util.JwtTokenUtil;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -20,10 +22,12 @@ public class JwtTokenFilter extends OncePerRequestFilter {
 
     private final JwtTokenUtil jwtTokenUtil;
     private final JwtConfig jwtConfig;
+    private final RevokedTokenIndex revokedTokenIndex;
 
-    public JwtTokenFilter(JwtTokenUtil jwtTokenUtil, JwtConfig jwtConfig) {
+    public JwtTokenFilter(JwtTokenUtil jwtTokenUtil, JwtConfig jwtConfig, RevokedTokenIndex revokedTokenIndex) {
         this.jwtTokenUtil = jwtTokenUtil;
         this.jwtConfig = jwtConfig;
+        this.revokedTokenIndex = revokedTokenIndex;
     }
 
     @Override
@@ -35,9 +39,14 @@ public class JwtTokenFilter extends OncePerRequestFilter {
         String token = resolveToken(request);
 
         try {
-            if (StringUtils.hasText(token) && jwtTokenUtil.validateToken(token)) {
-                Authentication auth = jwtTokenUtil.getAuthentication(token);
-                SecurityContextHolder.getContext().setAuthentication(auth);
+            // Xác thực chữ ký một lần duy nhất, kết quả được cache theo token
+            if (StringUtils.hasText(token)) {
+                VerifiedToken verified = jwtTokenUtil.verify(token).orElse(null);
+                // Token bị thu hồi (đăng xuất, khóa tài khoản, đổi mật khẩu): kiểm tra trong bộ nhớ, không truy vấn DB
+                if (verified != null && !revokedTokenIndex.isRevoked(verified)) {
+                    Authentication auth = verified.toAuthentication(token);
+                    SecurityContextHolder.getContext().setAuthentication(auth);
+                }
             }
         } catch (Exception e) {
             SecurityContextHolder.clearContext();
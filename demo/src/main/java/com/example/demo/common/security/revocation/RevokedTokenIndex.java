@@ -0,0 +1,182 @@
+package com.example.demo.common.security.revocation;
+
+import com.example.demo.common.security.config.JwtConfig;
+import com.example.demo.common.security.dto.VerifiedToken;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * In-memory view of revoked JWTs, consulted on every authenticated request.
+ * <p>
+ * Two kinds of revocation are kept:
+ * <ul>
+ *   <li>single tokens by "jti", stored as two longs in open-addressed tables bucketed by the
+ *   token's expiry, so a whole bucket is dropped once every token in it has expired;</li>
+ *   <li>a per-user cutoff: every token of that user issued at or before the cutoff second is
+ *   revoked (deactivation, password change). JWT "iat" has second precision, so a token
+ *   issued later in that same second is rejected as well.</li>
+ * </ul>
+ * {@link #isRevoked(VerifiedToken)} takes no locks and allocates nothing; writers, which are
+ * rare, synchronize per bucket.
+ */
+@Component
+public class RevokedTokenIndex {
+
+    private static final int INITIAL_BUCKET_CAPACITY = 64;
+
+    private final long bucketSeconds;
+    private final long maxTokenLifetimeSeconds;
+    private final AtomicReferenceArray<Bucket> buckets;
+    private final Map<String, Long> userCutoffs = new ConcurrentHashMap<>();
+
+    public RevokedTokenIndex(JwtConfig jwtConfig) {
+        this.bucketSeconds = Math.max(1, jwtConfig.getRevocationBucket().toSeconds());
+        this.maxTokenLifetimeSeconds = Math.max(1, jwtConfig.getExpiration() / 1000);
+        // Đủ ô cho mọi bucket còn hiệu lực: hai bucket còn sống không bao giờ trùng ô
+        this.buckets = new AtomicReferenceArray<>((int) (maxTokenLifetimeSeconds / bucketSeconds) + 2);
+    }
+
+    public boolean isRevoked(VerifiedToken token) {
+        Long cutoff = userCutoffs.get(token.getUsername());
+        if (cutoff != null && (token.getIssuedAt() == null || token.getIssuedAt().getTime() / 1000 <= cutoff)) {
+            return true;
+        }
+        if (!token.hasTokenId() || token.getExpiresAt() == null) {
+            return false;
+        }
+        long bucketIndex = token.getExpiresAt().getTime() / 1000 / bucketSeconds;
+        Bucket bucket = buckets.get(slot(bucketIndex));
+        return bucket != null && bucket.index == bucketIndex
+                && bucket.contains(token.getTokenIdHigh(), token.getTokenIdLow());
+    }
+
+    /**
+     * Revokes one token until it expires on its own.
+     */
+    public void revokeToken(UUID tokenId, long expiresAtEpochSecond) {
+        long bucketIndex = expiresAtEpochSecond / bucketSeconds;
+        int slot = slot(bucketIndex);
+        while (true) {
+            Bucket bucket = buckets.get(slot);
+            if (bucket != null && bucket.index > bucketIndex) {
+                // Bucket cũ đã hết hạn và bị thay thế: token này cũng đã hết hạn
+                return;
+            }
+            if (bucket == null || bucket.index < bucketIndex) {
+                Bucket fresh = new Bucket(bucketIndex);
+                if (!buckets.compareAndSet(slot, bucket, fresh)) {
+                    continue;
+                }
+                bucket = fresh;
+            }
+            bucket.add(tokenId.getMostSignificantBits(), tokenId.getLeastSignificantBits());
+            return;
+        }
+    }
+
+    /**
+     * Revokes every token of {@code username} issued at or before {@code cutoffEpochSecond}.
+     */
+    public void revokeIssuedBefore(String username, long cutoffEpochSecond) {
+        userCutoffs.merge(username, cutoffEpochSecond, Math::max);
+    }
+
+    /**
+     * Drops buckets and cutoffs that can no longer match an unexpired token.
+     */
+    public void purge(long nowEpochSecond) {
+        for (int i = 0; i < buckets.length(); i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null && (bucket.index + 1) * bucketSeconds <= nowEpochSecond) {
+                buckets.compareAndSet(i, bucket, null);
+            }
+        }
+        userCutoffs.entrySet().removeIf(entry -> entry.getValue() + maxTokenLifetimeSeconds < nowEpochSecond);
+    }
+
+    public long revokedTokenCount() {
+        long count = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null) {
+                count += bucket.size;
+            }
+        }
+        return count;
+    }
+
+    public int userCutoffCount() {
+        return userCutoffs.size();
+    }
+
+    private int slot(long bucketIndex) {
+        return (int) Math.floorMod(bucketIndex, (long) buckets.length());
+    }
+
+    /**
+     * Open-addressed set of 128-bit ids, stored as (high, low) pairs. A high word of 0 marks an
+     * empty slot (random UUIDs always carry version bits there). The low word is written before
+     * the high word, so a reader that sees the high word also sees the low one.
+     */
+    private static final class Bucket {
+        private final long index;
+        private volatile AtomicLongArray table = new AtomicLongArray(INITIAL_BUCKET_CAPACITY * 2);
+        private volatile int size;
+
+        private Bucket(long index) {
+            this.index = index;
+        }
+
+        private boolean contains(long high, long low) {
+            AtomicLongArray entries = table;
+            int mask = entries.length() / 2 - 1;
+            for (int i = hash(high, low) & mask; ; i = (i + 1) & mask) {
+                long storedHigh = entries.get(2 * i);
+                if (storedHigh == 0) {
+                    return false;
+                }
+                if (storedHigh == high && entries.get(2 * i + 1) == low) {
+                    return true;
+                }
+            }
+        }
+
+        private synchronized void add(long high, long low) {
+            if (high == 0 || contains(high, low)) {
+                return;
+            }
+            if ((size + 1) * 2 > table.length() / 2) {
+                AtomicLongArray grown = new AtomicLongArray(table.length() * 2);
+                AtomicLongArray entries = table;
+                for (int i = 0; i < entries.length(); i += 2) {
+                    if (entries.get(i) != 0) {
+                        insert(grown, entries.get(i), entries.get(i + 1));
+                    }
+                }
+                table = grown;
+            }
+            insert(table, high, low);
+            size++;
+        }
+
+        private static void insert(AtomicLongArray entries, long high, long low) {
+            int mask = entries.length() / 2 - 1;
+            int i = hash(high, low) & mask;
+            while (entries.get(2 * i) != 0) {
+                i = (i + 1) & mask;
+            }
+            entries.set(2 * i + 1, low);
+            entries.set(2 * i, high);
+        }
+
+        private static int hash(long high, long low) {
+            long h = (high ^ low) * 0x9e3779b97f4a7c15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
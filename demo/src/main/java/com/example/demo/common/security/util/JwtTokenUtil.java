@@ -1,22 +1,37 @@
 package com.example.demo.common.security.util;
 
 import com.example.demo.common.security.config.JwtConfig;
+import com.example.demo.common.security.dto.VerifiedToken;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Component
@@ -24,31 +39,63 @@ public class JwtTokenUtil {
 
     private final JwtConfig jwtConfig;
     private final Key key;
+    private final JwtParser parser;
 
-    public JwtTokenUtil(JwtConfig jwtConfig) {
+    /**
+     * Verified tokens keyed by the SHA-256 of the raw token; each entry expires at the token's "exp".
+     * A hit skips signature verification and claim parsing entirely.
+     */
+    private final Cache<String, VerifiedToken> verifiedTokens;
+    private final Timer generateTimer;
+    private final Timer verifyTimer;
+
+    public JwtTokenUtil(JwtConfig jwtConfig, MeterRegistry meterRegistry) {
         this.jwtConfig = jwtConfig;
         this.key = Keys.hmacShaKeyFor(jwtConfig.getSecret().getBytes(StandardCharsets.UTF_8));
+        // JwtParser is immutable and thread-safe, build it once
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(jwtConfig.getCacheMaxSize())
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                        long remainingMillis = value.getExpiresAt().getTime() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.verified");
+        this.generateTimer = Timer.builder("jwt.duration")
+                .description("Time spent signing a token or verifying one missing from the cache")
+                .tag("operation", "generate")
+                .register(meterRegistry);
+        this.verifyTimer = Timer.builder("jwt.duration")
+                .description("Time spent signing a token or verifying one missing from the cache")
+                .tag("operation", "verify")
+                .register(meterRegistry);
     }
 
     public String generateToken(Authentication authentication) {
-        String authorities = authentication.getAuthorities().stream()
-                .map(GrantedAuthority::getAuthority)
-                .collect(Collectors.joining(","));
-
-        long now = System.currentTimeMillis();
-        Date validity = new Date(now + jwtConfig.getExpiration());
-
-        return Jwts.builder()
-                .setSubject(authentication.getName())
-                .claim("auth", authorities)
-                .setIssuedAt(new Date(now))
-                .setExpiration(validity)
-                .signWith(key, SignatureAlgorithm.HS512)
-                .compact();
+        return generateTimer.record(() -> generate(authentication.getName(), authentication.getAuthorities()));
     }
 
     public String generateToken(UserDetails userDetails) {
-        String authorities = userDetails.getAuthorities().stream()
+        return generateTimer.record(() -> generate(userDetails.getUsername(), userDetails.getAuthorities()));
+    }
+
+    private String generate(String subject, Collection<? extends GrantedAuthority> grantedAuthorities) {
+        String authorities = grantedAuthorities.stream()
                 .map(GrantedAuthority::getAuthority)
                 .collect(Collectors.joining(","));
 
@@ -56,7 +103,8 @@ public class JwtTokenUtil {
         Date validity = new Date(now + jwtConfig.getExpiration());
 
         return Jwts.builder()
-                .setSubject(userDetails.getUsername())
+                .setId(UUID.randomUUID().toString())
+                .setSubject(subject)
                 .claim("auth", authorities)
                 .setIssuedAt(new Date(now))
                 .setExpiration(validity)
@@ -64,33 +112,48 @@ public class JwtTokenUtil {
                 .compact();
     }
 
-    public Authentication getAuthentication(String token) {
-        Claims claims = extractAllClaims(token);
-
-        Collection<? extends GrantedAuthority> authorities = Arrays
-                .stream(claims.get("auth").toString().split(","))
-                .filter(auth -> !auth.trim().isEmpty())
-                .map(SimpleGrantedAuthority::new)
-                .collect(Collectors.toList());
-
-        User principal = new User(claims.getSubject(), "", authorities);
-
-        return new UsernamePasswordAuthenticationToken(principal, token, authorities);
-    }
+    /**
+     * Verifies the token once (signature and expiry) and returns its principal,
+     * or empty if the token is invalid. Repeat calls with the same token are served from cache.
+     */
+    public Optional<VerifiedToken> verify(String token) {
+        if (!StringUtils.hasText(token)) {
+            return Optional.empty();
+        }
+        String cacheKey = digest(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(cacheKey);
+        if (cached != null && !cached.isExpired(System.currentTimeMillis())) {
+            return Optional.of(cached);
+        }
 
-    public boolean validateToken(String token) {
+        Timer.Sample sample = Timer.start();
         try {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
-            return true;
+            VerifiedToken verified = toVerifiedToken(parser.parseClaimsJws(token).getBody());
+            if (verified.getExpiresAt() != null) {
+                verifiedTokens.put(cacheKey, verified);
+            }
+            return Optional.of(verified);
         } catch (SignatureException | MalformedJwtException | UnsupportedJwtException | IllegalArgumentException ex) {
             // Log here: Invalid JWT signature
-            return false;
+            return Optional.empty();
         } catch (ExpiredJwtException ex) {
             // Log here: Expired JWT token
-            return false;
+            return Optional.empty();
+        } finally {
+            sample.stop(verifyTimer);
         }
     }
 
+    public Authentication getAuthentication(String token) {
+        return verify(token)
+                .map(verified -> verified.toAuthentication(token))
+                .orElseThrow(() -> new BadCredentialsException("Invalid or expired JWT token"));
+    }
+
+    public boolean validateToken(String token) {
+        return verify(token).isPresent();
+    }
+
     public String extractUsername(String token) {
         return extractAllClaims(token).getSubject();
     }
@@ -100,10 +163,43 @@ public class JwtTokenUtil {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
+    }
+
+    private VerifiedToken toVerifiedToken(Claims claims) {
+        Object auth = claims.get("auth");
+        List<GrantedAuthority> authorities = auth == null ? List.of() : Arrays
+                .stream(auth.toString().split(","))
+                .filter(authority -> !authority.trim().isEmpty())
+                .<GrantedAuthority>map(SimpleGrantedAuthority::new)
+                .toList();
+
+        User principal = new User(claims.getSubject(), "", authorities);
+        return new VerifiedToken(principal, authorities, claims.getIssuedAt(), claims.getExpiration(),
+                parseTokenId(claims.getId()));
+    }
+
+    /**
+     * Tokens issued before "jti" was added, or with a foreign format, can only be revoked
+     * through the per-user cutoff.
+     */
+    private static UUID parseTokenId(String jti) {
+        if (jti == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(jti);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,94 +1,1034 @@
 package com.example.demo.common.service;
 
+import com.example.demo.common.cache.EntityCache;
+import com.example.demo.common.cache.EntityCacheManager;
+import com.example.demo.common.cache.EntitySnapshots;
+import com.example.demo.common.cache.NoOpEntityCache;
+import com.example.demo.common.cache.invalidation.PgNotifyInvalidationBus;
+import com.example.demo.common.datasource.DataSourceRouting;
+import com.example.demo.common.dto.CursorPage;
 import com.example.demo.common.entity.BaseEntity;
+import com.example.demo.common.etag.ChangeWatermarks;
+import com.example.demo.common.etag.ETags;
+import com.example.demo.common.exception.BadRequestException;
+import com.example.demo.common.exception.PreconditionFailedException;
+import com.example.demo.common.filter.FilterCompiler;
+import com.example.demo.common.filter.FilterParser;
+import com.example.demo.common.pagination.KeysetCursor;
 import com.example.demo.common.repository.BaseRepository;
 import com.example.demo.common.exception.ResourceNotFoundException;
+import com.example.demo.common.sharding.Placement;
+import com.example.demo.common.sharding.ShardedRepositories;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import jakarta.persistence.metamodel.Attribute;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.GenericTypeResolver;
+import org.springframework.core.convert.ConversionException;
+import org.springframework.core.convert.support.DefaultConversionService;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
 
 import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+// Đo thời gian mọi lời gọi public từ bên ngoài (qua proxy), gắn tag theo class và method
+@Timed(value = "service.method", description = "Time spent in service methods")
 public abstract class BaseService<T extends BaseEntity<ID>, ID extends Serializable> {
 
+    public static final int MAX_CURSOR_PAGE_SIZE = 1000;
+    private static final int STREAM_FETCH_SIZE = 1000;
+    /** Keep in sync with spring.jpa.properties.hibernate.jdbc.batch_size. */
+    protected static final int JDBC_BATCH_SIZE = 50;
+    private static final int BULK_ID_CHUNK_SIZE = 10_000;
+    // Luôn được đọc để dựng entity (id, cursor, lọc active); không chứa dữ liệu nhạy cảm
+    private static final List<String> BASE_FIELDS = List.of("id", "createdAt", "updatedAt", "active", "version");
+
     protected final BaseRepository<T, ID> repository;
 
+    @PersistenceContext
+    protected EntityManager entityManager;
+    private final Class<T> entityClass;
+    private final Class<ID> idType;
+    private EntityCache<T, ID> entityCache = new NoOpEntityCache<>();
+    private volatile ReadableFields<T> readableFields;
+    private PgNotifyInvalidationBus invalidationBus;
+    private FilterCompiler filterCompiler;
+    private ChangeWatermarks changeWatermarks;
+    // Một database, hoặc các shard khi app.sharding.enabled=true
+    protected Placement<T, ID> placement = Placement.singleDatabase(new LocalReads());
+
     protected BaseService(BaseRepository<T, ID> repository) {
         this.repository = repository;
+        Class<?>[] typeArguments = GenericTypeResolver.resolveTypeArguments(getClass(), BaseService.class);
+        @SuppressWarnings("unchecked")
+        Class<T> entityType = typeArguments != null ? (Class<T>) typeArguments[0] : null;
+        this.entityClass = entityType;
+        @SuppressWarnings("unchecked")
+        Class<ID> resolvedIdType = (Class<ID>) (typeArguments != null ? typeArguments[1] : Long.class);
+        this.idType = resolvedIdType;
+    }
+
+    @Autowired
+    public void setEntityCacheManager(EntityCacheManager entityCacheManager) {
+        this.entityCache = entityCacheManager.createCache(entityClass, idType, new ReadableSnapshots());
+    }
+
+    @Autowired
+    public void setInvalidationBus(PgNotifyInvalidationBus invalidationBus) {
+        this.invalidationBus = invalidationBus;
+    }
+
+    @Autowired
+    public void setFilterCompiler(FilterCompiler filterCompiler) {
+        this.filterCompiler = filterCompiler;
+    }
+
+    @Autowired
+    public void setChangeWatermarks(ChangeWatermarks changeWatermarks) {
+        this.changeWatermarks = changeWatermarks;
     }
 
+    @Autowired
+    public void setShardedRepositories(ShardedRepositories shardedRepositories) {
+        if (shardedRepositories.isEnabled()) {
+            this.placement = shardedRepositories.create(entityClass, idType, repository, new LocalReads());
+        }
+    }
+
+    /**
+     * Counter that moves after every committed write to this entity's table, on any node.
+     * Read it before the listing it describes; see {@link ChangeWatermarks}.
+     */
+    public long changeWatermark() {
+        return changeWatermarks.current(EntityCacheManager.entityName(entityClass));
+    }
+
+    /**
+     * Runs {@code reads} in one read-only transaction, i.e. on one connection: with read
+     * replicas, every read sees the same replica. Read replicas cannot be combined with
+     * sharding, which refuses to start with both enabled.
+     */
+    @Transactional(readOnly = true)
+    public <R> R readConsistently(Supplier<R> reads) {
+        return reads.get();
+    }
+
+    /**
+     * Unique attributes (e.g. username) whose lookups are cached next to the id lookup.
+     * Override in subclasses that use {@link #findByNaturalKey}.
+     */
+    protected Map<String, Function<T, Object>> naturalKeys() {
+        return Map.of();
+    }
+
+    /**
+     * Attributes that read paths may select and return, in output order. Defaults to every basic
+     * attribute; override to keep columns such as password hashes out of every read query.
+     */
+    protected List<String> readableFields() {
+        return entityManager.getMetamodel().entity(entityClass).getSingularAttributes().stream()
+                .filter(attribute -> attribute.getPersistentAttributeType() == Attribute.PersistentAttributeType.BASIC)
+                .map(Attribute::getName)
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Attributes clients may filter and sort on in {@link #search}. Defaults to the readable
+     * fields; the database must also have an index on each one (see {@link FilterCompiler}).
+     */
+    protected Collection<String> filterableFields() {
+        return readable().fields();
+    }
+
+    /**
+     * Parses a {@code fields} request parameter ({@code "id,username"}) against
+     * {@link #readableFields()}; {@code null} or blank selects all of them.
+     */
+    public List<String> resolveFields(String fields) {
+        List<String> readable = readable().fields();
+        if (fields == null || fields.isBlank()) {
+            return readable;
+        }
+        LinkedHashSet<String> selected = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!readable.contains(name)) {
+                throw new BadRequestException("Unknown field '" + name + "', expected any of " + readable);
+            }
+            selected.add(name);
+        }
+        if (selected.isEmpty()) {
+            throw new BadRequestException("fields must name at least one field");
+        }
+        return List.copyOf(selected);
+    }
+
+    // Các phương thức đọc chỉ SELECT các cột trong readableFields(), không bao giờ đọc cột ẩn (vd. password)
+
     @Transactional(readOnly = true)
     public List<T> findAll() {
-        return repository.findAll();
+        return selectEntities(null, Sort.unsorted(), -1);
     }
 
     @Transactional(readOnly = true)
     public List<T> findAllActive() {
-        return repository.findAllActive();
+        return selectEntities(isActive(), Sort.unsorted(), -1);
     }
 
     @Transactional(readOnly = true)
     public Page<T> findAll(Pageable pageable) {
-        return repository.findAll(pageable);
+        return selectPage(null, pageable, readable().entityFields()).map(this::toEntity);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<T> findAllActive(Pageable pageable) {
+        return selectPage(isActive(), pageable, readable().entityFields()).map(this::toEntity);
+    }
+
+    /**
+     * Sparse-fieldset listing: selects only {@code fields} (see {@link #resolveFields(String)}).
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findAll(List<String> fields, boolean includeInactive) {
+        return select(includeInactive ? null : isActive(), Sort.unsorted(), -1, fields).stream()
+                .map(tuple -> toMap(tuple, fields))
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public Page<Map<String, Object>> findAll(Pageable pageable, List<String> fields, boolean includeInactive) {
+        return selectPage(includeInactive ? null : isActive(), pageable, fields).map(tuple -> toMap(tuple, fields));
+    }
+
+    /**
+     * Lists entities matching a {@code filter} expression such as
+     * {@code createdAt>2024-01-01;lastName==Nguyen}, see {@link FilterParser}. Filtering,
+     * sorting and paging all run in the database.
+     */
+    @Transactional(readOnly = true)
+    public Page<T> search(String filter, Pageable pageable, boolean includeInactive) {
+        return selectPage(searchSpec(filter, pageable, includeInactive), pageable, readable().entityFields())
+                .map(this::toEntity);
     }
 
+    @Transactional(readOnly = true)
+    public Page<Map<String, Object>> search(String filter, Pageable pageable, List<String> fields,
+                                            boolean includeInactive) {
+        return selectPage(searchSpec(filter, pageable, includeInactive), pageable, fields)
+                .map(tuple -> toMap(tuple, fields));
+    }
+
+    private Specification<T> searchSpec(String filter, Pageable pageable, boolean includeInactive) {
+        Collection<String> filterable = filterableFields();
+        filterCompiler.checkSort(entityClass, pageable.getSort(), filterable);
+        Specification<T> spec = filterCompiler.compile(entityClass, filter, filterable);
+        if (includeInactive) {
+            return spec;
+        }
+        return spec == null ? isActive() : spec.and(isActive());
+    }
+
+    /**
+     * Keyset listing of active entities. Each page seeks past the previous page's last
+     * row instead of using OFFSET, so page 10,000 costs the same as page 1.
+     *
+     * @param cursor    token from a previous page, or {@code null} for the first page;
+     *                  when present its ordering overrides {@code key} and {@code direction}
+     * @param size      page size, capped at {@link #MAX_CURSOR_PAGE_SIZE}
+     * @param key       seek on {@code (id)} or {@code (created_at, id)}
+     * @param direction sort direction
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<T> findActiveByCursor(String cursor, int size, KeysetCursor.Key key, Sort.Direction direction) {
+        return findActiveByCursor(cursor, size, key, direction, readable().entityFields(), this::toEntity);
+    }
+
+    /**
+     * Sparse-fieldset variant of {@link #findActiveByCursor(String, int, KeysetCursor.Key, Sort.Direction)};
+     * the seek columns are selected as well but only {@code fields} are returned.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Map<String, Object>> findActiveByCursor(String cursor, int size, KeysetCursor.Key key,
+                                                              Sort.Direction direction, List<String> fields) {
+        LinkedHashSet<String> selected = new LinkedHashSet<>(fields);
+        selected.add("id");
+        selected.add("createdAt");
+        return findActiveByCursor(cursor, size, key, direction, List.copyOf(selected), tuple -> toMap(tuple, fields));
+    }
+
+    private <R> CursorPage<R> findActiveByCursor(String cursor, int size, KeysetCursor.Key key, Sort.Direction direction,
+                                                 List<String> selected, Function<Tuple, R> mapper) {
+        KeysetCursor after = cursor != null && !cursor.isBlank() ? KeysetCursor.decode(cursor) : null;
+        if (after != null) {
+            key = after.getKey();
+            direction = after.getDirection();
+        }
+        int limit = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        Sort sort = key == KeysetCursor.Key.CREATED_AT
+                ? Sort.by(direction, "createdAt", "id")
+                : Sort.by(direction, "id");
+
+        // Fetch one extra row to know whether another page exists, without a count query
+        List<Tuple> rows = select(activeAfter(after), sort, limit + 1, selected);
+        List<R> content = rows.stream().limit(limit).map(mapper).toList();
+        if (rows.size() <= limit) {
+            return new CursorPage<>(content, null);
+        }
+        Tuple last = rows.get(limit - 1);
+        String nextCursor = new KeysetCursor(key, direction, last.get("createdAt", LocalDateTime.class),
+                String.valueOf(last.get("id"))).encode();
+        return new CursorPage<>(content, nextCursor);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Specification<T> activeAfter(KeysetCursor after) {
+        Comparable afterId = after != null ? convertId(after.getId()) : null;
+        return (root, query, cb) -> {
+            Predicate active = cb.isTrue(root.get("active"));
+            if (after == null) {
+                return active;
+            }
+            boolean ascending = after.getDirection().isAscending();
+            Path<Comparable> id = root.get("id");
+            Predicate idBeyond = ascending ? cb.greaterThan(id, afterId) : cb.lessThan(id, afterId);
+            if (after.getKey() == KeysetCursor.Key.ID) {
+                return cb.and(active, idBeyond);
+            }
+            Path<LocalDateTime> createdAt = root.get("createdAt");
+            LocalDateTime ts = after.getCreatedAt();
+            // The redundant inclusive bound lets PostgreSQL start the (created_at, id) index scan at the cursor
+            Predicate bound = ascending ? cb.greaterThanOrEqualTo(createdAt, ts) : cb.lessThanOrEqualTo(createdAt, ts);
+            Predicate beyond = cb.or(
+                    ascending ? cb.greaterThan(createdAt, ts) : cb.lessThan(createdAt, ts),
+                    cb.and(cb.equal(createdAt, ts), idBeyond));
+            return cb.and(active, bound, beyond);
+        };
+    }
+
+    @SuppressWarnings("rawtypes")
+    private Comparable convertId(String value) {
+        try {
+            return (Comparable) DefaultConversionService.getSharedInstance().convert(value, idType);
+        } catch (ConversionException | ClassCastException ex) {
+            throw new BadRequestException("Invalid cursor", ex);
+        }
+    }
+
+    /**
+     * Feeds every active entity to {@code consumer} from a server-side cursor. Rows are read
+     * as plain tuples, so nothing accumulates in the persistence context. With sharding the
+     * shards are read one after the other, each in id order.
+     *
+     * @return the number of entities streamed
+     */
+    @Transactional(readOnly = true)
+    public long streamAllActive(Consumer<? super T> consumer) {
+        return placement.eachShard(() -> streamLocalActive(consumer)).stream().mapToLong(Long::longValue).sum();
+    }
+
+    private long streamLocalActive(Consumer<? super T> consumer) {
+        long count = 0;
+        TypedQuery<Tuple> query = entityManager.createQuery(
+                tupleQuery(isActive(), Sort.by("id"), readable().entityFields()));
+        query.setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE);
+        try (Stream<Tuple> stream = query.getResultStream()) {
+            Iterator<Tuple> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                consumer.accept(toEntity(iterator.next()));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Uncached read of an active entity; only readable fields are selected.
+     */
     @Transactional(readOnly = true)
     public Optional<T> findById(ID id) {
-        return repository.findById(id);
+        return findReadableById(id, false);
     }
 
+    /**
+     * Same as {@link #findById(Serializable)} but also finds inactive (soft deleted) entities,
+     * for admin and restore screens.
+     */
     @Transactional(readOnly = true)
-    public T getById(ID id) {
-        return repository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Entity with id " + id + " not found"));
+    public Optional<T> findByIdIncludingInactive(ID id) {
+        return findReadableById(id, true);
     }
 
     @Transactional(readOnly = true)
+    public T getById(ID id) {
+        return findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Active entity with id " + id + " not found"));
+    }
+
+    /**
+     * Served from the entity cache; only misses (and expired "not found" entries) hit the database.
+     */
     public T getByIdActive(ID id) {
-        return repository.findByIdAndActive(id)
+        return entityCache.get(id, this::loadForCache)
+                .filter(entity -> Boolean.TRUE.equals(entity.getActive()))
                 .orElseThrow(() -> new ResourceNotFoundException("Active entity with id " + id + " not found"));
     }
 
+    /**
+     * Sparse-fieldset variant of {@link #getByIdActive(Serializable)}. Still served from the
+     * entity cache, which is cheaper than any query; only the requested fields are returned.
+     */
+    public Map<String, Object> getByIdActive(ID id, List<String> fields) {
+        return toMap(getByIdActive(id), fields);
+    }
+
+    /**
+     * Picks {@code fields} out of an entity loaded by one of the read methods.
+     */
+    public Map<String, Object> toMap(T entity, List<String> fields) {
+        Map<String, Field> accessors = readable().accessors();
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (String field : fields) {
+            values.put(field, ReflectionUtils.getField(accessors.get(field), entity));
+        }
+        return values;
+    }
+
+    /**
+     * Cached lookup by a unique attribute declared in {@link #naturalKeys()}: the value is
+     * mapped to an id, and the entity itself comes from the id cache.
+     *
+     * @param idLoader database lookup of the id by the attribute, active or not
+     */
+    protected <V> Optional<T> findByNaturalKey(String naturalKey, V value, Function<V, Optional<ID>> idLoader) {
+        // Với sharding, directory trên home cho biết id (và do đó shard) mà không phải hỏi mọi shard
+        Function<V, Optional<ID>> loader = v -> placement.findId(naturalKey, v, () -> idLoader.apply(v));
+        Optional<ID> id = entityCache.getId(naturalKey, value,
+                ignored -> DataSourceRouting.onPrimary(() -> loader.apply(value)));
+        if (id.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<T> entity = entityCache.get(id.get(), this::loadForCache);
+        if (entity.isEmpty() || !Objects.equals(naturalKeys().get(naturalKey).apply(entity.get()), value)) {
+            // Mapping cũ: entity đã bị xóa hoặc đã đổi giá trị khóa
+            entityCache.evictNaturalKey(naturalKey, value);
+            return loader.apply(value).flatMap(found -> findReadableById(found, true))
+                    .filter(found -> Objects.equals(naturalKeys().get(naturalKey).apply(found), value));
+        }
+        return entity;
+    }
+
+    /**
+     * Evicts cached lookups of the given natural-key values after the current transaction
+     * commits, e.g. after rows were inserted without going through {@link #save}.
+     */
+    public void evictNaturalKeys(String naturalKey, Collection<?> values) {
+        List<?> snapshot = List.copyOf(values);
+        snapshot.forEach(value -> publishInvalidation(null, Map.of(naturalKey, value)));
+        afterCommit(() -> snapshot.forEach(value -> entityCache.evictNaturalKey(naturalKey, value)));
+    }
+
     @Transactional
     public T save(T entity) {
-        return repository.save(entity);
+        return placement.save(entity, this::persist);
     }
 
+    private T persist(T entity) {
+        T saved = repository.save(entity);
+        evict(saved.getId(), naturalKeyValues(saved));
+        return saved;
+    }
+
+    /**
+     * Draws {@code count} new ids from the entity's id generator, i.e. the ids {@link #save}
+     * would assign, for rows written without JPA such as a COPY import.
+     */
+    @Transactional
+    public List<ID> allocateIds(int count) {
+        IdentifierGenerator generator = (IdentifierGenerator) persister().getGenerator();
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        T entity = BeanUtils.instantiateClass(readable().constructor());
+        List<ID> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(idType.cast(generator.generate(session, entity)));
+        }
+        return ids;
+    }
+
+    /**
+     * Inserts/updates in JDBC batches, flushing and clearing the persistence context
+     * after every batch so large imports do not accumulate managed entities.
+     * <p>
+     * With sharding this runs one transaction per shard and is not atomic across shards: a
+     * failure on one shard leaves the other shards' changes committed.
+     */
     @Transactional
     public List<T> saveAll(List<T> entities) {
-        return repository.saveAll(entities);
+        return placement.saveAll(entities, this::persistAll);
+    }
+
+    private List<T> persistAll(List<T> entities) {
+        List<T> saved = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            T savedEntity = repository.save(entity);
+            evict(savedEntity.getId(), naturalKeyValues(savedEntity));
+            saved.add(savedEntity);
+            if (saved.size() % JDBC_BATCH_SIZE == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        return saved;
     }
 
     @Transactional
     public T update(ID id, T entityDetails) {
-        T existingEntity = getById(id);
-        return updateEntity(existingEntity, entityDetails);
+        return placement.update(id, () -> updateLocal(id, entityDetails));
+    }
+
+    private T updateLocal(ID id, T entityDetails) {
+        // Bản managed đầy đủ (kể cả cột ẩn) vì updateEntity ghi lên nó; chỉ entity đang active
+        T existingEntity = repository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Active entity with id " + id + " not found"));
+        Map<String, Object> oldKeys = naturalKeyValues(existingEntity);
+        T updated = updateEntity(existingEntity, entityDetails);
+        evict(id, oldKeys);
+        evict(id, naturalKeyValues(updated));
+        return updated;
+    }
+
+    /**
+     * Attributes {@link #patch} may change. Defaults to the readable fields other than the
+     * {@link BaseEntity} ones.
+     */
+    protected Set<String> patchableFields() {
+        Set<String> fields = new LinkedHashSet<>(readable().fields());
+        BASE_FIELDS.forEach(fields::remove);
+        return fields;
+    }
+
+    /**
+     * Partial update through a JPA bulk update:
+     * {@code UPDATE ... SET <changed attributes>, version = version + 1 WHERE id = ? AND active
+     * [AND version = ?]}, followed by a read of the updated row. Nothing is read beforehand
+     * (except the old natural keys when they change, to evict their cache entries) and only the
+     * given columns are written; a concurrent change makes the version check fail rather than
+     * block.
+     *
+     * @param changes         attribute to new value ({@code null} clears it), limited to
+     *                        {@link #patchableFields()}
+     * @param expectedVersion version the client last saw, or {@code null} to skip the check
+     * @return the updated entity
+     * @throws PreconditionFailedException if the current version is not {@code expectedVersion}
+     */
+    @Transactional
+    public T patch(ID id, Map<String, Object> changes, Long expectedVersion) {
+        return placement.update(id, () -> patchLocal(id, changes, expectedVersion));
+    }
+
+    private T patchLocal(ID id, Map<String, Object> changes, Long expectedVersion) {
+        Set<String> patchable = patchableFields();
+        for (String field : changes.keySet()) {
+            if (!patchable.contains(field)) {
+                throw new BadRequestException("Field '" + field + "' cannot be patched, expected any of " + patchable);
+            }
+        }
+        // Khóa tự nhiên bị đổi: cần giá trị cũ để xóa cache, đọc và khóa dòng trước khi ghi
+        List<String> changedKeys = naturalKeys().keySet().stream().filter(changes::containsKey).sorted().toList();
+        Map<String, Object> oldKeys = changedKeys.isEmpty() ? Map.of() : lockNaturalKeys(id, changedKeys);
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<T> update = cb.createCriteriaUpdate(entityClass);
+        Root<T> root = update.from(entityClass);
+        changes.forEach((field, value) -> update.set(root.get(field), value));
+        update.set(root.<LocalDateTime>get("updatedAt"), LocalDateTime.now());
+        update.set(root.<Long>get("version"), cb.sum(root.<Long>get("version"), 1L));
+        Predicate predicate = cb.and(cb.equal(root.get("id"), id), cb.isTrue(root.get("active")));
+        if (expectedVersion != null) {
+            predicate = cb.and(predicate, cb.equal(root.get("version"), expectedVersion));
+        }
+        update.where(predicate);
+
+        // Giống @Modifying(flushAutomatically, clearAutomatically)
+        entityManager.flush();
+        int affected = entityManager.createQuery(update).executeUpdate();
+        entityManager.clear();
+        if (affected == 0) {
+            throw patchFailure(id);
+        }
+        // Dòng đang bị transaction này khóa, nên đọc lại thấy đúng bản vừa ghi
+        T updated = findReadableById(id, true)
+                .orElseThrow(() -> new ResourceNotFoundException("Active entity with id " + id + " not found"));
+        evict(id, oldKeys);
+        evict(id, naturalKeyValues(updated));
+        return updated;
+    }
+
+    /**
+     * Current values of {@code keys} of the active row, which stays locked until commit.
+     */
+    private Map<String, Object> lockNaturalKeys(ID id, List<String> keys) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> root = query.from(entityClass);
+        query.multiselect(keys.stream().<Selection<?>>map(key -> root.get(key).alias(key)).toList());
+        query.where(cb.equal(root.get("id"), id), cb.isTrue(root.get("active")));
+        Map<String, Object> values = new HashMap<>();
+        entityManager.createQuery(query).setLockMode(LockModeType.PESSIMISTIC_WRITE).getResultStream()
+                .findFirst()
+                .ifPresent(row -> keys.forEach(key -> values.put(key, row.get(key))));
+        return values;
+    }
+
+    /**
+     * Tells a missing entity (404) from a version conflict (412) after a patch matched no row.
+     */
+    private RuntimeException patchFailure(ID id) {
+        List<Long> versions = entityManager.createQuery(
+                        "select e.version from " + entityManager.getMetamodel().entity(entityClass).getName()
+                                + " e where e.id = :id and e.active = true", Long.class)
+                .setParameter("id", id)
+                .getResultList();
+        if (versions.isEmpty()) {
+            return new ResourceNotFoundException("Active entity with id " + id + " not found");
+        }
+        return new PreconditionFailedException("Entity with id " + id + " was modified concurrently",
+                ETags.forVersion(id, versions.get(0)));
+    }
+
+    private AbstractEntityPersister persister() {
+        return (AbstractEntityPersister) entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getMappingMetamodel().getEntityDescriptor(entityClass);
     }
 
     @Transactional
     public void deleteById(ID id) {
-        if (!repository.existsById(id)) {
+        placement.delete(id, () -> hardDelete(id));
+    }
+
+    private void hardDelete(ID id) {
+        if (repository.hardDelete(id) == 0) {
             throw new ResourceNotFoundException("Entity with id " + id + " not found");
         }
-        repository.deleteById(id);
+        evict(id, Map.of());
     }
 
     @Transactional
     public void softDelete(ID id) {
-        if (!repository.existsById(id)) {
-            throw new ResourceNotFoundException("Entity with id " + id + " not found");
-        }
-        repository.softDelete(id);
+        placement.write(id, () -> updateActive(id, false));
     }
 
     @Transactional
     public void restore(ID id) {
-        if (!repository.existsById(id)) {
+        placement.write(id, () -> updateActive(id, true));
+    }
+
+    private ID updateActive(ID id, boolean active) {
+        if (repository.updateActive(id, active) == 0) {
             throw new ResourceNotFoundException("Entity with id " + id + " not found");
         }
-        repository.restore(id);
+        evict(id, Map.of());
+        return id;
+    }
+
+    /**
+     * Deactivates the given ids; unknown or already inactive ids are ignored.
+     * <p>
+     * With sharding this runs one transaction per shard and is not atomic across shards: a
+     * failure on one shard leaves the other shards' changes committed.
+     *
+     * @return the number of entities deactivated
+     */
+    @Transactional
+    public int softDeleteAll(Collection<ID> ids) {
+        return updateActiveByIds(ids, false);
+    }
+
+    /**
+     * Reactivates the given ids; unknown or already active ids are ignored.
+     * <p>
+     * With sharding this runs one transaction per shard and is not atomic across shards: a
+     * failure on one shard leaves the other shards' changes committed.
+     */
+    @Transactional
+    public int restoreAll(Collection<ID> ids) {
+        return updateActiveByIds(ids, true);
+    }
+
+    /**
+     * Hard deletes the given ids; unknown ids are ignored.
+     * <p>
+     * With sharding this runs one transaction per shard and is not atomic across shards: a
+     * failure on one shard leaves the other shards' changes committed.
+     */
+    @Transactional
+    public int deleteAllById(Collection<ID> ids) {
+        return placement.deleteAll(ids, this::hardDeleteAll);
+    }
+
+    private int hardDeleteAll(Collection<ID> ids) {
+        int affected = 0;
+        for (List<ID> chunk : chunks(ids)) {
+            affected += repository.hardDeleteByIds(chunk);
+            chunk.forEach(id -> evict(id, Map.of()));
+        }
+        return affected;
+    }
+
+    /**
+     * Deactivates every active entity matching {@code spec} in a single UPDATE statement.
+     * <p>
+     * With sharding this runs one transaction per shard and is not atomic across shards: a
+     * failure on one shard leaves the other shards' changes committed.
+     *
+     * @return the number of entities deactivated
+     */
+    @Transactional
+    public int softDeleteAll(Specification<T> spec) {
+        return (int) placement.writeEveryShard(() -> updateActive(spec, false));
+    }
+
+    /**
+     * Reactivates every inactive entity matching {@code spec} in a single UPDATE statement.
+     * <p>
+     * With sharding this runs one transaction per shard and is not atomic across shards: a
+     * failure on one shard leaves the other shards' changes committed.
+     */
+    @Transactional
+    public int restoreAll(Specification<T> spec) {
+        return (int) placement.writeEveryShard(() -> updateActive(spec, true));
+    }
+
+    /**
+     * Hard deletes every entity matching {@code spec} in a single DELETE statement.
+     * <p>
+     * With sharding this runs one transaction per shard and is not atomic across shards: a
+     * failure on one shard leaves the other shards' changes committed.
+     */
+    @Transactional
+    public long deleteAll(Specification<T> spec) {
+        return placement.deleteEveryShard(spec, () -> hardDeleteAll(spec));
+    }
+
+    private long hardDeleteAll(Specification<T> spec) {
+        long affected = repository.delete(spec);
+        invalidateAll();
+        return affected;
+    }
+
+    private int updateActiveByIds(Collection<ID> ids, boolean active) {
+        return placement.writeAll(ids, shardIds -> updateActiveByIdsLocal(shardIds, active));
+    }
+
+    private int updateActiveByIdsLocal(Collection<ID> ids, boolean active) {
+        int affected = 0;
+        for (List<ID> chunk : chunks(ids)) {
+            affected += repository.updateActiveByIds(chunk, active);
+            chunk.forEach(id -> evict(id, Map.of()));
+        }
+        return affected;
+    }
+
+    private int updateActive(Specification<T> spec, boolean active) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<T> update = cb.createCriteriaUpdate(entityClass);
+        Root<T> root = update.from(entityClass);
+        update.set(root.<Boolean>get("active"), active);
+        update.set(root.<LocalDateTime>get("updatedAt"), LocalDateTime.now());
+        update.set(root.<Long>get("version"), cb.sum(root.<Long>get("version"), 1L));
+
+        Predicate predicate = cb.notEqual(root.get("active"), active);
+        Predicate filter = spec.toPredicate(root, cb.createQuery(entityClass), cb);
+        update.where(filter != null ? cb.and(filter, predicate) : predicate);
+
+        // Giống @Modifying(flushAutomatically, clearAutomatically)
+        entityManager.flush();
+        int affected = entityManager.createQuery(update).executeUpdate();
+        entityManager.clear();
+        // Không biết những id nào bị ảnh hưởng
+        invalidateAll();
+        return affected;
+    }
+
+    /**
+     * Cache loads read the primary: a replica lagging behind an invalidation would put the
+     * old row back into the cache.
+     */
+    private Optional<T> loadForCache(ID id) {
+        return DataSourceRouting.onPrimary(() -> findReadableById(id, true));
+    }
+
+    private Optional<T> findReadableById(ID id, boolean includeInactive) {
+        Specification<T> idEquals = (root, query, cb) -> cb.equal(root.get("id"), id);
+        Specification<T> byId = includeInactive ? idEquals : idEquals.and(isActive());
+        return placement.onShardOf(id, () -> selectLocal(byId, Sort.unsorted(), 1, readable().entityFields()))
+                .stream().map(this::toEntity).findFirst();
+    }
+
+    private Specification<T> isActive() {
+        return (root, query, cb) -> cb.isTrue(root.get("active"));
+    }
+
+    private List<T> selectEntities(Specification<T> spec, Sort sort, int limit) {
+        return select(spec, sort, limit, readable().entityFields()).stream().map(this::toEntity).toList();
+    }
+
+    private List<Tuple> select(Specification<T> spec, Sort sort, int limit, List<String> fields) {
+        return placement.select(spec, sort, limit, fields);
+    }
+
+    private List<Tuple> selectLocal(Specification<T> spec, Sort sort, int limit, List<String> fields) {
+        TypedQuery<Tuple> query = entityManager.createQuery(tupleQuery(spec, sort, fields));
+        if (limit > 0) {
+            query.setMaxResults(limit);
+        }
+        return query.getResultList();
+    }
+
+    private Page<Tuple> selectPage(Specification<T> spec, Pageable pageable, List<String> fields) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(select(spec, pageable.getSort(), -1, fields));
+        }
+        return placement.selectPage(spec, pageable, fields);
+    }
+
+    private Page<Tuple> selectPageLocal(Specification<T> spec, Pageable pageable, List<String> fields) {
+        TypedQuery<Tuple> query = entityManager.createQuery(tupleQuery(spec, pageable.getSort(), fields));
+        query.setFirstResult((int) pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize());
+        return PageableExecutionUtils.getPage(query.getResultList(), pageable, () -> repository.count(spec));
+    }
+
+    private CriteriaQuery<Tuple> tupleQuery(Specification<T> spec, Sort sort, List<String> fields) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> root = query.from(entityClass);
+        query.multiselect(fields.stream().<Selection<?>>map(field -> root.get(field).alias(field)).toList());
+        Predicate predicate = spec != null ? spec.toPredicate(root, query, cb) : null;
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        return query;
+    }
+
+    private static Map<String, Object> toMap(Tuple tuple, List<String> fields) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (String field : fields) {
+            values.put(field, tuple.get(field));
+        }
+        return values;
+    }
+
+    /**
+     * Builds a detached entity from a tuple of {@link ReadableFields#entityFields()};
+     * attributes that are not readable stay {@code null}.
+     */
+    private T toEntity(Tuple tuple) {
+        ReadableFields<T> readable = readable();
+        T entity = BeanUtils.instantiateClass(readable.constructor());
+        for (String field : readable.entityFields()) {
+            ReflectionUtils.setField(readable.accessors().get(field), entity, tuple.get(field));
+        }
+        return entity;
+    }
+
+    private ReadableFields<T> readable() {
+        ReadableFields<T> readable = readableFields;
+        if (readable == null) {
+            List<String> fields = List.copyOf(readableFields());
+            LinkedHashSet<String> entityFields = new LinkedHashSet<>(BASE_FIELDS);
+            entityFields.addAll(fields);
+            Map<String, Field> accessors = new HashMap<>();
+            for (String field : entityFields) {
+                Field accessor = ReflectionUtils.findField(entityClass, field);
+                if (accessor == null) {
+                    throw new IllegalStateException("No field '" + field + "' on " + entityClass.getName());
+                }
+                ReflectionUtils.makeAccessible(accessor);
+                accessors.put(field, accessor);
+            }
+            readable = new ReadableFields<>(fields, List.copyOf(entityFields), Map.copyOf(accessors),
+                    ClassUtils.getConstructorIfAvailable(entityClass));
+            readableFields = readable;
+        }
+        return readable;
+    }
+
+    /**
+     * @param fields       attributes exposed to clients
+     * @param entityFields {@code fields} plus the {@link BaseEntity} attributes, selected when
+     *                     building entities for internal read paths
+     */
+    private record ReadableFields<T>(List<String> fields, List<String> entityFields,
+                                     Map<String, Field> accessors, Constructor<T> constructor) {
+    }
+
+    /**
+     * Cached form of an entity: the values of {@link ReadableFields#entityFields()}, which are
+     * all immutable types.
+     */
+    private class ReadableSnapshots implements EntitySnapshots<T> {
+
+        @Override
+        public Object[] snapshot(T entity) {
+            ReadableFields<T> readable = readable();
+            Object[] values = new Object[readable.entityFields().size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = ReflectionUtils.getField(readable.accessors().get(readable.entityFields().get(i)), entity);
+            }
+            return values;
+        }
+
+        @Override
+        public T restore(Object[] values) {
+            ReadableFields<T> readable = readable();
+            T entity = BeanUtils.instantiateClass(readable.constructor());
+            for (int i = 0; i < values.length; i++) {
+                ReflectionUtils.setField(readable.accessors().get(readable.entityFields().get(i)), entity, values[i]);
+            }
+            return entity;
+        }
+    }
+
+    /**
+     * This service's single-database reads, run by {@link ShardedRepository} on each shard.
+     */
+    private class LocalReads implements Placement.Local<T> {
+
+        @Override
+        public List<Tuple> select(Specification<T> spec, Sort sort, int limit, List<String> fields) {
+            return selectLocal(spec, sort, limit, fields);
+        }
+
+        @Override
+        public Page<Tuple> selectPage(Specification<T> spec, Pageable pageable, List<String> fields) {
+            return selectPageLocal(spec, pageable, fields);
+        }
+
+        @Override
+        public Collection<String> naturalKeys() {
+            return BaseService.this.naturalKeys().keySet();
+        }
+
+        @Override
+        public Map<String, Object> naturalKeyValues(T entity) {
+            return BaseService.this.naturalKeyValues(entity);
+        }
+    }
+
+    private Map<String, Object> naturalKeyValues(T entity) {
+        Map<String, Object> values = new HashMap<>();
+        naturalKeys().forEach((naturalKey, getter) -> values.put(naturalKey, getter.apply(entity)));
+        return values;
+    }
+
+    /**
+     * Evicts the cached id lookup and the given natural-key lookups once the change is
+     * committed; evicting earlier would let a concurrent reader re-cache the old row.
+     */
+    private void evict(ID id, Map<String, Object> naturalKeyValues) {
+        publishInvalidation(id, naturalKeyValues);
+        afterCommit(() -> {
+            entityCache.evict(id);
+            naturalKeyValues.forEach(entityCache::evictNaturalKey);
+        });
+    }
+
+    private void invalidateAll() {
+        if (invalidationBus != null) {
+            invalidationBus.publishInvalidateAll(EntityCacheManager.entityName(entityClass));
+        }
+        if (changeWatermarks != null) {
+            changeWatermarks.advance(EntityCacheManager.entityName(entityClass));
+        }
+        afterCommit(entityCache::invalidateAll);
+    }
+
+    /**
+     * Tells the other nodes; sent with the transaction so they evict once it commits.
+     * Also advances the table's change watermark.
+     */
+    private void publishInvalidation(ID id, Map<String, Object> naturalKeyValues) {
+        if (invalidationBus != null) {
+            invalidationBus.publish(EntityCacheManager.entityName(entityClass), id, naturalKeyValues);
+        }
+        if (changeWatermarks != null) {
+            changeWatermarks.advance(EntityCacheManager.entityName(entityClass));
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Splits ids so each IN list stays well below PostgreSQL's 32767 bind parameter limit.
+     */
+    private List<List<ID>> chunks(Collection<ID> ids) {
+        List<ID> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<List<ID>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += BULK_ID_CHUNK_SIZE) {
+            chunks.add(distinct.subList(from, Math.min(from + BULK_ID_CHUNK_SIZE, distinct.size())));
+        }
+        return chunks;
     }
 
     /**
@@ -0,0 +1,46 @@
+package com.example.demo.common.sharding;
+
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * The sequence generator of {@code @GeneratedValue(strategy = SEQUENCE)}: one
+ * {@code <table>_seq} per entity, pooled by 50. With {@link #KEEP_ASSIGNED_IDS} set (sharded
+ * mode) an id assigned before persisting is kept, because {@link Shards} must know the id,
+ * and so the shard, before the row is written.
+ */
+public class AssignableSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String KEEP_ASSIGNED_IDS = "app.sharding.keep-assigned-ids";
+
+    private boolean keepAssignedIds;
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+        // Tên generator dùng chung cho mọi entity: bỏ đi để mỗi bảng vẫn có sequence riêng
+        parameters.remove(IdentifierGenerator.GENERATOR_NAME);
+        keepAssignedIds = ConfigurationHelper.getBoolean(KEEP_ASSIGNED_IDS,
+                serviceRegistry.getService(ConfigurationService.class).getSettings(), false);
+        super.configure(type, parameters, serviceRegistry);
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        if (keepAssignedIds) {
+            Object id = session.getEntityPersister(null, object).getIdentifier(object, session);
+            if (id != null) {
+                return id;
+            }
+        }
+        return super.generate(session, object);
+    }
+}
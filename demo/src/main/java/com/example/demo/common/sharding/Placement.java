@@ -0,0 +1,144 @@
+package com.example.demo.common.sharding;
+
+import com.example.demo.common.entity.BaseEntity;
+import jakarta.persistence.Tuple;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Where one entity's rows live: in the application's database ({@link #singleDatabase}) or
+ * spread over shards ({@link ShardedRepository}). Services pass their single-database
+ * operations in and the placement runs them on the database(s) concerned, so service code
+ * does not branch on the mode.
+ * <p>
+ * With sharding, work spanning several shards runs in one transaction per shard: a bulk write
+ * is not atomic across shards, and a failure on one shard leaves the others' changes
+ * committed.
+ */
+public interface Placement<T extends BaseEntity<ID>, ID extends Serializable> {
+
+    static <T extends BaseEntity<ID>, ID extends Serializable> Placement<T, ID> singleDatabase(Local<T> local) {
+        return new SingleDatabasePlacement<>(local);
+    }
+
+    // Đọc
+
+    /**
+     * Runs {@code work} on the database that owns {@code id}.
+     */
+    <R> R onShardOf(ID id, Supplier<R> work);
+
+    /**
+     * Runs {@code work} once per database owning some of {@code ids}, one after the other.
+     */
+    <R> List<R> onShardsOf(Collection<ID> ids, Function<List<ID>, R> work);
+
+    /**
+     * Runs {@code work} on every database; sharded, in parallel and each in a transaction of
+     * its own, see {@link Shards#fanOut}.
+     */
+    <R> List<R> everyShard(boolean readOnly, Supplier<R> work);
+
+    /**
+     * Runs {@code work} on every database one after the other, e.g. to stream rows in order.
+     */
+    <R> List<R> eachShard(Supplier<R> work);
+
+    /**
+     * Rows matching {@code spec}, merged across databases.
+     *
+     * @param limit maximum number of rows, non-positive for all
+     */
+    List<Tuple> select(Specification<T> spec, Sort sort, int limit, List<String> fields);
+
+    Page<Tuple> selectPage(Specification<T> spec, Pageable pageable, List<String> fields);
+
+    /**
+     * Id holding a natural-key value, active or not.
+     *
+     * @param local the lookup on one database
+     */
+    Optional<ID> findId(String naturalKey, Object value, Supplier<Optional<ID>> local);
+
+    /**
+     * Which of {@code values} some entity holds, active or not.
+     *
+     * @param local the lookup on one database
+     */
+    Set<String> findTaken(String naturalKey, List<String> values, Supplier<Set<String>> local);
+
+    // Ghi
+
+    /**
+     * Runs a write of {@code id} on the database that owns it.
+     */
+    <R> R write(ID id, Supplier<R> write);
+
+    /**
+     * Persists a new or existing entity; {@code persist} is the single-database save.
+     */
+    T save(T entity, UnaryOperator<T> persist);
+
+    List<T> saveAll(List<T> entities, UnaryOperator<List<T>> persist);
+
+    T update(ID id, Supplier<T> update);
+
+    void delete(ID id, Runnable delete);
+
+    /**
+     * Runs {@code write} once per database owning some of {@code ids}.
+     *
+     * @return the sum of the results
+     */
+    int writeAll(Collection<ID> ids, ToIntFunction<List<ID>> write);
+
+    int deleteAll(Collection<ID> ids, ToIntFunction<List<ID>> delete);
+
+    /**
+     * Runs a write that may touch any row, e.g. an update by criteria, on every database.
+     *
+     * @return the sum of the results
+     */
+    long writeEveryShard(Supplier<? extends Number> write);
+
+    /**
+     * {@link #writeEveryShard} for hard deletes of the rows matching {@code spec}.
+     */
+    long deleteEveryShard(Specification<T> spec, Supplier<? extends Number> delete);
+
+    /**
+     * What the owning service provides: its single-database read path and natural keys.
+     */
+    interface Local<T> {
+
+        /**
+         * Rows matching {@code spec} on the database bound by the caller, as tuples aliased by
+         * attribute name.
+         *
+         * @param limit maximum number of rows, non-positive for all
+         */
+        List<Tuple> select(Specification<T> spec, Sort sort, int limit, List<String> fields);
+
+        Page<Tuple> selectPage(Specification<T> spec, Pageable pageable, List<String> fields);
+
+        /**
+         * Attributes kept unique across shards through the {@link ShardDirectory}.
+         */
+        Collection<String> naturalKeys();
+
+        Map<String, Object> naturalKeyValues(T entity);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.demo.common.sharding;
+
+import java.util.function.Supplier;
+
+/**
+ * The shard the current thread's next connection goes to; {@link Shards#HOME} when unset.
+ * Like {@link com.example.demo.common.datasource.DataSourceRouting}, it only affects connections
+ * obtained inside the scope. Use {@link Shards#on} rather than this class directly: it also
+ * handles transactions that already hold a connection to another shard.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static <T> T bind(String shard, Supplier<T> work) {
+        String previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public static String current() {
+        String shard = CURRENT.get();
+        return shard != null ? shard : Shards.HOME;
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.demo.common.sharding;
+
+import com.example.demo.common.exception.DuplicateValueException;
+import com.example.demo.config.ShardingConfig;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Natural key (e.g. username) to id, kept in {@code shard_directory} on the home database, so
+ * a lookup by natural key goes to one shard instead of all of them. The primary key of the
+ * table also keeps natural keys unique across shards, which per-shard UNIQUE constraints
+ * cannot.
+ * <p>
+ * Values are reserved before the row is written and released if that transaction rolls back;
+ * values an entity gives up are released after commit. A reservation left behind by a crash
+ * is taken over once it is older than {@code app.sharding.directory-grace-period} and its
+ * owner no longer holds the value.
+ */
+@Component
+public class ShardDirectory {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardDirectory.class);
+    private static final int BATCH_SIZE = 1000;
+    private static final int IN_CLAUSE_CHUNK_SIZE = 1000;
+    private static final int STREAM_FETCH_SIZE = 10_000;
+    // Dòng đánh dấu đã nạp xong directory từ dữ liệu có sẵn
+    private static final String BACKFILLED_KEY = "*";
+
+    private final Shards shards;
+    private final ShardingConfig config;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public ShardDirectory(Shards shards, ShardingConfig config, JdbcTemplate jdbcTemplate,
+                          PlatformTransactionManager transactionManager) {
+        this.shards = shards;
+        this.config = config;
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(STREAM_FETCH_SIZE);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (shards.isEnabled()) {
+            shards.home().execute("create table if not exists shard_directory (entity varchar(64) not null, "
+                    + "key_name varchar(64) not null, key_value varchar(512) not null, entity_id bigint not null, "
+                    + "reserved_at timestamp not null default localtimestamp, "
+                    + "primary key (entity, key_name, key_value))");
+            shards.home().execute("create index if not exists shard_directory_entity_id_idx "
+                    + "on shard_directory (entity, entity_id)");
+        }
+    }
+
+    public Optional<Long> find(String entity, String keyName, Object value) {
+        List<Long> ids = shards.home().queryForList(
+                "select entity_id from shard_directory where entity = ? and key_name = ? and key_value = ?",
+                Long.class, entity, keyName, value.toString());
+        return ids.stream().findFirst();
+    }
+
+    /**
+     * Which of {@code values} are taken.
+     */
+    public Set<String> findExisting(String entity, String keyName, List<String> values) {
+        NamedParameterJdbcTemplate named = new NamedParameterJdbcTemplate(shards.home());
+        Set<String> existing = new HashSet<>();
+        for (int i = 0; i < values.size(); i += IN_CLAUSE_CHUNK_SIZE) {
+            MapSqlParameterSource parameters = new MapSqlParameterSource()
+                    .addValue("entity", entity)
+                    .addValue("keyName", keyName)
+                    .addValue("values", values.subList(i, Math.min(i + IN_CLAUSE_CHUNK_SIZE, values.size())));
+            existing.addAll(named.queryForList("select key_value from shard_directory where entity = :entity "
+                    + "and key_name = :keyName and key_value in (:values)", parameters, String.class));
+        }
+        return existing;
+    }
+
+    /**
+     * Claims natural-key values for {@code id}; values it already holds are left as they are.
+     * Call inside the transaction that writes the row: the new claims are dropped if it rolls back.
+     *
+     * @param values natural key to value; {@code null} values are skipped
+     * @return whether a value was newly claimed
+     * @throws DuplicateValueException if another entity holds one of the values
+     */
+    public boolean reserve(String entity, long id, Map<String, ?> values, Owners owners) {
+        List<Map.Entry<String, String>> reserved = new ArrayList<>();
+        try {
+            for (Map.Entry<String, ?> entry : values.entrySet()) {
+                if (entry.getValue() != null && claim(entity, id, entry.getKey(), entry.getValue(), owners)) {
+                    reserved.add(Map.entry(entry.getKey(), entry.getValue().toString()));
+                }
+            }
+        } catch (RuntimeException ex) {
+            release(entity, id, reserved);
+            throw ex;
+        }
+        if (!reserved.isEmpty() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        release(entity, id, reserved);
+                    }
+                }
+            });
+        }
+        return !reserved.isEmpty();
+    }
+
+    /**
+     * Gives up the values {@code id} holds other than {@code values} once the current
+     * transaction commits (now, outside one); a {@code null} value gives up the whole key.
+     */
+    public void releaseOthersAfterCommit(String entity, long id, Map<String, ?> values) {
+        afterCommit(() -> values.forEach((key, value) -> shards.home().update("delete from shard_directory "
+                + "where entity = ? and key_name = ? and entity_id = ? and key_value is distinct from ?",
+                entity, key, id, value != null ? value.toString() : null)));
+    }
+
+    /**
+     * Gives up every value of {@code ids} once the current transaction commits (now, outside one).
+     */
+    public void releaseAllAfterCommit(String entity, List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        NamedParameterJdbcTemplate named = new NamedParameterJdbcTemplate(shards.home());
+        afterCommit(() -> {
+            for (int i = 0; i < ids.size(); i += IN_CLAUSE_CHUNK_SIZE) {
+                named.update("delete from shard_directory where entity = :entity and entity_id in (:ids)",
+                        new MapSqlParameterSource()
+                                .addValue("entity", entity)
+                                .addValue("ids", ids.subList(i, Math.min(i + IN_CLAUSE_CHUNK_SIZE, ids.size()))));
+            }
+        });
+    }
+
+    private static void afterCommit(Runnable work) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    work.run();
+                }
+            });
+        } else {
+            work.run();
+        }
+    }
+
+    /**
+     * Fills the directory from the rows already stored, once: the first time sharding is
+     * enabled on an existing database.
+     */
+    public void backfill(ShardedTable table) {
+        if (table.naturalKeyColumns().isEmpty()) {
+            return;
+        }
+        Boolean done = shards.home().queryForObject("select exists (select 1 from shard_directory "
+                + "where entity = ? and key_name = ?)", Boolean.class, table.entity(), BACKFILLED_KEY);
+        if (Boolean.TRUE.equals(done)) {
+            return;
+        }
+        long entries = 0;
+        for (String shard : shards.names()) {
+            for (Map.Entry<String, String> key : table.naturalKeyColumns().entrySet()) {
+                entries += shards.on(shard, () -> readOnlyTransaction.execute(
+                        status -> copyKeys(table, key.getKey(), key.getValue())));
+            }
+        }
+        shards.home().update("insert into shard_directory (entity, key_name, key_value, entity_id) "
+                + "values (?, ?, 'done', 0) on conflict do nothing", table.entity(), BACKFILLED_KEY);
+        log.info("Shard directory of '{}' filled with {} existing keys", table.entity(), entries);
+    }
+
+    private long copyKeys(ShardedTable table, String keyName, String column) {
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        long[] copied = {0};
+        streamingJdbcTemplate.query("select " + table.idColumn() + ", " + column + " from " + table.table()
+                + " where " + column + " is not null", rs -> {
+            batch.add(new Object[]{table.entity(), keyName, rs.getString(2), rs.getLong(1)});
+            if (batch.size() == BATCH_SIZE) {
+                copied[0] += insertBatch(batch);
+            }
+        });
+        copied[0] += insertBatch(batch);
+        return copied[0];
+    }
+
+    private int insertBatch(List<Object[]> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        shards.home().batchUpdate("insert into shard_directory (entity, key_name, key_value, entity_id) "
+                + "values (?, ?, ?, ?) on conflict do nothing", batch);
+        int size = batch.size();
+        batch.clear();
+        return size;
+    }
+
+    /**
+     * @return whether a new claim was made, {@code false} if {@code id} already held the value
+     */
+    private boolean claim(String entity, long id, String keyName, Object value, Owners owners) {
+        String text = value.toString();
+        JdbcTemplate home = shards.home();
+        // Vài lần thử: dòng đang giữ giá trị có thể vừa bị xóa giữa INSERT và SELECT
+        for (int attempt = 0; attempt < 3; attempt++) {
+            int inserted = home.update("insert into shard_directory (entity, key_name, key_value, entity_id) "
+                    + "values (?, ?, ?, ?) on conflict do nothing", entity, keyName, text, id);
+            if (inserted == 1) {
+                return true;
+            }
+            List<Map<String, Object>> rows = home.queryForList("select entity_id, reserved_at from shard_directory "
+                    + "where entity = ? and key_name = ? and key_value = ?", entity, keyName, text);
+            if (rows.isEmpty()) {
+                continue;
+            }
+            long owner = ((Number) rows.get(0).get("entity_id")).longValue();
+            if (owner == id) {
+                return false;
+            }
+            LocalDateTime reservedAt = ((Timestamp) rows.get(0).get("reserved_at")).toLocalDateTime();
+            boolean expired = reservedAt.plus(config.getDirectoryGracePeriod()).isBefore(LocalDateTime.now());
+            if (expired && !owners.holds(owner, keyName, value)
+                    && home.update("update shard_directory set entity_id = ?, reserved_at = localtimestamp "
+                    + "where entity = ? and key_name = ? and key_value = ? and entity_id = ?",
+                    id, entity, keyName, text, owner) == 1) {
+                log.info("Took over stale {} '{}' of {} #{}", keyName, text, entity, owner);
+                return true;
+            }
+            break;
+        }
+        throw new DuplicateValueException(keyName, text);
+    }
+
+    private void release(String entity, long id, List<Map.Entry<String, String>> values) {
+        for (Map.Entry<String, String> value : values) {
+            shards.home().update("delete from shard_directory where entity = ? and key_name = ? and key_value = ? "
+                    + "and entity_id = ?", entity, value.getKey(), value.getValue(), id);
+        }
+    }
+
+    /**
+     * Tells whether the stored row of an entity still has a natural-key value.
+     */
+    @FunctionalInterface
+    public interface Owners {
+        boolean holds(long id, String keyName, Object value);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.demo.common.sharding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory copy of the bucket-to-shard map: a row lives in bucket {@code id mod buckets},
+ * and each bucket is owned by one shard. Ids come from one sequence, so consecutive ids land
+ * in consecutive buckets and rows spread evenly. A bucket being moved to another shard is
+ * flagged "moving": it is still read from its owner but must not be written.
+ * <p>
+ * Readers see either the old or the new map, never a mix.
+ */
+public class ShardMap {
+
+    private final int buckets;
+    private volatile Snapshot snapshot;
+
+    public ShardMap(int buckets, String initialOwner) {
+        if (buckets < 1) {
+            throw new IllegalArgumentException("buckets must be positive");
+        }
+        this.buckets = buckets;
+        String[] owners = new String[buckets];
+        Arrays.fill(owners, initialOwner);
+        this.snapshot = new Snapshot(owners, new BitSet());
+    }
+
+    public int buckets() {
+        return buckets;
+    }
+
+    public int bucketOf(long id) {
+        return (int) Math.floorMod(id, (long) buckets);
+    }
+
+    public String shardOf(long id) {
+        return snapshot.owners[bucketOf(id)];
+    }
+
+    public String ownerOf(int bucket) {
+        return snapshot.owners[bucket];
+    }
+
+    public boolean isMoving(int bucket) {
+        return snapshot.moving.get(bucket);
+    }
+
+    public boolean isAnyMoving() {
+        return !snapshot.moving.isEmpty();
+    }
+
+    /**
+     * Replaces the whole map at once.
+     */
+    public void update(String[] owners, BitSet moving) {
+        if (owners.length != buckets) {
+            throw new IllegalArgumentException("Expected " + buckets + " owners, got " + owners.length);
+        }
+        snapshot = new Snapshot(owners.clone(), (BitSet) moving.clone());
+    }
+
+    /**
+     * Bucket count per shard, in the order of {@code shards}; shards without buckets count 0.
+     */
+    public Map<String, Integer> bucketCounts(List<String> shards) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        shards.forEach(shard -> counts.put(shard, 0));
+        for (String owner : snapshot.owners) {
+            counts.merge(owner, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    public List<Integer> movingBuckets() {
+        return snapshot.moving.stream().boxed().toList();
+    }
+
+    /**
+     * Moves that leave every shard in {@code shards} with {@code buckets / shards.size()}
+     * buckets, give or take one, moving as few buckets as possible. Buckets owned by a shard
+     * not in the list are moved off it.
+     */
+    public List<Move> planRebalance(List<String> shards) {
+        String[] owners = snapshot.owners;
+        Map<String, List<Integer>> owned = new LinkedHashMap<>();
+        shards.forEach(shard -> owned.put(shard, new ArrayList<>()));
+        List<Integer> surplus = new ArrayList<>();
+        for (int bucket = 0; bucket < owners.length; bucket++) {
+            List<Integer> list = owned.get(owners[bucket]);
+            if (list != null) {
+                list.add(bucket);
+            } else {
+                surplus.add(bucket);
+            }
+        }
+        int base = buckets / shards.size();
+        int remainder = buckets % shards.size();
+        Map<String, Integer> targets = new LinkedHashMap<>();
+        // Shard đang giữ nhiều bucket nhất nhận phần dư, để di chuyển ít nhất
+        List<String> bySize = new ArrayList<>(shards);
+        bySize.sort((a, b) -> Integer.compare(owned.get(b).size(), owned.get(a).size()));
+        for (int i = 0; i < bySize.size(); i++) {
+            targets.put(bySize.get(i), base + (i < remainder ? 1 : 0));
+        }
+        for (String shard : shards) {
+            List<Integer> list = owned.get(shard);
+            while (list.size() > targets.get(shard)) {
+                // Bỏ từ cuối: bucket cao nhất rời đi trước
+                surplus.add(list.remove(list.size() - 1));
+            }
+        }
+        List<Move> moves = new ArrayList<>();
+        int next = 0;
+        for (String shard : shards) {
+            List<Integer> list = owned.get(shard);
+            while (list.size() < targets.get(shard)) {
+                int bucket = surplus.get(next++);
+                moves.add(new Move(bucket, owners[bucket], shard));
+                list.add(bucket);
+            }
+        }
+        return moves;
+    }
+
+    public record Move(int bucket, String source, String target) {
+    }
+
+    private record Snapshot(String[] owners, BitSet moving) {
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.demo.common.sharding;
+
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.function.BiFunction;
+
+/**
+ * Merges per-shard query results that are each already sorted.
+ */
+public final class ShardMerge {
+
+    private ShardMerge() {
+    }
+
+    /**
+     * K-way merge that always takes the smallest head, ties going to the earlier list.
+     * The merge of longer inputs starts with the merge of shorter ones, so pages fetched one
+     * by one fit together even where the comparator and the database collation disagree
+     * about the order of two strings.
+     *
+     * @param comparator the order each list is sorted in; {@code null} concatenates the lists
+     * @param limit      maximum number of elements, negative for all
+     */
+    public static <T> List<T> merge(List<List<T>> sorted, Comparator<? super T> comparator, int limit) {
+        int total = sorted.stream().mapToInt(List::size).sum();
+        int size = limit < 0 ? total : Math.min(limit, total);
+        List<T> merged = new ArrayList<>(size);
+        if (comparator == null) {
+            for (List<T> list : sorted) {
+                for (T element : list) {
+                    if (merged.size() == size) {
+                        return merged;
+                    }
+                    merged.add(element);
+                }
+            }
+            return merged;
+        }
+        PriorityQueue<int[]> heads = new PriorityQueue<>((a, b) -> {
+            int order = comparator.compare(sorted.get(a[0]).get(a[1]), sorted.get(b[0]).get(b[1]));
+            return order != 0 ? order : Integer.compare(a[0], b[0]);
+        });
+        for (int list = 0; list < sorted.size(); list++) {
+            if (!sorted.get(list).isEmpty()) {
+                heads.add(new int[]{list, 0});
+            }
+        }
+        while (merged.size() < size) {
+            int[] head = heads.poll();
+            List<T> list = sorted.get(head[0]);
+            merged.add(list.get(head[1]));
+            if (++head[1] < list.size()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * The order PostgreSQL applies for {@code sort}: nulls sort after every value (so first
+     * when descending), {@link Sort.Order#isIgnoreCase() ignore-case} orders compare lower case.
+     *
+     * @param attribute reads one sort property of a row
+     * @return {@code null} when {@code sort} is unsorted
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static <T> Comparator<T> comparator(Sort sort, BiFunction<T, String, Object> attribute) {
+        Comparator<T> result = null;
+        for (Sort.Order order : sort) {
+            Comparator<Object> values = Comparator.nullsLast((a, b) -> {
+                if (order.isIgnoreCase() && a instanceof String left && b instanceof String right) {
+                    return left.toLowerCase(Locale.ROOT).compareTo(right.toLowerCase(Locale.ROOT));
+                }
+                return ((Comparable) a).compareTo(b);
+            });
+            if (order.isDescending()) {
+                values = values.reversed();
+            }
+            Comparator<Object> byValue = values;
+            Comparator<T> byOrder = (a, b) -> byValue.compare(attribute.apply(a, order.getProperty()),
+                    attribute.apply(b, order.getProperty()));
+            result = result == null ? byOrder : result.thenComparing(byOrder);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.demo.common.sharding;
+
+import com.example.demo.common.exception.BadRequestException;
+import com.example.demo.config.ShardingConfig;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyOut;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves buckets between shards, one at a time in the background, while the application keeps
+ * serving requests. For each bucket:
+ * <ol>
+ *   <li>the bucket is marked MOVING; once every node has seen that (map refresh plus
+ *   {@code app.sharding.move-settle-time}) writes to it are rejected with 503 and retried by
+ *   clients, reads still go to the source;</li>
+ *   <li>its rows are streamed from source to target with {@code COPY}, table by table,
+ *   replacing whatever an earlier failed attempt left on the target;</li>
+ *   <li>the target becomes the owner; after another settle period, when no node reads the
+ *   source any more, the rows are deleted from the source.</li>
+ * </ol>
+ * A failed move leaves the bucket MOVING on its source; moving it again resumes it.
+ */
+@Component
+public class ShardRebalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    private final Shards shards;
+    private final ShardingConfig config;
+    private final ShardedRepositories repositories;
+    private final ExecutorService executor;
+    private final Queue<ShardMap.Move> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicLong movedBuckets = new AtomicLong();
+    private final AtomicLong movedRows = new AtomicLong();
+    private volatile ShardMap.Move current;
+    private volatile String lastError;
+
+    public ShardRebalancer(Shards shards, ShardingConfig config, ShardedRepositories repositories) {
+        this.shards = shards;
+        this.config = config;
+        this.repositories = repositories;
+        this.executor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("shard-rebalancer-"));
+    }
+
+    /**
+     * Queues the moves that spread buckets evenly over the configured shards, e.g. after a
+     * shard was added.
+     */
+    public List<ShardMap.Move> rebalance() {
+        checkEnabled();
+        List<ShardMap.Move> moves = shards.map().planRebalance(shards.names());
+        enqueue(moves);
+        return moves;
+    }
+
+    public ShardMap.Move move(int bucket, String target) {
+        checkEnabled();
+        if (bucket < 0 || bucket >= shards.map().buckets()) {
+            throw new BadRequestException("Bucket must be between 0 and " + (shards.map().buckets() - 1));
+        }
+        if (!shards.names().contains(target)) {
+            throw new BadRequestException("Unknown shard '" + target + "', expected any of " + shards.names());
+        }
+        String source = shards.map().ownerOf(bucket);
+        if (source.equals(target)) {
+            throw new BadRequestException("Bucket " + bucket + " is already on shard '" + target + "'");
+        }
+        ShardMap.Move move = new ShardMap.Move(bucket, source, target);
+        enqueue(List.of(move));
+        return move;
+    }
+
+    public Status status() {
+        return new Status(current, queue.size(), movedBuckets.get(), movedRows.get(), lastError);
+    }
+
+    private void checkEnabled() {
+        if (!shards.isEnabled()) {
+            throw new BadRequestException("Sharding is not enabled");
+        }
+    }
+
+    private void enqueue(List<ShardMap.Move> moves) {
+        if (moves.isEmpty()) {
+            return;
+        }
+        queue.addAll(moves);
+        executor.execute(this::drain);
+    }
+
+    private void drain() {
+        ShardMap.Move move;
+        while ((move = queue.poll()) != null) {
+            current = move;
+            try {
+                moveBucket(move);
+                movedBuckets.incrementAndGet();
+                lastError = null;
+            } catch (RuntimeException | SQLException ex) {
+                log.error("Moving bucket {} from '{}' to '{}' failed; the remaining {} moves are dropped",
+                        move.bucket(), move.source(), move.target(), queue.size(), ex);
+                lastError = "Bucket " + move.bucket() + ": " + ex.getMessage();
+                queue.clear();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                current = null;
+            }
+        }
+    }
+
+    private void moveBucket(ShardMap.Move move) throws SQLException, InterruptedException {
+        JdbcTemplate home = shards.home();
+        int marked = home.update("update shard_buckets set state = 'MOVING' where bucket = ? and shard = ?",
+                move.bucket(), move.source());
+        if (marked == 0) {
+            throw new IllegalStateException("Bucket " + move.bucket() + " is no longer on shard '" + move.source() + "'");
+        }
+        shards.refreshMap();
+        log.info("Moving bucket {} from '{}' to '{}'", move.bucket(), move.source(), move.target());
+        settle();
+
+        List<ShardedTable> tables = repositories.tables();
+        for (ShardedTable table : tables) {
+            movedRows.addAndGet(copy(table, move));
+        }
+
+        home.update("update shard_buckets set shard = ?, state = 'ACTIVE' where bucket = ?",
+                move.target(), move.bucket());
+        shards.refreshMap();
+        settle();
+
+        for (ShardedTable table : tables) {
+            int deleted = new JdbcTemplate(pool(move.source())).update(
+                    "delete from " + table.table() + " where " + inBucket(table, move.bucket()));
+            log.debug("Deleted {} rows of bucket {} from {} on '{}'", deleted, move.bucket(), table.table(),
+                    move.source());
+        }
+        log.info("Bucket {} is now on '{}'", move.bucket(), move.target());
+    }
+
+    /**
+     * Replaces the bucket's rows on the target with those of the source, streaming
+     * {@code COPY ... TO STDOUT} into {@code COPY ... FROM STDIN}.
+     */
+    private long copy(ShardedTable table, ShardMap.Move move) throws SQLException {
+        createBucketIndex(table, move.source());
+        createBucketIndex(table, move.target());
+        String columns = String.join(", ", commonColumns(table, move));
+        try (Connection source = pool(move.source()).getConnection();
+             Connection target = pool(move.target()).getConnection()) {
+            target.setAutoCommit(false);
+            try {
+                try (Statement statement = target.createStatement()) {
+                    statement.executeUpdate("delete from " + table.table() + " where " + inBucket(table, move.bucket()));
+                }
+                CopyOut out = source.unwrap(PGConnection.class).getCopyAPI().copyOut(
+                        "copy (select " + columns + " from " + table.table() + " where "
+                                + inBucket(table, move.bucket()) + ") to stdout (format binary)");
+                CopyIn in = target.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                        "copy " + table.table() + " (" + columns + ") from stdin (format binary)");
+                byte[] chunk;
+                while ((chunk = out.readFromCopy()) != null) {
+                    in.writeToCopy(chunk, 0, chunk.length);
+                }
+                long rows = in.endCopy();
+                target.commit();
+                log.debug("Copied {} rows of bucket {} in {}", rows, move.bucket(), table.table());
+                return rows;
+            } catch (SQLException | RuntimeException ex) {
+                target.rollback();
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Lets every bucket query use an index: {@code mod(id, buckets)} is what
+     * {@link ShardMap#bucketOf} computes for positive ids.
+     */
+    private void createBucketIndex(ShardedTable table, String shard) {
+        new JdbcTemplate(pool(shard)).execute("create index concurrently if not exists " + table.table()
+                + "_bucket_idx on " + table.table() + " (mod(" + table.idColumn() + ", " + shards.map().buckets() + "))");
+    }
+
+    private String inBucket(ShardedTable table, int bucket) {
+        return "mod(" + table.idColumn() + ", " + shards.map().buckets() + ") = " + bucket;
+    }
+
+    private List<String> commonColumns(ShardedTable table, ShardMap.Move move) {
+        String sql = "select column_name from information_schema.columns where table_schema = current_schema() "
+                + "and table_name = ? order by ordinal_position";
+        List<String> sourceColumns = new JdbcTemplate(pool(move.source())).queryForList(sql, String.class, table.table());
+        List<String> columns = new ArrayList<>(new JdbcTemplate(pool(move.target()))
+                .queryForList(sql, String.class, table.table()));
+        columns.retainAll(sourceColumns);
+        if (columns.isEmpty()) {
+            throw new IllegalStateException("Table " + table.table() + " is missing on '" + move.target() + "'");
+        }
+        return columns;
+    }
+
+    private DataSource pool(String shard) {
+        return shards.routing().shard(shard);
+    }
+
+    // Chờ mọi node đọc lại bản đồ bucket và các giao dịch đang ghi vào bucket kết thúc
+    private void settle() throws InterruptedException {
+        Duration refresh = config.getMapRefreshInterval().multipliedBy(2);
+        Duration settle = config.getMoveSettleTime().compareTo(refresh) > 0 ? config.getMoveSettleTime() : refresh;
+        Thread.sleep(settle.toMillis());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param current   the move in progress, {@code null} when idle
+     * @param lastError why the last move failed, {@code null} once a move succeeds again
+     */
+    public record Status(ShardMap.Move current, int queued, long movedBuckets, long movedRows, String lastError) {
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.demo.common.sharding;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hands out connections of the shard bound in {@link ShardContext}. Must be wrapped in a
+ * {@link LazyConnectionDataSourceProxy}, so a transaction's connection is chosen at its first
+ * statement rather than when the transaction begins.
+ * <p>
+ * The shard a transaction ended up on is remembered as a synchronization of that transaction
+ * ({@link #transactionShard()}); synchronizations are suspended together with the transaction,
+ * so an inner {@code REQUIRES_NEW} transaction starts unbound.
+ */
+public class ShardRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    private final Map<String, DataSource> shards;
+    private final Map<String, Counter> connections = new HashMap<>();
+
+    /**
+     * @param shards pools by shard name, {@link Shards#HOME} first
+     */
+    public ShardRoutingDataSource(Map<String, ? extends DataSource> shards, MeterRegistry meterRegistry) {
+        this.shards = new LinkedHashMap<>(shards);
+        shards.keySet().forEach(shard -> connections.put(shard, Counter.builder("datasource.shard.connections")
+                .description("Connections handed out by shard")
+                .tag("shard", shard)
+                .register(meterRegistry)));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        String shard = ShardContext.current();
+        return handOut(shard, shard(shard).getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        String shard = ShardContext.current();
+        return handOut(shard, shard(shard).getConnection(username, password));
+    }
+
+    private Connection handOut(String shard, Connection connection) {
+        connections.get(shard).increment();
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && TransactionSynchronizationManager.isActualTransactionActive() && transactionShard() == null) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionShard(shard));
+        }
+        return connection;
+    }
+
+    /**
+     * Shard the current transaction holds a connection to; {@code null} outside a transaction
+     * or before its first statement.
+     */
+    public static String transactionShard() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof TransactionShard transactionShard) {
+                return transactionShard.shard;
+            }
+        }
+        return null;
+    }
+
+    public List<String> names() {
+        return List.copyOf(shards.keySet());
+    }
+
+    /**
+     * The pool of one shard, bypassing routing and transaction synchronization.
+     */
+    public DataSource shard(String name) {
+        DataSource pool = shards.get(name);
+        if (pool == null) {
+            throw new IllegalStateException("Unknown shard '" + name + "', expected any of " + shards.keySet());
+        }
+        return pool;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (DataSource pool : shards.values()) {
+            if (pool instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private record TransactionShard(String shard) implements TransactionSynchronization {
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.demo.common.sharding;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.mapping.RootClass;
+import org.hibernate.mapping.SimpleValue;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+/**
+ * Prepares the shards once every bean exists, before scheduled jobs and requests start:
+ * <ul>
+ *   <li>applies Hibernate's schema action ({@code spring.jpa.hibernate.ddl-auto}) and then
+ *   {@code schema.sql} to every shard other than home, which Spring Boot already handled;</li>
+ *   <li>fills the {@link ShardDirectory} from existing rows the first time sharding is on.</li>
+ * </ul>
+ */
+public class ShardSchemaInitializer implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardSchemaInitializer.class);
+
+    private final HibernateMetadata hibernateMetadata;
+    private final Shards shards;
+    private final ShardDirectory directory;
+    private final ShardedRepositories repositories;
+    private final boolean initializeSchema;
+
+    public ShardSchemaInitializer(HibernateMetadata hibernateMetadata, Shards shards, ShardDirectory directory,
+                                  ShardedRepositories repositories, boolean initializeSchema) {
+        this.hibernateMetadata = hibernateMetadata;
+        this.shards = shards;
+        this.directory = directory;
+        this.repositories = repositories;
+        this.initializeSchema = initializeSchema;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (initializeSchema) {
+            for (String shard : shards.names()) {
+                if (!Shards.HOME.equals(shard)) {
+                    initialize(shard);
+                }
+            }
+        }
+        repositories.tables().forEach(directory::backfill);
+    }
+
+    private void initialize(String shard) {
+        Metadata metadata = hibernateMetadata.metadata;
+        SessionFactoryImplementor sessionFactory = hibernateMetadata.sessionFactory;
+        if (metadata == null) {
+            throw new IllegalStateException("Hibernate metadata was not captured; is the integrator registered?");
+        }
+        ShardContext.bind(shard, () -> {
+            SchemaManagementToolCoordinator.process(metadata, sessionFactory.getServiceRegistry(),
+                    sessionFactory.getProperties(), action -> {
+                    });
+            return null;
+        });
+        ClassPathResource schema = new ClassPathResource("schema.sql");
+        if (schema.exists()) {
+            new ResourceDatabasePopulator(schema).execute(shards.routing().shard(shard));
+        }
+        log.info("Schema of shard '{}' is up to date", shard);
+    }
+
+    /**
+     * Keeps the boot-time mapping model, which Hibernate does not expose after startup.
+     * Registered through {@code hibernate.integrator_provider}.
+     * <p>
+     * Also makes versioned entities tell new from detached by their version alone: ids are
+     * assigned before persisting in sharded mode, so a non-null id no longer means the row
+     * exists.
+     */
+    public static class HibernateMetadata implements Integrator {
+        private volatile Metadata metadata;
+        private volatile SessionFactoryImplementor sessionFactory;
+
+        @Override
+        public void integrate(Metadata metadata, BootstrapContext bootstrapContext,
+                              SessionFactoryImplementor sessionFactory) {
+            this.metadata = metadata;
+            this.sessionFactory = sessionFactory;
+            // Chạy trước khi Hibernate dựng persister, nên vẫn sửa được mapping
+            for (PersistentClass entity : metadata.getEntityBindings()) {
+                if (entity instanceof RootClass && entity.isVersioned()
+                        && entity.getIdentifier() instanceof SimpleValue id && id.getNullValue() == null) {
+                    id.setNullValue("undefined");
+                }
+            }
+        }
+
+        @Override
+        public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+            // Không cần dọn dẹp
+        }
+    }
+}
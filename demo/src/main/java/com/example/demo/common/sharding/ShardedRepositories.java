@@ -0,0 +1,54 @@
+package com.example.demo.common.sharding;
+
+import com.example.demo.common.cache.EntityCacheManager;
+import com.example.demo.common.entity.BaseEntity;
+import com.example.demo.common.repository.BaseRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates the {@link ShardedRepository} of each entity type when sharding is enabled and
+ * keeps them by entity name, for the sharding tools that work on every table.
+ */
+@Component
+public class ShardedRepositories {
+
+    private final Shards shards;
+    private final ShardDirectory directory;
+    private final EntityManagerFactory entityManagerFactory;
+    private final Map<String, ShardedRepository<?, ?>> repositories = new ConcurrentHashMap<>();
+
+    public ShardedRepositories(Shards shards, ShardDirectory directory, EntityManagerFactory entityManagerFactory) {
+        this.shards = shards;
+        this.directory = directory;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    public boolean isEnabled() {
+        return shards.isEnabled();
+    }
+
+    public <T extends BaseEntity<ID>, ID extends Serializable> ShardedRepository<T, ID> create(
+            Class<T> entityClass, Class<ID> idType, BaseRepository<T, ID> repository, Placement.Local<T> local) {
+        String name = EntityCacheManager.entityName(entityClass);
+        ShardedRepository<T, ID> sharded = new ShardedRepository<>(shards, directory, entityManagerFactory, name,
+                entityClass, idType, repository, local);
+        repositories.put(name, sharded);
+        return sharded;
+    }
+
+    /**
+     * The tables of every sharded entity.
+     */
+    public List<ShardedTable> tables() {
+        return repositories.values().stream().map(ShardedRepository::table)
+                .sorted(Comparator.comparing(ShardedTable::entity))
+                .toList();
+    }
+}
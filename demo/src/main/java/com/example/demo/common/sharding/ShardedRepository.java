@@ -0,0 +1,355 @@
+package com.example.demo.common.sharding;
+
+import com.example.demo.common.entity.BaseEntity;
+import com.example.demo.common.repository.BaseRepository;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Tuple;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Sharded {@link Placement}: sharded mode's view of one entity's {@link BaseRepository},
+ * created by {@link ShardedRepositories}. Work on one id runs on the id's shard, bulk work on each shard
+ * concerned, queries on every shard with their results merged. New entities get their id
+ * before the first write, since the id picks the shard, and natural keys are claimed in the
+ * {@link ShardDirectory}.
+ * <p>
+ * The single-database operations themselves are passed in by the caller and run unchanged on
+ * the chosen shard; see {@link Shards#on} for how transactions are split.
+ */
+public class ShardedRepository<T extends BaseEntity<ID>, ID extends Serializable> implements Placement<T, ID> {
+
+    private final Shards shards;
+    private final ShardDirectory directory;
+    private final EntityManagerFactory entityManagerFactory;
+    private final String entityName;
+    private final Class<T> entityClass;
+    private final Class<ID> idType;
+    private final BaseRepository<T, ID> repository;
+    private final Placement.Local<T> local;
+
+    ShardedRepository(Shards shards, ShardDirectory directory, EntityManagerFactory entityManagerFactory,
+                      String entityName, Class<T> entityClass, Class<ID> idType, BaseRepository<T, ID> repository,
+                      Placement.Local<T> local) {
+        this.shards = shards;
+        this.directory = directory;
+        this.entityManagerFactory = entityManagerFactory;
+        this.entityName = entityName;
+        this.entityClass = entityClass;
+        this.idType = idType;
+        this.repository = repository;
+        this.local = local;
+    }
+
+    /**
+     * The table behind this repository, for the directory backfill and the rebalancer.
+     */
+    public ShardedTable table() {
+        AbstractEntityPersister persister = persister();
+        Map<String, String> naturalKeyColumns = new LinkedHashMap<>();
+        local.naturalKeys().stream().sorted()
+                .forEach(naturalKey -> naturalKeyColumns.put(naturalKey, persister.getPropertyColumnNames(naturalKey)[0]));
+        return new ShardedTable(entityName, persister.getTableName(), persister.getIdentifierColumnNames()[0],
+                naturalKeyColumns);
+    }
+
+    // Đọc
+
+    /**
+     * Runs {@code work} on the shard that owns {@code id}.
+     */
+    @Override
+    public <R> R onShardOf(ID id, Supplier<R> work) {
+        return shards.on(shards.shardOf(id), work);
+    }
+
+    /**
+     * Runs {@code work} once per shard owning some of {@code ids}, one shard after the other.
+     */
+    @Override
+    public <R> List<R> onShardsOf(Collection<ID> ids, Function<List<ID>, R> work) {
+        List<R> results = new ArrayList<>();
+        shards.groupByShard(ids).forEach((shard, shardIds) -> results.add(shards.on(shard, () -> work.apply(shardIds))));
+        return results;
+    }
+
+    /**
+     * Runs {@code work} on every shard in parallel, each in a transaction of its own; see
+     * {@link Shards#fanOut}.
+     */
+    @Override
+    public <R> List<R> everyShard(boolean readOnly, Supplier<R> work) {
+        return shards.fanOut(readOnly, shard -> work.get());
+    }
+
+    /**
+     * Runs {@code work} on every shard one after the other, e.g. to stream rows in order.
+     */
+    @Override
+    public <R> List<R> eachShard(Supplier<R> work) {
+        List<R> results = new ArrayList<>();
+        for (String shard : shards.names()) {
+            results.add(shards.on(shard, work));
+        }
+        return results;
+    }
+
+    /**
+     * Asks every shard for its first {@code limit} rows and merges them; the sort is completed
+     * with the id so rows compare the same way on every shard.
+     */
+    @Override
+    public List<Tuple> select(Specification<T> spec, Sort sort, int limit, List<String> fields) {
+        Sort total = totalOrder(sort);
+        List<String> selected = withSortFields(fields, total);
+        List<List<Tuple>> rows = everyShard(true, () -> local.select(spec, total, limit, selected));
+        return ShardMerge.merge(rows, tupleComparator(total), limit);
+    }
+
+    /**
+     * Page {@code n} needs the first {@code (n + 1) * size} rows of every shard: deep offset
+     * pages cost more than on one database, cursor pages do not.
+     */
+    @Override
+    public Page<Tuple> selectPage(Specification<T> spec, Pageable pageable, List<String> fields) {
+        Sort total = totalOrder(pageable.getSort());
+        List<String> selected = withSortFields(fields, total);
+        int window = Math.toIntExact(pageable.getOffset() + pageable.getPageSize());
+        List<ShardRows> results = everyShard(true,
+                () -> new ShardRows(local.select(spec, total, window, selected), repository.count(spec)));
+        List<Tuple> merged = ShardMerge.merge(results.stream().map(ShardRows::rows).toList(),
+                tupleComparator(total), window);
+        List<Tuple> content = merged.subList(Math.min((int) pageable.getOffset(), merged.size()), merged.size());
+        return new PageImpl<>(content, pageable, results.stream().mapToLong(ShardRows::count).sum());
+    }
+
+    /**
+     * Id holding a natural-key value according to the directory; the entry may be a
+     * reservation whose row is not committed yet, or left over from a crash.
+     */
+    @Override
+    public Optional<ID> findId(String naturalKey, Object value, Supplier<Optional<ID>> local) {
+        return directory.find(entityName, naturalKey, value).map(this::toId);
+    }
+
+    /**
+     * Which of {@code values} some entity holds, according to the directory.
+     */
+    @Override
+    public Set<String> findTaken(String naturalKey, List<String> values, Supplier<Set<String>> local) {
+        return directory.findExisting(entityName, naturalKey, values);
+    }
+
+    // Ghi
+
+    /**
+     * Runs a write of {@code id} on its shard, unless the id's bucket is being moved.
+     */
+    @Override
+    public <R> R write(ID id, Supplier<R> write) {
+        shards.checkWritable(id);
+        return onShardOf(id, write);
+    }
+
+    /**
+     * Assigns the id, then persists {@code entity} on its shard and claims its natural keys.
+     */
+    @Override
+    public T save(T entity, UnaryOperator<T> persist) {
+        assignId(entity);
+        return write(entity.getId(), () -> {
+            T saved = persist.apply(entity);
+            claimNaturalKeys(saved, false);
+            return saved;
+        });
+    }
+
+    /**
+     * {@link #save} for many entities; each shard's entities are persisted in a transaction
+     * of their own.
+     */
+    @Override
+    public List<T> saveAll(List<T> entities, UnaryOperator<List<T>> persist) {
+        Map<String, List<Integer>> positions = new LinkedHashMap<>();
+        for (int i = 0; i < entities.size(); i++) {
+            T entity = entities.get(i);
+            assignId(entity);
+            shards.checkWritable(entity.getId());
+            positions.computeIfAbsent(shards.shardOf(entity.getId()), shard -> new ArrayList<>()).add(i);
+        }
+        List<T> saved = new ArrayList<>(entities);
+        positions.forEach((shard, indexes) -> {
+            List<T> savedOnShard = shards.on(shard, () -> {
+                List<T> persisted = persist.apply(indexes.stream().map(entities::get).toList());
+                persisted.forEach(entity -> claimNaturalKeys(entity, false));
+                return persisted;
+            });
+            for (int i = 0; i < indexes.size(); i++) {
+                saved.set(indexes.get(i), savedOnShard.get(i));
+            }
+        });
+        return saved;
+    }
+
+    /**
+     * Runs an update of {@code id} on its shard, then claims the natural-key values the
+     * entity took on and gives up the ones it left once the transaction commits.
+     */
+    @Override
+    public T update(ID id, Supplier<T> update) {
+        return write(id, () -> {
+            T updated = update.get();
+            claimNaturalKeys(updated, true);
+            return updated;
+        });
+    }
+
+    /**
+     * Runs a hard delete of {@code id} on its shard; its natural keys are given up once the
+     * transaction commits.
+     */
+    @Override
+    public void delete(ID id, Runnable delete) {
+        write(id, () -> {
+            delete.run();
+            directory.releaseAllAfterCommit(entityName, List.of(key(id)));
+            return null;
+        });
+    }
+
+    /**
+     * Runs {@code write} once per shard owning some of {@code ids}; nothing is written if any
+     * of them is being moved.
+     *
+     * @return the sum of the results
+     */
+    @Override
+    public int writeAll(Collection<ID> ids, ToIntFunction<List<ID>> write) {
+        ids.forEach(shards::checkWritable);
+        return onShardsOf(ids, write::applyAsInt).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * {@link #writeAll} for hard deletes; the natural keys of {@code ids} are given up once
+     * each shard's transaction commits.
+     */
+    @Override
+    public int deleteAll(Collection<ID> ids, ToIntFunction<List<ID>> delete) {
+        return writeAll(ids, shardIds -> {
+            int affected = delete.applyAsInt(shardIds);
+            directory.releaseAllAfterCommit(entityName, shardIds.stream().map(ShardedRepository::key).toList());
+            return affected;
+        });
+    }
+
+    /**
+     * Runs a write that may touch any row, e.g. an update by criteria, on every shard in
+     * parallel; rejected while a bucket is being moved.
+     *
+     * @return the sum of the results
+     */
+    @Override
+    public long writeEveryShard(Supplier<? extends Number> write) {
+        shards.checkNoMoves();
+        return everyShard(false, write).stream().mapToLong(Number::longValue).sum();
+    }
+
+    /**
+     * {@link #writeEveryShard} for hard deletes of the rows matching {@code spec}.
+     */
+    @Override
+    public long deleteEveryShard(Specification<T> spec, Supplier<? extends Number> delete) {
+        return writeEveryShard(() -> {
+            List<Long> ids = local.naturalKeys().isEmpty() ? List.of() : local.select(spec, Sort.unsorted(), -1,
+                    List.of("id")).stream().map(row -> key(row.get("id"))).toList();
+            Number affected = delete.get();
+            directory.releaseAllAfterCommit(entityName, ids);
+            return affected;
+        });
+    }
+
+    private void assignId(T entity) {
+        if (entity.getId() == null) {
+            // Id lấy từ sequence trên home trước khi ghi: id quyết định shard
+            SequenceStyleGenerator generator = (SequenceStyleGenerator) persister().getGenerator();
+            entity.setId(toId(shards.nextId(generator.getDatabaseStructure().getPhysicalName().render(),
+                    generator.getDatabaseStructure().getIncrementSize())));
+        }
+    }
+
+    /**
+     * Claims the natural-key values {@code entity} holds; a value held by another entity
+     * fails the write. With {@code releaseOthers}, values the entity held before are given
+     * up once the transaction commits.
+     */
+    private void claimNaturalKeys(T entity, boolean releaseOthers) {
+        if (local.naturalKeys().isEmpty()) {
+            return;
+        }
+        Map<String, Object> values = local.naturalKeyValues(entity);
+        boolean claimed = directory.reserve(entityName, key(entity.getId()), values, this::holdsNaturalKey);
+        // Giá trị mới được nhận hoặc khóa bị xóa: giá trị cũ (nếu có) không còn thuộc entity này
+        if (releaseOthers && (claimed || values.containsValue(null))) {
+            directory.releaseOthersAfterCommit(entityName, key(entity.getId()), values);
+        }
+    }
+
+    private boolean holdsNaturalKey(long id, String naturalKey, Object value) {
+        ID entityId = toId(id);
+        Specification<T> byId = (root, query, cb) -> cb.equal(root.get("id"), entityId);
+        return onShardOf(entityId, () -> local.select(byId, Sort.unsorted(), 1, List.of(naturalKey))).stream()
+                .anyMatch(row -> String.valueOf(row.get(naturalKey)).equals(String.valueOf(value)));
+    }
+
+    private AbstractEntityPersister persister() {
+        return (AbstractEntityPersister) entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getMappingMetamodel().getEntityDescriptor(entityClass);
+    }
+
+    private ID toId(long id) {
+        return DefaultConversionService.getSharedInstance().convert(id, idType);
+    }
+
+    private static long key(Object id) {
+        return ((Number) id).longValue();
+    }
+
+    private static Sort totalOrder(Sort sort) {
+        return sort.isSorted() && sort.getOrderFor("id") == null ? sort.and(Sort.by("id")) : sort;
+    }
+
+    private static List<String> withSortFields(List<String> fields, Sort sort) {
+        LinkedHashSet<String> selected = new LinkedHashSet<>(fields);
+        sort.forEach(order -> selected.add(order.getProperty()));
+        return List.copyOf(selected);
+    }
+
+    private static Comparator<Tuple> tupleComparator(Sort sort) {
+        return ShardMerge.comparator(sort, (tuple, property) -> tuple.get(property));
+    }
+
+    private record ShardRows(List<Tuple> rows, long count) {
+    }
+}
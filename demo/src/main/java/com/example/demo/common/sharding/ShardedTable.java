@@ -0,0 +1,13 @@
+package com.example.demo.common.sharding;
+
+import java.util.Map;
+
+/**
+ * Table of a sharded entity, as needed by the {@link ShardDirectory} backfill and the
+ * {@link ShardRebalancer}.
+ *
+ * @param entity            entity name used in the directory and in cache invalidations
+ * @param naturalKeyColumns natural key to column
+ */
+public record ShardedTable(String entity, String table, String idColumn, Map<String, String> naturalKeyColumns) {
+}
@@ -0,0 +1,288 @@
+package com.example.demo.common.sharding;
+
+import com.example.demo.common.bulkhead.BulkheadContext;
+import com.example.demo.common.exception.ServiceUnavailableException;
+import com.example.demo.common.query.QueryStats;
+import com.example.demo.config.ShardingConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Entry point of sharded mode ({@code app.sharding.enabled=true}): rows of entities served by
+ * a {@link com.example.demo.common.service.BaseService} are spread over several databases by
+ * id, see {@link ShardMap}. {@code spring.datasource} is the {@link #HOME} shard; it also holds
+ * the tables that are not sharded (token revocations, import jobs), the id sequences, the
+ * bucket map and the {@link ShardDirectory}.
+ * <p>
+ * Sharded data is reached through {@link #on}, which binds the shard for the enclosed work,
+ * or {@link #fanOut}, which runs the work on every shard in parallel. A transaction only ever
+ * talks to one shard; work on a second shard runs in a transaction of its own, so a write
+ * touching several shards is not atomic.
+ * <p>
+ * When sharding is disabled every method degrades to running the work as is.
+ */
+@Component
+public class Shards {
+
+    public static final String HOME = "home";
+
+    private static final Logger log = LoggerFactory.getLogger(Shards.class);
+
+    private final ShardingConfig config;
+    private final ShardRoutingDataSource routing;
+    private final JdbcTemplate home;
+    private final ShardMap map;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final ExecutorService fanOutExecutor;
+    private final Map<String, IdBlock> idBlocks = new HashMap<>();
+
+    public Shards(ShardingConfig config, PlatformTransactionManager transactionManager, JdbcTemplate jdbcTemplate,
+                  ObjectProvider<ShardRoutingDataSource> routing) {
+        this.config = config;
+        this.routing = config.isEnabled() ? routing.getObject() : null;
+        // Pool home riêng: câu lệnh chạy ngoài giao dịch của người gọi (giao dịch đó có thể ở shard khác)
+        this.home = this.routing != null ? new JdbcTemplate(this.routing.shard(HOME)) : jdbcTemplate;
+        this.map = new ShardMap(config.getBuckets(), HOME);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.fanOutExecutor = config.isEnabled()
+                ? Executors.newFixedThreadPool(config.getFanOutThreads(), new CustomizableThreadFactory("shard-fan-out-"))
+                : null;
+    }
+
+    /**
+     * Creates the bucket map on first start, with every bucket on {@link #HOME}: existing rows
+     * stay where they are until buckets are moved, see {@link ShardRebalancer}.
+     */
+    @PostConstruct
+    public void init() {
+        if (!isEnabled()) {
+            return;
+        }
+        home.execute("create table if not exists shard_buckets (bucket integer primary key, "
+                + "shard varchar(64) not null, state varchar(16) not null default 'ACTIVE')");
+        home.update("insert into shard_buckets (bucket, shard) select b, ? from generate_series(0, ? - 1) b "
+                + "on conflict do nothing", HOME, config.getBuckets());
+        Integer count = home.queryForObject("select count(*) from shard_buckets", Integer.class);
+        if (count == null || count != config.getBuckets()) {
+            throw new IllegalStateException("shard_buckets has " + count + " buckets but app.sharding.buckets is "
+                    + config.getBuckets() + "; the bucket count cannot change once data is sharded");
+        }
+        refreshMap();
+        log.info("Sharding over {} with {} buckets", names(), config.getBuckets());
+    }
+
+    @Scheduled(fixedDelayString = "${app.sharding.map-refresh-interval:PT5S}")
+    public void refreshMap() {
+        if (!isEnabled()) {
+            return;
+        }
+        String[] owners = new String[config.getBuckets()];
+        BitSet moving = new BitSet();
+        List<String> names = names();
+        home.query("select bucket, shard, state from shard_buckets", rs -> {
+            int bucket = rs.getInt(1);
+            String shard = rs.getString(2);
+            if (!names.contains(shard)) {
+                throw new IllegalStateException("Bucket " + bucket + " is on shard '" + shard
+                        + "', which is not configured in app.sharding.shards");
+            }
+            owners[bucket] = shard;
+            moving.set(bucket, "MOVING".equals(rs.getString(3)));
+        });
+        map.update(owners, moving);
+    }
+
+    public boolean isEnabled() {
+        return routing != null;
+    }
+
+    /**
+     * Every shard, {@link #HOME} first.
+     */
+    public List<String> names() {
+        return routing != null ? routing.names() : List.of(HOME);
+    }
+
+    public ShardMap map() {
+        return map;
+    }
+
+    /**
+     * Runs statements on the home database, outside the caller's transaction.
+     */
+    public JdbcTemplate home() {
+        return home;
+    }
+
+    ShardRoutingDataSource routing() {
+        return routing;
+    }
+
+    public String shardOf(Object id) {
+        return isEnabled() ? map.shardOf(key(id)) : HOME;
+    }
+
+    /**
+     * Runs {@code work} against {@code shard}. It joins the current transaction unless that
+     * transaction already holds a connection to another shard; then it runs in a new one.
+     */
+    public <R> R on(String shard, Supplier<R> work) {
+        if (!isEnabled()) {
+            return work.get();
+        }
+        String connected = ShardRoutingDataSource.transactionShard();
+        if (connected != null && !connected.equals(shard)) {
+            TransactionTemplate template = TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                    ? readTransaction : writeTransaction;
+            return ShardContext.bind(shard, () -> template.execute(status -> work.get()));
+        }
+        return ShardContext.bind(shard, work);
+    }
+
+    public void run(String shard, Runnable work) {
+        on(shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs {@code work} on every shard in parallel, each in a transaction of its own.
+     *
+     * @return the results in the order of {@link #names()}
+     */
+    public <R> List<R> fanOut(boolean readOnly, Function<String, R> work) {
+        if (!isEnabled()) {
+            List<R> result = new ArrayList<>();
+            result.add(work.apply(HOME));
+            return result;
+        }
+        TransactionTemplate template = readOnly ? readTransaction : writeTransaction;
+        List<CompletableFuture<R>> futures = names().stream()
+                .map(shard -> CompletableFuture.supplyAsync(QueryStats.wrap(BulkheadContext.wrap(
+                        () -> ShardContext.bind(shard, () -> template.execute(status -> work.apply(shard))))),
+                        fanOutExecutor))
+                .toList();
+        List<R> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<R> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw ex;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Splits ids by owning shard, keeping their order within each shard.
+     */
+    public <K extends Serializable> Map<String, List<K>> groupByShard(Collection<K> ids) {
+        Map<String, List<K>> groups = new LinkedHashMap<>();
+        for (K id : ids) {
+            groups.computeIfAbsent(shardOf(id), shard -> new ArrayList<>()).add(id);
+        }
+        return groups;
+    }
+
+    /**
+     * Rejects writes to a bucket that is being moved; the client retries once the move is over.
+     */
+    public void checkWritable(Object id) {
+        if (isEnabled() && map.isMoving(map.bucketOf(key(id)))) {
+            throw new ServiceUnavailableException("Entity " + id + " is being moved to another shard",
+                    retryAfterSeconds());
+        }
+    }
+
+    /**
+     * Rejects writes that may touch any row, e.g. updates by criteria, while a bucket is moving.
+     */
+    public void checkNoMoves() {
+        if (isEnabled() && map.isAnyMoving()) {
+            throw new ServiceUnavailableException("Shards are being rebalanced", retryAfterSeconds());
+        }
+    }
+
+    /**
+     * Next id from the home database's {@code sequence}, handed out from blocks of
+     * {@code incrementSize} like Hibernate's pooled optimizer does; ids of moving buckets
+     * are skipped.
+     */
+    public synchronized long nextId(String sequence, int incrementSize) {
+        while (true) {
+            IdBlock block = idBlocks.get(sequence);
+            if (block == null || block.next > block.last) {
+                Long high = home.queryForObject("select nextval(?::regclass)", Long.class, sequence);
+                block = new IdBlock(Math.max(1, high - incrementSize + 1), high);
+                idBlocks.put(sequence, block);
+            }
+            long id = block.next++;
+            if (!map.isMoving(map.bucketOf(id))) {
+                return id;
+            }
+        }
+    }
+
+    private long retryAfterSeconds() {
+        return Math.max(1, config.getMoveSettleTime().toSeconds());
+    }
+
+    private static long key(Object id) {
+        if (id instanceof Number number) {
+            return number.longValue();
+        }
+        throw new IllegalArgumentException("Sharding needs numeric ids, got " + id);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (fanOutExecutor != null) {
+            fanOutExecutor.shutdown();
+        }
+    }
+
+    private static final class IdBlock {
+        private long next;
+        private final long last;
+
+        private IdBlock(long next, long last) {
+            this.next = next;
+            this.last = last;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.demo.common.sharding;
+
+import com.example.demo.common.entity.BaseEntity;
+import jakarta.persistence.Tuple;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@link Placement} of an unsharded entity: every operation runs as given, in the caller's
+ * transaction.
+ */
+class SingleDatabasePlacement<T extends BaseEntity<ID>, ID extends Serializable> implements Placement<T, ID> {
+
+    private final Local<T> local;
+
+    SingleDatabasePlacement(Local<T> local) {
+        this.local = local;
+    }
+
+    @Override
+    public <R> R onShardOf(ID id, Supplier<R> work) {
+        return work.get();
+    }
+
+    @Override
+    public <R> List<R> onShardsOf(Collection<ID> ids, Function<List<ID>, R> work) {
+        return List.of(work.apply(List.copyOf(ids)));
+    }
+
+    @Override
+    public <R> List<R> everyShard(boolean readOnly, Supplier<R> work) {
+        return List.of(work.get());
+    }
+
+    @Override
+    public <R> List<R> eachShard(Supplier<R> work) {
+        return List.of(work.get());
+    }
+
+    @Override
+    public List<Tuple> select(Specification<T> spec, Sort sort, int limit, List<String> fields) {
+        return local.select(spec, sort, limit, fields);
+    }
+
+    @Override
+    public Page<Tuple> selectPage(Specification<T> spec, Pageable pageable, List<String> fields) {
+        return local.selectPage(spec, pageable, fields);
+    }
+
+    @Override
+    public Optional<ID> findId(String naturalKey, Object value, Supplier<Optional<ID>> local) {
+        return local.get();
+    }
+
+    @Override
+    public Set<String> findTaken(String naturalKey, List<String> values, Supplier<Set<String>> local) {
+        return local.get();
+    }
+
+    @Override
+    public <R> R write(ID id, Supplier<R> write) {
+        return write.get();
+    }
+
+    @Override
+    public T save(T entity, UnaryOperator<T> persist) {
+        return persist.apply(entity);
+    }
+
+    @Override
+    public List<T> saveAll(List<T> entities, UnaryOperator<List<T>> persist) {
+        return persist.apply(entities);
+    }
+
+    @Override
+    public T update(ID id, Supplier<T> update) {
+        return update.get();
+    }
+
+    @Override
+    public void delete(ID id, Runnable delete) {
+        delete.run();
+    }
+
+    @Override
+    public int writeAll(Collection<ID> ids, ToIntFunction<List<ID>> write) {
+        return write.applyAsInt(List.copyOf(ids));
+    }
+
+    @Override
+    public int deleteAll(Collection<ID> ids, ToIntFunction<List<ID>> delete) {
+        return delete.applyAsInt(List.copyOf(ids));
+    }
+
+    @Override
+    public long writeEveryShard(Supplier<? extends Number> write) {
+        return write.get().longValue();
+    }
+
+    @Override
+    public long deleteEveryShard(Specification<T> spec, Supplier<? extends Number> delete) {
+        return delete.get().longValue();
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.demo.common.suggest;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable, compact prefix index: every document (id plus a few display strings) contributes
+ * one normalized key per searchable field, and all keys live in one byte array sorted in
+ * unsigned byte order. A prefix lookup is a binary search followed by a sequential scan, with
+ * no per-key objects on the heap.
+ * <p>
+ * Keys are {@link #normalize(String) normalized} (lower case, diacritics removed), so
+ * "dang" finds "Đặng".
+ */
+public final class PrefixIndex {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private final int displayFields;
+    private final long[] ids;
+    private final byte[] display;
+    private final int[] displayOffsets;
+    private final byte[] keys;
+    private final int[] keyOffsets;
+    private final int[] entryDocs;
+    private final byte[] entryFields;
+
+    private PrefixIndex(int displayFields, long[] ids, byte[] display, int[] displayOffsets,
+                        byte[] keys, int[] keyOffsets, int[] entryDocs, byte[] entryFields) {
+        this.displayFields = displayFields;
+        this.ids = ids;
+        this.display = display;
+        this.displayOffsets = displayOffsets;
+        this.keys = keys;
+        this.keyOffsets = keyOffsets;
+        this.entryDocs = entryDocs;
+        this.entryFields = entryFields;
+    }
+
+    public static PrefixIndex empty(int displayFields) {
+        return new Builder(displayFields).build();
+    }
+
+    /**
+     * Lower case, diacritics stripped ("Đ" becomes "d"), whitespace collapsed.
+     */
+    public static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(value.replace('đ', 'd').replace('Đ', 'D'), Normalizer.Form.NFD);
+        return SPACES.matcher(MARKS.matcher(decomposed).replaceAll("")).replaceAll(" ").trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Visits, in key order, at most {@code maxEntries} entries whose key starts with {@code prefix}.
+     *
+     * @param prefix a {@link #normalize(String) normalized} query
+     */
+    public void search(String prefix, int maxEntries, EntryVisitor visitor) {
+        byte[] query = prefix.getBytes(StandardCharsets.UTF_8);
+        int entries = entryDocs.length;
+        int low = 0;
+        int high = entries;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareKey(mid, query) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int entry = low, visited = 0; entry < entries && visited < maxEntries; entry++, visited++) {
+            if (!startsWith(entry, query)) {
+                return;
+            }
+            int keyLength = keyOffsets[entry + 1] - keyOffsets[entry];
+            visitor.visit(entryDocs[entry], entryFields[entry], keyLength == query.length, keyLength);
+        }
+    }
+
+    public long id(int doc) {
+        return ids[doc];
+    }
+
+    public String display(int doc, int field) {
+        int slot = doc * displayFields + field;
+        int start = displayOffsets[slot];
+        int end = displayOffsets[slot + 1];
+        // Chuỗi rỗng được lưu cho giá trị null
+        return start == end ? null : new String(display, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    public int documentCount() {
+        return ids.length;
+    }
+
+    public int entryCount() {
+        return entryDocs.length;
+    }
+
+    /**
+     * Approximate heap footprint of the arrays, in bytes.
+     */
+    public long memoryBytes() {
+        return 8L * ids.length + display.length + 4L * displayOffsets.length
+                + keys.length + 4L * keyOffsets.length + 4L * entryDocs.length + entryFields.length;
+    }
+
+    private int compareKey(int entry, byte[] query) {
+        int start = keyOffsets[entry];
+        int end = keyOffsets[entry + 1];
+        return Arrays.compareUnsigned(keys, start, end, query, 0, query.length);
+    }
+
+    private boolean startsWith(int entry, byte[] query) {
+        int start = keyOffsets[entry];
+        if (keyOffsets[entry + 1] - start < query.length) {
+            return false;
+        }
+        return Arrays.equals(keys, start, start + query.length, query, 0, query.length);
+    }
+
+    @FunctionalInterface
+    public interface EntryVisitor {
+        void visit(int doc, int field, boolean exact, int keyLength);
+    }
+
+    /**
+     * Collects documents, then sorts all keys once in {@link #build()}. Not thread-safe.
+     */
+    public static final class Builder {
+        private final int displayFields;
+        private long[] ids = new long[1024];
+        private int documents;
+        private final List<byte[]> displayValues = new ArrayList<>();
+        private final List<Entry> entries = new ArrayList<>();
+
+        public Builder(int displayFields) {
+            this.displayFields = displayFields;
+        }
+
+        /**
+         * @param display   exactly {@code displayFields} values, {@code null} allowed
+         * @param searchKeys raw (not yet normalized) values per searchable field; blanks are skipped
+         */
+        public Builder add(long id, String[] display, String[] searchKeys) {
+            if (display.length != displayFields) {
+                throw new IllegalArgumentException("Expected " + displayFields + " display values");
+            }
+            int doc = documents++;
+            if (doc == ids.length) {
+                ids = Arrays.copyOf(ids, doc * 2);
+            }
+            ids[doc] = id;
+            for (String value : display) {
+                displayValues.add(value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8));
+            }
+            for (int field = 0; field < searchKeys.length; field++) {
+                String key = normalize(searchKeys[field]);
+                if (!key.isEmpty()) {
+                    entries.add(new Entry(key.getBytes(StandardCharsets.UTF_8), doc, (byte) field));
+                }
+            }
+            return this;
+        }
+
+        public PrefixIndex build() {
+            entries.sort((a, b) -> Arrays.compareUnsigned(a.key, b.key));
+
+            long[] docIds = Arrays.copyOf(ids, documents);
+            int[] displayOffsets = new int[displayValues.size() + 1];
+            int displayLength = 0;
+            for (int i = 0; i < displayValues.size(); i++) {
+                displayOffsets[i] = displayLength;
+                displayLength += displayValues.get(i).length;
+            }
+            displayOffsets[displayValues.size()] = displayLength;
+            byte[] display = new byte[displayLength];
+            for (int i = 0; i < displayValues.size(); i++) {
+                byte[] value = displayValues.get(i);
+                System.arraycopy(value, 0, display, displayOffsets[i], value.length);
+            }
+
+            int[] keyOffsets = new int[entries.size() + 1];
+            int[] entryDocs = new int[entries.size()];
+            byte[] entryFields = new byte[entries.size()];
+            int keyLength = 0;
+            for (int i = 0; i < entries.size(); i++) {
+                keyOffsets[i] = keyLength;
+                keyLength += entries.get(i).key.length;
+            }
+            keyOffsets[entries.size()] = keyLength;
+            byte[] keys = new byte[keyLength];
+            for (int i = 0; i < entries.size(); i++) {
+                Entry entry = entries.get(i);
+                System.arraycopy(entry.key, 0, keys, keyOffsets[i], entry.key.length);
+                entryDocs[i] = entry.doc;
+                entryFields[i] = entry.field;
+            }
+            return new PrefixIndex(displayFields, docIds, display, displayOffsets, keys, keyOffsets,
+                    entryDocs, entryFields);
+        }
+
+        private record Entry(byte[] key, int doc, byte field) {
+        }
+    }
+}
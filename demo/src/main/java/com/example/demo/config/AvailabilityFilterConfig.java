@@ -0,0 +1,50 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.availability-filter")
+public class AvailabilityFilterConfig {
+    /** When disabled every availability check goes to the database. */
+    private boolean enabled = true;
+    /** Capacity of the first filter slice; the filter grows beyond it automatically. */
+    private long expectedInsertions = 1_000_000;
+    private double falsePositiveRate = 0.01;
+    /** Rebuilds drop usernames/emails of permanently deleted users. */
+    private Duration rebuildInterval = Duration.ofHours(6);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    public void setExpectedInsertions(long expectedInsertions) {
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    public double getFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    public void setFalsePositiveRate(double falsePositiveRate) {
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    public Duration getRebuildInterval() {
+        return rebuildInterval;
+    }
+
+    public void setRebuildInterval(Duration rebuildInterval) {
+        this.rebuildInterval = rebuildInterval;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.demo.config;
+
+import com.example.demo.common.codec.JacksonProtobufHttpMessageConverter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * CBOR, Smile and Protobuf responses for clients that ask for them in Accept; JSON stays the
+ * default. The mappers come from Spring Boot's builder, so dates and other settings match the
+ * JSON output.
+ */
+@Configuration
+public class BinaryFormatsConfig implements WebMvcConfigurer {
+
+    private final Jackson2ObjectMapperBuilder protobufMapperBuilder;
+
+    public BinaryFormatsConfig(Jackson2ObjectMapperBuilder protobufMapperBuilder) {
+        this.protobufMapperBuilder = protobufMapperBuilder;
+    }
+
+    // Thay thế converter CBOR/Smile mặc định của Spring (không áp dụng cấu hình Jackson của Boot)
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    /**
+     * Appended after the JSON converter, so a client that accepts anything still gets JSON.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new JacksonProtobufHttpMessageConverter(
+                protobufMapperBuilder.factory(new ProtobufFactory()).build(),
+                new ClassPathResource("proto/api.proto")));
+    }
+}
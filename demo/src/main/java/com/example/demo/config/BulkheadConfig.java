@@ -0,0 +1,96 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.bulkheads")
+public class BulkheadConfig {
+    /** When disabled every request shares the Tomcat threads and spring.datasource's pool. */
+    private boolean enabled = false;
+    private long retryAfterSeconds = 1;
+    /** Request groups by name, matched in order; requests of no group are not limited. */
+    private Map<String, Group> groups = new LinkedHashMap<>();
+
+    public static class Group {
+        /** Ant-style path patterns, e.g. /api/auth/**. */
+        private List<String> paths = new ArrayList<>();
+        /** Requests of the group handled at once; further ones wait up to max-wait, then get 503. */
+        private int maxConcurrentRequests = 50;
+        private Duration maxWait = Duration.ZERO;
+        /** Size of the group's own pool on every database; 0 shares spring.datasource's pool. */
+        private int maximumPoolSize = 0;
+        /** How long the group waits for one of its connections; defaults to spring.datasource.hikari. */
+        private Duration connectionTimeout;
+
+        public List<String> getPaths() {
+            return paths;
+        }
+
+        public void setPaths(List<String> paths) {
+            this.paths = paths;
+        }
+
+        public int getMaxConcurrentRequests() {
+            return maxConcurrentRequests;
+        }
+
+        public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        public int getMaximumPoolSize() {
+            return maximumPoolSize;
+        }
+
+        public void setMaximumPoolSize(int maximumPoolSize) {
+            this.maximumPoolSize = maximumPoolSize;
+        }
+
+        public Duration getConnectionTimeout() {
+            return connectionTimeout;
+        }
+
+        public void setConnectionTimeout(Duration connectionTimeout) {
+            this.connectionTimeout = connectionTimeout;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public void setRetryAfterSeconds(long retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public Map<String, Group> getGroups() {
+        return groups;
+    }
+
+    public void setGroups(Map<String, Group> groups) {
+        this.groups = groups;
+    }
+}
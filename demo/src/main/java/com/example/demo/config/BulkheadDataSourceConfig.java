@@ -0,0 +1,49 @@
+package com.example.demo.config;
+
+import com.example.demo.common.bulkhead.Bulkheads;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * Replaces Spring Boot's single pool with {@code spring.datasource}'s pool plus one pool per
+ * bulkhead when {@code app.bulkheads.enabled=true} on a single database. With read replicas or
+ * sharding, {@link DataSourceRoutingConfig} and {@link ShardingDataSourceConfig} add the
+ * bulkhead pools to each of their databases instead.
+ */
+@Configuration
+@ConditionalOnExpression("${app.bulkheads.enabled:false} and !${app.read-replicas.enabled:false} "
+        + "and !${app.sharding.enabled:false}")
+public class BulkheadDataSourceConfig {
+
+    /**
+     * The data source JPA, JdbcTemplate and the transaction manager use.
+     */
+    @Bean(destroyMethod = "close")
+    @Primary
+    public DataSource dataSource(DataSourceProperties dataSourceProperties, Environment environment,
+                                 MeterRegistry meterRegistry, Bulkheads bulkheads) {
+        HikariDataSource pool = new HikariDataSource();
+        Binder.get(environment)
+                .bind("spring.datasource.hikari", Bindable.ofInstance(new HikariConfig()))
+                .orElseGet(HikariConfig::new)
+                .copyStateTo(pool);
+        pool.setJdbcUrl(dataSourceProperties.determineUrl());
+        pool.setUsername(dataSourceProperties.determineUsername());
+        pool.setPassword(dataSourceProperties.determinePassword());
+        pool.setDriverClassName(dataSourceProperties.determineDriverClassName());
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return bulkheads.pools(pool);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.demo.config;
+
+import com.example.demo.common.bulkhead.Bulkheads;
+import com.example.demo.common.datasource.ReadReplicas;
+import com.example.demo.common.datasource.ReadWriteRoutingDataSource;
+import com.example.demo.common.datasource.ReadYourWritesTracker;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces Spring Boot's single pool with a primary pool plus one pool per read replica when
+ * {@code app.read-replicas.enabled=true}. Every pool takes its settings from
+ * {@code spring.datasource.hikari}; replicas override URL, credentials and size. With
+ * {@code app.bulkheads} each database also gets a pool per bulkhead.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.read-replicas", name = "enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+
+    private final ReadReplicaConfig config;
+    private final DataSourceProperties dataSourceProperties;
+    private final HikariConfig hikari;
+    private final MeterRegistry meterRegistry;
+    private final Bulkheads bulkheads;
+
+    public DataSourceRoutingConfig(ReadReplicaConfig config, DataSourceProperties dataSourceProperties,
+                                   Environment environment, MeterRegistry meterRegistry, Bulkheads bulkheads) {
+        this.config = config;
+        this.dataSourceProperties = dataSourceProperties;
+        this.hikari = Binder.get(environment)
+                .bind("spring.datasource.hikari", Bindable.ofInstance(new HikariConfig()))
+                .orElseGet(HikariConfig::new);
+        this.meterRegistry = meterRegistry;
+        this.bulkheads = bulkheads;
+    }
+
+    @Bean
+    public ReadYourWritesTracker readYourWritesTracker() {
+        return new ReadYourWritesTracker(config.getReadYourWritesWindow());
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReadReplicas readReplicas() {
+        List<ReadReplicas.Replica> replicas = new ArrayList<>();
+        for (ReadReplicaConfig.Replica replica : config.getReplicas()) {
+            HikariDataSource pool = pool(replica.getUrl(),
+                    StringUtils.hasText(replica.getUsername()) ? replica.getUsername() : dataSourceProperties.determineUsername(),
+                    replica.getPassword() != null ? replica.getPassword() : dataSourceProperties.determinePassword());
+            pool.setPoolName((hikari.getPoolName() != null ? hikari.getPoolName() : "HikariCP") + "-" + replica.getName());
+            pool.setReadOnly(true);
+            pool.setMaximumPoolSize(config.getMaximumPoolSize());
+            pool.setMinimumIdle(Math.min(pool.getMinimumIdle(), config.getMaximumPoolSize()));
+            // Replica chậm/không phản hồi phải nhường cho primary nhanh chóng
+            pool.setConnectionTimeout(config.getHealthCheckTimeout().toMillis());
+            pool.setInitializationFailTimeout(-1);
+            replicas.add(new ReadReplicas.Replica(replica.getName(), bulkheads.pools(pool)));
+        }
+        return new ReadReplicas(replicas, config, meterRegistry);
+    }
+
+    @Bean(destroyMethod = "close")
+    public DataSource primaryDataSource() {
+        HikariDataSource pool = pool(dataSourceProperties.determineUrl(), dataSourceProperties.determineUsername(),
+                dataSourceProperties.determinePassword());
+        pool.setDriverClassName(dataSourceProperties.determineDriverClassName());
+        return bulkheads.pools(pool);
+    }
+
+    /**
+     * The data source JPA, JdbcTemplate and the transaction manager use.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource, ReadReplicas readReplicas,
+                                 ReadYourWritesTracker readYourWritesTracker) {
+        return new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(primaryDataSource, readReplicas, readYourWritesTracker, meterRegistry));
+    }
+
+    private HikariDataSource pool(String url, String username, String password) {
+        HikariDataSource pool = new HikariDataSource();
+        hikari.copyStateTo(pool);
+        pool.setJdbcUrl(url);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return pool;
+    }
+}
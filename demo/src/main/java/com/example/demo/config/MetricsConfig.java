@@ -0,0 +1,33 @@
+package com.example.demo.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ClassUtils;
+
+import java.util.function.Function;
+
+/**
+ * Metrics beyond what Spring Boot binds by itself; everything is scraped from
+ * {@code /actuator/prometheus}.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Times methods of classes annotated with {@code @Timed}, e.g. the services. The class tag
+     * names the bean's class rather than the declaring one, so methods inherited from
+     * {@code BaseService} are told apart per service.
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        Function<ProceedingJoinPoint, Iterable<Tag>> tags = joinPoint -> Tags.of(
+                "class", ClassUtils.getUserClass(joinPoint.getTarget()).getName(),
+                "method", joinPoint.getStaticPart().getSignature().getName());
+        return new TimedAspect(meterRegistry, tags);
+    }
+}
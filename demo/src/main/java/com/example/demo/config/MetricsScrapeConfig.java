@@ -0,0 +1,32 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.metrics-scrape")
+public class MetricsScrapeConfig {
+    /** HTTP Basic user Prometheus scrapes {@code /actuator/prometheus} with. */
+    private String username = "prometheus";
+    /**
+     * Its password with an encoder prefix, e.g. {@code {bcrypt}$2a$...}; without one nobody
+     * can scrape.
+     */
+    private String password;
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+}
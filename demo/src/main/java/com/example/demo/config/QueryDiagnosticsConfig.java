@@ -0,0 +1,61 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.query-diagnostics")
+public class QueryDiagnosticsConfig {
+    /** Counts statements per request through a proxy around the application's data source. */
+    private boolean enabled = true;
+    /** A request running more statements is logged as over budget. */
+    private int maxStatementsPerRequest = 30;
+    /** A request running one statement text more often than this is logged as a likely N+1. */
+    private int maxRepeatsPerStatement = 5;
+    /** Statements taking at least this long are logged, wherever they run. */
+    private Duration slowQueryThreshold = Duration.ofMillis(500);
+    /** Share of requests whose slow statements are logged with bind parameters. */
+    private double parameterSampleRate = 0.01;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxStatementsPerRequest() {
+        return maxStatementsPerRequest;
+    }
+
+    public void setMaxStatementsPerRequest(int maxStatementsPerRequest) {
+        this.maxStatementsPerRequest = maxStatementsPerRequest;
+    }
+
+    public int getMaxRepeatsPerStatement() {
+        return maxRepeatsPerStatement;
+    }
+
+    public void setMaxRepeatsPerStatement(int maxRepeatsPerStatement) {
+        this.maxRepeatsPerStatement = maxRepeatsPerStatement;
+    }
+
+    public Duration getSlowQueryThreshold() {
+        return slowQueryThreshold;
+    }
+
+    public void setSlowQueryThreshold(Duration slowQueryThreshold) {
+        this.slowQueryThreshold = slowQueryThreshold;
+    }
+
+    public double getParameterSampleRate() {
+        return parameterSampleRate;
+    }
+
+    public void setParameterSampleRate(double parameterSampleRate) {
+        this.parameterSampleRate = parameterSampleRate;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.demo.config;
+
+import com.example.demo.common.query.QueryCountingDataSource;
+import com.example.demo.common.query.QueryDiagnostics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the data source JPA, JdbcTemplate and the transaction manager use (the bean named
+ * {@code dataSource}, whichever configuration defines it) in a {@link QueryCountingDataSource}.
+ * Pools used directly, such as the shard rebalancer's, are not counted.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.query-diagnostics", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class QueryDiagnosticsDataSourceConfig {
+
+    @Bean
+    public static BeanPostProcessor queryCountingDataSourcePostProcessor(ObjectProvider<QueryDiagnostics> diagnostics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource
+                        && !(bean instanceof QueryCountingDataSource)) {
+                    return new QueryCountingDataSource(dataSource, diagnostics.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
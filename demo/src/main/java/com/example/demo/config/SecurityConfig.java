@@ -1,35 +1,86 @@
 package com.example.demo.config;
 
+import com.example.demo.common.security.crypto.MeteredPasswordEncoder;
 import com.example.demo.common.security.filter.JwtTokenFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.util.StringUtils;
 
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity
 public class SecurityConfig {
 
+    public static final String SCRAPE_ROLE = "METRICS";
+
     private final JwtTokenFilter jwtTokenFilter;
 
     public SecurityConfig(JwtTokenFilter jwtTokenFilter) {
         this.jwtTokenFilter = jwtTokenFilter;
     }
 
+    /**
+     * {@code /actuator/prometheus} only answers the scrape account of {@link MetricsScrapeConfig}
+     * over HTTP Basic, whatever address the request comes from: behind a proxy every request
+     * looks local. Application JWTs are not accepted there.
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain metricsScrapeFilterChain(HttpSecurity http, MetricsScrapeConfig scrape) throws Exception {
+        http
+            .securityMatcher("/actuator/prometheus")
+            .csrf(csrf -> csrf.disable())
+            .authorizeHttpRequests(auth -> auth.anyRequest().hasRole(SCRAPE_ROLE))
+            .httpBasic(Customizer.withDefaults())
+            .authenticationManager(scrapeAuthenticationManager(scrape))
+            .sessionManagement(session -> session
+                .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+            );
+        return http.build();
+    }
+
+    // Không đăng ký làm bean để không thay UserDetailsService của ứng dụng
+    private static AuthenticationManager scrapeAuthenticationManager(MetricsScrapeConfig scrape) {
+        InMemoryUserDetailsManager users = new InMemoryUserDetailsManager();
+        if (StringUtils.hasText(scrape.getPassword())) {
+            users.createUser(User.withUsername(scrape.getUsername())
+                    .password(scrape.getPassword())
+                    .roles(SCRAPE_ROLE)
+                    .build());
+        }
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider(
+                PasswordEncoderFactories.createDelegatingPasswordEncoder());
+        provider.setUserDetailsService(users);
+        return new ProviderManager(provider);
+    }
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
             .csrf(csrf -> csrf.disable())
             .authorizeHttpRequests(auth -> auth
+                // Async dispatch của các controller trả về CompletableFuture - đã xác thực ở lượt đầu
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                 // Các đường dẫn công khai
                 .requestMatchers("/api/auth/**").permitAll()
                 
@@ -59,8 +110,8 @@ public class SecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        return new MeteredPasswordEncoder(new BCryptPasswordEncoder(), meterRegistry);
     }
     
     @Bean
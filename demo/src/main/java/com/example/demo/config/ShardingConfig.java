@@ -0,0 +1,147 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.sharding")
+public class ShardingConfig {
+    /**
+     * When disabled every entity lives in spring.datasource. Cannot be combined with
+     * app.read-replicas; bulk import is rejected and bulk writes are not atomic across shards.
+     */
+    private boolean enabled = false;
+    /** Rows are placed by bucket = id mod buckets; cannot be changed once data is sharded. */
+    private int buckets = 1024;
+    /** Threads running list, page and search queries on all shards in parallel. */
+    private int fanOutThreads = 8;
+    /** How often each node re-reads the bucket-to-shard map. */
+    private Duration mapRefreshInterval = Duration.ofSeconds(5);
+    /** Wait after each map change of a bucket move; must exceed map-refresh-interval plus the longest write. */
+    private Duration moveSettleTime = Duration.ofSeconds(15);
+    /** A natural-key reservation whose owner no longer holds the value is taken over after this long. */
+    private Duration directoryGracePeriod = Duration.ofMinutes(1);
+    /** Creates the tables on every shard the way spring.datasource gets them (Hibernate, then schema.sql). */
+    private boolean initializeSchema = true;
+    /** Pool size per shard; other pool settings are taken from spring.datasource.hikari. */
+    private int maximumPoolSize = 10;
+    /** Shards besides spring.datasource, which is the "home" shard. */
+    private List<Shard> shards = new ArrayList<>();
+
+    public static class Shard {
+        private String name;
+        private String url;
+        /** Defaults to spring.datasource.username. */
+        private String username;
+        /** Defaults to spring.datasource.password. */
+        private String password;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+
+    public void setBuckets(int buckets) {
+        this.buckets = buckets;
+    }
+
+    public int getFanOutThreads() {
+        return fanOutThreads;
+    }
+
+    public void setFanOutThreads(int fanOutThreads) {
+        this.fanOutThreads = fanOutThreads;
+    }
+
+    public Duration getMapRefreshInterval() {
+        return mapRefreshInterval;
+    }
+
+    public void setMapRefreshInterval(Duration mapRefreshInterval) {
+        this.mapRefreshInterval = mapRefreshInterval;
+    }
+
+    public Duration getMoveSettleTime() {
+        return moveSettleTime;
+    }
+
+    public void setMoveSettleTime(Duration moveSettleTime) {
+        this.moveSettleTime = moveSettleTime;
+    }
+
+    public Duration getDirectoryGracePeriod() {
+        return directoryGracePeriod;
+    }
+
+    public void setDirectoryGracePeriod(Duration directoryGracePeriod) {
+        this.directoryGracePeriod = directoryGracePeriod;
+    }
+
+    public boolean isInitializeSchema() {
+        return initializeSchema;
+    }
+
+    public void setInitializeSchema(boolean initializeSchema) {
+        this.initializeSchema = initializeSchema;
+    }
+
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    public void setMaximumPoolSize(int maximumPoolSize) {
+        this.maximumPoolSize = maximumPoolSize;
+    }
+
+    public List<Shard> getShards() {
+        return shards;
+    }
+
+    public void setShards(List<Shard> shards) {
+        this.shards = shards;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.demo.config;
+
+import com.example.demo.common.bulkhead.Bulkheads;
+import com.example.demo.common.sharding.AssignableSequenceGenerator;
+import com.example.demo.common.sharding.ShardDirectory;
+import com.example.demo.common.sharding.ShardRoutingDataSource;
+import com.example.demo.common.sharding.ShardSchemaInitializer;
+import com.example.demo.common.sharding.ShardedRepositories;
+import com.example.demo.common.sharding.Shards;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.jpa.boot.spi.JpaSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces Spring Boot's single pool with one pool per shard when
+ * {@code app.sharding.enabled=true}; {@code spring.datasource} becomes the {@link Shards#HOME}
+ * shard. Every pool takes its settings from {@code spring.datasource.hikari}; the other shards
+ * override URL, credentials and size. With {@code app.bulkheads} each shard also gets a pool per
+ * bulkhead.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.sharding", name = "enabled", havingValue = "true")
+public class ShardingDataSourceConfig {
+
+    private final ShardingConfig config;
+    private final DataSourceProperties dataSourceProperties;
+    private final HikariConfig hikari;
+    private final MeterRegistry meterRegistry;
+    private final Bulkheads bulkheads;
+
+    public ShardingDataSourceConfig(ShardingConfig config, ReadReplicaConfig readReplicaConfig,
+                                    DataSourceProperties dataSourceProperties, Environment environment,
+                                    MeterRegistry meterRegistry, Bulkheads bulkheads) {
+        if (readReplicaConfig.isEnabled()) {
+            throw new IllegalStateException("app.sharding and app.read-replicas cannot be enabled together");
+        }
+        this.config = config;
+        this.dataSourceProperties = dataSourceProperties;
+        this.hikari = Binder.get(environment)
+                .bind("spring.datasource.hikari", Bindable.ofInstance(new HikariConfig()))
+                .orElseGet(HikariConfig::new);
+        this.meterRegistry = meterRegistry;
+        this.bulkheads = bulkheads;
+    }
+
+    @Bean(destroyMethod = "close")
+    public ShardRoutingDataSource shardRoutingDataSource() {
+        Map<String, DataSource> pools = new LinkedHashMap<>();
+        HikariDataSource home = pool(dataSourceProperties.determineUrl(), dataSourceProperties.determineUsername(),
+                dataSourceProperties.determinePassword());
+        home.setDriverClassName(dataSourceProperties.determineDriverClassName());
+        pools.put(Shards.HOME, bulkheads.pools(home));
+        for (ShardingConfig.Shard shard : config.getShards()) {
+            if (!StringUtils.hasText(shard.getName()) || pools.containsKey(shard.getName())) {
+                throw new IllegalStateException("Every shard needs a unique name other than '" + Shards.HOME + "'");
+            }
+            HikariDataSource pool = pool(shard.getUrl(),
+                    StringUtils.hasText(shard.getUsername()) ? shard.getUsername() : dataSourceProperties.determineUsername(),
+                    shard.getPassword() != null ? shard.getPassword() : dataSourceProperties.determinePassword());
+            pool.setPoolName((hikari.getPoolName() != null ? hikari.getPoolName() : "HikariCP") + "-" + shard.getName());
+            pool.setMaximumPoolSize(config.getMaximumPoolSize());
+            pool.setMinimumIdle(Math.min(pool.getMinimumIdle(), config.getMaximumPoolSize()));
+            pools.put(shard.getName(), bulkheads.pools(pool));
+        }
+        return new ShardRoutingDataSource(pools, meterRegistry);
+    }
+
+    /**
+     * The data source JPA, JdbcTemplate and the transaction manager use.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    @Bean
+    public ShardSchemaInitializer.HibernateMetadata hibernateMetadata() {
+        return new ShardSchemaInitializer.HibernateMetadata();
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer shardingHibernateProperties(ShardSchemaInitializer.HibernateMetadata hibernateMetadata) {
+        return properties -> {
+            properties.put(AssignableSequenceGenerator.KEEP_ASSIGNED_IDS, true);
+            properties.put(JpaSettings.INTEGRATOR_PROVIDER, (IntegratorProvider) () -> List.of(hibernateMetadata));
+        };
+    }
+
+    @Bean
+    public ShardSchemaInitializer shardSchemaInitializer(ShardSchemaInitializer.HibernateMetadata hibernateMetadata,
+                                                         Shards shards, ShardDirectory directory,
+                                                         ShardedRepositories repositories) {
+        return new ShardSchemaInitializer(hibernateMetadata, shards, directory, repositories,
+                config.isInitializeSchema());
+    }
+
+    private HikariDataSource pool(String url, String username, String password) {
+        HikariDataSource pool = new HikariDataSource();
+        hikari.copyStateTo(pool);
+        pool.setJdbcUrl(url);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return pool;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.user-import")
+public class UserImportConfig {
+    /** Uploads are spooled here, and server-side import files must live under it. */
+    private String directory = System.getProperty("java.io.tmpdir") + "/user-import";
+    /** Records per COPY + merge transaction; also the resume granularity. */
+    private int chunkSize = 10_000;
+    private int hashingParallelism = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public int getHashingParallelism() {
+        return hashingParallelism;
+    }
+
+    public void setHashingParallelism(int hashingParallelism) {
+        this.hashingParallelism = hashingParallelism;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.user-json-cache")
+public class UserJsonCacheConfig {
+    /** When disabled every response is serialized on each request. */
+    private boolean enabled = true;
+    /** Upper bound on the cached bytes (JSON plus gzip copies); least valuable entries go first. */
+    private DataSize maxSize = DataSize.ofMegabytes(64);
+    /** Also keep a gzip copy, served for single users to clients that accept gzip. */
+    private boolean gzip = false;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public DataSize getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(DataSize maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    public void setGzip(boolean gzip) {
+        this.gzip = gzip;
+    }
+}
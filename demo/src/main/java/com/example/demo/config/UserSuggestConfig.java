@@ -0,0 +1,59 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.user-suggest")
+public class UserSuggestConfig {
+    /** When disabled the suggest endpoint returns no results. */
+    private boolean enabled = true;
+    /** Periodic full rebuild from the database; also folds pending changes into the index. */
+    private Duration rebuildInterval = Duration.ofHours(6);
+    /** Pending changes kept beside the index before an early rebuild is triggered. */
+    private int compactionThreshold = 10_000;
+    private int defaultLimit = 10;
+    private int maxLimit = 50;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getRebuildInterval() {
+        return rebuildInterval;
+    }
+
+    public void setRebuildInterval(Duration rebuildInterval) {
+        this.rebuildInterval = rebuildInterval;
+    }
+
+    public int getCompactionThreshold() {
+        return compactionThreshold;
+    }
+
+    public void setCompactionThreshold(int compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    public int getDefaultLimit() {
+        return defaultLimit;
+    }
+
+    public void setDefaultLimit(int defaultLimit) {
+        this.defaultLimit = defaultLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+}
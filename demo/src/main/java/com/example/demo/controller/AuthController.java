@@ -1,10 +1,14 @@
 package com.example.demo.controller;
 
+import com.example.demo.common.concurrent.RequestExecutors;
 import com.example.demo.common.dto.ApiResponse;
 import com.example.demo.common.security.config.JwtConfig;
+import com.example.demo.common.security.crypto.PasswordHashingService;
 import com.example.demo.common.security.dto.JwtResponse;
 import com.example.demo.common.security.dto.LoginRequest;
+import com.example.demo.common.security.revocation.RevokedTokenIndex;
 import com.example.demo.common.security.util.JwtTokenUtil;
+import com.example.demo.service.TokenRevocationService;
 import com.example.demo.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -12,34 +16,54 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.AccountStatusUserDetailsChecker;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsChecker;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @RestController
 @RequestMapping("/api/auth")
 @Tag(name = "Authentication", description = "Endpoints for user authentication")
 public class AuthController {
 
-    private final AuthenticationManager authenticationManager;
+    private final UserDetailsService userDetailsService;
+    private final UserDetailsChecker userDetailsChecker = new AccountStatusUserDetailsChecker();
     private final JwtTokenUtil jwtTokenUtil;
     private final JwtConfig jwtConfig;
     private final UserService userService;
+    private final PasswordHashingService passwordHashingService;
+    private final TokenRevocationService tokenRevocationService;
+    private final RevokedTokenIndex revokedTokenIndex;
+    private final Executor requestExecutor;
 
-    public AuthController(AuthenticationManager authenticationManager, JwtTokenUtil jwtTokenUtil, 
-                         JwtConfig jwtConfig, UserService userService) {
-        this.authenticationManager = authenticationManager;
+    public AuthController(UserDetailsService userDetailsService, JwtTokenUtil jwtTokenUtil,
+                         JwtConfig jwtConfig, UserService userService,
+                         PasswordHashingService passwordHashingService,
+                         TokenRevocationService tokenRevocationService, RevokedTokenIndex revokedTokenIndex,
+                         @Qualifier("applicationTaskExecutor") AsyncTaskExecutor taskExecutor) {
+        this.userDetailsService = userDetailsService;
         this.jwtTokenUtil = jwtTokenUtil;
         this.jwtConfig = jwtConfig;
         this.userService = userService;
+        this.passwordHashingService = passwordHashingService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.revokedTokenIndex = revokedTokenIndex;
+        this.requestExecutor = RequestExecutors.propagating(taskExecutor);
     }
 
     @Operation(summary = "Authenticate user", description = "Authenticates user credentials and returns JWT token")
@@ -47,25 +71,37 @@ public class AuthController {
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Successfully authenticated", 
                 content = @Content(mediaType = "application/json", 
                 schema = @Schema(implementation = JwtResponse.class))),
-        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Invalid credentials")
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Invalid credentials"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "503", description = "Too many concurrent logins, retry later")
     })
     @PostMapping("/login")
-    public ResponseEntity<JwtResponse> login(@Valid @RequestBody LoginRequest loginRequest) {
-        // Xác thực từ username và password
-        Authentication authentication = authenticationManager.authenticate(
-            new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword())
-        );
-        
-        // Cập nhật SecurityContext sử dụng Authentication
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-        
-        // Tạo token
-        String jwt = jwtTokenUtil.generateToken(authentication);
-        
-        // Thời điểm hết hạn
-        Date expirationDate = jwtTokenUtil.extractExpiration(jwt);
-        
-        return ResponseEntity.ok(new JwtResponse(jwt, jwtConfig.getHeader(), loginRequest.getUsername(), expirationDate));
+    public CompletableFuture<ResponseEntity<JwtResponse>> login(@Valid @RequestBody LoginRequest loginRequest) {
+        // Tra cứu user trên pool tác vụ của ứng dụng; pool băm mật khẩu chỉ so khớp BCrypt.
+        // Không set SecurityContext ở đây: API stateless và thread của pool được dùng lại cho request khác
+        return CompletableFuture.supplyAsync(() -> findUser(loginRequest.getUsername()), requestExecutor)
+            .thenCompose(user -> passwordHashingService
+                .matchesAsync(loginRequest.getPassword(), user != null ? user.getPassword() : null)
+                .thenApplyAsync(matches -> {
+                    if (user == null || !matches) {
+                        throw new BadCredentialsException("Bad credentials");
+                    }
+                    userDetailsChecker.check(user);
+
+                    // Tạo token; exp trong token tính bằng giây nên làm tròn xuống, không bao giờ muộn hơn exp
+                    long issuedAt = System.currentTimeMillis();
+                    String jwt = jwtTokenUtil.generateToken(user);
+                    Date expirationDate = new Date((issuedAt + jwtConfig.getExpiration()) / 1000 * 1000);
+
+                    return ResponseEntity.ok(new JwtResponse(jwt, jwtConfig.getHeader(), user.getUsername(), expirationDate));
+                }, requestExecutor));
+    }
+
+    private UserDetails findUser(String username) {
+        try {
+            return userDetailsService.loadUserByUsername(username);
+        } catch (UsernameNotFoundException ex) {
+            return null;
+        }
     }
 
     @Operation(summary = "Validate token", description = "Checks if a token is valid")
@@ -76,11 +112,29 @@ public class AuthController {
     @PostMapping("/validate")
     public ResponseEntity<ApiResponse> validateToken(
             @RequestBody String token) {
-        boolean isValid = jwtTokenUtil.validateToken(token);
+        boolean isValid = jwtTokenUtil.verify(token)
+                .filter(verified -> !revokedTokenIndex.isRevoked(verified))
+                .isPresent();
         if (isValid) {
             return ResponseEntity.ok(new ApiResponse(true, "Token is valid"));
         } else {
             return ResponseEntity.status(401).body(new ApiResponse(false, "Token is invalid or expired"));
         }
     }
-}
\ No newline at end of file
+
+    @Operation(summary = "Log out", description = "Revokes the bearer token of the request on every node")
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Token revoked"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "No valid token")
+    })
+    @PostMapping("/logout")
+    public ResponseEntity<ApiResponse> logout() {
+        // JwtTokenFilter đã xác thực token và lưu nó làm credentials
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getCredentials() instanceof String token)) {
+            return ResponseEntity.status(401).body(new ApiResponse(false, "Token is invalid or expired"));
+        }
+        jwtTokenUtil.verify(token).ifPresent(tokenRevocationService::revokeToken);
+        return ResponseEntity.ok(new ApiResponse(true, "Logged out successfully"));
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.demo.controller;
+
+import com.example.demo.common.sharding.ShardMap;
+import com.example.demo.common.sharding.ShardRebalancer;
+import com.example.demo.common.sharding.Shards;
+import com.example.demo.dto.response.ShardStatusResponse;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/shards")
+@Tag(name = "Shards", description = "Bucket map and rebalancing of sharded data")
+public class ShardController {
+
+    private final Shards shards;
+    private final ShardRebalancer rebalancer;
+
+    public ShardController(Shards shards, ShardRebalancer rebalancer) {
+        this.shards = shards;
+        this.rebalancer = rebalancer;
+    }
+
+    @Operation(summary = "Get the bucket map", description = "Buckets per shard and progress of queued moves")
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ShardStatusResponse> status() {
+        return ResponseEntity.ok(convertToResponse());
+    }
+
+    @Operation(summary = "Spread buckets evenly over the shards",
+            description = "Queues the fewest moves that even out the bucket counts; moves run one at a time in the background")
+    @PostMapping(value = "/rebalance", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ShardStatusResponse> rebalance() {
+        rebalancer.rebalance();
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(convertToResponse());
+    }
+
+    @Operation(summary = "Move one bucket to another shard",
+            description = "Also resumes a move that failed and left the bucket MOVING")
+    @PostMapping(value = "/buckets/{bucket}/move", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ShardStatusResponse> move(
+            @PathVariable int bucket,
+            @Parameter(description = "Name of the target shard") @RequestParam String target) {
+        rebalancer.move(bucket, target);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(convertToResponse());
+    }
+
+    private ShardStatusResponse convertToResponse() {
+        ShardRebalancer.Status status = rebalancer.status();
+        ShardMap map = shards.map();
+        ShardStatusResponse response = new ShardStatusResponse();
+        response.setEnabled(shards.isEnabled());
+        response.setBuckets(map.buckets());
+        response.setBucketsPerShard(map.bucketCounts(shards.names()));
+        response.setMovingBuckets(map.movingBuckets());
+        ShardMap.Move current = status.current();
+        response.setCurrentMove(current == null ? null
+                : "bucket " + current.bucket() + ": " + current.source() + " -> " + current.target());
+        response.setQueuedMoves(status.queued());
+        response.setMovedBuckets(status.movedBuckets());
+        response.setMovedRows(status.movedRows());
+        response.setLastError(status.lastError());
+        return response;
+    }
+}
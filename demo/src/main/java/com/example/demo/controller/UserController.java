@@ -1,12 +1,27 @@
 package com.example.demo.controller;
 
+import com.example.demo.common.codec.BinaryMediaTypes;
+import com.example.demo.common.concurrent.RequestExecutors;
 import com.example.demo.common.controller.BaseController;
 import com.example.demo.common.dto.ApiResponse;
+import com.example.demo.common.dto.BatchItemResult;
+import com.example.demo.common.dto.BatchResponse;
+import com.example.demo.common.dto.CursorPage;
+import com.example.demo.common.etag.ETags;
+import com.example.demo.common.exception.BadRequestException;
+import com.example.demo.common.exception.PreconditionRequiredException;
+import com.example.demo.common.json.PreSerializedJson;
+import com.example.demo.common.pagination.KeysetCursor;
+import com.example.demo.common.security.crypto.PasswordHashingService;
 import com.example.demo.dto.request.CreateUserRequest;
 import com.example.demo.dto.request.UpdateUserRequest;
+import com.example.demo.dto.response.AvailabilityResponse;
 import com.example.demo.dto.response.UserResponse;
+import com.example.demo.dto.response.UserSuggestionResponse;
 import com.example.demo.entity.User;
+import com.example.demo.service.UserJsonCache;
 import com.example.demo.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -16,49 +31,149 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @RestController
 @RequestMapping("/api/users")
 @Tag(name = "User Management", description = "Operations pertaining to users in the application")
 public class UserController extends BaseController<User, Long, UserService> {
 
-    public UserController(UserService userService) {
+    public static final int MAX_BATCH_SIZE = 5000;
+    public static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+    private static final Set<String> REQUIRED_PATCH_FIELDS = Set.of("email", "password");
+
+    private final PasswordHashingService passwordHashingService;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final UserJsonCache jsonCache;
+    private final Executor writeExecutor;
+
+    public UserController(UserService userService, PasswordHashingService passwordHashingService,
+                          Validator validator, ObjectMapper objectMapper, UserJsonCache jsonCache,
+                          @Qualifier("applicationTaskExecutor") AsyncTaskExecutor taskExecutor) {
         super(userService);
+        this.passwordHashingService = passwordHashingService;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.jsonCache = jsonCache;
+        // Ghi DB sau khi băm xong chạy trên pool tác vụ của ứng dụng, không chiếm thread băm mật khẩu
+        this.writeExecutor = RequestExecutors.propagating(taskExecutor);
     }
 
     // Ghi đè phương thức từ BaseController để tránh xung đột mapping
     @Override
     @GetMapping("/base")
-    public ResponseEntity<List<User>> getAll() {
-        return super.getAll();
+    public ResponseEntity<?> getAll(@RequestParam(defaultValue = "false") boolean includeInactive,
+                                    @RequestParam(required = false) String fields,
+                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                    @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return super.getAll(includeInactive, fields, ifNoneMatch, accept);
     }
 
     @Operation(summary = "Get all users", description = "Returns a list of all active users")
     @ApiResponses(value = {
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Successfully retrieved the list of users",
                 content = @Content(mediaType = "application/json", 
-                array = @ArraySchema(schema = @Schema(implementation = UserResponse.class))))
+                array = @ArraySchema(schema = @Schema(implementation = UserResponse.class)))),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "304", description = "No user changed since the ETag in If-None-Match")
+    })
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, BinaryMediaTypes.APPLICATION_CBOR_VALUE,
+            BinaryMediaTypes.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<?> getAllUsers(
+            @Parameter(description = "Comma-separated fields to return, e.g. id,username; only those columns are read")
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        List<String> selected = selectedFields(fields);
+        return listing(ifNoneMatch, accept, () -> {
+            if (selected != null) {
+                return service.findAll(selected, false);
+            }
+            List<User> users = service.findAllActive();
+            if (!BinaryMediaTypes.prefersJson(accept)) {
+                return users.stream().map(this::convertToResponse).toList();
+            }
+            return jsonCache.list(users, this::convertToResponse);
+        }, selected);
+    }
+
+    // Ghi đè phương thức từ BaseController để tránh xung đột mapping
+    @Override
+    @GetMapping("/base/cursor")
+    public ResponseEntity<?> getCursorPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "ID") KeysetCursor.Key orderBy,
+            @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return super.getCursorPage(cursor, size, orderBy, direction, fields, ifNoneMatch, accept);
+    }
+
+    @Operation(summary = "Get users page by cursor",
+            description = "Keyset pagination over active users. Pass the returned nextCursor to fetch the following page")
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Successfully retrieved the page of users"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid cursor")
     })
-    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<List<UserResponse>> getAllUsers() {
-        List<UserResponse> users = service.findAllActive().stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(users);
+    @GetMapping(value = "/cursor", produces = {MediaType.APPLICATION_JSON_VALUE, BinaryMediaTypes.APPLICATION_CBOR_VALUE,
+            BinaryMediaTypes.APPLICATION_SMILE_VALUE, BinaryMediaTypes.APPLICATION_PROTOBUF_VALUE})
+    public ResponseEntity<?> getUsersByCursor(
+            @Parameter(description = "Cursor returned by the previous page") 
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (max " + UserService.MAX_CURSOR_PAGE_SIZE + ")") 
+            @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Seek key: ID or CREATED_AT") 
+            @RequestParam(defaultValue = "ID") KeysetCursor.Key orderBy,
+            @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+            @Parameter(description = "Comma-separated fields to return, e.g. id,username; only those columns are read")
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        List<String> selected = selectedFields(fields);
+        return listing(ifNoneMatch, accept, () -> {
+            if (selected != null) {
+                return service.findActiveByCursor(cursor, size, orderBy, direction, selected);
+            }
+            CursorPage<User> page = service.findActiveByCursor(cursor, size, orderBy, direction);
+            if (!BinaryMediaTypes.prefersJson(accept)) {
+                return page.map(this::convertToResponse);
+            }
+            return jsonCache.page(page, this::convertToResponse);
+        }, cursor, Math.max(1, Math.min(size, UserService.MAX_CURSOR_PAGE_SIZE)), orderBy, direction, selected);
     }
 
     @Override
     @GetMapping("/base/{id}")
-    public ResponseEntity<User> getById(@PathVariable Long id) {
-        return super.getById(id);
+    public ResponseEntity<?> getById(@PathVariable Long id, @RequestParam(required = false) String fields,
+                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return super.getById(id, fields, ifNoneMatch);
     }
 
     @Operation(summary = "Get user by ID", description = "Returns a specific user by their ID")
@@ -66,14 +181,40 @@ public class UserController extends BaseController<User, Long, UserService> {
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Successfully retrieved the user",
                 content = @Content(mediaType = "application/json", 
                 schema = @Schema(implementation = UserResponse.class))),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "304", description = "User unchanged since the ETag in If-None-Match"),
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "User not found")
     })
-    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<UserResponse> getUserById(
+    @GetMapping(value = "/{id}", produces = {MediaType.APPLICATION_JSON_VALUE, BinaryMediaTypes.APPLICATION_CBOR_VALUE,
+            BinaryMediaTypes.APPLICATION_SMILE_VALUE, BinaryMediaTypes.APPLICATION_PROTOBUF_VALUE})
+    public ResponseEntity<?> getUserById(
             @Parameter(description = "ID of the user to retrieve", required = true) 
-            @PathVariable Long id) {
+            @PathVariable Long id,
+            @Parameter(description = "Comma-separated fields to return, e.g. id,username; only those columns are read")
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         User user = service.getByIdActive(id);
-        return ResponseEntity.ok(convertToResponse(user));
+        // JSON dựng sẵn chỉ dùng cho client nhận JSON; định dạng nhị phân đi qua converter
+        boolean json = BinaryMediaTypes.prefersJson(accept);
+        boolean gzip = fields == null && json && jsonCache.isGzipEnabled() && acceptsGzip(acceptEncoding);
+        String etag = gzip ? ETags.forVersion(id, user.getVersion(), ETags.GZIP) : ETags.forVersion(id, user.getVersion());
+        // Cùng URL trả biểu diễn khác nhau theo hai header này, kể cả khi không nén
+        HttpHeaders vary = new HttpHeaders();
+        vary.setVary(List.of(HttpHeaders.ACCEPT_ENCODING, HttpHeaders.ACCEPT));
+        if (fields == null && !json) {
+            return conditional(etag, ifNoneMatch, vary, () -> convertToResponse(user));
+        }
+        if (gzip && !ETags.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.ok()
+                    .headers(vary)
+                    .eTag(etag)
+                    .header(HttpHeaders.CONTENT_ENCODING, ETags.GZIP)
+                    .body(PreSerializedJson.of(jsonCache.gzip(user, this::convertToResponse)));
+        }
+        return conditional(etag, ifNoneMatch, vary, () -> fields != null
+                ? service.toMap(user, service.resolveFields(fields))
+                : PreSerializedJson.of(jsonCache.json(user, this::convertToResponse)));
     }
 
     @Operation(summary = "Get user by username", description = "Returns a specific user by their username")
@@ -82,11 +223,13 @@ public class UserController extends BaseController<User, Long, UserService> {
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "User not found")
     })
     @GetMapping("/username/{username}")
-    public ResponseEntity<UserResponse> getUserByUsername(
+    public ResponseEntity<?> getUserByUsername(
             @Parameter(description = "Username of the user to retrieve", required = true) 
-            @PathVariable String username) {
+            @PathVariable String username,
+            @Parameter(description = "Comma-separated fields to return, e.g. id,username; only those columns are read")
+            @RequestParam(required = false) String fields) {
         User user = service.findByUsername(username);
-        return ResponseEntity.ok(convertToResponse(user));
+        return ResponseEntity.ok(toResponse(user, fields));
     }
 
     @Operation(summary = "Get user by email", description = "Returns a specific user by their email address")
@@ -95,13 +238,59 @@ public class UserController extends BaseController<User, Long, UserService> {
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "User not found")
     })
     @GetMapping("/email/{email}")
-    public ResponseEntity<UserResponse> getUserByEmail(
+    public ResponseEntity<?> getUserByEmail(
             @Parameter(description = "Email of the user to retrieve", required = true) 
-            @PathVariable String email) {
+            @PathVariable String email,
+            @Parameter(description = "Comma-separated fields to return, e.g. id,username; only those columns are read")
+            @RequestParam(required = false) String fields) {
         User user = service.findByEmail(email);
-        return ResponseEntity.ok(convertToResponse(user));
+        return ResponseEntity.ok(toResponse(user, fields));
     }
     
+    @Operation(summary = "Check username/email availability",
+            description = "Meant for signup forms; most checks are answered from memory without a database query")
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Availability of the given values"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Neither username nor email given")
+    })
+    @GetMapping(value = "/availability", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<AvailabilityResponse> checkAvailability(
+            @Parameter(description = "Username to check") @RequestParam(required = false) String username,
+            @Parameter(description = "Email to check") @RequestParam(required = false) String email) {
+        if (!StringUtils.hasText(username) && !StringUtils.hasText(email)) {
+            throw new BadRequestException("username or email is required");
+        }
+        AvailabilityResponse response = new AvailabilityResponse();
+        if (StringUtils.hasText(username)) {
+            response.setUsernameAvailable(service.isUsernameAvailable(username));
+        }
+        if (StringUtils.hasText(email)) {
+            response.setEmailAvailable(service.isEmailAvailable(email));
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(summary = "Suggest users by prefix",
+            description = "Autocomplete over active users' username, full name, last name and first name; "
+                    + "case and diacritics are ignored. Answered from an in-memory index")
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Best matches first"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Blank query or invalid limit")
+    })
+    @GetMapping(value = "/suggest", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<UserSuggestionResponse>> suggest(
+            @Parameter(description = "Prefix typed so far") @RequestParam String q,
+            @Parameter(description = "Maximum number of suggestions (default 10, capped at 50)")
+            @RequestParam(required = false) Integer limit) {
+        if (!StringUtils.hasText(q)) {
+            throw new BadRequestException("q must not be blank");
+        }
+        if (limit != null && limit < 1) {
+            throw new BadRequestException("limit must be positive");
+        }
+        return ResponseEntity.ok(service.suggest(q, limit));
+    }
+
     // Ghi đè phương thức từ BaseController để tránh xung đột mapping
     @Override
     @PostMapping("/base")
@@ -112,35 +301,109 @@ public class UserController extends BaseController<User, Long, UserService> {
     @Operation(summary = "Create a new user", description = "Creates a new user in the system")
     @ApiResponses(value = {
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "201", description = "User successfully created"),
-        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid input or username/email already exists")
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid input"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "409", description = "Username or email already exists, see the field property"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "503", description = "Password hashing queue is full, retry later")
     })
-    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<UserResponse> createUser(
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = {MediaType.APPLICATION_JSON_VALUE, BinaryMediaTypes.APPLICATION_CBOR_VALUE,
+            BinaryMediaTypes.APPLICATION_SMILE_VALUE, BinaryMediaTypes.APPLICATION_PROTOBUF_VALUE})
+    public CompletableFuture<ResponseEntity<UserResponse>> createUser(
             @io.swagger.v3.oas.annotations.parameters.RequestBody(
                 description = "User details for registration", 
                 required = true,
                 content = @Content(schema = @Schema(implementation = CreateUserRequest.class)))
             @Valid @RequestBody CreateUserRequest createUserRequest) {
-        
-        // Check if username is available
-        if (!service.isUsernameAvailable(createUserRequest.getUsername())) {
-            return ResponseEntity.badRequest().build();
+
+        // Băm mật khẩu trên pool riêng, sau đó mới lưu. Không kiểm tra trước username/email:
+        // ràng buộc UNIQUE bắt trùng lặp (kể cả hai request đồng thời) và trả về 409
+        User user = convertToEntity(createUserRequest);
+        return passwordHashingService.encodeAsync(createUserRequest.getPassword())
+                .thenApplyAsync(encodedPassword -> {
+                    user.setPassword(encodedPassword);
+                    User savedUser = service.saveEncoded(user);
+                    return new ResponseEntity<>(convertToResponse(savedUser), HttpStatus.CREATED);
+                }, writeExecutor);
+    }
+
+    @Operation(summary = "Create users in batch",
+            description = "Creates up to " + MAX_BATCH_SIZE + " users at once and reports CREATED, CONFLICT or INVALID per item. "
+                    + "With sharding, each shard's users are committed separately")
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Batch processed, see per-item results"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Batch is empty or too large"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "503", description = "Password hashing queue is full, retry later")
+    })
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<ResponseEntity<BatchResponse>> createUsersBatch(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                description = "Users to register", 
+                required = true,
+                content = @Content(array = @ArraySchema(schema = @Schema(implementation = CreateUserRequest.class))))
+            @RequestBody List<CreateUserRequest> requests) {
+        if (requests.isEmpty() || requests.size() > MAX_BATCH_SIZE) {
+            throw new BadRequestException("Batch size must be between 1 and " + MAX_BATCH_SIZE);
         }
-        
-        // Check if email is available
-        if (!service.isEmailAvailable(createUserRequest.getEmail())) {
-            return ResponseEntity.badRequest().build();
+
+        BatchItemResult[] results = new BatchItemResult[requests.size()];
+
+        // 1. Validate từng phần tử; phần tử lỗi không làm hỏng cả batch
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            Set<ConstraintViolation<CreateUserRequest>> violations = validator.validate(requests.get(i));
+            if (violations.isEmpty()) {
+                candidates.add(i);
+            } else {
+                ConstraintViolation<CreateUserRequest> violation = violations.iterator().next();
+                results[i] = BatchItemResult.invalid(i, violation.getPropertyPath() + ": " + violation.getMessage());
+            }
         }
-        
-        User user = convertToEntity(createUserRequest);
-        User savedUser = service.save(user);
-        return new ResponseEntity<>(convertToResponse(savedUser), HttpStatus.CREATED);
+
+        // 2. Kiểm tra trùng lặp: một truy vấn cho cả batch, cộng với trùng lặp ngay trong batch
+        Set<String> takenUsernames = service.findTakenUsernames(
+                candidates.stream().map(i -> requests.get(i).getUsername()).toList());
+        Set<String> takenEmails = service.findTakenEmails(
+                candidates.stream().map(i -> requests.get(i).getEmail()).toList());
+        Set<String> batchUsernames = new HashSet<>();
+        Set<String> batchEmails = new HashSet<>();
+        List<Integer> accepted = new ArrayList<>();
+        for (int i : candidates) {
+            CreateUserRequest request = requests.get(i);
+            if (takenUsernames.contains(request.getUsername()) || !batchUsernames.add(request.getUsername())) {
+                results[i] = BatchItemResult.conflict(i, "username already exists");
+            } else if (takenEmails.contains(request.getEmail()) || !batchEmails.add(request.getEmail())) {
+                results[i] = BatchItemResult.conflict(i, "email already exists");
+            } else {
+                accepted.add(i);
+            }
+        }
+
+        // 3. Băm mật khẩu song song trên pool riêng, 4. insert theo JDBC batch
+        List<String> rawPasswords = accepted.stream().map(i -> requests.get(i).getPassword()).toList();
+        return passwordHashingService.encodeAllAsync(rawPasswords)
+                .thenApplyAsync(encodedPasswords -> {
+                    List<User> users = new ArrayList<>(accepted.size());
+                    for (int k = 0; k < accepted.size(); k++) {
+                        User user = convertToEntity(requests.get(accepted.get(k)));
+                        user.setPassword(encodedPasswords.get(k));
+                        users.add(user);
+                    }
+                    List<User> saved = service.saveAllEncoded(users);
+                    for (int k = 0; k < accepted.size(); k++) {
+                        int index = accepted.get(k);
+                        results[index] = BatchItemResult.created(index, saved.get(k).getId());
+                    }
+                    return ResponseEntity.ok(new BatchResponse(Arrays.asList(results)));
+                }, writeExecutor);
     }
 
     // Ghi đè phương thức từ BaseController để tránh xung đột mapping
     @Override
     @PutMapping("/base/{id}")
     public ResponseEntity<User> update(@PathVariable Long id, @RequestBody User entity) {
+        // Băm trước khi vào service: không giữ connection DB trong lúc băm
+        if (StringUtils.hasLength(entity.getPassword())) {
+            entity.setPassword(passwordHashingService.encode(entity.getPassword()));
+        }
         return super.update(id, entity);
     }
 
@@ -148,23 +411,80 @@ public class UserController extends BaseController<User, Long, UserService> {
     @ApiResponses(value = {
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "User successfully updated"),
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid input"),
-        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "User not found")
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "User not found"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "409", description = "Email already exists"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "412", description = "User changed since the ETag in If-Match"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "503", description = "Password hashing queue is full, retry later")
     })
-    @PutMapping(value = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<UserResponse> updateUser(
+    @PutMapping(value = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE, produces = {MediaType.APPLICATION_JSON_VALUE, BinaryMediaTypes.APPLICATION_CBOR_VALUE,
+            BinaryMediaTypes.APPLICATION_SMILE_VALUE, BinaryMediaTypes.APPLICATION_PROTOBUF_VALUE})
+    public CompletableFuture<ResponseEntity<UserResponse>> updateUser(
             @Parameter(description = "ID of the user to update", required = true) 
             @PathVariable Long id, 
             @io.swagger.v3.oas.annotations.parameters.RequestBody(
                 description = "Updated user information", 
                 required = true,
                 content = @Content(schema = @Schema(implementation = UpdateUserRequest.class)))
-            @Valid @RequestBody UpdateUserRequest updateUserRequest) {
-        
-        User existingUser = service.getById(id);
-        User userToUpdate = updateEntity(existingUser, updateUserRequest);
-        User updatedUser = service.update(id, userToUpdate);
-        
-        return ResponseEntity.ok(convertToResponse(updatedUser));
+            @Valid @RequestBody UpdateUserRequest updateUserRequest,
+            @Parameter(description = "ETag of the version being modified; without it the last write wins")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        // Trường bỏ trống giữ nguyên giá trị: PUT đi qua cùng câu UPDATE duy nhất với PATCH, không đọc trước
+        Long expectedVersion = ETags.expectedVersion(ifMatch, id);
+        return applyChanges(id, toChanges(updateUserRequest), expectedVersion);
+    }
+
+    @Operation(summary = "Partially update a user",
+            description = "JSON merge patch: only the fields present are written, in one UPDATE statement. "
+                    + "The ETag from a previous read must be sent in If-Match; concurrent changes are rejected with 412")
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "User updated; the new ETag is returned"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid or unknown field"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "User not found"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "409", description = "Email already exists"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "412", description = "User changed since the ETag in If-Match"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "428", description = "If-Match is missing"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "503", description = "Password hashing queue is full, retry later")
+    })
+    @PatchMapping(value = "/{id}", consumes = {MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, BinaryMediaTypes.APPLICATION_CBOR_VALUE,
+            BinaryMediaTypes.APPLICATION_SMILE_VALUE, BinaryMediaTypes.APPLICATION_PROTOBUF_VALUE})
+    public CompletableFuture<ResponseEntity<UserResponse>> patchUser(
+            @Parameter(description = "ID of the user to update", required = true)
+            @PathVariable Long id,
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                description = "Fields to change; null clears an optional field",
+                required = true,
+                content = @Content(schema = @Schema(implementation = UpdateUserRequest.class)))
+            @RequestBody Map<String, Object> patch,
+            @Parameter(description = "ETag of the version being modified", required = true)
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (!StringUtils.hasText(ifMatch)) {
+            throw new PreconditionRequiredException("If-Match is required, send the ETag of the user being modified");
+        }
+        Long expectedVersion = ETags.expectedVersion(ifMatch, id);
+        return applyChanges(id, toChanges(patch), expectedVersion);
+    }
+
+    /**
+     * Writes {@code changes} with {@link UserService#patch}, hashing a new password on the
+     * hashing pool first, and answers with the new ETag.
+     */
+    private CompletableFuture<ResponseEntity<UserResponse>> applyChanges(Long id, Map<String, Object> changes,
+                                                                        Long expectedVersion) {
+        // Chỉ đi qua pool băm mật khẩu khi request có đổi mật khẩu
+        CompletableFuture<String> encodedPassword = changes.get("password") instanceof String password
+                ? passwordHashingService.encodeAsync(password)
+                : CompletableFuture.completedFuture(null);
+
+        return encodedPassword.thenApplyAsync(encoded -> {
+            if (encoded != null) {
+                changes.put("password", encoded);
+            }
+            User updated = service.patch(id, changes, expectedVersion);
+            return ResponseEntity.ok()
+                    .eTag(ETags.forVersion(id, updated.getVersion()))
+                    .body(convertToResponse(updated));
+        }, writeExecutor);
     }
 
     @Operation(summary = "Delete a user", description = "Soft deletes a user by marking them as inactive")
@@ -180,7 +500,55 @@ public class UserController extends BaseController<User, Long, UserService> {
         return super.delete(id);
     }
 
+    @Operation(summary = "Deactivate matching users",
+            description = "Soft deletes every active user matching the criteria in a single statement. "
+                    + "With sharding, one statement per shard: not atomic across shards")
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Users deactivated"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "No criteria given")
+    })
+    @PostMapping("/bulk/deactivate-matching")
+    public ResponseEntity<ApiResponse> deactivateMatching(
+            @Parameter(description = "Only users created before this time")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdBefore,
+            @Parameter(description = "Only users with an email in this domain, e.g. legacy.example.com")
+            @RequestParam(required = false) String emailDomain) {
+        int affected = service.softDeleteMatching(createdBefore, emailDomain);
+        return ResponseEntity.ok(new ApiResponse(true, affected + " users deactivated successfully"));
+    }
+
     // Helper methods
+
+    /**
+     * Validates a merge patch through {@link UpdateUserRequest} and keeps only the fields present,
+     * converted to their Java types.
+     */
+    private Map<String, Object> toChanges(Map<String, Object> patch) {
+        UpdateUserRequest request;
+        try {
+            request = objectMapper.convertValue(patch, UpdateUserRequest.class);
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException("Invalid patch: " + ex.getMessage());
+        }
+        Set<ConstraintViolation<UpdateUserRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            ConstraintViolation<UpdateUserRequest> violation = violations.iterator().next();
+            throw new BadRequestException(violation.getPropertyPath() + ": " + violation.getMessage());
+        }
+        BeanWrapper values = new BeanWrapperImpl(request);
+        Map<String, Object> changes = new LinkedHashMap<>();
+        for (String field : patch.keySet()) {
+            if (!values.isReadableProperty(field)) {
+                throw new BadRequestException("Unknown field '" + field + "'");
+            }
+            Object value = values.getPropertyValue(field);
+            if (value == null && REQUIRED_PATCH_FIELDS.contains(field)) {
+                throw new BadRequestException(field + " cannot be cleared");
+            }
+            changes.put(field, value);
+        }
+        return changes;
+    }
     private User convertToEntity(CreateUserRequest request) {
         User user = new User();
         user.setUsername(request.getUsername());
@@ -193,29 +561,53 @@ public class UserController extends BaseController<User, Long, UserService> {
         return user;
     }
     
-    private User updateEntity(User user, UpdateUserRequest request) {
+    /**
+     * Fields of a PUT body that replace the stored values; fields left out are kept.
+     */
+    private static Map<String, Object> toChanges(UpdateUserRequest request) {
+        Map<String, Object> changes = new LinkedHashMap<>();
         if (request.getEmail() != null) {
-            user.setEmail(request.getEmail());
+            changes.put("email", request.getEmail());
         }
         if (request.getFirstName() != null) {
-            user.setFirstName(request.getFirstName());
+            changes.put("firstName", request.getFirstName());
         }
         if (request.getLastName() != null) {
-            user.setLastName(request.getLastName());
+            changes.put("lastName", request.getLastName());
         }
         if (request.getPhoneNumber() != null) {
-            user.setPhoneNumber(request.getPhoneNumber());
+            changes.put("phoneNumber", request.getPhoneNumber());
         }
         if (request.getBirthDate() != null) {
-            user.setBirthDate(request.getBirthDate());
+            changes.put("birthDate", request.getBirthDate());
         }
         if (request.getPassword() != null && !request.getPassword().isEmpty()) {
-            user.setPassword(request.getPassword());
+            changes.put("password", request.getPassword());
         }
-        return user;
+        return changes;
     }
     
-    private UserResponse convertToResponse(User user) {
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                // "gzip;q=0" nghĩa là client từ chối gzip
+                return parts.length < 2 || !parts[1].trim().matches("q\\s*=\\s*0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    // Có fields: chỉ trả các trường được yêu cầu (entity lấy từ cache, không có password)
+    private Object toResponse(User user, String fields) {
+        return fields != null ? service.toMap(user, service.resolveFields(fields)) : convertToResponse(user);
+    }
+
+    @Override
+    protected UserResponse convertToResponse(User user) {
         UserResponse response = new UserResponse();
         response.setId(user.getId());
         response.setUsername(user.getUsername());
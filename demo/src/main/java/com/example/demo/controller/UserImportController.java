@@ -0,0 +1,92 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.response.UserImportJobResponse;
+import com.example.demo.entity.UserImportJob;
+import com.example.demo.service.UserImportService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/users/import")
+@Tag(name = "User Import", description = "Bulk import of users from CSV or NDJSON")
+public class UserImportController {
+
+    private final UserImportService userImportService;
+
+    public UserImportController(UserImportService userImportService) {
+        this.userImportService = userImportService;
+    }
+
+    @Operation(summary = "Import users from an uploaded file",
+            description = "The request body is the raw CSV (with header) or NDJSON content; the import runs in the background. "
+                    + "Not available with sharding")
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "202", description = "Import job queued"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Sharding is enabled")
+    })
+    @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<UserImportJobResponse> importUpload(
+            @Parameter(description = "Input format") @RequestParam UserImportJob.Format format,
+            HttpServletRequest request) throws IOException {
+        // Đọc thẳng từ stream của request, không giữ toàn bộ file trong bộ nhớ
+        UserImportJob job = userImportService.importUpload(request.getInputStream(), format);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(convertToResponse(job));
+    }
+
+    @Operation(summary = "Import users from a file on the server",
+            description = "The path is relative to the configured import directory. Not available with sharding")
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "202", description = "Import job queued"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "File not found or outside the import directory, or sharding is enabled")
+    })
+    @PostMapping(value = "/file", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<UserImportJobResponse> importFile(
+            @Parameter(description = "Path of the file to import") @RequestParam String path,
+            @Parameter(description = "Input format") @RequestParam UserImportJob.Format format) {
+        UserImportJob job = userImportService.importFile(path, format);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(convertToResponse(job));
+    }
+
+    @Operation(summary = "Get import progress", description = "Counters, throughput and a sample of rejected records")
+    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<UserImportJobResponse> getJob(@PathVariable Long id) {
+        return ResponseEntity.ok(convertToResponse(userImportService.getJob(id)));
+    }
+
+    @Operation(summary = "Resume a failed import",
+            description = "Continues after the last committed chunk. Not available with sharding")
+    @PostMapping(value = "/{id}/resume", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<UserImportJobResponse> resume(@PathVariable Long id) {
+        UserImportJob job = userImportService.resume(id);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(convertToResponse(job));
+    }
+
+    private UserImportJobResponse convertToResponse(UserImportJob job) {
+        UserImportJobResponse response = new UserImportJobResponse();
+        response.setId(job.getId());
+        response.setFormat(job.getFormat().name());
+        response.setStatus(job.getStatus().name());
+        response.setRecordsCommitted(job.getRecordsCommitted());
+        response.setImported(job.getImported());
+        response.setConflicts(job.getConflicts());
+        response.setInvalid(job.getInvalid());
+        response.setRowsPerSecond(Math.round(userImportService.throughput(job) * 10) / 10.0);
+        response.setStartedAt(job.getStartedAt());
+        response.setFinishedAt(job.getFinishedAt());
+        response.setErrorMessage(job.getErrorMessage());
+        response.setReport(job.getReport() == null ? List.of() : job.getReport().lines().toList());
+        return response;
+    }
+}
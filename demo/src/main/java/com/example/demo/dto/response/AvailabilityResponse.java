@@ -0,0 +1,27 @@
+package com.example.demo.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AvailabilityResponse {
+
+    private Boolean usernameAvailable;
+    private Boolean emailAvailable;
+
+    // Getters and Setters
+    public Boolean getUsernameAvailable() {
+        return usernameAvailable;
+    }
+
+    public void setUsernameAvailable(Boolean usernameAvailable) {
+        this.usernameAvailable = usernameAvailable;
+    }
+
+    public Boolean getEmailAvailable() {
+        return emailAvailable;
+    }
+
+    public void setEmailAvailable(Boolean emailAvailable) {
+        this.emailAvailable = emailAvailable;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.demo.dto.response;
+
+import java.util.List;
+import java.util.Map;
+
+public class ShardStatusResponse {
+
+    private boolean enabled;
+    private int buckets;
+    private Map<String, Integer> bucketsPerShard;
+    private List<Integer> movingBuckets;
+    private String currentMove;
+    private int queuedMoves;
+    private long movedBuckets;
+    private long movedRows;
+    private String lastError;
+
+    // Getters and Setters
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+
+    public void setBuckets(int buckets) {
+        this.buckets = buckets;
+    }
+
+    public Map<String, Integer> getBucketsPerShard() {
+        return bucketsPerShard;
+    }
+
+    public void setBucketsPerShard(Map<String, Integer> bucketsPerShard) {
+        this.bucketsPerShard = bucketsPerShard;
+    }
+
+    public List<Integer> getMovingBuckets() {
+        return movingBuckets;
+    }
+
+    public void setMovingBuckets(List<Integer> movingBuckets) {
+        this.movingBuckets = movingBuckets;
+    }
+
+    public String getCurrentMove() {
+        return currentMove;
+    }
+
+    public void setCurrentMove(String currentMove) {
+        this.currentMove = currentMove;
+    }
+
+    public int getQueuedMoves() {
+        return queuedMoves;
+    }
+
+    public void setQueuedMoves(int queuedMoves) {
+        this.queuedMoves = queuedMoves;
+    }
+
+    public long getMovedBuckets() {
+        return movedBuckets;
+    }
+
+    public void setMovedBuckets(long movedBuckets) {
+        this.movedBuckets = movedBuckets;
+    }
+
+    public long getMovedRows() {
+        return movedRows;
+    }
+
+    public void setMovedRows(long movedRows) {
+        this.movedRows = movedRows;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.demo.dto.response;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class UserImportJobResponse {
+
+    private Long id;
+    private String format;
+    private String status;
+    private long recordsCommitted;
+    private long imported;
+    private long conflicts;
+    private long invalid;
+    private double rowsPerSecond;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String errorMessage;
+    private List<String> report;
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public long getRecordsCommitted() {
+        return recordsCommitted;
+    }
+
+    public void setRecordsCommitted(long recordsCommitted) {
+        this.recordsCommitted = recordsCommitted;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    public long getConflicts() {
+        return conflicts;
+    }
+
+    public void setConflicts(long conflicts) {
+        this.conflicts = conflicts;
+    }
+
+    public long getInvalid() {
+        return invalid;
+    }
+
+    public void setInvalid(long invalid) {
+        this.invalid = invalid;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(double rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public List<String> getReport() {
+        return report;
+    }
+
+    public void setReport(List<String> report) {
+        this.report = report;
+    }
+}
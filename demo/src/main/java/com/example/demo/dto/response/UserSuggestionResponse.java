@@ -0,0 +1,63 @@
+package com.example.demo.dto.response;
+
+public class UserSuggestionResponse {
+
+    private Long id;
+    private String username;
+    private String firstName;
+    private String lastName;
+    /** Which field matched the query: username, fullName, firstName or lastName. */
+    private String matchedField;
+
+    public UserSuggestionResponse() {
+    }
+
+    public UserSuggestionResponse(Long id, String username, String firstName, String lastName, String matchedField) {
+        this.id = id;
+        this.username = username;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.matchedField = matchedField;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public String getMatchedField() {
+        return matchedField;
+    }
+
+    public void setMatchedField(String matchedField) {
+        this.matchedField = matchedField;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.demo.entity;
+
+import com.example.demo.common.entity.BaseEntity;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A revoked JWT ({@code tokenId} set) or a per-user cutoff ({@code notBefore} set). Rows are
+ * only needed until {@code expiresAt}, after which every token they could match has expired.
+ */
+@Entity
+@Table(name = "token_revocations")
+public class TokenRevocation extends BaseEntity<Long> {
+
+    @Column(name = "username", nullable = false)
+    private String username;
+
+    @Column(name = "token_id")
+    private UUID tokenId;
+
+    @Column(name = "not_before")
+    private Instant notBefore;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    // Getters and Setters
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public UUID getTokenId() {
+        return tokenId;
+    }
+
+    public void setTokenId(UUID tokenId) {
+        this.tokenId = tokenId;
+    }
+
+    public Instant getNotBefore() {
+        return notBefore;
+    }
+
+    public void setNotBefore(Instant notBefore) {
+        this.notBefore = notBefore;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
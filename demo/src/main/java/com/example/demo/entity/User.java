@@ -1,17 +1,21 @@
 package com.example.demo.entity;
 
 import com.example.demo.common.entity.BaseEntity;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDate;
 
 @Entity
 @Table(name = "users")
+// PUT chỉ ghi các cột thực sự thay đổi
+@DynamicUpdate
 public class User extends BaseEntity<Long> {
 
     @NotBlank(message = "Username is required")
@@ -21,6 +25,8 @@ public class User extends BaseEntity<Long> {
 
     @NotBlank(message = "Password is required")
     @Size(min = 6, message = "Password must be at least 6 characters")
+    // Chỉ nhận khi ghi; các đường đọc không SELECT cột này nên giá trị luôn null
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     @Column(name = "password", nullable = false)
     private String password;
 
@@ -0,0 +1,179 @@
+package com.example.demo.entity;
+
+import com.example.demo.common.entity.BaseEntity;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a bulk user import. Counters are updated in the same transaction as the
+ * chunk they describe, so {@code recordsCommitted} is always a safe point to resume from.
+ */
+@Entity
+@Table(name = "user_import_jobs")
+public class UserImportJob extends BaseEntity<Long> {
+
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "format", nullable = false, length = 10)
+    private Format format;
+
+    @Column(name = "source_path", nullable = false, length = 1024)
+    private String sourcePath;
+
+    @Column(name = "delete_source_on_success", nullable = false)
+    private boolean deleteSourceOnSuccess;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private Status status = Status.QUEUED;
+
+    // Số bản ghi (tính từ 1, không kể header) đã được commit - điểm để resume
+    @Column(name = "records_committed", nullable = false)
+    private long recordsCommitted;
+
+    @Column(name = "records_at_start", nullable = false)
+    private long recordsAtStart;
+
+    @Column(name = "imported", nullable = false)
+    private long imported;
+
+    @Column(name = "conflicts", nullable = false)
+    private long conflicts;
+
+    @Column(name = "invalid", nullable = false)
+    private long invalid;
+
+    // Mẫu các dòng bị lỗi/trùng lặp, giới hạn số dòng
+    @Column(name = "report", columnDefinition = "text")
+    private String report;
+
+    @Column(name = "error_message", length = 2000)
+    private String errorMessage;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    // Getters and Setters
+    public Format getFormat() {
+        return format;
+    }
+
+    public void setFormat(Format format) {
+        this.format = format;
+    }
+
+    public String getSourcePath() {
+        return sourcePath;
+    }
+
+    public void setSourcePath(String sourcePath) {
+        this.sourcePath = sourcePath;
+    }
+
+    public boolean isDeleteSourceOnSuccess() {
+        return deleteSourceOnSuccess;
+    }
+
+    public void setDeleteSourceOnSuccess(boolean deleteSourceOnSuccess) {
+        this.deleteSourceOnSuccess = deleteSourceOnSuccess;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public long getRecordsCommitted() {
+        return recordsCommitted;
+    }
+
+    public void setRecordsCommitted(long recordsCommitted) {
+        this.recordsCommitted = recordsCommitted;
+    }
+
+    public long getRecordsAtStart() {
+        return recordsAtStart;
+    }
+
+    public void setRecordsAtStart(long recordsAtStart) {
+        this.recordsAtStart = recordsAtStart;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    public long getConflicts() {
+        return conflicts;
+    }
+
+    public void setConflicts(long conflicts) {
+        this.conflicts = conflicts;
+    }
+
+    public long getInvalid() {
+        return invalid;
+    }
+
+    public void setInvalid(long invalid) {
+        this.invalid = invalid;
+    }
+
+    public String getReport() {
+        return report;
+    }
+
+    public void setReport(String report) {
+        this.report = report;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.demo.repository;
+
+import com.example.demo.common.repository.BaseRepository;
+import com.example.demo.entity.TokenRevocation;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface TokenRevocationRepository extends BaseRepository<TokenRevocation, Long> {
+
+    List<TokenRevocation> findByExpiresAtAfter(Instant now);
+
+    @Modifying
+    @Query("delete from TokenRevocation r where r.expiresAt <= :now")
+    int deleteExpired(@Param("now") Instant now);
+}
@@ -0,0 +1,9 @@
+package com.example.demo.repository;
+
+import com.example.demo.common.repository.BaseRepository;
+import com.example.demo.entity.UserImportJob;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UserImportJobRepository extends BaseRepository<UserImportJob, Long> {
+}
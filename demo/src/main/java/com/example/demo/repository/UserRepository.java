@@ -2,18 +2,69 @@ package com.example.demo.repository;
 
 import com.example.demo.common.repository.BaseRepository;
 import com.example.demo.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends BaseRepository<User, Long> {
     
-    Optional<User> findByUsername(String username);
-    
-    Optional<User> findByEmail(String email);
-    
-    boolean existsByUsername(String username);
-    
-    boolean existsByEmail(String email);
+    Optional<User> findByUsernameAndActiveTrue(String username);
+
+    Optional<User> findByEmailAndActiveTrue(String email);
+
+    /**
+     * Id of the row, active or not, holding {@code username}: the UNIQUE constraint covers
+     * inactive rows too, so a soft-deleted user's name is still taken.
+     */
+    @Query("select u.id from User u where u.username = :username")
+    Optional<Long> findIdByUsername(@Param("username") String username);
+
+    @Query("select u.id from User u where u.email = :email")
+    Optional<Long> findIdByEmail(@Param("email") String email);
+
+    @Query("select u.username from User u where u.id in :ids")
+    List<String> findUsernamesByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select u.username from User u where u.username in :usernames")
+    List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    @Query("select u.email from User u where u.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    /**
+     * Every username and email, active or not, as {@code [username, email]} rows read through
+     * a server-side cursor. Must be consumed inside a read-only transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select u.username, u.email from User u")
+    Stream<Object[]> streamUsernamesAndEmails();
+
+    /**
+     * Active users as {@code [id, username, firstName, lastName]} rows read through a
+     * server-side cursor. Must be consumed inside a read-only transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select u.id, u.username, u.firstName, u.lastName from User u where u.active = true")
+    Stream<Object[]> streamActiveNames();
+
+    /**
+     * {@code [id, username, firstName, lastName]} of the given users that are active.
+     */
+    @Query("select u.id, u.username, u.firstName, u.lastName from User u where u.id in :ids and u.active = true")
+    List<Object[]> findActiveNamesByIds(@Param("ids") Collection<Long> ids);
 }
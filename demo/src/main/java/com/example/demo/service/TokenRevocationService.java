@@ -0,0 +1,181 @@
+package com.example.demo.service;
+
+import com.example.demo.common.cache.EntityCacheManager;
+import com.example.demo.common.cache.invalidation.EntityInvalidation;
+import com.example.demo.common.cache.invalidation.EntityInvalidationResyncEvent;
+import com.example.demo.common.cache.invalidation.PgNotifyInvalidationBus;
+import com.example.demo.common.cache.invalidation.RemoteEntityInvalidationEvent;
+import com.example.demo.common.security.config.JwtConfig;
+import com.example.demo.common.security.dto.VerifiedToken;
+import com.example.demo.common.security.revocation.RevokedTokenIndex;
+import com.example.demo.common.sharding.Shards;
+import com.example.demo.entity.TokenRevocation;
+import com.example.demo.repository.TokenRevocationRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Persists token revocations in {@code token_revocations} and mirrors them into the
+ * {@link RevokedTokenIndex} checked by the JWT filter. Other nodes are told through the
+ * entity invalidation channel and read the new rows back; after the listener reconnects
+ * every unexpired row is reloaded.
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationService.class);
+    private static final String ENTITY_NAME = EntityCacheManager.entityName(TokenRevocation.class);
+
+    private final TokenRevocationRepository tokenRevocationRepository;
+    private final RevokedTokenIndex revokedTokenIndex;
+    private final PgNotifyInvalidationBus invalidationBus;
+    private final Duration tokenLifetime;
+    private final TransactionTemplate transactionTemplate;
+    private final Shards shards;
+
+    public TokenRevocationService(TokenRevocationRepository tokenRevocationRepository,
+                                  RevokedTokenIndex revokedTokenIndex, PgNotifyInvalidationBus invalidationBus,
+                                  JwtConfig jwtConfig, PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry, Shards shards) {
+        this.shards = shards;
+        this.tokenRevocationRepository = tokenRevocationRepository;
+        this.revokedTokenIndex = revokedTokenIndex;
+        this.invalidationBus = invalidationBus;
+        this.tokenLifetime = Duration.ofMillis(jwtConfig.getExpiration());
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        Gauge.builder("auth.token.revocations", revokedTokenIndex, RevokedTokenIndex::revokedTokenCount)
+                .description("Revoked tokens held in memory until they expire")
+                .tag("kind", "token")
+                .register(meterRegistry);
+        Gauge.builder("auth.token.revocations", revokedTokenIndex, RevokedTokenIndex::userCutoffCount)
+                .description("Per-user cutoffs held in memory")
+                .tag("kind", "user")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Loads every unexpired revocation; runs before the application accepts requests.
+     */
+    @PostConstruct
+    public void load() {
+        Instant now = Instant.now();
+        List<TokenRevocation> revocations = transactionTemplate.execute(
+                status -> tokenRevocationRepository.findByExpiresAtAfter(now));
+        revocations.forEach(this::apply);
+        log.info("Loaded {} token revocations", revocations.size());
+    }
+
+    /**
+     * Revokes a single token, e.g. on logout. Tokens without an id can only be revoked
+     * together with every earlier token of the same user.
+     */
+    @Transactional
+    public void revokeToken(VerifiedToken token) {
+        TokenRevocation revocation = new TokenRevocation();
+        revocation.setUsername(token.getUsername());
+        if (token.hasTokenId()) {
+            revocation.setTokenId(token.getTokenId());
+        } else {
+            revocation.setNotBefore(token.getIssuedAt().toInstant());
+        }
+        revocation.setExpiresAt(token.getExpiresAt().toInstant());
+        record(List.of(revocation));
+    }
+
+    /**
+     * Revokes every token issued so far to the given users, e.g. on deactivation or password change.
+     */
+    @Transactional
+    public void revokeUserTokens(Collection<String> usernames) {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        record(usernames.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .map(username -> {
+                    TokenRevocation revocation = new TokenRevocation();
+                    revocation.setUsername(username);
+                    revocation.setNotBefore(now);
+                    revocation.setExpiresAt(now.plus(tokenLifetime));
+                    return revocation;
+                })
+                .toList());
+    }
+
+    @EventListener
+    public void onRemoteInvalidation(RemoteEntityInvalidationEvent event) {
+        EntityInvalidation invalidation = event.invalidation();
+        if (!ENTITY_NAME.equals(invalidation.getEntity())) {
+            return;
+        }
+        if (invalidation.isAll()) {
+            load();
+            return;
+        }
+        List<Long> ids = invalidation.getChanges().stream()
+                .map(EntityInvalidation.Change::getId)
+                .filter(Objects::nonNull)
+                .map(Long::valueOf)
+                .toList();
+        transactionTemplate.execute(status -> tokenRevocationRepository.findAllById(ids))
+                .forEach(this::apply);
+    }
+
+    @EventListener
+    public void onResync(EntityInvalidationResyncEvent event) {
+        load();
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.revocation-purge-interval:PT10M}")
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        revokedTokenIndex.purge(now.getEpochSecond());
+        Integer deleted = transactionTemplate.execute(status -> tokenRevocationRepository.deleteExpired(now));
+        if (deleted != null && deleted > 0) {
+            log.debug("Purged {} expired token revocations", deleted);
+        }
+    }
+
+    // Bảng token_revocations chỉ nằm trên home; với sharding, user có thể đang được ghi trên shard khác
+    private void record(List<TokenRevocation> revocations) {
+        shards.run(Shards.HOME, () -> {
+            List<TokenRevocation> saved = tokenRevocationRepository.saveAll(revocations);
+            saved.forEach(revocation -> invalidationBus.publish(ENTITY_NAME, revocation.getId(), Map.of()));
+            // Chỉ áp dụng vào bộ nhớ khi transaction commit, giống cache entity
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    saved.forEach(TokenRevocationService.this::apply);
+                }
+            });
+        });
+    }
+
+    private void apply(TokenRevocation revocation) {
+        if (revocation.getTokenId() != null) {
+            revokedTokenIndex.revokeToken(revocation.getTokenId(), revocation.getExpiresAt().getEpochSecond());
+        }
+        if (revocation.getNotBefore() != null) {
+            revokedTokenIndex.revokeIssuedBefore(revocation.getUsername(), revocation.getNotBefore().getEpochSecond());
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.demo.service;
+
+import com.example.demo.common.bloom.ScalableBloomFilter;
+import com.example.demo.common.cache.invalidation.EntityInvalidation;
+import com.example.demo.common.cache.invalidation.EntityInvalidationResyncEvent;
+import com.example.demo.common.cache.invalidation.RemoteEntityInvalidationEvent;
+import com.example.demo.common.datasource.DataSourceRouting;
+import com.example.demo.common.sharding.Shards;
+import com.example.demo.config.AvailabilityFilterConfig;
+import com.example.demo.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+
+/**
+ * In-memory Bloom filters over every username and email in {@code users} (active or not,
+ * since the unique constraints cover both). A negative answer means the value is definitely
+ * free and needs no query; a positive answer may be a false positive and must be confirmed
+ * against the database.
+ * <p>
+ * Writers call {@link #recordUser(String, String)} before inserting; inside a transaction the
+ * values are added again after commit so a concurrent rebuild cannot miss them. Values of
+ * permanently deleted users stay in the filter (as false positives) until the next rebuild.
+ */
+@Component
+public class UserAvailabilityIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(UserAvailabilityIndex.class);
+
+    private final UserRepository userRepository;
+    private final Shards shards;
+    private final AvailabilityFilterConfig config;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TaskScheduler taskScheduler;
+    private final Timer rebuildTimer;
+    private final Counter definiteNegatives;
+    private final Counter possiblePositives;
+
+    private final Object lock = new Object();
+    private volatile Filters current;
+    // Bộ lọc đang được dựng lại; các giá trị mới được ghi vào cả hai
+    private Filters next;
+
+    public UserAvailabilityIndex(UserRepository userRepository, Shards shards, AvailabilityFilterConfig config,
+                                 PlatformTransactionManager transactionManager, TaskScheduler taskScheduler,
+                                 MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.shards = shards;
+        this.config = config;
+        this.taskScheduler = taskScheduler;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        this.rebuildTimer = Timer.builder("user.availability.filter.rebuild")
+                .description("Time taken to rebuild the username/email Bloom filters from the database")
+                .register(meterRegistry);
+        this.definiteNegatives = Counter.builder("user.availability.checks")
+                .description("Availability checks by outcome of the Bloom filter")
+                .tag("result", "definitely_available")
+                .register(meterRegistry);
+        this.possiblePositives = Counter.builder("user.availability.checks")
+                .description("Availability checks by outcome of the Bloom filter")
+                .tag("result", "database")
+                .register(meterRegistry);
+        registerFilterGauges(meterRegistry, "username", f -> f.usernames);
+        registerFilterGauges(meterRegistry, "email", f -> f.emails);
+    }
+
+    /**
+     * @return {@code true} only if the username is certainly not taken
+     */
+    public boolean isUsernameDefinitelyAvailable(String username) {
+        return isDefinitelyAvailable(username, current == null ? null : current.usernames);
+    }
+
+    /**
+     * @return {@code true} only if the email is certainly not taken
+     */
+    public boolean isEmailDefinitelyAvailable(String email) {
+        return isDefinitelyAvailable(email, current == null ? null : current.emails);
+    }
+
+    public void recordUser(String username, String email) {
+        recordUsers(Collections.singletonList(username), Collections.singletonList(email));
+    }
+
+    /**
+     * Bulk variant for batch and import writes; registers a single after-commit callback.
+     */
+    public void recordUsers(Collection<String> usernames, Collection<String> emails) {
+        add(usernames, emails);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(usernames, emails);
+                }
+            });
+        }
+    }
+
+    /**
+     * Users written on other nodes: their new usernames and emails arrive with the cache
+     * invalidation of the same commit. A bulk ({@code all}) invalidation carries no values,
+     * so the filters are rebuilt instead.
+     */
+    @EventListener
+    public void onRemoteInvalidation(RemoteEntityInvalidationEvent event) {
+        EntityInvalidation invalidation = event.invalidation();
+        if (!"user".equals(invalidation.getEntity())) {
+            return;
+        }
+        if (invalidation.isAll()) {
+            taskScheduler.schedule(this::rebuild, Instant.now());
+            return;
+        }
+        for (EntityInvalidation.Change change : invalidation.getChanges()) {
+            if (change.getKeys() != null) {
+                add(Collections.singletonList(change.getKeys().get("username")),
+                        Collections.singletonList(change.getKeys().get("email")));
+            }
+        }
+    }
+
+    /**
+     * Values written elsewhere while the invalidation listener was disconnected are unknown:
+     * rebuild in the background.
+     */
+    @EventListener
+    public void onResync(EntityInvalidationResyncEvent event) {
+        taskScheduler.schedule(this::rebuild, Instant.now());
+    }
+
+    /**
+     * Full rebuild with a streaming scan of {@code users}. Runs at startup and then every
+     * {@code app.availability-filter.rebuild-interval}; until the first build completes all
+     * checks go to the database.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.availability-filter.rebuild-interval:PT6H}")
+    public void rebuild() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        Filters rebuilt = newFilters();
+        synchronized (lock) {
+            next = rebuilt;
+        }
+        try {
+            long rows = rebuildTimer.record(() -> DataSourceRouting.onPrimary(() -> shards.names().stream()
+                    .mapToLong(shard -> shards.on(shard, () -> readOnlyTransaction.execute(status -> {
+                        try (Stream<Object[]> users = userRepository.streamUsernamesAndEmails()) {
+                            return users.peek(row -> rebuilt.put((String) row[0], (String) row[1])).count();
+                        }
+                    })))
+                    .sum()));
+            synchronized (lock) {
+                current = rebuilt;
+                next = null;
+            }
+            log.info("Availability filters rebuilt from {} users, expected false-positive rate {}",
+                    rows, String.format("%.3g", rebuilt.usernames.expectedFalsePositiveRate()));
+        } catch (RuntimeException ex) {
+            synchronized (lock) {
+                next = null;
+            }
+            log.error("Rebuilding availability filters failed, keeping the previous filters", ex);
+        }
+    }
+
+    private boolean isDefinitelyAvailable(String value, ScalableBloomFilter filter) {
+        if (filter == null || value == null) {
+            return false;
+        }
+        if (filter.mightContain(value)) {
+            possiblePositives.increment();
+            return false;
+        }
+        definiteNegatives.increment();
+        return true;
+    }
+
+    private void add(Collection<String> usernames, Collection<String> emails) {
+        synchronized (lock) {
+            for (Filters filters : new Filters[] {current, next}) {
+                if (filters != null) {
+                    usernames.forEach(username -> filters.put(username, null));
+                    emails.forEach(email -> filters.put(null, email));
+                }
+            }
+        }
+    }
+
+    private Filters newFilters() {
+        return new Filters(
+                new ScalableBloomFilter(config.getExpectedInsertions(), config.getFalsePositiveRate()),
+                new ScalableBloomFilter(config.getExpectedInsertions(), config.getFalsePositiveRate()));
+    }
+
+    private void registerFilterGauges(MeterRegistry meterRegistry, String field,
+                                      Function<Filters, ScalableBloomFilter> selector) {
+        Gauge.builder("user.availability.filter.size", this, gaugeOf(selector, ScalableBloomFilter::size))
+                .description("Approximate number of values in the Bloom filter")
+                .tag("field", field)
+                .register(meterRegistry);
+        Gauge.builder("user.availability.filter.bits", this, gaugeOf(selector, ScalableBloomFilter::bitSize))
+                .description("Memory used by the Bloom filter, in bits")
+                .tag("field", field)
+                .register(meterRegistry);
+        Gauge.builder("user.availability.filter.false.positive.rate", this,
+                        gaugeOf(selector, ScalableBloomFilter::expectedFalsePositiveRate))
+                .description("Estimated false-positive probability of the Bloom filter")
+                .tag("field", field)
+                .register(meterRegistry);
+    }
+
+    private static ToDoubleFunction<UserAvailabilityIndex> gaugeOf(
+            Function<Filters, ScalableBloomFilter> selector,
+            ToDoubleFunction<ScalableBloomFilter> metric) {
+        return index -> {
+            Filters filters = index.current;
+            return filters == null ? Double.NaN : metric.applyAsDouble(selector.apply(filters));
+        };
+    }
+
+    private static final class Filters {
+        private final ScalableBloomFilter usernames;
+        private final ScalableBloomFilter emails;
+
+        private Filters(ScalableBloomFilter usernames, ScalableBloomFilter emails) {
+            this.usernames = usernames;
+            this.emails = emails;
+        }
+
+        private void put(String username, String email) {
+            if (username != null) {
+                usernames.put(username);
+            }
+            if (email != null) {
+                emails.put(email);
+            }
+        }
+    }
+}
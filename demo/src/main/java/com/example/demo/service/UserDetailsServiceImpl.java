@@ -1,5 +1,8 @@
 package com.example.demo.service;
 
+import com.example.demo.common.cache.EntityCacheManager;
+import com.example.demo.common.sharding.ShardDirectory;
+import com.example.demo.common.sharding.Shards;
 import com.example.demo.entity.User;
 import com.example.demo.repository.UserRepository;
 import org.springframework.security.core.GrantedAuthority;
@@ -12,37 +15,51 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 public class UserDetailsServiceImpl implements UserDetailsService {
 
+    private static final String ENTITY_NAME = EntityCacheManager.entityName(User.class);
+
     private final UserRepository userRepository;
+    private final Shards shards;
+    private final ShardDirectory shardDirectory;
 
-    public UserDetailsServiceImpl(UserRepository userRepository) {
+    public UserDetailsServiceImpl(UserRepository userRepository, Shards shards, ShardDirectory shardDirectory) {
         this.userRepository = userRepository;
+        this.shards = shards;
+        this.shardDirectory = shardDirectory;
     }
 
     @Override
     @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
+        User user = findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
 
         // Tạo danh sách các quyền - có thể mở rộng sau này nếu cần
         List<GrantedAuthority> authorities = new ArrayList<>();
         authorities.add(new SimpleGrantedAuthority("ROLE_USER"));
         
-        // Cần đảm bảo user được active
-        boolean enabled = user.getActive();
-
+        // Chỉ user active được tìm thấy; user đã xóa mềm coi như không tồn tại
         return new org.springframework.security.core.userdetails.User(
                 user.getUsername(),
                 user.getPassword(),
-                enabled,
+                true,              // enabled
                 true,              // account non-expired
                 true,              // credentials non-expired
                 true,              // account non-locked
                 authorities
         );
     }
-}
\ No newline at end of file
+
+    // Với sharding: directory cho biết id, rồi chỉ đọc trên shard chứa user đó
+    private Optional<User> findByUsername(String username) {
+        if (!shards.isEnabled()) {
+            return userRepository.findByUsernameAndActiveTrue(username);
+        }
+        return shardDirectory.find(ENTITY_NAME, "username", username)
+                .flatMap(id -> shards.on(shards.shardOf(id), () -> userRepository.findByUsernameAndActiveTrue(username)));
+    }
+}
@@ -0,0 +1,501 @@
+package com.example.demo.service;
+
+import com.example.demo.common.exception.BadRequestException;
+import com.example.demo.common.exception.ResourceNotFoundException;
+import com.example.demo.common.security.crypto.PasswordHashingService;
+import com.example.demo.common.sharding.Shards;
+import com.example.demo.config.UserImportConfig;
+import com.example.demo.dto.request.CreateUserRequest;
+import com.example.demo.entity.UserImportJob;
+import com.example.demo.repository.UserImportJobRepository;
+import com.example.demo.service.importer.CsvUserImportReader;
+import com.example.demo.service.importer.NdjsonUserImportReader;
+import com.example.demo.service.importer.UserImportReader;
+import com.example.demo.service.importer.UserImportRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.Validator;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Bulk user import for migrations. Input is streamed record by record and processed in
+ * chunks: validate, hash on a fork-join pool, COPY into a temporary staging table, then
+ * merge into {@code users} with {@code ON CONFLICT DO NOTHING}. Each chunk, together with
+ * the job's progress counters, is committed in one transaction, so a failed job can be
+ * resumed from the last committed chunk without duplicating or skipping records.
+ */
+@Service
+public class UserImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserImportService.class);
+
+    private static final int MAX_REPORT_LINES = 200;
+    private static final int MAX_COLUMN_LENGTH = 255;
+
+    private static final String CREATE_STAGING_TABLE = """
+            CREATE TEMP TABLE IF NOT EXISTS user_import_staging (
+                record_number bigint NOT NULL,
+                id bigint NOT NULL,
+                username varchar(255) NOT NULL,
+                password varchar(255) NOT NULL,
+                email varchar(255) NOT NULL,
+                first_name varchar(255),
+                last_name varchar(255),
+                phone_number varchar(255),
+                birth_date date
+            ) ON COMMIT DELETE ROWS""";
+
+    private static final String COPY_STAGING = """
+            COPY user_import_staging (record_number, id, username, password, email,
+                                      first_name, last_name, phone_number, birth_date)
+            FROM STDIN WITH (FORMAT csv)""";
+
+    // Trong cùng một chunk, bản ghi xuất hiện trước được ưu tiên
+    private static final String MERGE_STAGING = """
+            INSERT INTO users (id, username, password, email, first_name, last_name,
+                               phone_number, birth_date, active, created_at)
+            SELECT id, username, password, email, first_name, last_name,
+                   phone_number, birth_date, true, localtimestamp
+            FROM user_import_staging
+            ORDER BY record_number
+            ON CONFLICT DO NOTHING
+            RETURNING id""";
+
+    private static final String FIND_CONFLICTS = """
+            SELECT s.record_number,
+                   CASE WHEN EXISTS (SELECT 1 FROM users u WHERE u.username = s.username)
+                        THEN 'username' ELSE 'email' END AS field
+            FROM user_import_staging s
+            WHERE NOT EXISTS (SELECT 1 FROM users u WHERE u.id = s.id)
+            ORDER BY s.record_number
+            LIMIT ?""";
+
+    private final UserImportJobRepository jobRepository;
+    private final UserImportConfig config;
+    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final DataSource dataSource;
+    private final TransactionTemplate transactionTemplate;
+    private final UserAvailabilityIndex availabilityIndex;
+    private final UserService userService;
+    private final UserSuggestIndex suggestIndex;
+    private final Shards shards;
+
+    private final ExecutorService jobExecutor;
+    private final ForkJoinPool hashingPool;
+    private final Set<Long> runningJobs = ConcurrentHashMap.newKeySet();
+
+    public UserImportService(UserImportJobRepository jobRepository, UserImportConfig config,
+                             PasswordEncoder passwordEncoder, PasswordHashingService passwordHashingService,
+                             Validator validator, ObjectMapper objectMapper, DataSource dataSource,
+                             PlatformTransactionManager transactionManager,
+                             UserAvailabilityIndex availabilityIndex, UserService userService,
+                             UserSuggestIndex suggestIndex, Shards shards) {
+        this.jobRepository = jobRepository;
+        this.config = config;
+        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.dataSource = dataSource;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.availabilityIndex = availabilityIndex;
+        this.userService = userService;
+        this.suggestIndex = suggestIndex;
+        this.shards = shards;
+        // Một job chạy tại một thời điểm, các job khác xếp hàng
+        this.jobExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("user-import-"));
+        this.hashingPool = new ForkJoinPool(config.getHashingParallelism());
+    }
+
+    /**
+     * Spools an uploaded body to the import directory and queues it for import.
+     * Rejected with {@link BadRequestException} while sharding is enabled: the import writes
+     * to one database without routing rows by id.
+     */
+    public UserImportJob importUpload(InputStream body, UserImportJob.Format format) {
+        checkNotSharded();
+        Path file;
+        try {
+            Path directory = importDirectory();
+            Files.createDirectories(directory);
+            file = Files.createTempFile(directory, "upload-", "." + format.name().toLowerCase());
+            Files.copy(body, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not store uploaded import file", ex);
+        }
+        return createJob(file, format, true);
+    }
+
+    /**
+     * Queues a server-side file for import. The path is resolved against, and must stay
+     * inside, the configured import directory.
+     * Rejected with {@link BadRequestException} while sharding is enabled: the import writes
+     * to one database without routing rows by id.
+     */
+    public UserImportJob importFile(String path, UserImportJob.Format format) {
+        checkNotSharded();
+        Path directory = importDirectory();
+        Path file = directory.resolve(path).normalize();
+        if (!file.startsWith(directory)) {
+            throw new BadRequestException("Import files must be located under " + directory);
+        }
+        if (!Files.isRegularFile(file)) {
+            throw new BadRequestException("Import file not found: " + path);
+        }
+        return createJob(file, format, false);
+    }
+
+    /**
+     * Re-queues a failed (or interrupted) job; it continues after the last committed chunk.
+     * Rejected with {@link BadRequestException} while sharding is enabled: the import writes
+     * to one database without routing rows by id.
+     */
+    public UserImportJob resume(Long id) {
+        checkNotSharded();
+        UserImportJob job = getJob(id);
+        if (job.getStatus() == UserImportJob.Status.COMPLETED || runningJobs.contains(id)) {
+            throw new BadRequestException("Import job " + id + " is " + job.getStatus().name().toLowerCase()
+                    + " and cannot be resumed");
+        }
+        job.setStatus(UserImportJob.Status.QUEUED);
+        job.setErrorMessage(null);
+        job = jobRepository.save(job);
+        submit(job.getId());
+        return job;
+    }
+
+    // COPY và INSERT ... SELECT từ bảng tạm ghi thẳng vào một database, không đi qua định tuyến theo id
+    private void checkNotSharded() {
+        if (shards.isEnabled()) {
+            throw new BadRequestException("Bulk import is not available while app.sharding is enabled");
+        }
+    }
+
+    public UserImportJob getJob(Long id) {
+        return jobRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Import job with id " + id + " not found"));
+    }
+
+    /**
+     * Rows committed per second during the current (or last) run of the job.
+     */
+    public double throughput(UserImportJob job) {
+        if (job.getStartedAt() == null) {
+            return 0;
+        }
+        LocalDateTime end = job.getFinishedAt() != null ? job.getFinishedAt() : LocalDateTime.now();
+        long millis = Duration.between(job.getStartedAt(), end).toMillis();
+        long records = job.getRecordsCommitted() - job.getRecordsAtStart();
+        return millis <= 0 ? 0 : records * 1000.0 / millis;
+    }
+
+    private UserImportJob createJob(Path file, UserImportJob.Format format, boolean deleteSourceOnSuccess) {
+        UserImportJob job = new UserImportJob();
+        job.setFormat(format);
+        job.setSourcePath(file.toString());
+        job.setDeleteSourceOnSuccess(deleteSourceOnSuccess);
+        job = jobRepository.save(job);
+        submit(job.getId());
+        return job;
+    }
+
+    private Path importDirectory() {
+        return Paths.get(config.getDirectory()).toAbsolutePath().normalize();
+    }
+
+    private void submit(Long jobId) {
+        runningJobs.add(jobId);
+        jobExecutor.execute(() -> run(jobId));
+    }
+
+    private void run(Long jobId) {
+        UserImportJob job = getJob(jobId);
+        try {
+            job.setStatus(UserImportJob.Status.RUNNING);
+            job.setRecordsAtStart(job.getRecordsCommitted());
+            job.setStartedAt(LocalDateTime.now());
+            job.setFinishedAt(null);
+            job = jobRepository.save(job);
+
+            long resumeAfter = job.getRecordsCommitted();
+            try (UserImportReader reader = openReader(job)) {
+                List<UserImportRecord> chunk = new ArrayList<>(config.getChunkSize());
+                while (reader.hasNext()) {
+                    UserImportRecord record = reader.next();
+                    if (record.getRecordNumber() <= resumeAfter) {
+                        continue;
+                    }
+                    chunk.add(record);
+                    if (chunk.size() >= config.getChunkSize()) {
+                        job = processChunk(job, chunk);
+                        chunk.clear();
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    job = processChunk(job, chunk);
+                }
+            }
+
+            job.setStatus(UserImportJob.Status.COMPLETED);
+            job.setFinishedAt(LocalDateTime.now());
+            job = jobRepository.save(job);
+            log.info("Import job {} completed: {} imported, {} conflicts, {} invalid, {} rows/s",
+                    jobId, job.getImported(), job.getConflicts(), job.getInvalid(), Math.round(throughput(job)));
+            if (job.isDeleteSourceOnSuccess()) {
+                Files.deleteIfExists(Paths.get(job.getSourcePath()));
+            }
+        } catch (Exception ex) {
+            log.error("Import job {} failed after {} records", jobId, job.getRecordsCommitted(), ex);
+            // Đọc lại job: tiến độ chỉ tính theo các chunk đã commit
+            UserImportJob failed = jobRepository.findById(jobId).orElse(job);
+            failed.setStatus(UserImportJob.Status.FAILED);
+            failed.setErrorMessage(truncate(String.valueOf(ex.getMessage()), 2000));
+            failed.setFinishedAt(LocalDateTime.now());
+            jobRepository.save(failed);
+        } finally {
+            runningJobs.remove(jobId);
+        }
+    }
+
+    private UserImportReader openReader(UserImportJob job) throws IOException {
+        BufferedReader reader = Files.newBufferedReader(Paths.get(job.getSourcePath()), StandardCharsets.UTF_8);
+        try {
+            return switch (job.getFormat()) {
+                case CSV -> new CsvUserImportReader(reader);
+                case NDJSON -> new NdjsonUserImportReader(reader, objectMapper.reader());
+            };
+        } catch (RuntimeException ex) {
+            reader.close();
+            throw ex;
+        }
+    }
+
+    private UserImportJob processChunk(UserImportJob job, List<UserImportRecord> chunk) {
+        List<String> report = new ArrayList<>();
+        List<UserImportRecord> valid = new ArrayList<>(chunk.size());
+        for (UserImportRecord record : chunk) {
+            String error = validate(record);
+            if (error == null) {
+                valid.add(record);
+            } else {
+                report.add("record " + record.getRecordNumber() + ": invalid - " + error);
+            }
+        }
+        long invalid = chunk.size() - valid.size();
+
+        // BCrypt là phần tốn CPU nhất, chạy song song ngoài transaction
+        hashingPool.submit(() -> valid.parallelStream().forEach(record -> record.setEncodedPassword(
+                record.getPasswordHash() != null
+                        ? record.getPasswordHash()
+                        : passwordEncoder.encode(record.getPassword())))).join();
+
+        long lastRecord = chunk.get(chunk.size() - 1).getRecordNumber();
+        Long jobId = job.getId();
+        UserImportJob updated = transactionTemplate.execute(status -> {
+            List<String> conflicts = new ArrayList<>();
+            List<String> usernames = valid.stream().map(UserImportRecord::getUsername).toList();
+            List<String> emails = valid.stream().map(UserImportRecord::getEmail).toList();
+            availabilityIndex.recordUsers(usernames, emails);
+            // Xóa các kết quả "không tìm thấy" đã cache cho những người dùng mới
+            userService.evictNaturalKeys("username", usernames);
+            userService.evictNaturalKeys("email", emails);
+            int imported = valid.isEmpty() ? 0 : copyAndMerge(valid, conflicts);
+            report.addAll(conflicts);
+            report.sort(Comparator.comparingLong(UserImportService::reportRecordNumber));
+
+            UserImportJob current = getJob(jobId);
+            current.setImported(current.getImported() + imported);
+            current.setConflicts(current.getConflicts() + valid.size() - imported);
+            current.setInvalid(current.getInvalid() + invalid);
+            current.setRecordsCommitted(lastRecord);
+            current.setReport(appendReport(current.getReport(), report));
+            return jobRepository.save(current);
+        });
+        log.info("Import job {}: {} records committed ({} rows/s)",
+                jobId, updated.getRecordsCommitted(), Math.round(throughput(updated)));
+        return updated;
+    }
+
+    /**
+     * Returns the first constraint violation of the record, or null if it can be imported.
+     */
+    private String validate(UserImportRecord record) {
+        if (record.getError() != null) {
+            return record.getError();
+        }
+        String password = record.getPassword();
+        if (record.getPasswordHash() != null) {
+            if (!passwordHashingService.isEncoded(record.getPasswordHash())) {
+                return "password_hash is not a bcrypt hash";
+            }
+            // Hash đã có sẵn, chỉ cần thỏa mãn ràng buộc của password
+            password = record.getPasswordHash();
+        }
+
+        // Các cột varchar(255) không có @Size trên CreateUserRequest
+        String tooLong = firstTooLong(record);
+        if (tooLong != null) {
+            return tooLong + ": must be at most " + MAX_COLUMN_LENGTH + " characters";
+        }
+
+        CreateUserRequest request = new CreateUserRequest();
+        request.setUsername(record.getUsername());
+        request.setPassword(password);
+        request.setEmail(record.getEmail());
+        request.setFirstName(record.getFirstName());
+        request.setLastName(record.getLastName());
+        request.setPhoneNumber(record.getPhoneNumber());
+        request.setBirthDate(record.getBirthDate());
+        return validator.validate(request).stream()
+                .min(Comparator.comparing(violation -> violation.getPropertyPath().toString()))
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .orElse(null);
+    }
+
+    private static String firstTooLong(UserImportRecord record) {
+        if (isTooLong(record.getEmail())) {
+            return "email";
+        }
+        if (isTooLong(record.getFirstName())) {
+            return "firstName";
+        }
+        if (isTooLong(record.getLastName())) {
+            return "lastName";
+        }
+        if (isTooLong(record.getPhoneNumber())) {
+            return "phoneNumber";
+        }
+        return null;
+    }
+
+    private static boolean isTooLong(String value) {
+        return value != null && value.length() > MAX_COLUMN_LENGTH;
+    }
+
+    /**
+     * Runs inside the chunk transaction, on the connection bound to it.
+     *
+     * @return the number of rows inserted into {@code users}
+     */
+    private int copyAndMerge(List<UserImportRecord> records, List<String> conflicts) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_STAGING_TABLE);
+            }
+
+            List<Long> ids = userService.allocateIds(records.size());
+            StringBuilder csv = new StringBuilder(records.size() * 160);
+            for (int i = 0; i < records.size(); i++) {
+                UserImportRecord record = records.get(i);
+                csv.append(record.getRecordNumber()).append(',').append(ids.get(i));
+                appendCsv(csv, record.getUsername());
+                appendCsv(csv, record.getEncodedPassword());
+                appendCsv(csv, record.getEmail());
+                appendCsv(csv, record.getFirstName());
+                appendCsv(csv, record.getLastName());
+                appendCsv(csv, record.getPhoneNumber());
+                appendCsv(csv, record.getBirthDate() != null ? record.getBirthDate().toString() : null);
+                csv.append('\n');
+            }
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            copyManager.copyIn(COPY_STAGING, new StringReader(csv.toString()));
+
+            // Chỉ các id thực sự được chèn; bản ghi xung đột bị bỏ qua
+            List<Long> inserted = new ArrayList<>(records.size());
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(MERGE_STAGING)) {
+                while (rs.next()) {
+                    inserted.add(rs.getLong(1));
+                }
+            }
+            suggestIndex.refreshUsers(inserted);
+            int imported = inserted.size();
+
+            if (imported < records.size()) {
+                try (PreparedStatement statement = connection.prepareStatement(FIND_CONFLICTS)) {
+                    statement.setInt(1, MAX_REPORT_LINES);
+                    try (ResultSet rs = statement.executeQuery()) {
+                        while (rs.next()) {
+                            conflicts.add("record " + rs.getLong(1) + ": conflict - "
+                                    + rs.getString(2) + " already exists");
+                        }
+                    }
+                }
+            }
+            return imported;
+        } catch (SQLException | IOException ex) {
+            throw new IllegalStateException("COPY into staging table failed: " + ex.getMessage(), ex);
+        }
+    }
+
+    private static void appendCsv(StringBuilder csv, String value) {
+        csv.append(',');
+        if (value != null) {
+            // Giá trị rỗng không có dấu ngoặc kép được COPY hiểu là NULL
+            csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+        }
+    }
+
+    private static String appendReport(String existing, List<String> lines) {
+        int existingLines = existing == null || existing.isEmpty() ? 0 : (int) existing.lines().count();
+        int room = MAX_REPORT_LINES - existingLines;
+        if (room <= 0 || lines.isEmpty()) {
+            return existing;
+        }
+        String added = String.join("\n", lines.subList(0, Math.min(room, lines.size())));
+        return existingLines == 0 ? added : existing + "\n" + added;
+    }
+
+    private static long reportRecordNumber(String line) {
+        return Long.parseLong(line.substring("record ".length(), line.indexOf(':')));
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value.length() <= maxLength ? value : value.substring(0, maxLength);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+        hashingPool.shutdown();
+    }
+}
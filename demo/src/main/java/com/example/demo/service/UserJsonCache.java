@@ -0,0 +1,205 @@
+package com.example.demo.service;
+
+import com.example.demo.common.cache.invalidation.EntityInvalidation;
+import com.example.demo.common.cache.invalidation.EntityInvalidationResyncEvent;
+import com.example.demo.common.cache.invalidation.RemoteEntityInvalidationEvent;
+import com.example.demo.common.dto.CursorPage;
+import com.example.demo.common.json.PreSerializedJson;
+import com.example.demo.config.UserJsonCacheConfig;
+import com.example.demo.entity.User;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialized JSON of each user's response, kept as bytes so list endpoints can write cached
+ * fragments instead of running Jackson per user.
+ * <p>
+ * Entries are keyed by id and stamped with the user's version and {@code updatedAt}; a
+ * lookup with a different stamp serializes again and replaces the entry, so a stale
+ * fragment is never served. Deletions and bulk changes evict explicitly, locally after
+ * commit and on other nodes through the invalidation bus. The cache is bounded by
+ * {@code app.user-json-cache.max-size} in bytes.
+ */
+@Component
+public class UserJsonCache {
+
+    /** Rough per-entry overhead (key, entry, array headers), counted against the byte budget. */
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final UserJsonCacheConfig config;
+    private final ObjectMapper objectMapper;
+    private final Cache<Long, Fragment> fragments;
+
+    public UserJsonCache(UserJsonCacheConfig config, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.objectMapper = objectMapper;
+        this.fragments = Caffeine.newBuilder()
+                .maximumWeight(config.isEnabled() ? config.getMaxSize().toBytes() : 0)
+                .weigher((Long id, Fragment fragment) -> fragment.weight())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, fragments, "user.json");
+        Gauge.builder("user.json.cache.bytes", fragments,
+                        cache -> cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L))
+                .description("Bytes held by the serialized user JSON cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public boolean isGzipEnabled() {
+        return config.isEnabled() && config.isGzip();
+    }
+
+    /**
+     * JSON of {@code toResponse(user)}, from the cache when the user has not changed since.
+     */
+    public byte[] json(User user, Function<User, ?> toResponse) {
+        if (!config.isEnabled()) {
+            return serialize(toResponse.apply(user));
+        }
+        return fragment(user, toResponse).json();
+    }
+
+    /**
+     * JSON array of the users' responses, assembled from cached fragments.
+     */
+    public PreSerializedJson list(Collection<User> users, Function<User, ?> toResponse) {
+        return PreSerializedJson.array(users.stream().map(user -> json(user, toResponse)).toList());
+    }
+
+    /**
+     * Same JSON as a serialized {@code CursorPage} of responses, with the content assembled
+     * from cached fragments.
+     */
+    public PreSerializedJson page(CursorPage<User> page, Function<User, ?> toResponse) {
+        Map<String, Object> rest = new LinkedHashMap<>();
+        rest.put("nextCursor", page.getNextCursor());
+        rest.put("hasNext", page.isHasNext());
+        rest.put("size", page.getSize());
+        List<byte[]> content = page.getContent().stream().map(user -> json(user, toResponse)).toList();
+        return PreSerializedJson.object("content", content, serialize(rest));
+    }
+
+    /**
+     * Gzip-compressed JSON of {@code toResponse(user)}; compressed once per user version.
+     */
+    public byte[] gzip(User user, Function<User, ?> toResponse) {
+        Fragment fragment = fragment(user, toResponse);
+        if (fragment.gzip() != null) {
+            return fragment.gzip();
+        }
+        Fragment compressed = new Fragment(fragment.version(), fragment.updatedAt(), fragment.json(),
+                compress(fragment.json()));
+        fragments.asMap().replace(user.getId(), fragment, compressed);
+        return compressed.gzip();
+    }
+
+    /**
+     * Drops the entries of {@code ids} once the current transaction commits.
+     */
+    public void evict(Collection<Long> ids) {
+        List<Long> snapshot = List.copyOf(ids);
+        afterCommit(() -> fragments.invalidateAll(snapshot));
+    }
+
+    public void invalidateAll() {
+        afterCommit(fragments::invalidateAll);
+    }
+
+    @EventListener
+    public void onRemoteInvalidation(RemoteEntityInvalidationEvent event) {
+        EntityInvalidation invalidation = event.invalidation();
+        if (!"user".equals(invalidation.getEntity())) {
+            return;
+        }
+        if (invalidation.isAll()) {
+            fragments.invalidateAll();
+            return;
+        }
+        for (EntityInvalidation.Change change : invalidation.getChanges()) {
+            if (change.getId() != null) {
+                fragments.invalidate(Long.valueOf(change.getId()));
+            }
+        }
+    }
+
+    @EventListener
+    public void onResync(EntityInvalidationResyncEvent event) {
+        fragments.invalidateAll();
+    }
+
+    private Fragment fragment(User user, Function<User, ?> toResponse) {
+        Fragment cached = fragments.getIfPresent(user.getId());
+        if (cached != null && cached.matches(user)) {
+            return cached;
+        }
+        Fragment fresh = new Fragment(user.getVersion(), user.getUpdatedAt(), serialize(toResponse.apply(user)), null);
+        if (config.isEnabled()) {
+            fragments.put(user.getId(), fresh);
+        }
+        return fresh;
+    }
+
+    private byte[] serialize(Object response) {
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Cannot serialize " + response.getClass().getSimpleName(), ex);
+        }
+    }
+
+    private static byte[] compress(byte[] json) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length / 2 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(json);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private record Fragment(Long version, LocalDateTime updatedAt, byte[] json, byte[] gzip) {
+
+        private boolean matches(User user) {
+            return Objects.equals(version, user.getVersion()) && Objects.equals(updatedAt, user.getUpdatedAt());
+        }
+
+        private int weight() {
+            return ENTRY_OVERHEAD + json.length + (gzip == null ? 0 : gzip.length);
+        }
+    }
+}
@@ -1,52 +1,311 @@
 package com.example.demo.service;
 
+import com.example.demo.common.exception.BadRequestException;
 import com.example.demo.common.exception.ResourceNotFoundException;
+import com.example.demo.common.security.crypto.PasswordHashingService;
 import com.example.demo.common.service.BaseService;
+import com.example.demo.dto.response.UserSuggestionResponse;
 import com.example.demo.entity.User;
 import com.example.demo.repository.UserRepository;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 @Service
+@Timed(value = "service.method", description = "Time spent in service methods")
 public class UserService extends BaseService<User, Long> {
+
+    private static final int IN_CLAUSE_CHUNK_SIZE = 1000;
     
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
+    private final UserAvailabilityIndex availabilityIndex;
+    private final TokenRevocationService tokenRevocationService;
+    private final UserSuggestIndex suggestIndex;
+    private final UserJsonCache jsonCache;
+    // Proxy của chính bean này: lời gọi qua "this" bỏ qua @Transactional và @Timed
+    private UserService self;
     
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordHashingService passwordHashingService,
+                       UserAvailabilityIndex availabilityIndex, TokenRevocationService tokenRevocationService,
+                       UserSuggestIndex suggestIndex, UserJsonCache jsonCache) {
         super(userRepository);
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
+        this.availabilityIndex = availabilityIndex;
+        this.tokenRevocationService = tokenRevocationService;
+        this.suggestIndex = suggestIndex;
+        this.jsonCache = jsonCache;
+    }
+
+    @Autowired
+    public void setSelf(@Lazy UserService self) {
+        this.self = self;
     }
     
+    // Không dùng @Transactional ở đây: băm mật khẩu trước, tránh giữ connection DB trong lúc băm
     @Override
-    @Transactional
     public User save(User user) {
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
-        return super.save(user);
+        user.setPassword(passwordHashingService.encode(user.getPassword()));
+        return self.saveEncoded(user);
+    }
+
+    /**
+     * Persists a user whose password has already been hashed, e.g. by
+     * {@link PasswordHashingService#encodeAsync(CharSequence)}.
+     */
+    @Transactional
+    public User saveEncoded(User user) {
+        availabilityIndex.recordUser(user.getUsername(), user.getEmail());
+        User saved = super.save(user);
+        suggestIndex.recordUser(saved);
+        return saved;
     }
     
-    @Transactional(readOnly = true)
+    /**
+     * Persists users whose passwords have already been hashed, in JDBC batches.
+     */
+    @Transactional
+    public List<User> saveAllEncoded(List<User> users) {
+        availabilityIndex.recordUsers(users.stream().map(User::getUsername).toList(),
+                users.stream().map(User::getEmail).toList());
+        List<User> saved = super.saveAll(users);
+        suggestIndex.recordUsers(saved);
+        return saved;
+    }
+
+    // Vô hiệu hóa hoặc xóa user: thu hồi mọi JWT đã cấp cho user đó
+
+    @Override
+    @Transactional
+    public void softDelete(Long id) {
+        super.softDelete(id);
+        tokenRevocationService.revokeUserTokens(findUsernames(List.of(id)));
+        suggestIndex.removeUsers(List.of(id));
+        jsonCache.evict(List.of(id));
+    }
+
+    @Override
+    @Transactional
+    public void deleteById(Long id) {
+        List<String> usernames = findUsernames(List.of(id));
+        super.deleteById(id);
+        tokenRevocationService.revokeUserTokens(usernames);
+        suggestIndex.removeUsers(List.of(id));
+        jsonCache.evict(List.of(id));
+    }
+
+    @Override
+    @Transactional
+    public int softDeleteAll(Collection<Long> ids) {
+        int affected = super.softDeleteAll(ids);
+        tokenRevocationService.revokeUserTokens(findUsernames(ids));
+        suggestIndex.removeUsers(ids);
+        jsonCache.evict(ids);
+        return affected;
+    }
+
+    @Override
+    @Transactional
+    public int deleteAllById(Collection<Long> ids) {
+        List<String> usernames = findUsernames(ids);
+        int affected = super.deleteAllById(ids);
+        tokenRevocationService.revokeUserTokens(usernames);
+        suggestIndex.removeUsers(ids);
+        jsonCache.evict(ids);
+        return affected;
+    }
+
+    @Override
+    @Transactional
+    public int softDeleteAll(Specification<User> spec) {
+        List<String> usernames = findUsernames(spec.and((root, query, cb) -> cb.isTrue(root.get("active"))));
+        int affected = super.softDeleteAll(spec);
+        tokenRevocationService.revokeUserTokens(usernames);
+        suggestIndex.requestRebuild();
+        jsonCache.invalidateAll();
+        return affected;
+    }
+
+    @Override
+    @Transactional
+    public long deleteAll(Specification<User> spec) {
+        List<String> usernames = findUsernames(spec);
+        long affected = super.deleteAll(spec);
+        tokenRevocationService.revokeUserTokens(usernames);
+        suggestIndex.requestRebuild();
+        jsonCache.invalidateAll();
+        return affected;
+    }
+
+    // Kích hoạt lại user: đọc lại để đưa vào gợi ý tìm kiếm
+
+    @Override
+    @Transactional
+    public void restore(Long id) {
+        super.restore(id);
+        suggestIndex.refreshUsers(List.of(id));
+    }
+
+    @Override
+    @Transactional
+    public int restoreAll(Collection<Long> ids) {
+        int affected = super.restoreAll(ids);
+        suggestIndex.refreshUsers(ids);
+        return affected;
+    }
+
+    @Override
+    @Transactional
+    public int restoreAll(Specification<User> spec) {
+        int affected = super.restoreAll(spec);
+        suggestIndex.requestRebuild();
+        return affected;
+    }
+
+    /**
+     * Deactivates all active users created before {@code createdBefore} and/or whose email
+     * is in {@code emailDomain}, in one UPDATE statement. At least one criterion is required.
+     *
+     * @return the number of users deactivated
+     */
+    @Transactional
+    public int softDeleteMatching(LocalDateTime createdBefore, String emailDomain) {
+        if (createdBefore == null && !StringUtils.hasText(emailDomain)) {
+            throw new BadRequestException("At least one of createdBefore or emailDomain is required");
+        }
+        Specification<User> spec = (root, query, cb) -> cb.conjunction();
+        if (createdBefore != null) {
+            spec = spec.and((root, query, cb) -> cb.lessThan(root.get("createdAt"), createdBefore));
+        }
+        if (StringUtils.hasText(emailDomain)) {
+            String suffix = "@" + emailDomain.trim().toLowerCase();
+            spec = spec.and((root, query, cb) -> cb.like(cb.lower(root.get("email")), "%" + suffix));
+        }
+        return softDeleteAll(spec);
+    }
+
+    /**
+     * Set-based uniqueness check: returns which of the given usernames already exist,
+     * using one query per chunk instead of one per name. Names the availability filter
+     * rules out are not sent to the database at all.
+     */
+    public Set<String> findTakenUsernames(Collection<String> usernames) {
+        List<String> candidates = usernames.stream()
+                .filter(username -> !availabilityIndex.isUsernameDefinitelyAvailable(username))
+                .toList();
+        return placement.findTaken("username", candidates,
+                () -> findLocalTaken(candidates, userRepository::findExistingUsernames));
+    }
+
+    public Set<String> findTakenEmails(Collection<String> emails) {
+        List<String> candidates = emails.stream()
+                .filter(email -> !availabilityIndex.isEmailDefinitelyAvailable(email))
+                .toList();
+        return placement.findTaken("email", candidates,
+                () -> findLocalTaken(candidates, userRepository::findExistingEmails));
+    }
+
+    private Set<String> findLocalTaken(List<String> candidates, Function<List<String>, List<String>> query) {
+        Set<String> taken = new HashSet<>();
+        for (List<String> chunk : chunk(candidates)) {
+            taken.addAll(query.apply(chunk));
+        }
+        return taken;
+    }
+
+    // Không có password: cột này không bao giờ được SELECT trên các đường đọc
+    @Override
+    protected List<String> readableFields() {
+        return List.of("id", "username", "email", "firstName", "lastName", "phoneNumber", "birthDate",
+                "createdAt", "updatedAt");
+    }
+
+    // Username không đổi được; password chỉ ghi, không bao giờ đọc
+    @Override
+    protected Set<String> patchableFields() {
+        return Set.of("email", "firstName", "lastName", "phoneNumber", "birthDate", "password");
+    }
+
+    /**
+     * Single-statement partial update, see {@link BaseService#patch}. A new password must
+     * already be hashed (see {@link PasswordHashingService#encodeAsync(CharSequence)}), so no
+     * connection is held while hashing; it revokes the user's tokens, like {@link #update}.
+     */
+    @Override
+    @Transactional
+    public User patch(Long id, Map<String, Object> changes, Long expectedVersion) {
+        Map<String, Object> values = new LinkedHashMap<>(changes);
+        if (values.get("email") instanceof String email) {
+            availabilityIndex.recordUser(null, email);
+        }
+        boolean passwordChanged = values.get("password") instanceof String;
+        if (passwordChanged) {
+            requireEncoded((String) values.get("password"));
+        }
+        User updated = super.patch(id, values, expectedVersion);
+        if (passwordChanged) {
+            tokenRevocationService.revokeUserTokens(List.of(updated.getUsername()));
+        }
+        suggestIndex.recordUser(updated);
+        return updated;
+    }
+
+    @Override
+    protected Map<String, Function<User, Object>> naturalKeys() {
+        return Map.of("username", User::getUsername, "email", User::getEmail);
+    }
+
     public User findByUsername(String username) {
-        return userRepository.findByUsername(username)
+        return findByNaturalKey("username", username, userRepository::findIdByUsername)
+                .filter(User::getActive)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with username: " + username));
     }
     
-    @Transactional(readOnly = true)
     public User findByEmail(String email) {
-        return userRepository.findByEmail(email)
+        return findByNaturalKey("email", email, userRepository::findIdByEmail)
+                .filter(User::getActive)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with email: " + email));
     }
     
-    @Transactional(readOnly = true)
+    // Không mở transaction: câu trả lời "chắc chắn còn trống" từ Bloom filter không cần DB
     public boolean isUsernameAvailable(String username) {
-        return !userRepository.existsByUsername(username);
+        if (availabilityIndex.isUsernameDefinitelyAvailable(username)) {
+            return true;
+        }
+        return placement.findId("username", username, () -> userRepository.findIdByUsername(username)).isEmpty();
     }
     
-    @Transactional(readOnly = true)
     public boolean isEmailAvailable(String email) {
-        return !userRepository.existsByEmail(email);
+        if (availabilityIndex.isEmailDefinitelyAvailable(email)) {
+            return true;
+        }
+        return placement.findId("email", email, () -> userRepository.findIdByEmail(email)).isEmpty();
+    }
+    
+    /**
+     * Autocomplete over active users' usernames and names, answered from memory.
+     */
+    public List<UserSuggestionResponse> suggest(String query, Integer limit) {
+        return suggestIndex.suggest(query, limit);
     }
     
     @Override
@@ -55,17 +314,68 @@ public class UserService extends BaseService<User, Long> {
         existingUser.setLastName(userDetails.getLastName());
         existingUser.setPhoneNumber(userDetails.getPhoneNumber());
         existingUser.setBirthDate(userDetails.getBirthDate());
+        // Email trùng sẽ bị ràng buộc UNIQUE chặn khi flush (409)
         if (userDetails.getEmail() != null && !userDetails.getEmail().equals(existingUser.getEmail())) {
-            if (!isEmailAvailable(userDetails.getEmail())) {
-                throw new IllegalArgumentException("Email already in use");
-            }
+            availabilityIndex.recordUser(null, userDetails.getEmail());
             existingUser.setEmail(userDetails.getEmail());
         }
-        if (userDetails.getPassword() != null && !userDetails.getPassword().isEmpty() 
-                && userDetails.getPassword().length() < 60) { 
-            existingUser.setPassword(passwordEncoder.encode(userDetails.getPassword()));
+        String password = userDetails.getPassword();
+        if (password != null && !password.isEmpty() && !password.equals(existingUser.getPassword())) {
+            // Controller đã băm mật khẩu trên pool riêng, trước khi mở transaction
+            existingUser.setPassword(requireEncoded(password));
+            tokenRevocationService.revokeUserTokens(List.of(existingUser.getUsername()));
         }
+        suggestIndex.recordUser(existingUser);
         
         return existingUser;
     }
+
+    /**
+     * Guards the transactional write paths: hashing there would hold a connection for the
+     * whole BCrypt cost.
+     */
+    private String requireEncoded(String password) {
+        if (!passwordHashingService.isEncoded(password)) {
+            throw new IllegalArgumentException("Password must be hashed before the update, "
+                    + "see PasswordHashingService#encodeAsync");
+        }
+        return password;
+    }
+
+    private List<String> findUsernames(Collection<Long> ids) {
+        return placement.onShardsOf(ids, this::findLocalUsernames).stream().flatMap(List::stream).toList();
+    }
+
+    private List<String> findLocalUsernames(Collection<Long> ids) {
+        List<String> usernames = new ArrayList<>();
+        for (List<Long> chunk : chunk(ids)) {
+            usernames.addAll(userRepository.findUsernamesByIds(chunk));
+        }
+        return usernames;
+    }
+
+    private List<String> findUsernames(Specification<User> spec) {
+        return placement.everyShard(true, () -> findLocalUsernames(spec)).stream().flatMap(List::stream).toList();
+    }
+
+    private List<String> findLocalUsernames(Specification<User> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<String> query = cb.createQuery(String.class);
+        Root<User> root = query.from(User.class);
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        query.select(root.get("username"));
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    private static <V> List<List<V>> chunk(Collection<V> values) {
+        List<V> list = new ArrayList<>(values);
+        List<List<V>> chunks = new ArrayList<>();
+        for (int i = 0; i < list.size(); i += IN_CLAUSE_CHUNK_SIZE) {
+            chunks.add(list.subList(i, Math.min(i + IN_CLAUSE_CHUNK_SIZE, list.size())));
+        }
+        return chunks;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,440 @@
+package com.example.demo.service;
+
+import com.example.demo.common.cache.invalidation.EntityInvalidation;
+import com.example.demo.common.cache.invalidation.EntityInvalidationResyncEvent;
+import com.example.demo.common.cache.invalidation.RemoteEntityInvalidationEvent;
+import com.example.demo.common.datasource.DataSourceRouting;
+import com.example.demo.common.sharding.Shards;
+import com.example.demo.common.suggest.PrefixIndex;
+import com.example.demo.config.UserSuggestConfig;
+import com.example.demo.dto.response.UserSuggestionResponse;
+import com.example.demo.entity.User;
+import com.example.demo.repository.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Autocomplete over active users: prefix matches on username, full name ("first last"),
+ * last name and first name, served from memory.
+ * <p>
+ * The bulk of the data is an immutable {@link PrefixIndex} built from a streaming scan of
+ * {@code users}. Writes made since then are kept beside it, by user id, and override what the
+ * index holds for those users; the next rebuild folds them in. A rebuild also starts early
+ * once more than {@code app.user-suggest.compaction-threshold} changes are pending.
+ * <p>
+ * Changes are applied after commit, so rolled-back writes never show up. Ranking is computed
+ * over the first {@code max(limit * 32, 256)} matching keys only, so for very short prefixes
+ * the result is the best of that window rather than of every match.
+ */
+@Component
+public class UserSuggestIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(UserSuggestIndex.class);
+
+    // Trường tìm kiếm, theo thứ tự ưu tiên khi xếp hạng
+    private static final int USERNAME = 0;
+    private static final int FULL_NAME = 1;
+    private static final int LAST_NAME = 2;
+    private static final int FIRST_NAME = 3;
+    private static final String[] FIELD_NAMES = {"username", "fullName", "lastName", "firstName"};
+
+    // Trường hiển thị lưu trong PrefixIndex
+    private static final int DISPLAY_USERNAME = 0;
+    private static final int DISPLAY_FIRST_NAME = 1;
+    private static final int DISPLAY_LAST_NAME = 2;
+    private static final int DISPLAY_FIELDS = 3;
+
+    private static final int SCAN_FACTOR = 32;
+    private static final int MIN_SCAN = 256;
+    private static final int IN_CLAUSE_CHUNK_SIZE = 1000;
+    /** Rough heap cost of one pending change and its postings, for the memory gauge. */
+    private static final int PENDING_CHANGE_BYTES = 600;
+
+    private final UserRepository userRepository;
+    private final Shards shards;
+    private final UserSuggestConfig config;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TaskScheduler taskScheduler;
+    private final Timer queryTimer;
+    private final Timer rebuildTimer;
+
+    private final Object lock = new Object();
+    private final Object rebuildLock = new Object();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private volatile PrefixIndex index = PrefixIndex.empty(DISPLAY_FIELDS);
+    // Thay đổi sau lần dựng gần nhất, theo id; ghi đè dữ liệu của index
+    private final Map<Long, Change> changes = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<String, Posting> postings = new ConcurrentSkipListMap<>();
+    private long sequence;
+
+    public UserSuggestIndex(UserRepository userRepository, Shards shards, UserSuggestConfig config,
+                            PlatformTransactionManager transactionManager, TaskScheduler taskScheduler,
+                            MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.shards = shards;
+        this.config = config;
+        this.taskScheduler = taskScheduler;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        this.queryTimer = Timer.builder("user.suggest.query")
+                .description("Time taken to answer an autocomplete query from memory")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.rebuildTimer = Timer.builder("user.suggest.index.rebuild")
+                .description("Time taken to rebuild the autocomplete index from the database")
+                .register(meterRegistry);
+        Gauge.builder("user.suggest.index.users", this, suggest -> suggest.index.documentCount())
+                .description("Users in the autocomplete index as of its last rebuild")
+                .register(meterRegistry);
+        Gauge.builder("user.suggest.index.pending.changes", this, suggest -> suggest.changes.size())
+                .description("Changes kept beside the autocomplete index until the next rebuild")
+                .register(meterRegistry);
+        Gauge.builder("user.suggest.index.memory", this, UserSuggestIndex::memoryBytes)
+                .description("Approximate heap used by the autocomplete index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Up to {@code limit} active users whose username or name starts with {@code query}
+     * (case and diacritics ignored). Exact matches come first, then matches on username, full
+     * name, last name and first name, then shorter values.
+     *
+     * @param limit {@code null} for {@code app.user-suggest.default-limit}; capped at
+     *              {@code app.user-suggest.max-limit}
+     */
+    public List<UserSuggestionResponse> suggest(String query, Integer limit) {
+        String prefix = PrefixIndex.normalize(query);
+        int size = Math.min(limit == null ? config.getDefaultLimit() : limit, config.getMaxLimit());
+        if (!config.isEnabled() || prefix.isEmpty() || size <= 0) {
+            return List.of();
+        }
+        return queryTimer.record(() -> search(prefix, size));
+    }
+
+    public void recordUser(User user) {
+        recordUsers(List.of(user));
+    }
+
+    /**
+     * Takes the users' current values now and applies them once the transaction commits.
+     */
+    public void recordUsers(Collection<User> users) {
+        List<Change> updates = users.stream()
+                .filter(user -> user.getId() != null)
+                .map(user -> Boolean.FALSE.equals(user.getActive())
+                        ? Change.removed(user.getId())
+                        : new Change(user.getId(), 0, user.getUsername(), user.getFirstName(), user.getLastName()))
+                .toList();
+        afterCommit(() -> apply(updates));
+    }
+
+    public void removeUsers(Collection<Long> ids) {
+        List<Change> removals = ids.stream().map(Change::removed).toList();
+        afterCommit(() -> apply(removals));
+    }
+
+    /**
+     * Re-reads the given users after commit, for writes that did not go through an entity
+     * (restore, bulk import).
+     */
+    public void refreshUsers(Collection<Long> ids) {
+        List<Long> copy = List.copyOf(ids);
+        afterCommit(() -> refresh(copy));
+    }
+
+    /**
+     * For bulk writes whose affected ids are unknown: rebuilds after commit.
+     */
+    public void requestRebuild() {
+        afterCommit(this::scheduleRebuild);
+    }
+
+    @EventListener
+    public void onRemoteInvalidation(RemoteEntityInvalidationEvent event) {
+        EntityInvalidation invalidation = event.invalidation();
+        if (!"user".equals(invalidation.getEntity())) {
+            return;
+        }
+        if (invalidation.isAll()) {
+            scheduleRebuild();
+            return;
+        }
+        Set<Long> ids = new HashSet<>();
+        for (EntityInvalidation.Change change : invalidation.getChanges()) {
+            if (change.getId() != null) {
+                ids.add(Long.valueOf(change.getId()));
+            }
+        }
+        refresh(ids);
+    }
+
+    @EventListener
+    public void onResync(EntityInvalidationResyncEvent event) {
+        scheduleRebuild();
+    }
+
+    /**
+     * Full rebuild with a streaming scan of active users. Runs at startup and then every
+     * {@code app.user-suggest.rebuild-interval}. Pending changes applied before the scan
+     * started are part of the new index and are dropped; later ones are kept.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.user-suggest.rebuild-interval:PT6H}")
+    public void rebuild() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        synchronized (rebuildLock) {
+            rebuildScheduled.set(false);
+            long startSequence;
+            synchronized (lock) {
+                startSequence = sequence;
+            }
+            try {
+                // Đọc từ primary: replica có thể chưa có các thay đổi đã được áp dụng ở trên
+                PrefixIndex rebuilt = rebuildTimer.record(() -> DataSourceRouting.onPrimary(() -> {
+                    PrefixIndex.Builder builder = new PrefixIndex.Builder(DISPLAY_FIELDS);
+                    for (String shard : shards.names()) {
+                        shards.run(shard, () -> readOnlyTransaction.executeWithoutResult(status -> {
+                            try (Stream<Object[]> users = userRepository.streamActiveNames()) {
+                                users.forEach(row -> add(builder, (Long) row[0], (String) row[1], (String) row[2],
+                                        (String) row[3]));
+                            }
+                        }));
+                    }
+                    return builder.build();
+                }));
+                synchronized (lock) {
+                    index = rebuilt;
+                    Iterator<Change> pending = changes.values().iterator();
+                    while (pending.hasNext()) {
+                        Change change = pending.next();
+                        if (change.sequence() <= startSequence) {
+                            pending.remove();
+                            removePostings(change);
+                        }
+                    }
+                }
+                log.info("Autocomplete index rebuilt with {} users ({} keys, ~{} KB)",
+                        rebuilt.documentCount(), rebuilt.entryCount(), rebuilt.memoryBytes() / 1024);
+            } catch (RuntimeException ex) {
+                log.error("Rebuilding the autocomplete index failed, keeping the previous index", ex);
+            }
+        }
+    }
+
+    private List<UserSuggestionResponse> search(String prefix, int limit) {
+        int maxEntries = Math.max(limit * SCAN_FACTOR, MIN_SCAN);
+        Map<Long, Candidate> best = new HashMap<>();
+        PrefixIndex current = index;
+        // Các khóa được duyệt theo thứ tự chữ cái: dùng làm tiêu chí phụ khi cùng hạng
+        int[] order = {0};
+        current.search(prefix, maxEntries, (doc, field, exact, keyLength) -> {
+            long id = current.id(doc);
+            if (!changes.containsKey(id)) {
+                offer(best, new Candidate(id, rank(field, exact, keyLength), order[0]++, field, doc, null));
+            }
+        });
+
+        int prefixLength = prefix.getBytes(StandardCharsets.UTF_8).length;
+        int visited = 0;
+        for (Posting posting : postings.subMap(prefix, prefix + Character.MAX_VALUE).values()) {
+            if (visited++ >= maxEntries) {
+                break;
+            }
+            Change change = posting.change();
+            // Bỏ qua posting của phiên bản đã bị thay thế
+            if (changes.get(change.id()) == change) {
+                int rank = rank(posting.field(), posting.keyLength() == prefixLength, posting.keyLength());
+                offer(best, new Candidate(change.id(), rank, order[0]++, posting.field(), -1, change));
+            }
+        }
+
+        return best.values().stream()
+                .sorted(Comparator.comparingInt(Candidate::rank).thenComparingInt(Candidate::order))
+                .limit(limit)
+                .map(candidate -> toResponse(current, candidate))
+                .toList();
+    }
+
+    private static void offer(Map<Long, Candidate> best, Candidate candidate) {
+        best.merge(candidate.id(), candidate, (a, b) -> a.rank() <= b.rank() ? a : b);
+    }
+
+    private static int rank(int field, boolean exact, int keyLength) {
+        return (exact ? 0 : 1 << 20) | field << 16 | Math.min(keyLength, 0xFFFF);
+    }
+
+    private static UserSuggestionResponse toResponse(PrefixIndex current, Candidate candidate) {
+        String matchedField = FIELD_NAMES[candidate.field()];
+        Change change = candidate.change();
+        if (change != null) {
+            return new UserSuggestionResponse(change.id(), change.username(), change.firstName(),
+                    change.lastName(), matchedField);
+        }
+        int doc = candidate.doc();
+        return new UserSuggestionResponse(candidate.id(), current.display(doc, DISPLAY_USERNAME),
+                current.display(doc, DISPLAY_FIRST_NAME), current.display(doc, DISPLAY_LAST_NAME), matchedField);
+    }
+
+    private void refresh(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Long> all = new ArrayList<>(ids);
+        List<Change> updates = new ArrayList<>();
+        for (int i = 0; i < all.size(); i += IN_CLAUSE_CHUNK_SIZE) {
+            List<Long> chunk = all.subList(i, Math.min(i + IN_CLAUSE_CHUNK_SIZE, all.size()));
+            Set<Long> missing = new HashSet<>(chunk);
+            List<Object[]> rows = new ArrayList<>();
+            shards.groupByShard(chunk).forEach((shard, shardIds) -> rows.addAll(DataSourceRouting.onPrimary(
+                    () -> shards.on(shard, () -> readOnlyTransaction.execute(
+                            status -> userRepository.findActiveNamesByIds(shardIds))))));
+            for (Object[] row : rows) {
+                Long id = (Long) row[0];
+                missing.remove(id);
+                updates.add(new Change(id, 0, (String) row[1], (String) row[2], (String) row[3]));
+            }
+            missing.forEach(id -> updates.add(Change.removed(id)));
+        }
+        apply(updates);
+    }
+
+    private void apply(List<Change> updates) {
+        if (!config.isEnabled() || updates.isEmpty()) {
+            return;
+        }
+        int pending;
+        synchronized (lock) {
+            for (Change update : updates) {
+                Change change = update.withSequence(++sequence);
+                Change previous = changes.put(change.id(), change);
+                if (previous != null) {
+                    removePostings(previous);
+                }
+                if (!change.isRemoved()) {
+                    String[] keys = searchKeys(change.username(), change.firstName(), change.lastName());
+                    for (int field = 0; field < keys.length; field++) {
+                        String key = PrefixIndex.normalize(keys[field]);
+                        if (!key.isEmpty()) {
+                            postings.put(postingKey(key, field, change.id()),
+                                    new Posting(change, field, key.getBytes(StandardCharsets.UTF_8).length));
+                        }
+                    }
+                }
+            }
+            pending = changes.size();
+        }
+        if (pending > config.getCompactionThreshold()) {
+            scheduleRebuild();
+        }
+    }
+
+    private void removePostings(Change change) {
+        if (change.isRemoved()) {
+            return;
+        }
+        String[] keys = searchKeys(change.username(), change.firstName(), change.lastName());
+        for (int field = 0; field < keys.length; field++) {
+            String key = PrefixIndex.normalize(keys[field]);
+            if (!key.isEmpty()) {
+                postings.remove(postingKey(key, field, change.id()));
+            }
+        }
+    }
+
+    private void scheduleRebuild() {
+        if (config.isEnabled() && rebuildScheduled.compareAndSet(false, true)) {
+            taskScheduler.schedule(this::rebuild, Instant.now());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static void add(PrefixIndex.Builder builder, Long id, String username, String firstName, String lastName) {
+        String[] display = new String[DISPLAY_FIELDS];
+        display[DISPLAY_USERNAME] = username;
+        display[DISPLAY_FIRST_NAME] = firstName;
+        display[DISPLAY_LAST_NAME] = lastName;
+        builder.add(id, display, searchKeys(username, firstName, lastName));
+    }
+
+    private static String[] searchKeys(String username, String firstName, String lastName) {
+        String[] keys = new String[FIELD_NAMES.length];
+        keys[USERNAME] = username;
+        keys[FULL_NAME] = firstName != null && lastName != null ? firstName + " " + lastName : null;
+        keys[LAST_NAME] = lastName;
+        keys[FIRST_NAME] = firstName;
+        return keys;
+    }
+
+    private static String postingKey(String key, int field, long id) {
+        // '\0' không xuất hiện trong khóa đã chuẩn hóa, nên thứ tự tiền tố được giữ nguyên
+        return key + '\0' + field + '\0' + id;
+    }
+
+    private double memoryBytes() {
+        return index.memoryBytes() + (double) changes.size() * PENDING_CHANGE_BYTES;
+    }
+
+    private record Change(long id, long sequence, String username, String firstName, String lastName) {
+
+        private static Change removed(long id) {
+            return new Change(id, 0, null, null, null);
+        }
+
+        private boolean isRemoved() {
+            return username == null;
+        }
+
+        private Change withSequence(long sequence) {
+            return new Change(id, sequence, username, firstName, lastName);
+        }
+    }
+
+    private record Posting(Change change, int field, int keyLength) {
+    }
+
+    private record Candidate(long id, int rank, int order, int field, int doc, Change change) {
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.demo.service.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * RFC 4180 CSV reader (quoted fields, doubled quotes, line breaks inside quotes).
+ * The first record is the header; column names are matched case-insensitively with
+ * underscores ignored, so both {@code first_name} and {@code firstName} work.
+ */
+public class CsvUserImportReader implements UserImportReader {
+
+    private final BufferedReader reader;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private long recordNumber;
+    private List<String> nextFields;
+    private boolean endOfInput;
+
+    public CsvUserImportReader(BufferedReader reader) {
+        this.reader = reader;
+        List<String> header = readRecord();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV input is empty, a header row is required");
+        }
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(normalize(header.get(i)), i);
+        }
+        if (!columns.containsKey("username") || !columns.containsKey("email")) {
+            throw new IllegalArgumentException("CSV header must contain at least username and email columns");
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (nextFields == null && !endOfInput) {
+            List<String> fields = readRecord();
+            // Bỏ qua dòng trống
+            if (fields != null && !(fields.size() == 1 && fields.get(0).isEmpty())) {
+                nextFields = fields;
+            }
+        }
+        return nextFields != null;
+    }
+
+    @Override
+    public UserImportRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<String> fields = nextFields;
+        nextFields = null;
+        recordNumber++;
+
+        UserImportRecord record = new UserImportRecord();
+        record.setRecordNumber(recordNumber);
+        record.setUsername(field(fields, "username"));
+        record.setPassword(field(fields, "password"));
+        record.setPasswordHash(field(fields, "passwordhash"));
+        record.setEmail(field(fields, "email"));
+        record.setFirstName(field(fields, "firstname"));
+        record.setLastName(field(fields, "lastname"));
+        record.setPhoneNumber(field(fields, "phonenumber"));
+        String birthDate = field(fields, "birthdate");
+        if (birthDate != null) {
+            try {
+                record.setBirthDate(LocalDate.parse(birthDate));
+            } catch (DateTimeParseException ex) {
+                record.setError("Invalid birth_date: " + birthDate);
+            }
+        }
+        return record;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private String field(List<String> fields, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index);
+        return value.isEmpty() ? null : value;
+    }
+
+    private static String normalize(String column) {
+        return column.trim().replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Reads one record, or returns null at end of input.
+     */
+    private List<String> readRecord() {
+        try {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean any = false;
+            int c;
+            while ((c = reader.read()) != -1) {
+                any = true;
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        int peek = reader.read();
+                        if (peek == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            if (peek != -1) {
+                                reader.reset();
+                            }
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    break;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+            }
+            if (!any) {
+                endOfInput = true;
+                return null;
+            }
+            fields.add(field.toString());
+            return fields;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
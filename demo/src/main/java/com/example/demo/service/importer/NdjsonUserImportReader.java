@@ -0,0 +1,65 @@
+package com.example.demo.service.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads one JSON object per line; blank lines are skipped and do not count as records.
+ */
+public class NdjsonUserImportReader implements UserImportReader {
+
+    private final BufferedReader reader;
+    private final ObjectReader objectReader;
+    private long recordNumber;
+    private String nextLine;
+
+    public NdjsonUserImportReader(BufferedReader reader, ObjectReader objectReader) {
+        this.reader = reader;
+        this.objectReader = objectReader.forType(UserImportRecord.class);
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            while (nextLine == null) {
+                String line = reader.readLine();
+                if (line == null) {
+                    return false;
+                }
+                if (!line.isBlank()) {
+                    nextLine = line;
+                }
+            }
+            return true;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public UserImportRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String line = nextLine;
+        nextLine = null;
+        recordNumber++;
+        try {
+            UserImportRecord record = objectReader.readValue(line);
+            record.setRecordNumber(recordNumber);
+            return record;
+        } catch (JsonProcessingException ex) {
+            return UserImportRecord.failed(recordNumber, "Malformed JSON: " + ex.getOriginalMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.demo.service.importer;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * Streams import records one at a time, numbered from 1 in input order. Records that
+ * cannot be parsed are still returned, with {@link UserImportRecord#getError()} set,
+ * so numbering stays stable across resumes.
+ */
+public interface UserImportReader extends Iterator<UserImportRecord>, Closeable {
+}
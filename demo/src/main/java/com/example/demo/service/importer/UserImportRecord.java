@@ -0,0 +1,133 @@
+package com.example.demo.service.importer;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.time.LocalDate;
+
+/**
+ * One input record of a bulk user import. Either {@code password} (raw) or
+ * {@code passwordHash} (an existing bcrypt hash, e.g. from the legacy system) must be set.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class UserImportRecord {
+
+    private String username;
+    private String password;
+    @JsonAlias("password_hash")
+    private String passwordHash;
+    private String email;
+    @JsonAlias("first_name")
+    private String firstName;
+    @JsonAlias("last_name")
+    private String lastName;
+    @JsonAlias("phone_number")
+    private String phoneNumber;
+    @JsonAlias("birth_date")
+    private LocalDate birthDate;
+
+    // Trạng thái xử lý, không đọc từ input
+    @JsonIgnore
+    private long recordNumber;
+    @JsonIgnore
+    private String error;
+    @JsonIgnore
+    private String encodedPassword;
+
+    public static UserImportRecord failed(long recordNumber, String error) {
+        UserImportRecord record = new UserImportRecord();
+        record.setRecordNumber(recordNumber);
+        record.setError(error);
+        return record;
+    }
+
+    // Getters and Setters
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public String getPasswordHash() {
+        return passwordHash;
+    }
+
+    public void setPasswordHash(String passwordHash) {
+        this.passwordHash = passwordHash;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public void setPhoneNumber(String phoneNumber) {
+        this.phoneNumber = phoneNumber;
+    }
+
+    public LocalDate getBirthDate() {
+        return birthDate;
+    }
+
+    public void setBirthDate(LocalDate birthDate) {
+        this.birthDate = birthDate;
+    }
+
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    public void setRecordNumber(long recordNumber) {
+        this.recordNumber = recordNumber;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public String getEncodedPassword() {
+        return encodedPassword;
+    }
+
+    public void setEncodedPassword(String encodedPassword) {
+        this.encodedPassword = encodedPassword;
+    }
+}
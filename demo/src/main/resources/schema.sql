@@ -0,0 +1,15 @@
+-- Executed after Hibernate has created/updated the tables
+-- (spring.jpa.defer-datasource-initialization=true), so every statement must be idempotent.
+
+-- Soft delete: most reads only touch active rows, index just those.
+CREATE INDEX IF NOT EXISTS idx_users_active_id ON users (id) WHERE active = true;
+
+-- Keyset pagination on (created_at, id), see BaseService#findActiveByCursor.
+CREATE INDEX IF NOT EXISTS idx_users_active_created_at_id ON users (created_at, id) WHERE active = true;
+
+-- Ids come from users_seq (pooled, increment 50) since BaseEntity moved off IDENTITY.
+-- Move the sequence past rows inserted under the old IDENTITY column; never move it backwards.
+SELECT setval('users_seq', GREATEST((SELECT last_value FROM users_seq), (SELECT COALESCE(MAX(id), 0) FROM users) + 50));
+
+-- Token revocations are loaded and purged by expiry, see TokenRevocationService.
+CREATE INDEX IF NOT EXISTS idx_token_revocations_expires_at ON token_revocations (expires_at);
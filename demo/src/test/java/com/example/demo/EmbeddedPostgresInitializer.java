@@ -0,0 +1,46 @@
+package com.example.demo;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Points the application at a throwaway PostgreSQL started in-process, once per test JVM, so
+ * tests that load the whole context need neither a database server nor Docker.
+ */
+public class EmbeddedPostgresInitializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+	private static EmbeddedPostgres postgres;
+
+	@Override
+	public void initialize(ConfigurableApplicationContext context) {
+		TestPropertyValues.of(
+				"spring.datasource.url=" + postgres().getJdbcUrl("postgres", "postgres"),
+				"spring.datasource.username=postgres",
+				"spring.datasource.password=postgres")
+				.applyTo(context);
+	}
+
+	private static synchronized EmbeddedPostgres postgres() {
+		if (postgres == null) {
+			try {
+				postgres = EmbeddedPostgres.start();
+			} catch (IOException ex) {
+				throw new UncheckedIOException("Cannot start embedded PostgreSQL", ex);
+			}
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				try {
+					postgres.close();
+				} catch (IOException ignored) {
+					// JVM đang tắt
+				}
+			}));
+		}
+		return postgres;
+	}
+
+}
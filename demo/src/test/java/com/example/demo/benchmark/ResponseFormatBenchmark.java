@@ -0,0 +1,149 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.common.dto.CursorPage;
+import com.example.demo.dto.response.UserResponse;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufFactory;
+import com.fasterxml.jackson.dataformat.protobuf.schema.NativeProtobufSchema;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchemaLoader;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Payload size and encode/decode time of a user and of a 100-user cursor page in each
+ * response format. Not a test: run its {@code main} after {@code mvn test-compile}, e.g. from
+ * the IDE. Mappers are configured as in the application (ISO dates).
+ */
+public class ResponseFormatBenchmark {
+
+    private static final int WARMUP_ROUNDS = 20_000;
+    private static final int MEASURED_ROUNDS = 50_000;
+
+    /** Keeps results alive so the JIT cannot drop the measured work. */
+    private static volatile long sink;
+
+    public static void main(String[] args) throws Exception {
+        NativeProtobufSchema schema;
+        try (InputStream in = ResponseFormatBenchmark.class.getResourceAsStream("/proto/api.proto")) {
+            schema = ProtobufSchemaLoader.std.loadNative(in, false);
+        }
+        UserResponse user = user(1);
+        List<UserResponse> users = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            users.add(user(i));
+        }
+        CursorPage<UserResponse> page = new CursorPage<>(users, "eyJpZCI6MTAwfQ");
+
+        System.out.printf("%-8s %-6s %8s %12s %12s%n", "format", "value", "bytes", "encode ns", "decode ns");
+        for (Format format : Format.values()) {
+            ObjectMapper mapper = mapper(format.factory());
+            ObjectWriter userWriter = mapper.writerFor(UserResponse.class);
+            ObjectReader userReader = mapper.readerFor(DecodedUser.class);
+            ObjectWriter pageWriter = mapper.writerFor(CursorPage.class);
+            ObjectReader pageReader = mapper.readerFor(Page.class);
+            if (format == Format.PROTOBUF) {
+                userWriter = userWriter.with(schema.forType("UserResponse"));
+                userReader = userReader.with(schema.forType("UserResponse"));
+                pageWriter = pageWriter.with(schema.forType("CursorPage"));
+                pageReader = pageReader.with(schema.forType("CursorPage"));
+            }
+            run(format, "user", user, userWriter, userReader, MEASURED_ROUNDS);
+            run(format, "page", page, pageWriter, pageReader, MEASURED_ROUNDS / 50);
+        }
+    }
+
+    private static void run(Format format, String label, Object value, ObjectWriter writer, ObjectReader reader,
+                            int rounds) throws Exception {
+        byte[] bytes = writer.writeValueAsBytes(value);
+        for (int i = 0; i < Math.max(rounds / 2, WARMUP_ROUNDS / 50); i++) {
+            reader.readValue(writer.writeValueAsBytes(value));
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            sink += writer.writeValueAsBytes(value).length;
+        }
+        long encode = (System.nanoTime() - start) / rounds;
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            sink += reader.readValue(bytes).hashCode() & 1;
+        }
+        long decode = (System.nanoTime() - start) / rounds;
+        System.out.printf("%-8s %-6s %8d %12d %12d%n", format, label, bytes.length, encode, decode);
+    }
+
+    private static ObjectMapper mapper(JsonFactory factory) {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json()
+                .factory(factory)
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        return mapper.enable(JsonGenerator.Feature.IGNORE_UNKNOWN);
+    }
+
+    private static UserResponse user(long id) {
+        UserResponse user = new UserResponse();
+        user.setId(id);
+        user.setUsername("user" + id);
+        user.setEmail("user" + id + "@example.com");
+        user.setFirstName("Nguyen");
+        user.setLastName("Van " + id);
+        user.setPhoneNumber("+84901234" + String.format("%03d", id % 1000));
+        user.setBirthDate(LocalDate.of(1990, 1, 1).plusDays(id));
+        user.setCreatedAt(LocalDateTime.of(2024, 1, 1, 8, 30, 15, 123_456_000).plusMinutes(id));
+        user.setUpdatedAt(LocalDateTime.of(2024, 6, 1, 9, 0, 0, 654_321_000).plusMinutes(id));
+        return user;
+    }
+
+    private enum Format {
+        JSON(new JsonFactory()),
+        CBOR(new CBORFactory()),
+        SMILE(new SmileFactory()),
+        PROTOBUF(new ProtobufFactory());
+
+        private final JsonFactory factory;
+
+        Format(JsonFactory factory) {
+            this.factory = factory;
+        }
+
+        private JsonFactory factory() {
+            return factory;
+        }
+    }
+
+    /**
+     * Reads fullName too: the Protobuf parser mishandles skipping it (read-only in
+     * {@link UserResponse}), and a client decoding the response would keep it anyway.
+     */
+    public static class DecodedUser extends UserResponse {
+        private String fullName;
+
+        @Override
+        public String getFullName() {
+            return fullName;
+        }
+
+        public void setFullName(String fullName) {
+            this.fullName = fullName;
+        }
+    }
+
+    /** Decoding target for a page; {@link CursorPage} has no default constructor. */
+    public static class Page {
+        public List<DecodedUser> content;
+        public String nextCursor;
+        public boolean hasNext;
+        public int size;
+    }
+}
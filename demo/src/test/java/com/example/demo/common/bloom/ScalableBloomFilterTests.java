@@ -0,0 +1,29 @@
+package com.example.demo.common.bloom;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScalableBloomFilterTests {
+
+	@Test
+	void growsPastInitialCapacityWithoutFalseNegatives() {
+		ScalableBloomFilter filter = new ScalableBloomFilter(1_000, 0.01);
+		for (int i = 0; i < 20_000; i++) {
+			filter.put("user" + i);
+		}
+		for (int i = 0; i < 20_000; i++) {
+			assertTrue(filter.mightContain("user" + i));
+		}
+
+		int falsePositives = 0;
+		for (int i = 0; i < 100_000; i++) {
+			if (filter.mightContain("other" + i)) {
+				falsePositives++;
+			}
+		}
+		assertTrue(falsePositives < 1_000, "false positives: " + falsePositives);
+		assertTrue(filter.expectedFalsePositiveRate() < 0.01);
+	}
+
+}
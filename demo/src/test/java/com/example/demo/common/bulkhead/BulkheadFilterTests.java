@@ -0,0 +1,116 @@
+package com.example.demo.common.bulkhead;
+
+import com.example.demo.config.BulkheadConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkheadFilterTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+	private final BulkheadFilter filter = new BulkheadFilter(new Bulkheads(config(), meterRegistry), objectMapper);
+
+	@Test
+	void rejectsWithRetryAfterWhileFull() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch entered = new CountDownLatch(1);
+		List<String> bound = new ArrayList<>();
+		CompletableFuture<MockHttpServletResponse> busy = CompletableFuture.supplyAsync(() -> perform("/api/auth/login",
+				(request, response) -> {
+					bound.add(BulkheadContext.current());
+					entered.countDown();
+					await(release);
+				}));
+		entered.await();
+
+		MockHttpServletResponse rejected = perform("/api/auth/refresh", (request, response) -> {
+			throw new AssertionError("must not be admitted");
+		});
+		assertEquals(503, rejected.getStatus());
+		assertEquals("3", rejected.getHeader(HttpHeaders.RETRY_AFTER));
+		assertEquals("Server is busy, please retry later",
+				objectMapper.readTree(rejected.getContentAsString()).get("message").asText());
+		assertEquals(1, meterRegistry.get("bulkhead.requests.rejected").tag("bulkhead", "auth").counter().count());
+		assertEquals(1, meterRegistry.get("bulkhead.requests.active").tag("bulkhead", "auth").gauge().value());
+
+		// Nhóm khác không bị ảnh hưởng khi nhóm auth đầy
+		assertEquals(200, perform("/api/users/1", (request, response) -> bound.add(BulkheadContext.current())).getStatus());
+
+		release.countDown();
+		assertEquals(200, busy.join().getStatus());
+		assertEquals(200, perform("/api/auth/login", (request, response) -> {
+		}).getStatus());
+		assertEquals(List.of("auth", "users"), bound);
+		assertNull(BulkheadContext.current());
+	}
+
+	@Test
+	void asyncRequestHoldsItsSlotUntilComplete() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/auth/register");
+		request.setAsyncSupported(true);
+		filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+
+		assertEquals(503, perform("/api/auth/login", (req, res) -> {
+		}).getStatus());
+		request.getAsyncContext().complete();
+		assertEquals(200, perform("/api/auth/login", (req, res) -> {
+		}).getStatus());
+	}
+
+	@Test
+	void unmatchedPathsPassWithoutBulkhead() {
+		List<String> bound = new ArrayList<>();
+		bound.add("none yet");
+		assertEquals(200, perform("/actuator/health", (request, response) -> bound.set(0, BulkheadContext.current()))
+				.getStatus());
+		assertNull(bound.get(0));
+		assertTrue(meterRegistry.find("bulkhead.requests.rejected").counters().stream().allMatch(c -> c.count() == 0));
+	}
+
+	private MockHttpServletResponse perform(String path, FilterChain chain) {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		try {
+			filter.doFilter(new MockHttpServletRequest("POST", path), response, chain);
+		} catch (Exception ex) {
+			throw new IllegalStateException(ex);
+		}
+		return response;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static BulkheadConfig config() {
+		BulkheadConfig config = new BulkheadConfig();
+		config.setEnabled(true);
+		config.setRetryAfterSeconds(3);
+		BulkheadConfig.Group auth = new BulkheadConfig.Group();
+		auth.setPaths(List.of("/api/auth/**"));
+		auth.setMaxConcurrentRequests(1);
+		BulkheadConfig.Group users = new BulkheadConfig.Group();
+		users.setPaths(List.of("/api/users/**"));
+		users.setMaxConcurrentRequests(1);
+		config.getGroups().put("auth", auth);
+		config.getGroups().put("users", users);
+		return config;
+	}
+}
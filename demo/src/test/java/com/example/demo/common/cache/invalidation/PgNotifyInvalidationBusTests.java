@@ -0,0 +1,114 @@
+package com.example.demo.common.cache.invalidation;
+
+import com.example.demo.EmbeddedPostgresInitializer;
+import com.example.demo.common.cache.EntityCacheManager;
+import com.example.demo.entity.User;
+import com.example.demo.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ContextConfiguration(initializers = EmbeddedPostgresInitializer.class)
+class PgNotifyInvalidationBusTests {
+
+	private static final long TIMEOUT_MILLIS = 10_000;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private final List<Long> created = new ArrayList<>();
+
+	@AfterEach
+	void deleteCreatedUsers() {
+		userService.deleteAllById(created);
+	}
+
+	@BeforeEach
+	void awaitListener() throws InterruptedException {
+		// Lần kết nối đầu xóa toàn bộ cache: chờ nó xong để bản cũ còn nằm trong cache khi kiểm tra
+		assertTrue(waitUntil(() -> meterRegistry.get("entity.invalidation.resyncs").counter().count() >= 1));
+	}
+
+	@Test
+	void notificationFromAnotherNodeEvictsCachedEntity() throws Exception {
+		User user = createUser();
+		assertEquals(user.getEmail(), userService.getByIdActive(user.getId()).getEmail());
+
+		// Một node khác ghi thẳng vào DB rồi NOTIFY: cache của node này vẫn giữ bản cũ cho tới khi nhận được
+		String newEmail = "remote-" + user.getEmail();
+		jdbcTemplate.update("update users set email = ? where id = ?", newEmail, user.getId());
+		assertEquals(user.getEmail(), userService.getByIdActive(user.getId()).getEmail());
+
+		notifyFromOtherNode(new EntityInvalidation("other-node", EntityCacheManager.entityName(User.class), false,
+				List.of(new EntityInvalidation.Change(user.getId().toString(), Map.of("email", user.getEmail())))));
+		assertTrue(waitUntil(() -> newEmail.equals(userService.getByIdActive(user.getId()).getEmail())));
+	}
+
+	@Test
+	void invalidateAllFromAnotherNodeClearsTheCache() throws Exception {
+		User user = createUser();
+		assertEquals(user.getEmail(), userService.getByIdActive(user.getId()).getEmail());
+
+		String newEmail = "all-" + user.getEmail();
+		jdbcTemplate.update("update users set email = ? where id = ?", newEmail, user.getId());
+
+		notifyFromOtherNode(new EntityInvalidation("other-node", EntityCacheManager.entityName(User.class), true,
+				List.of()));
+		assertTrue(waitUntil(() -> newEmail.equals(userService.getByIdActive(user.getId()).getEmail())));
+	}
+
+	private void notifyFromOtherNode(EntityInvalidation invalidation) throws Exception {
+		jdbcTemplate.queryForObject("select pg_notify(?, ?)", Object.class, "entity_invalidation",
+				objectMapper.writeValueAsString(invalidation));
+	}
+
+	/**
+	 * The listener runs on its own thread; polls until {@code condition} holds or the timeout passes.
+	 */
+	private static boolean waitUntil(Supplier<Boolean> condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while (!condition.get()) {
+			if (System.currentTimeMillis() > deadline) {
+				return false;
+			}
+			Thread.sleep(50);
+		}
+		return true;
+	}
+
+	private User createUser() {
+		String username = "inv" + UUID.randomUUID().toString().substring(0, 8);
+		User user = new User();
+		user.setUsername(username);
+		user.setEmail(username + "@example.com");
+		user.setPassword("secret123");
+		User saved = userService.save(user);
+		created.add(saved.getId());
+		return saved;
+	}
+}
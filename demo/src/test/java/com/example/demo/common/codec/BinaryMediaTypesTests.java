@@ -0,0 +1,21 @@
+package com.example.demo.common.codec;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryMediaTypesTests {
+
+	@Test
+	void prefersJsonUnlessABinaryFormatRanksHigher() {
+		assertTrue(BinaryMediaTypes.prefersJson(null));
+		assertTrue(BinaryMediaTypes.prefersJson("*/*"));
+		assertTrue(BinaryMediaTypes.prefersJson("application/json, application/cbor"));
+		assertTrue(BinaryMediaTypes.prefersJson("application/cbor;q=0.5, application/json"));
+		assertFalse(BinaryMediaTypes.prefersJson("application/cbor"));
+		assertFalse(BinaryMediaTypes.prefersJson("application/x-protobuf, */*;q=0.1"));
+		assertFalse(BinaryMediaTypes.prefersJson("application/x-jackson-smile"));
+	}
+
+}
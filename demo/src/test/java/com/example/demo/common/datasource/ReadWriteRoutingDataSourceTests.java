@@ -0,0 +1,91 @@
+package com.example.demo.common.datasource;
+
+import com.example.demo.config.ReadReplicaConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReadWriteRoutingDataSourceTests {
+
+	private final DataSource primary = mock(DataSource.class);
+	private final DataSource replica = mock(DataSource.class);
+	private final Connection primaryConnection = mock(Connection.class);
+	private final Connection replicaConnection = mock(Connection.class);
+	private final ReadYourWritesTracker readYourWrites = new ReadYourWritesTracker(Duration.ofMinutes(1));
+	private ReadWriteRoutingDataSource routing;
+
+	@BeforeEach
+	void setUp() throws SQLException {
+		when(primary.getConnection()).thenReturn(primaryConnection);
+		when(replica.getConnection()).thenReturn(replicaConnection);
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		ReadReplicas replicas = new ReadReplicas(List.of(new ReadReplicas.Replica("r1", replica)),
+				new ReadReplicaConfig(), meterRegistry);
+		routing = new ReadWriteRoutingDataSource(primary, replicas, readYourWrites, meterRegistry);
+		SecurityContextHolder.getContext().setAuthentication(
+				UsernamePasswordAuthenticationToken.authenticated("alice", null, List.of()));
+	}
+
+	@AfterEach
+	void tearDown() {
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void readOnlyTransactionsGoToReplica() throws SQLException {
+		assertSame(primaryConnection, routing.getConnection());
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		assertSame(replicaConnection, routing.getConnection());
+		assertSame(primaryConnection, DataSourceRouting.onPrimary(this::connection));
+	}
+
+	@Test
+	void recentWritersReadFromPrimary() throws SQLException {
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		readYourWrites.recordWrite("user:bob");
+		assertSame(replicaConnection, routing.getConnection());
+		readYourWrites.recordWrite("user:alice");
+		assertSame(primaryConnection, routing.getConnection());
+	}
+
+	@Test
+	void fallsBackToPrimaryWhenReplicaFails() throws SQLException {
+		when(replica.getConnection()).thenThrow(new SQLException("down"));
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		assertSame(primaryConnection, routing.getConnection());
+		// Replica đã bị loại, không thử lại cho tới lần kiểm tra sức khỏe tiếp theo
+		assertSame(primaryConnection, routing.getConnection());
+	}
+
+	@Test
+	void routesConnectionsWithCredentials() throws SQLException {
+		Connection readerConnection = mock(Connection.class);
+		when(replica.getConnection("reader", "secret")).thenReturn(readerConnection);
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		assertSame(readerConnection, routing.getConnection("reader", "secret"));
+	}
+
+	private Connection connection() {
+		try {
+			return routing.getConnection();
+		} catch (SQLException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+}
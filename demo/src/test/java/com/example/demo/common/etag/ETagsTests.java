@@ -0,0 +1,61 @@
+package com.example.demo.common.etag;
+
+import com.example.demo.common.exception.PreconditionFailedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ETagsTests {
+
+	@Test
+	void matchesIfNoneMatchLists() {
+		String etag = ETags.forVersion(42L, 3L);
+		assertEquals("\"42-3\"", etag);
+
+		assertTrue(ETags.matches("\"42-3\"", etag));
+		assertTrue(ETags.matches("\"1-0\", W/\"42-3\"", etag));
+		assertTrue(ETags.matches("*", etag));
+		assertFalse(ETags.matches("\"42-2\"", etag));
+		assertFalse(ETags.matches(null, etag));
+	}
+
+	@Test
+	void listingTagCoversFormatAndQuery() {
+		String tag = ETags.forListing(7, MediaType.APPLICATION_JSON, 0, null);
+		assertTrue(tag.startsWith("\"w7-"));
+		assertEquals(tag, ETags.forListing(7, MediaType.APPLICATION_JSON, 0, null));
+		assertFalse(ETags.matches(tag, ETags.forListing(8, MediaType.APPLICATION_JSON, 0, null)));
+		assertFalse(ETags.matches(tag, ETags.forListing(7, MediaType.APPLICATION_CBOR, 0, null)));
+		assertFalse(ETags.matches(tag, ETags.forListing(7, MediaType.APPLICATION_JSON, 1, null)));
+		assertFalse(ETags.matches(tag, ETags.forListing(7, MediaType.APPLICATION_JSON, 0, "null")));
+		assertFalse(ETags.matches(ETags.forListing(7, MediaType.APPLICATION_JSON, "ab", "c"),
+				ETags.forListing(7, MediaType.APPLICATION_JSON, "a", "bc")));
+	}
+
+	@Test
+	void expectedVersionFromIfMatch() {
+		assertEquals(3L, ETags.expectedVersion("\"42-3\"", 42L));
+		assertNull(ETags.expectedVersion(null, 42L));
+		assertNull(ETags.expectedVersion("*", 42L));
+		assertThrows(PreconditionFailedException.class, () -> ETags.expectedVersion("\"41-3\"", 42L));
+		assertThrows(PreconditionFailedException.class, () -> ETags.expectedVersion("W/\"42-3\"", 42L));
+	}
+
+	@Test
+	void gzipRepresentationHasItsOwnTag() {
+		String gzip = ETags.forVersion(42L, 3L, ETags.GZIP);
+		assertEquals("\"42-3-gzip\"", gzip);
+		assertFalse(ETags.matches(ETags.forVersion(42L, 3L), gzip));
+		assertTrue(ETags.matches(gzip, gzip));
+
+		assertEquals(3L, ETags.expectedVersion(gzip, 42L));
+		assertThrows(PreconditionFailedException.class, () -> ETags.expectedVersion("\"42-3-br\"", 42L));
+		assertThrows(PreconditionFailedException.class, () -> ETags.expectedVersion("\"42--gzip\"", 42L));
+	}
+
+}
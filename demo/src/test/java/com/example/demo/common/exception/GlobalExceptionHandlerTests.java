@@ -0,0 +1,45 @@
+package com.example.demo.common.exception;
+
+import com.example.demo.common.dto.ApiResponse;
+import com.example.demo.common.dto.ConflictResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class GlobalExceptionHandlerTests {
+
+	private final GlobalExceptionHandler handler = new GlobalExceptionHandler();
+
+	@Test
+	void serviceUnavailableCarriesRetryAfter() {
+		ResponseEntity<ApiResponse> response = handler.handleServiceUnavailableException(
+				new ServiceUnavailableException("Server is busy, please retry later", 7), null);
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+		assertEquals("7", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+		assertEquals("Server is busy, please retry later", response.getBody().getMessage());
+	}
+
+	@Test
+	void duplicateValueIsConflictNamingTheField() {
+		ResponseEntity<ApiResponse> response = handler.handleDataIntegrityViolationException(
+				new DuplicateValueException("username", "alice"), null);
+		assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+		assertEquals("username", ((ConflictResponse) response.getBody()).getField());
+		assertEquals("username already exists", response.getBody().getMessage());
+	}
+
+	@Test
+	void otherIntegrityErrorsHideDatabaseDetails() {
+		ResponseEntity<ApiResponse> response = handler.handleDataIntegrityViolationException(
+				new DataIntegrityViolationException("null value in column \"email\" violates not-null constraint"), null);
+		assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+		assertFalse(response.getBody() instanceof ConflictResponse);
+		assertEquals("Request conflicts with existing data", response.getBody().getMessage());
+	}
+
+}
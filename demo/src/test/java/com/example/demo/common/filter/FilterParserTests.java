@@ -0,0 +1,35 @@
+package com.example.demo.common.filter;
+
+import com.example.demo.common.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FilterParserTests {
+
+	@Test
+	void parsesTermsAndOperators() {
+		List<FilterCondition> conditions = FilterParser.parse(
+				"createdAt>=2024-01-01; lastName==Nguyen;id=in=(1, 2,3);email!=a>b@x.com", 10);
+
+		assertEquals(List.of(
+				new FilterCondition("createdAt", FilterCondition.Operator.GREATER_THAN_OR_EQUAL, List.of("2024-01-01")),
+				new FilterCondition("lastName", FilterCondition.Operator.EQUAL, List.of("Nguyen")),
+				new FilterCondition("id", FilterCondition.Operator.IN, List.of("1", "2", "3")),
+				new FilterCondition("email", FilterCondition.Operator.NOT_EQUAL, List.of("a>b@x.com"))),
+				conditions);
+		assertEquals(0, FilterParser.parse(" ", 10).size());
+	}
+
+	@Test
+	void rejectsMalformedFilters() {
+		assertThrows(BadRequestException.class, () -> FilterParser.parse("lastName", 10));
+		assertThrows(BadRequestException.class, () -> FilterParser.parse("==x", 10));
+		assertThrows(BadRequestException.class, () -> FilterParser.parse("id=in=1,2", 10));
+		assertThrows(BadRequestException.class, () -> FilterParser.parse("id>1;id<9", 1));
+	}
+
+}
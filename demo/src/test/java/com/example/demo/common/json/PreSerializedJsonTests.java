@@ -0,0 +1,36 @@
+package com.example.demo.common.json;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PreSerializedJsonTests {
+
+	@Test
+	void assemblesArraysAndObjects() throws IOException {
+		List<byte[]> values = List.of(bytes("{\"id\":1}"), bytes("{\"id\":2}"));
+
+		assertWrites("[{\"id\":1},{\"id\":2}]", PreSerializedJson.array(values));
+		assertWrites("[]", PreSerializedJson.array(List.of()));
+		assertWrites("{\"content\":[{\"id\":1},{\"id\":2}],\"next\":null}",
+				PreSerializedJson.object("content", values, bytes("{\"next\":null}")));
+		assertWrites("{\"content\":[]}", PreSerializedJson.object("content", List.of(), bytes("{}")));
+	}
+
+	private static void assertWrites(String expected, PreSerializedJson json) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		json.writeTo(out);
+		assertEquals(expected, out.toString(StandardCharsets.UTF_8));
+		assertEquals(out.size(), json.length());
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+
+}
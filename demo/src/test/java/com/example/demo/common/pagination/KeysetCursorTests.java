@@ -0,0 +1,48 @@
+package com.example.demo.common.pagination;
+
+import com.example.demo.common.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeysetCursorTests {
+
+	@Test
+	void roundTripsThroughToken() {
+		LocalDateTime createdAt = LocalDateTime.of(2024, 1, 2, 3, 4, 5, 123_456_000);
+		KeysetCursor cursor = KeysetCursor.decode(
+				new KeysetCursor(KeysetCursor.Key.CREATED_AT, Sort.Direction.DESC, createdAt, "42").encode());
+		assertEquals(KeysetCursor.Key.CREATED_AT, cursor.getKey());
+		assertEquals(Sort.Direction.DESC, cursor.getDirection());
+		assertEquals(createdAt, cursor.getCreatedAt());
+		assertEquals("42", cursor.getId());
+
+		// Khóa id không mang created_at, kể cả khi có giá trị
+		KeysetCursor byId = KeysetCursor.decode(
+				new KeysetCursor(KeysetCursor.Key.ID, Sort.Direction.ASC, createdAt, "7").encode());
+		assertNull(byId.getCreatedAt());
+		assertEquals("7", byId.getId());
+	}
+
+	@Test
+	void rejectsMalformedTokens() {
+		assertThrows(BadRequestException.class, () -> KeysetCursor.decode("not base64!"));
+		assertThrows(BadRequestException.class, () -> KeysetCursor.decode(token("ID|ASC|")));
+		assertThrows(BadRequestException.class, () -> KeysetCursor.decode(token("ID|ASC||")));
+		assertThrows(BadRequestException.class, () -> KeysetCursor.decode(token("NAME|ASC||1")));
+		assertThrows(BadRequestException.class, () -> KeysetCursor.decode(token("ID|UP||1")));
+		assertThrows(BadRequestException.class, () -> KeysetCursor.decode(token("CREATED_AT|ASC|yesterday|1")));
+	}
+
+	private static String token(String raw) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
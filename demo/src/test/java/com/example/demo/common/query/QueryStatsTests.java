@@ -0,0 +1,39 @@
+package com.example.demo.common.query;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class QueryStatsTests {
+
+	@Test
+	void classifiesStatements() {
+		assertEquals(QueryStats.StatementType.SELECT, QueryStats.StatementType.of("  select 1"));
+		assertEquals(QueryStats.StatementType.SELECT, QueryStats.StatementType.of("WITH t AS (select 1) select * from t"));
+		assertEquals(QueryStats.StatementType.INSERT, QueryStats.StatementType.of("insert into users values (?)"));
+		assertEquals(QueryStats.StatementType.OTHER, QueryStats.StatementType.of("copy users from stdin"));
+	}
+
+	@Test
+	void nestedScopesCountInEveryOpenScope() {
+		QueryStats[] inner = new QueryStats[1];
+		QueryStats outer = QueryStats.measure(() -> {
+			QueryStats.current().recordStatement("select a", 1_000, 0);
+			inner[0] = QueryStats.measure(() -> {
+				QueryStats.current().recordStatement("select b", 2_000, 0);
+				QueryStats.current().recordStatement("select b", 2_000, 0);
+				QueryStats.current().recordRow();
+			});
+		});
+
+		assertEquals(3, outer.statements());
+		assertEquals(1, outer.rows());
+		assertEquals(5_000, outer.dbTime().toNanos());
+		assertEquals(Map.entry("select b", 2), outer.mostRepeated());
+		assertEquals(2, inner[0].statements(QueryStats.StatementType.SELECT));
+		assertNull(QueryStats.current());
+	}
+}
@@ -0,0 +1,123 @@
+package com.example.demo.common.security.crypto;
+
+import com.example.demo.common.exception.ServiceUnavailableException;
+import com.example.demo.common.security.config.PasswordHashingConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordHashingServiceTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder(4);
+	private final AtomicInteger encodes = new AtomicInteger();
+	private final PasswordEncoder countingEncoder = new PasswordEncoder() {
+		@Override
+		public String encode(CharSequence rawPassword) {
+			encodes.incrementAndGet();
+			return passwordEncoder.encode(rawPassword);
+		}
+
+		@Override
+		public boolean matches(CharSequence rawPassword, String encodedPassword) {
+			return passwordEncoder.matches(rawPassword, encodedPassword);
+		}
+	};
+	private PasswordHashingService service;
+
+	@AfterEach
+	void tearDown() {
+		service.shutdown();
+	}
+
+	@Test
+	void rejectsWithRetryAfterWhenQueueIsFull() throws InterruptedException {
+		service = new PasswordHashingService(passwordEncoder, config(1, 1, 7), meterRegistry);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch running = new CountDownLatch(1);
+		CompletableFuture<Object> busy = service.submit(() -> {
+			running.countDown();
+			await(release);
+			return null;
+		});
+		running.await();
+		CompletableFuture<String> queued = service.encodeAsync("queued");
+
+		ServiceUnavailableException ex = assertThrows(ServiceUnavailableException.class,
+				() -> service.encodeAsync("rejected"));
+		assertEquals(7, ex.getRetryAfterSeconds());
+		assertEquals(1, meterRegistry.get("password.hash.rejected").counter().count());
+
+		release.countDown();
+		busy.join();
+		assertTrue(passwordEncoder.matches("queued", queued.join()));
+	}
+
+	@Test
+	void batchEncodingNeverOverflowsQueue() {
+		// Một worker, hàng đợi một chỗ: lô lớn vẫn phải đi hết mà không bị từ chối
+		service = new PasswordHashingService(passwordEncoder, config(1, 1, 1), meterRegistry);
+		List<String> raw = IntStream.range(0, 40).mapToObj(i -> "password" + i).toList();
+
+		List<String> encoded = service.encodeAllAsync(raw).join();
+		assertEquals(raw.size(), encoded.size());
+		for (int i = 0; i < raw.size(); i++) {
+			assertTrue(passwordEncoder.matches(raw.get(i), encoded.get(i)));
+		}
+		assertEquals(0, meterRegistry.get("password.hash.rejected").counter().count());
+	}
+
+	@Test
+	void fullQueueRejectsWholeBatchBeforeHashing() throws InterruptedException {
+		service = new PasswordHashingService(countingEncoder, config(1, 1, 5), meterRegistry);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch running = new CountDownLatch(1);
+		CompletableFuture<Object> busy = service.submit(() -> {
+			running.countDown();
+			await(release);
+			return null;
+		});
+		running.await();
+		CompletableFuture<String> queued = service.encodeAsync("queued");
+
+		List<String> raw = IntStream.range(0, 40).mapToObj(i -> "password" + i).toList();
+		ServiceUnavailableException ex = assertThrows(ServiceUnavailableException.class,
+				() -> service.encodeAllAsync(raw));
+		assertEquals(5, ex.getRetryAfterSeconds());
+
+		release.countDown();
+		busy.join();
+		queued.join();
+		// Chỉ mật khẩu "queued" được băm, không phần nào của batch bị từ chối
+		assertEquals(1, encodes.get());
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static PasswordHashingConfig config(int threads, int queueCapacity, long retryAfterSeconds) {
+		PasswordHashingConfig config = new PasswordHashingConfig();
+		config.setThreads(threads);
+		config.setQueueCapacity(queueCapacity);
+		config.setRetryAfterSeconds(retryAfterSeconds);
+		return config;
+	}
+
+}
@@ -0,0 +1,59 @@
+package com.example.demo.common.security.revocation;
+
+import com.example.demo.common.security.config.JwtConfig;
+import com.example.demo.common.security.dto.VerifiedToken;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RevokedTokenIndexTests {
+
+	private static final long NOW = 1_800_000_000L;
+
+	@Test
+	void revokesSingleTokensUntilTheirBucketExpires() {
+		RevokedTokenIndex index = new RevokedTokenIndex(jwtConfig());
+		List<VerifiedToken> revoked = new ArrayList<>();
+		for (int i = 0; i < 1_000; i++) {
+			VerifiedToken token = token("alice", NOW, NOW + 60 * i);
+			index.revokeToken(token.getTokenId(), NOW + 60 * i);
+			revoked.add(token);
+		}
+		revoked.forEach(token -> assertTrue(index.isRevoked(token)));
+		assertFalse(index.isRevoked(token("alice", NOW, NOW + 600)));
+
+		index.purge(NOW + 86_400 + 3_600);
+		assertEquals(0, index.revokedTokenCount());
+	}
+
+	@Test
+	void userCutoffRevokesTokensIssuedUpToThatSecond() {
+		RevokedTokenIndex index = new RevokedTokenIndex(jwtConfig());
+		index.revokeIssuedBefore("bob", NOW);
+
+		assertTrue(index.isRevoked(token("bob", NOW - 10, NOW + 3_600)));
+		assertTrue(index.isRevoked(token("bob", NOW, NOW + 3_600)));
+		assertFalse(index.isRevoked(token("bob", NOW + 1, NOW + 3_600)));
+		assertFalse(index.isRevoked(token("carol", NOW - 10, NOW + 3_600)));
+	}
+
+	private static JwtConfig jwtConfig() {
+		JwtConfig config = new JwtConfig();
+		config.setExpiration(86_400_000L);
+		return config;
+	}
+
+	private static VerifiedToken token(String username, long issuedAt, long expiresAt) {
+		return new VerifiedToken(new User(username, "", List.of()), List.of(),
+				new Date(issuedAt * 1000), new Date(expiresAt * 1000), UUID.randomUUID());
+	}
+
+}
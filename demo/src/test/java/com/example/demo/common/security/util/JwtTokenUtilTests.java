@@ -0,0 +1,58 @@
+package com.example.demo.common.security.util;
+
+import com.example.demo.common.security.config.JwtConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtTokenUtilTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void cachedTokenStopsVerifyingAtExp() throws InterruptedException {
+		JwtTokenUtil jwtTokenUtil = new JwtTokenUtil(config(1_500), meterRegistry);
+		String token = jwtTokenUtil.generateToken(
+				new User("alice", "", List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+
+		assertEquals("alice", jwtTokenUtil.verify(token).orElseThrow().getPrincipal().getUsername());
+		assertTrue(jwtTokenUtil.verify(token).isPresent());
+		// Lần thứ hai lấy từ cache, không kiểm tra chữ ký lại
+		assertEquals(1, verifications());
+
+		// "exp" tính bằng giây: sau 2,5 giây token chắc chắn đã hết hạn
+		Thread.sleep(2_500);
+		assertFalse(jwtTokenUtil.verify(token).isPresent());
+		assertEquals(2, verifications());
+	}
+
+	@Test
+	void rejectsTamperedTokens() {
+		JwtTokenUtil jwtTokenUtil = new JwtTokenUtil(config(60_000), meterRegistry);
+		String token = jwtTokenUtil.generateToken(new User("alice", "", List.of()));
+		String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+		assertTrue(jwtTokenUtil.verify(token).isPresent());
+		assertFalse(jwtTokenUtil.verify(tampered).isPresent());
+		assertFalse(jwtTokenUtil.verify("").isPresent());
+	}
+
+	private long verifications() {
+		return meterRegistry.get("jwt.duration").tag("operation", "verify").timer().count();
+	}
+
+	private static JwtConfig config(long expirationMillis) {
+		JwtConfig config = new JwtConfig();
+		config.setSecret("0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef");
+		config.setExpiration(expirationMillis);
+		return config;
+	}
+
+}
@@ -0,0 +1,68 @@
+package com.example.demo.common.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardMapTests {
+
+	@Test
+	void bucketIsIdModuloBucketCount() {
+		ShardMap map = new ShardMap(8, "home");
+		assertEquals(3, map.bucketOf(11));
+		assertEquals(0, map.bucketOf(16));
+		assertEquals("home", map.shardOf(11));
+	}
+
+	@Test
+	void rebalanceSpreadsBucketsEvenlyWithFewestMoves() {
+		ShardMap map = new ShardMap(10, "home");
+		List<ShardMap.Move> moves = map.planRebalance(List.of("home", "s1", "s2"));
+
+		// 10 bucket cho 3 shard: home giữ 4, mỗi shard mới nhận 3
+		assertEquals(6, moves.size());
+		assertTrue(moves.stream().allMatch(move -> move.source().equals("home")));
+		apply(map, moves);
+		assertEquals(Map.of("home", 4, "s1", 3, "s2", 3), map.bucketCounts(List.of("home", "s1", "s2")));
+		assertTrue(map.planRebalance(List.of("home", "s1", "s2")).isEmpty());
+	}
+
+	@Test
+	void rebalanceEmptiesShardsThatAreNoLongerListed() {
+		ShardMap map = new ShardMap(4, "home");
+		apply(map, map.planRebalance(List.of("home", "s1")));
+
+		List<ShardMap.Move> moves = map.planRebalance(List.of("s1"));
+		assertEquals(2, moves.size());
+		apply(map, moves);
+		assertEquals(Map.of("s1", 4), map.bucketCounts(List.of("s1")));
+	}
+
+	@Test
+	void movingBucketsAreReported() {
+		ShardMap map = new ShardMap(4, "home");
+		assertFalse(map.isAnyMoving());
+		BitSet moving = new BitSet();
+		moving.set(2);
+		map.update(new String[]{"home", "home", "home", "home"}, moving);
+		assertTrue(map.isMoving(2));
+		assertFalse(map.isMoving(1));
+		assertEquals(List.of(2), map.movingBuckets());
+	}
+
+	private static void apply(ShardMap map, List<ShardMap.Move> moves) {
+		String[] owners = new String[map.buckets()];
+		for (int bucket = 0; bucket < owners.length; bucket++) {
+			owners[bucket] = map.ownerOf(bucket);
+		}
+		moves.forEach(move -> owners[move.bucket()] = move.target());
+		map.update(owners, new BitSet());
+	}
+
+}
@@ -0,0 +1,44 @@
+package com.example.demo.common.sharding;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ShardMergeTests {
+
+	@Test
+	void mergesSortedListsUpToTheLimit() {
+		List<List<Integer>> shards = List.of(List.of(1, 4, 7), List.of(2, 5), List.of(3, 6, 8));
+		assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8), ShardMerge.merge(shards, Comparator.naturalOrder(), -1));
+		assertEquals(List.of(1, 2, 3), ShardMerge.merge(shards, Comparator.naturalOrder(), 3));
+	}
+
+	@Test
+	void concatenatesWithoutComparator() {
+		assertEquals(List.of(3, 1, 2), ShardMerge.merge(List.of(List.of(3, 1), List.of(2)), null, -1));
+	}
+
+	@Test
+	void comparatorFollowsPostgresqlOrdering() {
+		Comparator<Map<String, Object>> comparator = ShardMerge.comparator(
+				Sort.by(Sort.Order.desc("age"), Sort.Order.asc("name").ignoreCase()), Map::get);
+		Map<String, Object> ann = Map.of("name", "ann", "age", 30);
+		Map<String, Object> bob = Map.of("name", "Bob", "age", 30);
+		Map<String, Object> carl = Map.of("name", "carl", "age", 20);
+		Map<String, Object> dan = Map.of("name", "dan");
+
+		// DESC: giá trị null đứng đầu, giống PostgreSQL
+		List<Map<String, Object>> rows = Arrays.asList(carl, bob, ann, dan);
+		rows.sort(comparator);
+		assertEquals(List.of(dan, ann, bob, carl), rows);
+		assertNull(ShardMerge.<Map<String, Object>>comparator(Sort.unsorted(), Map::get));
+	}
+
+}
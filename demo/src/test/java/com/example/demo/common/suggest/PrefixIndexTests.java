@@ -0,0 +1,50 @@
+package com.example.demo.common.suggest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrefixIndexTests {
+
+	@Test
+	void findsKeysByNormalizedPrefix() {
+		PrefixIndex index = new PrefixIndex.Builder(1)
+				.add(1, new String[] {"dang"}, new String[] {"dang", "Đặng Văn An"})
+				.add(2, new String[] {"danh"}, new String[] {"danh", null})
+				.add(3, new String[] {"bao"}, new String[] {"bao", "Bảo Đan"})
+				.build();
+
+		List<String> matches = new ArrayList<>();
+		index.search(PrefixIndex.normalize("ĐAN"), 10, (doc, field, exact, keyLength) ->
+				matches.add(index.display(doc, 0) + "/" + field + "/" + exact));
+
+		// Thứ tự khóa: "dang", "dang van an", "danh"
+		assertEquals(List.of("dang/0/false", "dang/1/false", "danh/0/false"), matches);
+		assertEquals(3, index.documentCount());
+		assertEquals(5, index.entryCount());
+		assertTrue(index.memoryBytes() > 0);
+	}
+
+	@Test
+	void reportsExactMatchesAndStopsAtLimit() {
+		PrefixIndex.Builder builder = new PrefixIndex.Builder(1);
+		for (int i = 0; i < 100; i++) {
+			builder.add(i, new String[] {null}, new String[] {"user" + i});
+		}
+		PrefixIndex index = builder.build();
+
+		List<Boolean> exact = new ArrayList<>();
+		index.search("user1", 5, (doc, field, isExact, keyLength) -> exact.add(isExact));
+		assertEquals(List.of(true, false, false, false, false), exact);
+
+		int[] none = {0};
+		index.search("zzz", 5, (doc, field, isExact, keyLength) -> none[0]++);
+		index.search("user", 0, (doc, field, isExact, keyLength) -> none[0]++);
+		assertEquals(0, none[0]);
+	}
+
+}
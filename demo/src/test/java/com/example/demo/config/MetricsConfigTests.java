@@ -0,0 +1,82 @@
+package com.example.demo.config;
+
+import com.example.demo.EmbeddedPostgresInitializer;
+import com.example.demo.common.security.util.JwtTokenUtil;
+import com.example.demo.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Không có @AutoConfigureObservability, test tắt Prometheus registry và /actuator/prometheus
+@SpringBootTest(properties = "app.metrics-scrape.password={noop}scrape-secret")
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ContextConfiguration(initializers = EmbeddedPostgresInitializer.class)
+class MetricsConfigTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private JwtTokenUtil jwtTokenUtil;
+
+	@Test
+	void servicesAndTokensAreTimed() {
+		userService.findAllActive();
+		jwtTokenUtil.verify(jwtTokenUtil.generateToken(User.withUsername("metrics").password("x").roles("USER").build()));
+
+		assertTrue(meterRegistry.get("service.method").tag("class", UserService.class.getName())
+				.tag("method", "findAllActive").timer().count() >= 1);
+		assertTrue(meterRegistry.get("jwt.duration").timers().stream().mapToLong(timer -> timer.count()).sum() >= 2);
+	}
+
+	@Test
+	void prometheusScrapeHasHistogramsForEveryLayer() throws Exception {
+		userService.findAllActive();
+
+		String body = mockMvc.perform(get("/actuator/prometheus").with(httpBasic("prometheus", "scrape-secret")))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+
+		for (String metric : new String[]{"service_method_seconds_bucket", "service_method_seconds{",
+				"jwt_duration_seconds_bucket", "password_hash_", "hikaricp_connections_acquire_seconds_bucket",
+				"hibernate_"}) {
+			assertTrue(body.contains(metric), metric);
+		}
+	}
+
+	@Test
+	void prometheusNeedsTheScrapeAccountFromEveryHost() throws Exception {
+		// Sau proxy mọi request đều như đến từ 127.0.0.1
+		mockMvc.perform(get("/actuator/prometheus").with(request -> {
+					request.setRemoteAddr("127.0.0.1");
+					return request;
+				}))
+				.andExpect(status().isUnauthorized());
+		mockMvc.perform(get("/actuator/prometheus").with(httpBasic("prometheus", "wrong")))
+				.andExpect(status().isUnauthorized());
+
+		String token = jwtTokenUtil.generateToken(User.withUsername("metrics").password("x").roles("USER").build());
+		int status = mockMvc.perform(get("/actuator/prometheus").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andReturn().getResponse().getStatus();
+		assertTrue(status == 401 || status == 403, String.valueOf(status));
+	}
+}
@@ -0,0 +1,102 @@
+package com.example.demo.controller;
+
+import com.example.demo.EmbeddedPostgresInitializer;
+import com.example.demo.common.security.dto.VerifiedToken;
+import com.example.demo.common.security.util.JwtTokenUtil;
+import com.example.demo.entity.User;
+import com.example.demo.service.UserService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ContextConfiguration(initializers = EmbeddedPostgresInitializer.class)
+class AuthControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private JwtTokenUtil jwtTokenUtil;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private final List<Long> created = new ArrayList<>();
+
+	@AfterEach
+	void deleteCreatedUsers() {
+		userService.deleteAllById(created);
+	}
+
+	@Test
+	void loginIssuesTokenWithItsExpiry() throws Exception {
+		User user = createUser();
+		JsonNode response = login(user.getUsername(), "secret123", status().isOk());
+
+		VerifiedToken token = jwtTokenUtil.verify(response.get("token").asText()).orElseThrow();
+		assertEquals(user.getUsername(), token.getUsername());
+		long expiresAt = objectMapper.convertValue(response.get("expiresAt"), Date.class).getTime();
+		long tokenExpiresAt = token.getExpiresAt().getTime();
+		assertTrue(expiresAt <= tokenExpiresAt && tokenExpiresAt - expiresAt < 1000, expiresAt + " " + tokenExpiresAt);
+	}
+
+	@Test
+	void wrongPasswordUnknownUserAndDisabledUserAreUnauthorized() throws Exception {
+		User user = createUser();
+		login(user.getUsername(), "wrong-password", status().isUnauthorized());
+		login("nobody" + UUID.randomUUID(), "secret123", status().isUnauthorized());
+
+		userService.softDelete(user.getId());
+		login(user.getUsername(), "secret123", status().isUnauthorized());
+	}
+
+	private JsonNode login(String username, String password, ResultMatcher expected) throws Exception {
+		MvcResult started = mockMvc.perform(post("/api/auth/login")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(objectMapper.writeValueAsString(Map.of("username", username, "password", password))))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		String body = mockMvc.perform(asyncDispatch(started))
+				.andExpect(expected)
+				.andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(body);
+	}
+
+	private User createUser() {
+		String username = "log" + UUID.randomUUID().toString().substring(0, 8);
+		User user = new User();
+		user.setUsername(username);
+		user.setEmail(username + "@example.com");
+		user.setPassword("secret123");
+		User saved = userService.save(user);
+		created.add(saved.getId());
+		return saved;
+	}
+}
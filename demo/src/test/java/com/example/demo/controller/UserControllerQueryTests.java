@@ -0,0 +1,45 @@
+package com.example.demo.controller;
+
+import com.example.demo.EmbeddedPostgresInitializer;
+import com.example.demo.common.query.QueryStats;
+import com.example.demo.dto.request.CreateUserRequest;
+import com.example.demo.dto.response.UserResponse;
+import com.example.demo.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.http.ResponseEntity;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ContextConfiguration(initializers = EmbeddedPostgresInitializer.class)
+class UserControllerQueryTests {
+
+	@Autowired
+	private UserController userController;
+
+	@Autowired
+	private UserService userService;
+
+	@Test
+	void createUserIssuesOneInsert() {
+		String username = "q" + UUID.randomUUID().toString().substring(0, 8);
+		CreateUserRequest request = new CreateUserRequest();
+		request.setUsername(username);
+		request.setEmail(username + "@example.com");
+		request.setPassword("secret123");
+
+		AtomicReference<ResponseEntity<UserResponse>> response = new AtomicReference<>();
+		QueryStats stats = QueryStats.measure(() -> response.set(userController.createUser(request).join()));
+		try {
+			assertEquals(1, stats.statements(QueryStats.StatementType.INSERT), () -> stats.executions().toString());
+		} finally {
+			userService.deleteById(response.get().getBody().getId());
+		}
+	}
+}
@@ -0,0 +1,205 @@
+package com.example.demo.controller;
+
+import com.example.demo.EmbeddedPostgresInitializer;
+import com.example.demo.common.etag.ETags;
+import com.example.demo.entity.User;
+import com.example.demo.service.UserService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ContextConfiguration(initializers = EmbeddedPostgresInitializer.class)
+@WithMockUser
+class UserControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private final List<Long> created = new ArrayList<>();
+
+	@AfterEach
+	void deleteCreatedUsers() {
+		userService.deleteAllById(created);
+	}
+
+	@Test
+	void exportStreamsOneActiveUserPerLine() throws Exception {
+		User first = createUser("exp");
+		User second = createUser("exp");
+		User inactive = createUser("exp");
+		userService.softDelete(inactive.getId());
+
+		String body = mockMvc.perform(get("/api/users/export"))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+				.andReturn().getResponse().getContentAsString();
+
+		assertTrue(body.endsWith("\n"));
+		List<Long> ids = new ArrayList<>();
+		for (String line : body.split("\n")) {
+			JsonNode user = objectMapper.readTree(line);
+			assertFalse(user.has("password"), line);
+			ids.add(user.get("id").asLong());
+		}
+		assertEquals(userService.findAllActive().size(), ids.size());
+		assertTrue(ids.indexOf(first.getId()) < ids.indexOf(second.getId()));
+		assertTrue(ids.contains(first.getId()));
+		assertFalse(ids.contains(inactive.getId()));
+	}
+
+	@Test
+	void batchCreatesWhatItCanAndReportsTheRest() throws Exception {
+		User existing = createUser("bat");
+		String a = "bat" + UUID.randomUUID().toString().substring(0, 8);
+		String b = "bat" + UUID.randomUUID().toString().substring(0, 8);
+		List<Map<String, String>> batch = List.of(
+				newUser(a, a + "@example.com", "secret123"),
+				newUser(existing.getUsername(), "other-" + existing.getEmail(), "secret123"),
+				newUser(a, "second-" + a + "@example.com", "secret123"),
+				newUser("x" + b, existing.getEmail(), "secret123"),
+				newUser("y" + b, "y" + b + "@example.com", "short"),
+				newUser(b, b + "@example.com", "secret123"));
+
+		MvcResult started = mockMvc.perform(post("/api/users/batch")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(objectMapper.writeValueAsString(batch)))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		JsonNode response = objectMapper.readTree(mockMvc.perform(asyncDispatch(started))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString());
+
+		List<String> statuses = new ArrayList<>();
+		for (JsonNode result : response.get("results")) {
+			statuses.add(result.get("status").asText());
+			if (result.hasNonNull("id")) {
+				created.add(result.get("id").asLong());
+			}
+		}
+		assertEquals(List.of("CREATED", "CONFLICT", "CONFLICT", "CONFLICT", "INVALID", "CREATED"), statuses);
+		assertEquals(2, response.get("created").asInt());
+		assertEquals(3, response.get("conflicts").asInt());
+		assertEquals(1, response.get("invalid").asInt());
+		assertEquals("username already exists", response.get("results").get(2).get("message").asText());
+		assertEquals("email already exists", response.get("results").get(3).get("message").asText());
+		assertEquals(a, userService.getByIdActive(response.get("results").get(0).get("id").asLong()).getUsername());
+		assertEquals(b, userService.getByIdActive(response.get("results").get(5).get("id").asLong()).getUsername());
+	}
+
+	@Test
+	void listingTagsDifferByQueryAndFormat() throws Exception {
+		createUser("tag");
+		String json = listingTag(get("/api/users/cursor").param("size", "5"));
+		String cbor = listingTag(get("/api/users/cursor").param("size", "5").accept(MediaType.APPLICATION_CBOR));
+		String fields = listingTag(get("/api/users/cursor").param("size", "5").param("fields", "id"));
+		String nextSize = listingTag(get("/api/users/cursor").param("size", "6"));
+		assertEquals(4, new HashSet<>(List.of(json, cbor, fields, nextSize)).size());
+
+		// Cùng query, cùng định dạng: 304
+		assertTrue(mockMvc.perform(get("/api/users/cursor").param("size", "5").header(HttpHeaders.IF_NONE_MATCH, json))
+				.andExpect(status().isNotModified())
+				.andReturn().getResponse().getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT));
+		mockMvc.perform(get("/api/users/cursor").param("size", "5").accept(MediaType.APPLICATION_CBOR)
+						.header(HttpHeaders.IF_NONE_MATCH, json))
+				.andExpect(status().isOk());
+	}
+
+	private String listingTag(MockHttpServletRequestBuilder builder) throws Exception {
+		MockHttpServletResponse response = mockMvc.perform(builder)
+				.andExpect(status().isOk())
+				.andReturn().getResponse();
+		assertTrue(response.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT), response.getHeaders(HttpHeaders.VARY)::toString);
+		return response.getHeader(HttpHeaders.ETAG);
+	}
+
+	@Test
+	void deletingMissingUserIsNotFound() throws Exception {
+		Long id = createUser("gone").getId();
+		mockMvc.perform(delete("/api/users/{id}/permanent", id)).andExpect(status().isOk());
+		created.remove(id);
+
+		mockMvc.perform(delete("/api/users/{id}/permanent", id)).andExpect(status().isNotFound());
+		mockMvc.perform(delete("/api/users/{id}", id)).andExpect(status().isNotFound());
+		mockMvc.perform(post("/api/users/{id}/restore", id)).andExpect(status().isNotFound());
+	}
+
+	@Test
+	void duplicateValuesAreConflictsNamingTheField() throws Exception {
+		User existing = createUser("dup");
+		String fresh = "dup" + UUID.randomUUID().toString().substring(0, 8);
+
+		assertConflict(post("/api/users").contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(
+				newUser(existing.getUsername(), fresh + "@example.com", "secret123"))), "username");
+		assertConflict(post("/api/users").contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(
+				newUser(fresh, existing.getEmail(), "secret123"))), "email");
+
+		// PATCH đi qua UPDATE hàng loạt của JPA, lỗi UNIQUE đến handler dưới dạng exception của Hibernate
+		User other = createUser("dup");
+		assertConflict(patch("/api/users/{id}", other.getId())
+				.contentType(MediaType.APPLICATION_JSON)
+				.header(HttpHeaders.IF_MATCH, ETags.forVersion(other.getId(), other.getVersion()))
+				.content(objectMapper.writeValueAsString(Map.of("email", existing.getEmail()))), "email");
+	}
+
+	private void assertConflict(MockHttpServletRequestBuilder builder, String field) throws Exception {
+		MvcResult started = mockMvc.perform(builder).andExpect(request().asyncStarted()).andReturn();
+		JsonNode body = objectMapper.readTree(mockMvc.perform(asyncDispatch(started))
+				.andExpect(status().isConflict())
+				.andReturn().getResponse().getContentAsString());
+		assertEquals(field, body.get("field").asText());
+		assertEquals(field + " already exists", body.get("message").asText());
+	}
+
+	private static Map<String, String> newUser(String username, String email, String password) {
+		return Map.of("username", username, "email", email, "password", password);
+	}
+
+	private User createUser(String prefix) {
+		String username = prefix + UUID.randomUUID().toString().substring(0, 8);
+		User user = new User();
+		user.setUsername(username);
+		user.setEmail(username + "@example.com");
+		user.setPassword("secret123");
+		User saved = userService.save(user);
+		created.add(saved.getId());
+		return saved;
+	}
+}
@@ -0,0 +1,119 @@
+package com.example.demo.service;
+
+import com.example.demo.EmbeddedPostgresInitializer;
+import com.example.demo.config.UserImportConfig;
+import com.example.demo.dto.response.UserSuggestionResponse;
+import com.example.demo.entity.User;
+import com.example.demo.entity.UserImportJob;
+import com.example.demo.repository.UserImportJobRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ContextConfiguration(initializers = EmbeddedPostgresInitializer.class)
+class UserImportServiceTests {
+
+	@Autowired
+	private UserImportService importService;
+
+	@Autowired
+	private UserImportJobRepository jobRepository;
+
+	@Autowired
+	private UserImportConfig config;
+
+	@Autowired
+	private UserService userService;
+
+	private final List<String> usernames = new ArrayList<>();
+
+	@AfterEach
+	void deleteImportedUsers() {
+		userService.deleteAllById(usernames.stream()
+				.map(username -> userService.findByUsername(username).getId())
+				.toList());
+	}
+
+	@Test
+	void resumesAfterLastCommittedChunkAndReportsConflicts() throws Exception {
+		String prefix = "imp" + UUID.randomUUID().toString().substring(0, 6);
+		// Bản ghi 1-2 thuộc chunk đã commit trước khi job dừng
+		User first = createUser(prefix + "1");
+		User second = createUser(prefix + "2");
+		Path file = writeImportFile(String.join("\n",
+				"username,password,email",
+				first.getUsername() + ",secret123," + first.getEmail(),
+				second.getUsername() + ",secret123," + second.getEmail(),
+				prefix + "3,secret123," + prefix + "3@example.com",
+				first.getUsername() + ",secret123," + prefix + "4@example.com",
+				prefix + "5,secret123," + second.getEmail(),
+				prefix + "6,secret123," + prefix + "6@example.com"));
+		usernames.add(prefix + "3");
+		usernames.add(prefix + "6");
+
+		UserImportJob interrupted = new UserImportJob();
+		interrupted.setFormat(UserImportJob.Format.CSV);
+		interrupted.setSourcePath(file.toString());
+		interrupted.setStatus(UserImportJob.Status.FAILED);
+		interrupted.setRecordsCommitted(2);
+		interrupted.setImported(2);
+		Long jobId = jobRepository.save(interrupted).getId();
+
+		importService.resume(jobId);
+		UserImportJob job = awaitCompletion(jobId);
+
+		assertEquals(UserImportJob.Status.COMPLETED, job.getStatus(), job.getErrorMessage());
+		assertEquals(6, job.getRecordsCommitted());
+		assertEquals(4, job.getImported());
+		assertEquals(2, job.getConflicts());
+		assertEquals(0, job.getInvalid());
+		assertEquals("record 4: conflict - username already exists\nrecord 5: conflict - email already exists",
+				job.getReport());
+		for (String username : List.of(prefix + "3", prefix + "6")) {
+			assertTrue(userService.findByUsername(username).getId() > 0, username);
+		}
+		// Chỉ người dùng thực sự được chèn mới vào chỉ mục gợi ý
+		assertEquals(List.of(first.getUsername(), second.getUsername(), prefix + "3", prefix + "6"),
+				userService.suggest(prefix, 10).stream().map(UserSuggestionResponse::getUsername).sorted().toList());
+		Files.deleteIfExists(file);
+	}
+
+	private UserImportJob awaitCompletion(Long jobId) throws InterruptedException {
+		for (int i = 0; i < 300; i++) {
+			UserImportJob job = importService.getJob(jobId);
+			if (job.getStatus() == UserImportJob.Status.COMPLETED || job.getStatus() == UserImportJob.Status.FAILED) {
+				return job;
+			}
+			Thread.sleep(100);
+		}
+		throw new AssertionError("Import job " + jobId + " did not finish");
+	}
+
+	private Path writeImportFile(String content) throws Exception {
+		Path directory = Paths.get(config.getDirectory());
+		Files.createDirectories(directory);
+		return Files.writeString(Files.createTempFile(directory, "test-", ".csv"), content);
+	}
+
+	private User createUser(String username) {
+		User user = new User();
+		user.setUsername(username);
+		user.setEmail(username + "@example.com");
+		user.setPassword("secret123");
+		usernames.add(username);
+		return userService.save(user);
+	}
+}
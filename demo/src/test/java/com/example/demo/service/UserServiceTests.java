@@ -0,0 +1,323 @@
+package com.example.demo.service;
+
+import com.example.demo.EmbeddedPostgresInitializer;
+import com.example.demo.common.dto.CursorPage;
+import com.example.demo.common.exception.BadRequestException;
+import com.example.demo.common.exception.PreconditionFailedException;
+import com.example.demo.common.exception.ResourceNotFoundException;
+import com.example.demo.common.pagination.KeysetCursor;
+import com.example.demo.common.query.QueryStats;
+import com.example.demo.common.security.crypto.PasswordHashingService;
+import com.example.demo.entity.User;
+import com.example.demo.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ContextConfiguration(initializers = EmbeddedPostgresInitializer.class)
+class UserServiceTests {
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private PasswordHashingService passwordHashingService;
+
+	private final List<Long> created = new ArrayList<>();
+
+	@AfterEach
+	void deleteCreatedUsers() {
+		userService.deleteAllById(created);
+	}
+
+	@Test
+	void activeReadsFilterInSql() {
+		User active = createUser("act");
+		User inactive = createUser("ina");
+		userService.softDelete(inactive.getId());
+
+		QueryStats stats = QueryStats.measure(() -> {
+			List<Long> ids = userService.findAllActive().stream().map(User::getId).toList();
+			assertTrue(ids.contains(active.getId()));
+			assertFalse(ids.contains(inactive.getId()));
+		});
+		assertTrue(stats.executions().keySet().stream().allMatch(sql -> sql.matches("(?is).* where .*active.*")),
+				() -> stats.executions().toString());
+
+		List<Long> all = userService.findAll().stream().map(User::getId).toList();
+		assertTrue(all.containsAll(List.of(active.getId(), inactive.getId())));
+		assertThrows(ResourceNotFoundException.class, () -> userService.getByIdActive(inactive.getId()));
+	}
+
+	@Test
+	void inactiveUsersAreHiddenUnlessAskedFor() {
+		User inactive = createUser("ina");
+		userService.softDelete(inactive.getId());
+
+		assertTrue(userService.findById(inactive.getId()).isEmpty());
+		assertThrows(ResourceNotFoundException.class, () -> userService.getById(inactive.getId()));
+		assertTrue(userRepository.findById(inactive.getId()).isEmpty());
+		assertFalse(userRepository.findAll().stream().anyMatch(user -> user.getId().equals(inactive.getId())));
+		assertTrue(userRepository.findByUsernameAndActiveTrue(inactive.getUsername()).isEmpty());
+
+		// Ràng buộc UNIQUE vẫn tính dòng đã xóa mềm
+		assertFalse(userService.isUsernameAvailable(inactive.getUsername()));
+		assertFalse(userService.isEmailAvailable(inactive.getEmail()));
+		assertTrue(userRepository.findByIdIncludingInactive(inactive.getId()).isPresent());
+		User found = userService.findByIdIncludingInactive(inactive.getId()).orElseThrow();
+		assertFalse(found.getActive());
+		assertNull(found.getPassword());
+	}
+
+	@Test
+	void cursorPagesVisitEveryRowOnceAcrossEqualTimestamps() {
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			ids.add(createUser("cur").getId());
+		}
+		// Cùng created_at: thứ tự phải do id quyết định, không bỏ sót hay lặp dòng nào
+		jdbcTemplate.update("update users set created_at = timestamp '2001-01-01 00:00:00' where id in ("
+				+ ids.stream().map(String::valueOf).collect(Collectors.joining(",")) + ")");
+		userService.softDelete(ids.get(2));
+		List<Long> expected = List.of(ids.get(0), ids.get(1), ids.get(3), ids.get(4));
+
+		for (Sort.Direction direction : Sort.Direction.values()) {
+			for (KeysetCursor.Key key : KeysetCursor.Key.values()) {
+				List<Long> seen = new ArrayList<>();
+				String cursor = null;
+				do {
+					CursorPage<User> page = userService.findActiveByCursor(cursor, 2, key, direction);
+					assertTrue(page.getContent().size() <= 2);
+					page.getContent().forEach(user -> seen.add(user.getId()));
+					cursor = page.getNextCursor();
+				} while (cursor != null);
+
+				List<Long> ours = seen.stream().filter(expected::contains).toList();
+				List<Long> ordered = new ArrayList<>(expected);
+				if (direction.isDescending()) {
+					Collections.reverse(ordered);
+				}
+				assertEquals(ordered, ours, key + " " + direction);
+				assertEquals(seen.size(), new HashSet<>(seen).size(), key + " " + direction);
+			}
+		}
+	}
+
+	@Test
+	void lastFullCursorPageHasNoNextCursor() {
+		createUser("full");
+		long active = userService.findAllActive().size();
+		CursorPage<User> page = userService.findActiveByCursor(null, (int) active, KeysetCursor.Key.ID,
+				Sort.Direction.ASC);
+		assertEquals(active, page.getContent().size());
+		assertNull(page.getNextCursor());
+	}
+
+	@Test
+	void rejectsCursorWithForeignId() {
+		String cursor = new KeysetCursor(KeysetCursor.Key.ID, Sort.Direction.ASC, null, "abc").encode();
+		assertThrows(BadRequestException.class,
+				() -> userService.findActiveByCursor(cursor, 10, KeysetCursor.Key.ID, Sort.Direction.ASC));
+	}
+
+	@Test
+	void saveGoesThroughTheTransactionalProxy() {
+		double before = saveEncodedCalls();
+		User user = createUser("prx");
+		assertEquals(before + 1, saveEncodedCalls());
+		assertTrue(user.getPassword().startsWith("$2"));
+	}
+
+	@Test
+	void updatesTakeOnlyHashedPasswords() {
+		User user = createUser("hsh");
+		assertThrows(IllegalArgumentException.class,
+				() -> userService.patch(user.getId(), Map.of("password", "plain-secret"), null));
+
+		String hashed = passwordHashingService.encode("new-secret");
+		assertEquals(user.getVersion() + 1, userService.patch(user.getId(), Map.of("password", hashed), null).getVersion());
+	}
+
+	@Test
+	void patchChecksVersionAndWritesOnlyGivenFields() {
+		User user = createUser("pat");
+		Map<String, Object> changes = new HashMap<>();
+		changes.put("firstName", "Lan");
+		changes.put("lastName", null);
+		User patched = userService.patch(user.getId(), changes, user.getVersion());
+		assertEquals("Lan", patched.getFirstName());
+		assertNull(patched.getLastName());
+		assertEquals(user.getEmail(), patched.getEmail());
+		assertEquals(user.getVersion() + 1, patched.getVersion());
+		assertEquals(user.getPassword(), jdbcTemplate.queryForObject(
+				"select password from users where id = ?", String.class, user.getId()));
+
+		assertThrows(PreconditionFailedException.class,
+				() -> userService.patch(user.getId(), Map.of("firstName", "Mai"), user.getVersion()));
+		userService.softDelete(user.getId());
+		assertThrows(ResourceNotFoundException.class,
+				() -> userService.patch(user.getId(), Map.of("firstName", "Mai"), null));
+	}
+
+	@Test
+	void softDeleteRestoreAndDeleteAreSingleStatements() {
+		Long id = createUser("del").getId();
+
+		QueryStats softDelete = QueryStats.measure(() -> userService.softDelete(id));
+		assertEquals(1, softDelete.statements(QueryStats.StatementType.UPDATE), () -> softDelete.executions().toString());
+		QueryStats restore = QueryStats.measure(() -> userService.restore(id));
+		assertEquals(1, restore.statements(QueryStats.StatementType.UPDATE), () -> restore.executions().toString());
+		QueryStats delete = QueryStats.measure(() -> userService.deleteById(id));
+		assertEquals(1, delete.statements(QueryStats.StatementType.DELETE), () -> delete.executions().toString());
+		assertEquals(0, delete.statements(QueryStats.StatementType.UPDATE), () -> delete.executions().toString());
+
+		assertThrows(ResourceNotFoundException.class, () -> userService.deleteById(id));
+		assertThrows(ResourceNotFoundException.class, () -> userService.softDelete(id));
+		assertThrows(ResourceNotFoundException.class, () -> userService.restore(id));
+	}
+
+	@Test
+	void cachedUserIsEvictedOnlyAfterCommit() {
+		User user = createUser("cac");
+		String oldEmail = user.getEmail();
+		assertEquals(oldEmail, userService.getByIdActive(user.getId()).getEmail());
+
+		String newEmail = "new-" + oldEmail;
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			userService.patch(user.getId(), Map.of("email", newEmail), null);
+			// Đọc từ luồng khác trước commit: thấy bản cũ, và bản cũ không được ở lại cache sau commit
+			assertEquals(oldEmail, CompletableFuture.supplyAsync(
+					() -> userService.getByIdActive(user.getId()).getEmail()).join());
+		});
+
+		QueryStats stats = QueryStats.measure(
+				() -> assertEquals(newEmail, userService.getByIdActive(user.getId()).getEmail()));
+		assertEquals(1, stats.statements(QueryStats.StatementType.SELECT), () -> stats.executions().toString());
+		QueryStats cached = QueryStats.measure(() -> userService.getByIdActive(user.getId()));
+		assertEquals(0, cached.statements(QueryStats.StatementType.SELECT), () -> cached.executions().toString());
+	}
+
+	@Test
+	void changesToCachedUserStayWithTheCaller() {
+		User user = createUser("cac");
+		User first = userService.getByIdActive(user.getId());
+		first.setEmail("changed-" + user.getEmail());
+
+		QueryStats stats = QueryStats.measure(
+				() -> assertEquals(user.getEmail(), userService.getByIdActive(user.getId()).getEmail()));
+		assertEquals(0, stats.statements(QueryStats.StatementType.SELECT), () -> stats.executions().toString());
+	}
+
+	@Test
+	void rolledBackChangeKeepsCachedUser() {
+		User user = createUser("cac");
+		userService.getByIdActive(user.getId());
+
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			userService.patch(user.getId(), Map.of("email", "rolled-back-" + user.getEmail()), null);
+			status.setRollbackOnly();
+		});
+
+		QueryStats stats = QueryStats.measure(
+				() -> assertEquals(user.getEmail(), userService.getByIdActive(user.getId()).getEmail()));
+		assertEquals(0, stats.statements(QueryStats.StatementType.SELECT), () -> stats.executions().toString());
+	}
+
+	@Test
+	void fieldsSelectOnlyTheirColumns() {
+		User user = createUser("fld");
+		List<String> fields = userService.resolveFields("id, username");
+		assertEquals(List.of("id", "username"), fields);
+
+		QueryStats stats = QueryStats.measure(() -> {
+			Map<String, Object> row = userService.findAll(fields, false).stream()
+					.filter(values -> user.getId().equals(values.get("id")))
+					.findFirst().orElseThrow();
+			assertEquals(Map.of("id", user.getId(), "username", user.getUsername()), row);
+			userService.findActiveByCursor(null, 10, KeysetCursor.Key.CREATED_AT, Sort.Direction.DESC, fields)
+					.getContent().forEach(values -> assertEquals(fields, List.copyOf(values.keySet())));
+		});
+		assertEquals(2, stats.statements(QueryStats.StatementType.SELECT), () -> stats.executions().toString());
+		for (String sql : stats.executions().keySet()) {
+			String selectList = sql.substring(0, sql.toLowerCase().indexOf(" from "));
+			assertTrue(selectList.contains("username"), sql);
+			assertFalse(selectList.contains("email"), sql);
+			assertFalse(selectList.contains("password"), sql);
+		}
+	}
+
+	@Test
+	void entityReadsNeverSelectThePassword() {
+		User user = createUser("pwd");
+		QueryStats stats = QueryStats.measure(() -> {
+			assertNull(userService.getByIdActive(user.getId()).getPassword());
+			userService.findAllActive().forEach(found -> assertNull(found.getPassword()));
+			userService.findActiveByCursor(null, 10, KeysetCursor.Key.ID, Sort.Direction.ASC)
+					.getContent().forEach(found -> assertNull(found.getPassword()));
+		});
+		assertTrue(stats.statements(QueryStats.StatementType.SELECT) >= 2, () -> stats.executions().toString());
+		assertTrue(stats.executions().keySet().stream().noneMatch(sql -> sql.contains("password")),
+				() -> stats.executions().toString());
+	}
+
+	@Test
+	void rejectsUnknownAndHiddenFields() {
+		assertThrows(BadRequestException.class, () -> userService.resolveFields("id,nope"));
+		assertThrows(BadRequestException.class, () -> userService.resolveFields("password"));
+		assertThrows(BadRequestException.class, () -> userService.resolveFields(" , "));
+	}
+
+	private double saveEncodedCalls() {
+		Timer timer = meterRegistry.find("service.method").tag("class", UserService.class.getName())
+				.tag("method", "saveEncoded").timer();
+		return timer != null ? timer.count() : 0;
+	}
+
+	private User createUser(String prefix) {
+		String username = prefix + UUID.randomUUID().toString().substring(0, 8);
+		User user = new User();
+		user.setUsername(username);
+		user.setEmail(username + "@example.com");
+		user.setPassword("secret123");
+		User saved = userService.save(user);
+		created.add(saved.getId());
+		return saved;
+	}
+}